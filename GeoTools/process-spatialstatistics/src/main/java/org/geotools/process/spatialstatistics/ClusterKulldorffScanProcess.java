@@ -0,0 +1,134 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.api.filter.expression.Expression;
+import org.geotools.api.util.ProgressListener;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.process.Process;
+import org.geotools.process.ProcessException;
+import org.geotools.process.ProcessFactory;
+import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.pattern.ClusterKulldorffScanOperation;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Spatial Cluster Detection: Kulldorff's spatial scan statistic with Monte Carlo significance testing.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class ClusterKulldorffScanProcess extends AbstractStatisticsProcess {
+    protected static final Logger LOGGER = Logging.getLogger(ClusterKulldorffScanProcess.class);
+
+    public ClusterKulldorffScanProcess(ProcessFactory factory) {
+        super(factory);
+    }
+
+    public ProcessFactory getFactory() {
+        return factory;
+    }
+
+    public static Map<String, Object> process(SimpleFeatureCollection popFeatures,
+            Expression popField, SimpleFeatureCollection caseFeatures, Expression caseField,
+            ProgressListener monitor) {
+        return process(popFeatures, popField, caseFeatures, caseField,
+                (Double) ClusterKulldorffScanProcessFactory.maxPopulationRatio.sample,
+                (Integer) ClusterKulldorffScanProcessFactory.replications.sample,
+                (Double) ClusterKulldorffScanProcessFactory.threshold.sample, monitor);
+    }
+
+    public static Map<String, Object> process(SimpleFeatureCollection popFeatures,
+            Expression popField, SimpleFeatureCollection caseFeatures, Expression caseField,
+            Double maxPopulationRatio, Integer replications, Double threshold,
+            ProgressListener monitor) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put(ClusterKulldorffScanProcessFactory.popFeatures.key, popFeatures);
+        map.put(ClusterKulldorffScanProcessFactory.popField.key, popField);
+        map.put(ClusterKulldorffScanProcessFactory.caseFeatures.key, caseFeatures);
+        map.put(ClusterKulldorffScanProcessFactory.caseField.key, caseField);
+        map.put(ClusterKulldorffScanProcessFactory.maxPopulationRatio.key, maxPopulationRatio);
+        map.put(ClusterKulldorffScanProcessFactory.replications.key, replications);
+        map.put(ClusterKulldorffScanProcessFactory.threshold.key, threshold);
+
+        Process process = new ClusterKulldorffScanProcess(null);
+        Map<String, Object> resultMap = null;
+        try {
+            resultMap = process.execute(map, monitor);
+        } catch (ProcessException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        }
+
+        return resultMap;
+    }
+
+    @Override
+    public Map<String, Object> execute(Map<String, Object> input, ProgressListener monitor)
+            throws ProcessException {
+        SimpleFeatureCollection popFeatures = (SimpleFeatureCollection) Params.getValue(input,
+                ClusterKulldorffScanProcessFactory.popFeatures, null);
+        Expression popField = (Expression) Params.getValue(input,
+                ClusterKulldorffScanProcessFactory.popField, null);
+        SimpleFeatureCollection caseFeatures = (SimpleFeatureCollection) Params.getValue(input,
+                ClusterKulldorffScanProcessFactory.caseFeatures, null);
+        Expression caseField = (Expression) Params.getValue(input,
+                ClusterKulldorffScanProcessFactory.caseField, null);
+
+        if (popFeatures == null || popField == null || caseFeatures == null || caseField == null) {
+            throw new NullPointerException("All parameters required");
+        }
+
+        Double maxPopulationRatio = (Double) Params.getValue(input,
+                ClusterKulldorffScanProcessFactory.maxPopulationRatio,
+                ClusterKulldorffScanProcessFactory.maxPopulationRatio.sample);
+
+        Integer replications = (Integer) Params.getValue(input,
+                ClusterKulldorffScanProcessFactory.replications,
+                ClusterKulldorffScanProcessFactory.replications.sample);
+
+        Double threshold = (Double) Params.getValue(input,
+                ClusterKulldorffScanProcessFactory.threshold,
+                ClusterKulldorffScanProcessFactory.threshold.sample);
+
+        // start process
+        SimpleFeatureCollection resultCircles = null;
+
+        ClusterKulldorffScanOperation process = new ClusterKulldorffScanOperation();
+        try {
+            process.setMaxPopulationRatio(maxPopulationRatio);
+            process.setReplications(replications);
+            process.setThreshold(threshold);
+
+            resultCircles = process.execute(popFeatures, popField, caseFeatures, caseField);
+        } catch (IOException e) {
+            throw new ProcessException(e);
+        }
+
+        // end process
+
+        Map<String, Object> resultMap = new HashMap<String, Object>();
+        resultMap.put(ClusterKulldorffScanProcessFactory.resultCircles.key, resultCircles);
+        return resultMap;
+    }
+}
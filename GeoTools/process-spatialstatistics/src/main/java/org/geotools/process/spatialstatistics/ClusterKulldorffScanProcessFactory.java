@@ -0,0 +1,146 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.geotools.api.data.Parameter;
+import org.geotools.api.filter.expression.Expression;
+import org.geotools.api.util.InternationalString;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.NameImpl;
+import org.geotools.process.Process;
+import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.util.KVP;
+import org.geotools.util.logging.Logging;
+
+/**
+ * ClusterKulldorffScanProcessFactory
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class ClusterKulldorffScanProcessFactory extends SpatialStatisticsProcessFactory {
+    protected static final Logger LOGGER = Logging
+            .getLogger(ClusterKulldorffScanProcessFactory.class);
+
+    private static final String PROCESS_NAME = "ClusterKulldorffScan";
+
+    /*
+     * ClusterKulldorffScan(SimpleFeatureCollection popFeatures, Expression popField, SimpleFeatureCollection caseFeatures, Expression caseField,
+     * Double maxPopulationRatio, Integer replications, Double threshold): SimpleFeatureCollection
+     */
+
+    public ClusterKulldorffScanProcessFactory() {
+        super(new NameImpl(NAMESPACE, PROCESS_NAME));
+    }
+
+    @Override
+    public Process create() {
+        return new ClusterKulldorffScanProcess(this);
+    }
+
+    @Override
+    public InternationalString getTitle() {
+        return getResource("ClusterKulldorffScan.title");
+    }
+
+    @Override
+    public InternationalString getDescription() {
+        return getResource("ClusterKulldorffScan.description");
+    }
+
+    /** popFeatures */
+    public static final Parameter<SimpleFeatureCollection> popFeatures = new Parameter<SimpleFeatureCollection>(
+            "popFeatures", SimpleFeatureCollection.class,
+            getResource("ClusterKulldorffScan.popFeatures.title"),
+            getResource("ClusterKulldorffScan.popFeatures.description"), true, 1, 1, null, null);
+
+    /** popField */
+    public static final Parameter<Expression> popField = new Parameter<Expression>("popField",
+            Expression.class, getResource("ClusterKulldorffScan.popField.title"),
+            getResource("ClusterKulldorffScan.popField.description"), true, 1, 1, null,
+            new KVP(Params.FIELD, "popFeatures.Number"));
+
+    /** caseFeatures */
+    public static final Parameter<SimpleFeatureCollection> caseFeatures = new Parameter<SimpleFeatureCollection>(
+            "caseFeatures", SimpleFeatureCollection.class,
+            getResource("ClusterKulldorffScan.caseFeatures.title"),
+            getResource("ClusterKulldorffScan.caseFeatures.description"), true, 1, 1, null, null);
+
+    /** caseField */
+    public static final Parameter<Expression> caseField = new Parameter<Expression>("caseField",
+            Expression.class, getResource("ClusterKulldorffScan.caseField.title"),
+            getResource("ClusterKulldorffScan.caseField.description"), true, 1, 1, null,
+            new KVP(Params.FIELD, "caseFeatures.Number"));
+
+    /** maxPopulationRatio */
+    public static final Parameter<Double> maxPopulationRatio = new Parameter<Double>(
+            "maxPopulationRatio", Double.class,
+            getResource("ClusterKulldorffScan.maxPopulationRatio.title"),
+            getResource("ClusterKulldorffScan.maxPopulationRatio.description"), false, 0, 1,
+            Double.valueOf(0.5), null);
+
+    /** replications */
+    public static final Parameter<Integer> replications = new Parameter<Integer>("replications",
+            Integer.class, getResource("ClusterKulldorffScan.replications.title"),
+            getResource("ClusterKulldorffScan.replications.description"), false, 0, 1,
+            Integer.valueOf(999), null);
+
+    /** threshold */
+    public static final Parameter<Double> threshold = new Parameter<Double>("threshold",
+            Double.class, getResource("ClusterKulldorffScan.threshold.title"),
+            getResource("ClusterKulldorffScan.threshold.description"), false, 0, 1,
+            Double.valueOf(0.05), null);
+
+    @Override
+    protected Map<String, Parameter<?>> getParameterInfo() {
+        HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
+        parameterInfo.put(popFeatures.key, popFeatures);
+        parameterInfo.put(popField.key, popField);
+        parameterInfo.put(caseFeatures.key, caseFeatures);
+        parameterInfo.put(caseField.key, caseField);
+        parameterInfo.put(maxPopulationRatio.key, maxPopulationRatio);
+        parameterInfo.put(replications.key, replications);
+        parameterInfo.put(threshold.key, threshold);
+        return parameterInfo;
+    }
+
+    /** resultCircles */
+    public static final Parameter<SimpleFeatureCollection> resultCircles = new Parameter<SimpleFeatureCollection>(
+            "resultCircles", SimpleFeatureCollection.class,
+            getResource("ClusterKulldorffScan.resultCircles.title"),
+            getResource("ClusterKulldorffScan.resultCircles.description"), true, 1, 1, null, null);
+
+    static final Map<String, Parameter<?>> resultInfo = new TreeMap<String, Parameter<?>>();
+    static {
+        resultInfo.put(resultCircles.key, resultCircles);
+    }
+
+    @Override
+    protected Map<String, Parameter<?>> getResultInfo(Map<String, Object> parameters)
+            throws IllegalArgumentException {
+        return Collections.unmodifiableMap(resultInfo);
+    }
+
+}
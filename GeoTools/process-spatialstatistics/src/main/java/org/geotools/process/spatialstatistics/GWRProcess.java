@@ -0,0 +1,128 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.api.util.ProgressListener;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.process.Process;
+import org.geotools.process.ProcessException;
+import org.geotools.process.ProcessFactory;
+import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.enumeration.KernelType;
+import org.geotools.process.spatialstatistics.relationship.GWROperation;
+import org.geotools.process.spatialstatistics.relationship.OLSResult;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Performs Geographically Weighted Regression (GWR).
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class GWRProcess extends AbstractStatisticsProcess {
+    protected static final Logger LOGGER = Logging.getLogger(GWRProcess.class);
+
+    public GWRProcess(ProcessFactory factory) {
+        super(factory);
+    }
+
+    public ProcessFactory getFactory() {
+        return factory;
+    }
+
+    public static SimpleFeatureCollection process(SimpleFeatureCollection inputFeatures,
+            String dependentVariable, String explanatoryVariables, KernelType kernelType,
+            Boolean adaptiveKernel, Double bandwidth, ProgressListener monitor) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put(GWRProcessFactory.inputFeatures.key, inputFeatures);
+        map.put(GWRProcessFactory.dependentVariable.key, dependentVariable);
+        map.put(GWRProcessFactory.explanatoryVariables.key, explanatoryVariables);
+        map.put(GWRProcessFactory.kernelType.key, kernelType);
+        map.put(GWRProcessFactory.adaptiveKernel.key, adaptiveKernel);
+        map.put(GWRProcessFactory.bandwidth.key, bandwidth);
+
+        Process process = new GWRProcess(null);
+        Map<String, Object> resultMap;
+        try {
+            resultMap = process.execute(map, monitor);
+            return (SimpleFeatureCollection) resultMap.get(GWRProcessFactory.gwrFeatures.key);
+        } catch (ProcessException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Map<String, Object> execute(Map<String, Object> input, ProgressListener monitor)
+            throws ProcessException {
+        SimpleFeatureCollection inputFeatures = (SimpleFeatureCollection) Params.getValue(input,
+                GWRProcessFactory.inputFeatures, null);
+        String dependentVariable = (String) Params.getValue(input,
+                GWRProcessFactory.dependentVariable, GWRProcessFactory.dependentVariable.sample);
+        String explanatoryVariables = (String) Params.getValue(input,
+                GWRProcessFactory.explanatoryVariables, null);
+        KernelType kernelType = (KernelType) Params.getValue(input, GWRProcessFactory.kernelType,
+                GWRProcessFactory.kernelType.sample);
+        Boolean adaptiveKernel = (Boolean) Params.getValue(input,
+                GWRProcessFactory.adaptiveKernel, GWRProcessFactory.adaptiveKernel.sample);
+        Double bandwidth = (Double) Params.getValue(input, GWRProcessFactory.bandwidth,
+                GWRProcessFactory.bandwidth.sample);
+        if (inputFeatures == null || dependentVariable == null || dependentVariable.isEmpty()
+                || explanatoryVariables == null || explanatoryVariables.isEmpty()) {
+            throw new NullPointerException(
+                    "inputFeatures, dependentVariable, explanatoryVariables parameters required");
+        }
+
+        Integer parallelism = (Integer) Params.getValue(input,
+                GWRProcessFactory.parallelism, GWRProcessFactory.parallelism.sample);
+
+        // start process
+        OLSResult report = new OLSResult();
+        SimpleFeatureCollection gwrFeatures = null;
+        Double selectedBandwidth = null;
+        try {
+            GWROperation operation = new GWROperation();
+            operation.setKernelType(kernelType);
+            operation.setAdaptive(adaptiveKernel);
+            operation.setBandwidth(bandwidth);
+            if (parallelism != null && parallelism > 0) {
+                operation.setParallelism(parallelism);
+            }
+            report = operation.execute(inputFeatures, dependentVariable, explanatoryVariables);
+            gwrFeatures = operation.getResidualFeatures();
+            selectedBandwidth = operation.getSelectedBandwidth();
+        } catch (IOException e) {
+            throw new ProcessException(e);
+        }
+        // end process
+
+        Map<String, Object> resultMap = new HashMap<String, Object>();
+        resultMap.put(GWRProcessFactory.report.key, report);
+        resultMap.put(GWRProcessFactory.gwrFeatures.key, gwrFeatures);
+        resultMap.put(GWRProcessFactory.selectedBandwidth.key, selectedBandwidth);
+        return resultMap;
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.geotools.api.data.Parameter;
+import org.geotools.api.util.InternationalString;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.NameImpl;
+import org.geotools.process.Process;
+import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.enumeration.KernelType;
+import org.geotools.process.spatialstatistics.relationship.OLSResult;
+import org.geotools.util.KVP;
+import org.geotools.util.logging.Logging;
+
+/**
+ * GWRProcessFactory
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class GWRProcessFactory extends SpatialStatisticsProcessFactory {
+    protected static final Logger LOGGER = Logging.getLogger(GWRProcessFactory.class);
+
+    private static final String PROCESS_NAME = "GeographicallyWeightedRegression";
+
+    /*
+     * GeographicallyWeightedRegression(SimpleFeatureCollection inputFeatures, String dependentVariable, String explanatoryVariables, KernelType
+     * kernelType, Boolean adaptiveKernel, Double bandwidth, Integer parallelism): SimpleFeatureCollection
+     */
+
+    public GWRProcessFactory() {
+        super(new NameImpl(NAMESPACE, PROCESS_NAME));
+    }
+
+    @Override
+    public Process create() {
+        return new GWRProcess(this);
+    }
+
+    @Override
+    public InternationalString getTitle() {
+        return getResource("GeographicallyWeightedRegression.title");
+    }
+
+    @Override
+    public InternationalString getDescription() {
+        return getResource("GeographicallyWeightedRegression.description");
+    }
+
+    /** inputFeatures */
+    public static final Parameter<SimpleFeatureCollection> inputFeatures = new Parameter<SimpleFeatureCollection>(
+            "inputFeatures", SimpleFeatureCollection.class,
+            getResource("GeographicallyWeightedRegression.inputFeatures.title"),
+            getResource("GeographicallyWeightedRegression.inputFeatures.description"), true, 1, 1,
+            null, null);
+
+    /** dependentVariable */
+    public static final Parameter<String> dependentVariable = new Parameter<String>(
+            "dependentVariable", String.class,
+            getResource("GeographicallyWeightedRegression.dependentVariable.title"),
+            getResource("GeographicallyWeightedRegression.dependentVariable.description"), true,
+            1, 1, null, new KVP(Params.FIELD, "inputFeatures.Number"));
+
+    /** explanatoryVariables */
+    public static final Parameter<String> explanatoryVariables = new Parameter<String>(
+            "explanatoryVariables", String.class,
+            getResource("GeographicallyWeightedRegression.explanatoryVariables.title"),
+            getResource("GeographicallyWeightedRegression.explanatoryVariables.description"),
+            true, 1, 1, null, new KVP(Params.FIELDS, "inputFeatures.Number"));
+
+    /** kernelType */
+    public static final Parameter<KernelType> kernelType = new Parameter<KernelType>(
+            "kernelType", KernelType.class,
+            getResource("GeographicallyWeightedRegression.kernelType.title"),
+            getResource("GeographicallyWeightedRegression.kernelType.description"), false, 0, 1,
+            KernelType.Quartic, null);
+
+    /** adaptiveKernel */
+    public static final Parameter<Boolean> adaptiveKernel = new Parameter<Boolean>(
+            "adaptiveKernel", Boolean.class,
+            getResource("GeographicallyWeightedRegression.adaptiveKernel.title"),
+            getResource("GeographicallyWeightedRegression.adaptiveKernel.description"), false, 0,
+            1, Boolean.TRUE, null);
+
+    /** bandwidth */
+    public static final Parameter<Double> bandwidth = new Parameter<Double>("bandwidth",
+            Double.class, getResource("GeographicallyWeightedRegression.bandwidth.title"),
+            getResource("GeographicallyWeightedRegression.bandwidth.description"), false, 0, 1,
+            Double.valueOf(0.0), null);
+
+    /** parallelism */
+    public static final Parameter<Integer> parallelism = new Parameter<Integer>("parallelism",
+            Integer.class, getResource("GeographicallyWeightedRegression.parallelism.title"),
+            getResource("GeographicallyWeightedRegression.parallelism.description"), false, 0, 1,
+            Integer.valueOf(0), null);
+
+    @Override
+    protected Map<String, Parameter<?>> getParameterInfo() {
+        HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
+        parameterInfo.put(inputFeatures.key, inputFeatures);
+        parameterInfo.put(dependentVariable.key, dependentVariable);
+        parameterInfo.put(explanatoryVariables.key, explanatoryVariables);
+        parameterInfo.put(kernelType.key, kernelType);
+        parameterInfo.put(adaptiveKernel.key, adaptiveKernel);
+        parameterInfo.put(bandwidth.key, bandwidth);
+        parameterInfo.put(parallelism.key, parallelism);
+        return parameterInfo;
+    }
+
+    /** report */
+    public static final Parameter<OLSResult> report = new Parameter<OLSResult>("report",
+            OLSResult.class, getResource("GeographicallyWeightedRegression.report.title"),
+            getResource("GeographicallyWeightedRegression.report.description"), true, 1, 1, null,
+            null);
+
+    /** gwrFeatures */
+    public static final Parameter<SimpleFeatureCollection> gwrFeatures = new Parameter<SimpleFeatureCollection>(
+            "gwrFeatures", SimpleFeatureCollection.class,
+            getResource("GeographicallyWeightedRegression.gwrFeatures.title"),
+            getResource("GeographicallyWeightedRegression.gwrFeatures.description"), false, 0, 1,
+            null, new KVP(Params.STYLES, "GeographicallyWeightedRegression.StdResid"));
+
+    /** selectedBandwidth */
+    public static final Parameter<Double> selectedBandwidth = new Parameter<Double>(
+            "selectedBandwidth", Double.class,
+            getResource("GeographicallyWeightedRegression.selectedBandwidth.title"),
+            getResource("GeographicallyWeightedRegression.selectedBandwidth.description"), false,
+            0, 1, null, null);
+
+    static final Map<String, Parameter<?>> resultInfo = new TreeMap<String, Parameter<?>>();
+    static {
+        resultInfo.put(report.key, report);
+        resultInfo.put(gwrFeatures.key, gwrFeatures);
+        resultInfo.put(selectedBandwidth.key, selectedBandwidth);
+    }
+
+    @Override
+    protected Map<String, Parameter<?>> getResultInfo(Map<String, Object> parameters)
+            throws IllegalArgumentException {
+        return Collections.unmodifiableMap(resultInfo);
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.api.filter.expression.Expression;
+import org.geotools.api.util.ProgressListener;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.Process;
+import org.geotools.process.ProcessException;
+import org.geotools.process.ProcessFactory;
+import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.pattern.HexagonalBinningOperation;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Performs hexagonal binning for several hexagon sizes in a single pass over the features.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class HexagonalPyramidBinningProcess extends AbstractStatisticsProcess {
+    protected static final Logger LOGGER = Logging.getLogger(HexagonalPyramidBinningProcess.class);
+
+    public HexagonalPyramidBinningProcess(ProcessFactory factory) {
+        super(factory);
+    }
+
+    public ProcessFactory getFactory() {
+        return factory;
+    }
+
+    public static SimpleFeatureCollection process(SimpleFeatureCollection features,
+            Expression weight, ReferencedEnvelope bbox, String sizes, Boolean validGrid,
+            ProgressListener monitor) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put(HexagonalPyramidBinningProcessFactory.features.key, features);
+        map.put(HexagonalPyramidBinningProcessFactory.weight.key, weight);
+        map.put(HexagonalPyramidBinningProcessFactory.bbox.key, bbox);
+        map.put(HexagonalPyramidBinningProcessFactory.sizes.key, sizes);
+        map.put(HexagonalPyramidBinningProcessFactory.validGrid.key, validGrid);
+
+        Process process = new HexagonalPyramidBinningProcess(null);
+        Map<String, Object> resultMap;
+        try {
+            resultMap = process.execute(map, monitor);
+
+            return (SimpleFeatureCollection) resultMap
+                    .get(HexagonalPyramidBinningProcessFactory.RESULT.key);
+        } catch (ProcessException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Map<String, Object> execute(Map<String, Object> input, ProgressListener monitor)
+            throws ProcessException {
+        SimpleFeatureCollection features = (SimpleFeatureCollection) Params.getValue(input,
+                HexagonalPyramidBinningProcessFactory.features, null);
+        String sizes = (String) Params.getValue(input,
+                HexagonalPyramidBinningProcessFactory.sizes, null);
+        if (features == null || sizes == null || sizes.trim().length() == 0) {
+            throw new NullPointerException("features, sizes parameters required");
+        }
+
+        Expression weight = (Expression) Params.getValue(input,
+                HexagonalPyramidBinningProcessFactory.weight, null);
+        ReferencedEnvelope bbox = (ReferencedEnvelope) Params.getValue(input,
+                HexagonalPyramidBinningProcessFactory.bbox, null);
+        Boolean validGrid = (Boolean) Params.getValue(input,
+                HexagonalPyramidBinningProcessFactory.validGrid,
+                HexagonalPyramidBinningProcessFactory.validGrid.sample);
+
+        // start process
+        String[] arrSize = sizes.split(",");
+        double[] hexSizes = new double[arrSize.length];
+        for (int k = 0; k < arrSize.length; k++) {
+            try {
+                hexSizes[k] = Double.parseDouble(arrSize[k].trim());
+            } catch (NumberFormatException nfe) {
+                throw new ProcessException("sizes must be a comma separated list of numbers: "
+                        + sizes, nfe);
+            }
+
+            if (hexSizes[k] <= 0) {
+                throw new ProcessException("sizes must be greater than zero");
+            }
+        }
+
+        if (bbox == null || bbox.isEmpty()) {
+            bbox = features.getBounds();
+        }
+
+        SimpleFeatureCollection resultFc = null;
+        try {
+            HexagonalBinningOperation process = new HexagonalBinningOperation();
+            process.setOnlyValidGrid(validGrid);
+            resultFc = process.execute(features, weight, bbox, hexSizes);
+        } catch (IOException e) {
+            throw new ProcessException(e);
+        }
+        // end process
+
+        Map<String, Object> resultMap = new HashMap<String, Object>();
+        resultMap.put(HexagonalPyramidBinningProcessFactory.RESULT.key, resultFc);
+        return resultMap;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.geotools.api.data.Parameter;
+import org.geotools.api.filter.expression.Expression;
+import org.geotools.api.util.InternationalString;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.NameImpl;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.Process;
+import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.util.KVP;
+import org.geotools.util.logging.Logging;
+
+/**
+ * HexagonalPyramidBinningProcessFactory
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class HexagonalPyramidBinningProcessFactory extends SpatialStatisticsProcessFactory {
+    protected static final Logger LOGGER = Logging
+            .getLogger(HexagonalPyramidBinningProcessFactory.class);
+
+    private static final String PROCESS_NAME = "HexagonalPyramidBinning";
+
+    /*
+     * HexagonalPyramidBinning(SimpleFeatureCollection features, Expression weight, ReferencedEnvelope bbox, String sizes, Boolean validGrid):
+     * SimpleFeatureCollection
+     */
+
+    public HexagonalPyramidBinningProcessFactory() {
+        super(new NameImpl(NAMESPACE, PROCESS_NAME));
+    }
+
+    @Override
+    public Process create() {
+        return new HexagonalPyramidBinningProcess(this);
+    }
+
+    @Override
+    public InternationalString getTitle() {
+        return getResource("HexagonalPyramidBinning.title");
+    }
+
+    @Override
+    public InternationalString getDescription() {
+        return getResource("HexagonalPyramidBinning.description");
+    }
+
+    /** features */
+    public static final Parameter<SimpleFeatureCollection> features = new Parameter<SimpleFeatureCollection>(
+            "features", SimpleFeatureCollection.class,
+            getResource("HexagonalPyramidBinning.features.title"),
+            getResource("HexagonalPyramidBinning.features.description"), true, 1, 1, null,
+            new KVP(Params.FEATURES, Params.Point));
+
+    /** weight */
+    public static final Parameter<Expression> weight = new Parameter<Expression>("weight",
+            Expression.class, getResource("HexagonalPyramidBinning.weight.title"),
+            getResource("HexagonalPyramidBinning.weight.description"), false, 0, 1, null,
+            new KVP(Params.FIELD, "features.Number"));
+
+    /** bbox */
+    public static final Parameter<ReferencedEnvelope> bbox = new Parameter<ReferencedEnvelope>(
+            "bbox", ReferencedEnvelope.class, getResource("HexagonalPyramidBinning.bbox.title"),
+            getResource("HexagonalPyramidBinning.bbox.description"), false, 0, 1, null, null);
+
+    /** sizes */
+    public static final Parameter<String> sizes = new Parameter<String>("sizes", String.class,
+            getResource("HexagonalPyramidBinning.sizes.title"),
+            getResource("HexagonalPyramidBinning.sizes.description"), true, 1, 1, null, null);
+
+    /** validGrid */
+    public static final Parameter<Boolean> validGrid = new Parameter<Boolean>("validGrid",
+            Boolean.class, getResource("HexagonalPyramidBinning.validGrid.title"),
+            getResource("HexagonalPyramidBinning.validGrid.description"), false, 0, 1,
+            Boolean.TRUE, null);
+
+    @Override
+    protected Map<String, Parameter<?>> getParameterInfo() {
+        HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
+        parameterInfo.put(features.key, features);
+        parameterInfo.put(weight.key, weight);
+        parameterInfo.put(bbox.key, bbox);
+        parameterInfo.put(sizes.key, sizes);
+        parameterInfo.put(validGrid.key, validGrid);
+        return parameterInfo;
+    }
+
+    /** result */
+    public static final Parameter<SimpleFeatureCollection> RESULT = new Parameter<SimpleFeatureCollection>(
+            "result", SimpleFeatureCollection.class,
+            getResource("HexagonalPyramidBinning.result.title"),
+            getResource("HexagonalPyramidBinning.result.description"), true, 1, 1, null,
+            new KVP(Params.STYLES, "EqualInterval.val"));
+
+    static final Map<String, Parameter<?>> resultInfo = new TreeMap<String, Parameter<?>>();
+    static {
+        resultInfo.put(RESULT.key, RESULT);
+    }
+
+    @Override
+    protected Map<String, Parameter<?>> getResultInfo(Map<String, Object> parameters)
+            throws IllegalArgumentException {
+        return Collections.unmodifiableMap(resultInfo);
+    }
+
+}
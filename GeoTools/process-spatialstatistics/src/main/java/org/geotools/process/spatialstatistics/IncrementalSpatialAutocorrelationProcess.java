@@ -0,0 +1,144 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.api.util.ProgressListener;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.process.Process;
+import org.geotools.process.ProcessException;
+import org.geotools.process.ProcessFactory;
+import org.geotools.process.spatialstatistics.autocorrelation.IncrementalSpatialAutocorrelationOperation;
+import org.geotools.process.spatialstatistics.autocorrelation.IncrementalSpatialAutocorrelationOperation.IncrementalMoransI;
+import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
+import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Measures spatial autocorrelation for a series of distances using the Global Moran's I statistic, and reports the distances where the
+ * clustering is most pronounced.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class IncrementalSpatialAutocorrelationProcess extends AbstractStatisticsProcess {
+    protected static final Logger LOGGER = Logging
+            .getLogger(IncrementalSpatialAutocorrelationProcess.class);
+
+    public IncrementalSpatialAutocorrelationProcess(ProcessFactory factory) {
+        super(factory);
+    }
+
+    public ProcessFactory getFactory() {
+        return factory;
+    }
+
+    public static IncrementalMoransI process(SimpleFeatureCollection inputFeatures,
+            String inputField, Integer numberOfBands, Double beginningDistance,
+            Double distanceIncrement, DistanceMethod distanceMethod,
+            StandardizationMethod standardization, ProgressListener monitor) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put(IncrementalSpatialAutocorrelationProcessFactory.inputFeatures.key, inputFeatures);
+        map.put(IncrementalSpatialAutocorrelationProcessFactory.inputField.key, inputField);
+        map.put(IncrementalSpatialAutocorrelationProcessFactory.numberOfBands.key, numberOfBands);
+        map.put(IncrementalSpatialAutocorrelationProcessFactory.beginningDistance.key,
+                beginningDistance);
+        map.put(IncrementalSpatialAutocorrelationProcessFactory.distanceIncrement.key,
+                distanceIncrement);
+        map.put(IncrementalSpatialAutocorrelationProcessFactory.distanceMethod.key,
+                distanceMethod);
+        map.put(IncrementalSpatialAutocorrelationProcessFactory.standardization.key,
+                standardization);
+
+        Process process = new IncrementalSpatialAutocorrelationProcess(null);
+        Map<String, Object> resultMap;
+        try {
+            resultMap = process.execute(map, monitor);
+            return (IncrementalMoransI) resultMap
+                    .get(IncrementalSpatialAutocorrelationProcessFactory.RESULT.key);
+        } catch (ProcessException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        }
+
+        return new IncrementalMoransI();
+    }
+
+    @Override
+    public Map<String, Object> execute(Map<String, Object> input, ProgressListener monitor)
+            throws ProcessException {
+        SimpleFeatureCollection inputFeatures = (SimpleFeatureCollection) Params.getValue(input,
+                IncrementalSpatialAutocorrelationProcessFactory.inputFeatures, null);
+        String inputField = (String) Params.getValue(input,
+                IncrementalSpatialAutocorrelationProcessFactory.inputField, null);
+        if (inputFeatures == null || inputField == null) {
+            throw new NullPointerException("inputFeatures and inputField parameters required");
+        }
+
+        inputField = FeatureTypes.validateProperty(inputFeatures.getSchema(), inputField);
+        if (inputFeatures.getSchema().indexOf(inputField) == -1) {
+            throw new NullPointerException(inputField + " field does not exist!");
+        }
+
+        Integer numberOfBands = (Integer) Params.getValue(input,
+                IncrementalSpatialAutocorrelationProcessFactory.numberOfBands,
+                IncrementalSpatialAutocorrelationProcessFactory.numberOfBands.sample);
+
+        Double beginningDistance = (Double) Params.getValue(input,
+                IncrementalSpatialAutocorrelationProcessFactory.beginningDistance,
+                IncrementalSpatialAutocorrelationProcessFactory.beginningDistance.sample);
+
+        Double distanceIncrement = (Double) Params.getValue(input,
+                IncrementalSpatialAutocorrelationProcessFactory.distanceIncrement,
+                IncrementalSpatialAutocorrelationProcessFactory.distanceIncrement.sample);
+
+        DistanceMethod distanceMethod = (DistanceMethod) Params.getValue(input,
+                IncrementalSpatialAutocorrelationProcessFactory.distanceMethod,
+                IncrementalSpatialAutocorrelationProcessFactory.distanceMethod.sample);
+
+        StandardizationMethod standardization = (StandardizationMethod) Params.getValue(input,
+                IncrementalSpatialAutocorrelationProcessFactory.standardization,
+                IncrementalSpatialAutocorrelationProcessFactory.standardization.sample);
+
+        // start process
+        IncrementalSpatialAutocorrelationOperation process = new IncrementalSpatialAutocorrelationOperation();
+        process.setDistanceType(distanceMethod);
+        process.setStandardizationType(standardization);
+        process.setNumberOfBands(numberOfBands);
+
+        if (beginningDistance > 0 && !Double.isNaN(beginningDistance)) {
+            process.setBeginningDistance(beginningDistance);
+        }
+
+        if (distanceIncrement > 0 && !Double.isNaN(distanceIncrement)) {
+            process.setDistanceIncrement(distanceIncrement);
+        }
+
+        IncrementalMoransI processResult = process.execute(inputFeatures, inputField);
+        // end process
+
+        Map<String, Object> resultMap = new HashMap<String, Object>();
+        resultMap.put(IncrementalSpatialAutocorrelationProcessFactory.RESULT.key, processResult);
+        return resultMap;
+    }
+}
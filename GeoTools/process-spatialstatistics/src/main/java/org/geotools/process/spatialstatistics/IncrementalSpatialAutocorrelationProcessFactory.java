@@ -0,0 +1,154 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.geotools.api.data.Parameter;
+import org.geotools.api.util.InternationalString;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.NameImpl;
+import org.geotools.process.Process;
+import org.geotools.process.spatialstatistics.autocorrelation.IncrementalSpatialAutocorrelationOperation.IncrementalMoransI;
+import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
+import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
+import org.geotools.util.KVP;
+import org.geotools.util.logging.Logging;
+
+/**
+ * IncrementalSpatialAutocorrelationProcessFactory
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class IncrementalSpatialAutocorrelationProcessFactory extends
+        SpatialStatisticsProcessFactory {
+    protected static final Logger LOGGER = Logging
+            .getLogger(IncrementalSpatialAutocorrelationProcessFactory.class);
+
+    private static final String PROCESS_NAME = "IncrementalSpatialAutocorrelation";
+
+    /*
+     * IncrementalSpatialAutocorrelation(SimpleFeatureCollection inputFeatures, String inputField, Integer numberOfBands, Double
+     * beginningDistance, Double distanceIncrement, DistanceMethod distanceMethod, StandardizationMethod standardization) : IncrementalMoransI
+     */
+
+    public IncrementalSpatialAutocorrelationProcessFactory() {
+        super(new NameImpl(NAMESPACE, PROCESS_NAME));
+    }
+
+    @Override
+    public Process create() {
+        return new IncrementalSpatialAutocorrelationProcess(this);
+    }
+
+    @Override
+    public InternationalString getTitle() {
+        return getResource("IncrementalSpatialAutocorrelation.title");
+    }
+
+    @Override
+    public InternationalString getDescription() {
+        return getResource("IncrementalSpatialAutocorrelation.description");
+    }
+
+    /** inputFeatures */
+    public static final Parameter<SimpleFeatureCollection> inputFeatures = new Parameter<SimpleFeatureCollection>(
+            "inputFeatures", SimpleFeatureCollection.class,
+            getResource("IncrementalSpatialAutocorrelation.inputFeatures.title"),
+            getResource("IncrementalSpatialAutocorrelation.inputFeatures.description"), true, 1, 1,
+            null, null);
+
+    /** inputField */
+    public static final Parameter<String> inputField = new Parameter<String>("inputField",
+            String.class, getResource("IncrementalSpatialAutocorrelation.inputField.title"),
+            getResource("IncrementalSpatialAutocorrelation.inputField.description"), true, 1, 1,
+            null, new KVP(Params.FIELD, "inputFeatures.Number"));
+
+    /** numberOfBands */
+    public static final Parameter<Integer> numberOfBands = new Parameter<Integer>(
+            "numberOfBands", Integer.class,
+            getResource("IncrementalSpatialAutocorrelation.numberOfBands.title"),
+            getResource("IncrementalSpatialAutocorrelation.numberOfBands.description"), false, 0,
+            1, Integer.valueOf(10), null);
+
+    /** beginningDistance */
+    public static final Parameter<Double> beginningDistance = new Parameter<Double>(
+            "beginningDistance", Double.class,
+            getResource("IncrementalSpatialAutocorrelation.beginningDistance.title"),
+            getResource("IncrementalSpatialAutocorrelation.beginningDistance.description"), false,
+            0, 1, Double.valueOf(0.0), null);
+
+    /** distanceIncrement */
+    public static final Parameter<Double> distanceIncrement = new Parameter<Double>(
+            "distanceIncrement", Double.class,
+            getResource("IncrementalSpatialAutocorrelation.distanceIncrement.title"),
+            getResource("IncrementalSpatialAutocorrelation.distanceIncrement.description"), false,
+            0, 1, Double.valueOf(0.0), null);
+
+    /** distanceMethod */
+    public static final Parameter<DistanceMethod> distanceMethod = new Parameter<DistanceMethod>(
+            "distanceMethod", DistanceMethod.class,
+            getResource("IncrementalSpatialAutocorrelation.distanceMethod.title"),
+            getResource("IncrementalSpatialAutocorrelation.distanceMethod.description"), false, 0,
+            1, DistanceMethod.Euclidean, null);
+
+    /** standardization */
+    public static final Parameter<StandardizationMethod> standardization = new Parameter<StandardizationMethod>(
+            "standardization", StandardizationMethod.class,
+            getResource("IncrementalSpatialAutocorrelation.standardization.title"),
+            getResource("IncrementalSpatialAutocorrelation.standardization.description"), false, 0,
+            1, StandardizationMethod.None, null);
+
+    @Override
+    protected Map<String, Parameter<?>> getParameterInfo() {
+        HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
+        parameterInfo.put(inputFeatures.key, inputFeatures);
+        parameterInfo.put(inputField.key, inputField);
+        parameterInfo.put(numberOfBands.key, numberOfBands);
+        parameterInfo.put(beginningDistance.key, beginningDistance);
+        parameterInfo.put(distanceIncrement.key, distanceIncrement);
+        parameterInfo.put(distanceMethod.key, distanceMethod);
+        parameterInfo.put(standardization.key, standardization);
+        return parameterInfo;
+    }
+
+    /** result */
+    public static final Parameter<IncrementalMoransI> RESULT = new Parameter<IncrementalMoransI>(
+            "result", IncrementalMoransI.class,
+            getResource("IncrementalSpatialAutocorrelation.result.title"),
+            getResource("IncrementalSpatialAutocorrelation.result.description"));
+
+    static final Map<String, Parameter<?>> resultInfo = new TreeMap<String, Parameter<?>>();
+    static {
+        resultInfo.put(RESULT.key, RESULT);
+    }
+
+    @Override
+    protected Map<String, Parameter<?>> getResultInfo(Map<String, Object> parameters)
+            throws IllegalArgumentException {
+        return Collections.unmodifiableMap(resultInfo);
+    }
+
+}
@@ -57,6 +57,14 @@ public class LocalGStatisticsProcess extends AbstractStatisticsProcess {
             String inputField, SpatialConcept spatialConcept, DistanceMethod distanceMethod,
             StandardizationMethod standardization, Double searchDistance, Boolean selfNeighbors,
             ProgressListener monitor) {
+        return process(inputFeatures, inputField, spatialConcept, distanceMethod, standardization,
+                searchDistance, selfNeighbors, Integer.valueOf(0), monitor);
+    }
+
+    public static SimpleFeatureCollection process(SimpleFeatureCollection inputFeatures,
+            String inputField, SpatialConcept spatialConcept, DistanceMethod distanceMethod,
+            StandardizationMethod standardization, Double searchDistance, Boolean selfNeighbors,
+            Integer permutations, ProgressListener monitor) {
         Map<String, Object> map = new HashMap<String, Object>();
         map.put(LocalGStatisticsProcessFactory.inputFeatures.key, inputFeatures);
         map.put(LocalGStatisticsProcessFactory.inputField.key, inputField);
@@ -65,6 +73,7 @@ public class LocalGStatisticsProcess extends AbstractStatisticsProcess {
         map.put(LocalGStatisticsProcessFactory.standardization.key, standardization);
         map.put(LocalGStatisticsProcessFactory.searchDistance.key, searchDistance);
         map.put(LocalGStatisticsProcessFactory.selfNeighbors.key, selfNeighbors);
+        map.put(LocalGStatisticsProcessFactory.permutations.key, permutations);
 
         Process process = new LocalGStatisticsProcess(null);
         Map<String, Object> resultMap;
@@ -115,6 +124,14 @@ public class LocalGStatisticsProcess extends AbstractStatisticsProcess {
                 LocalGStatisticsProcessFactory.selfNeighbors,
                 LocalGStatisticsProcessFactory.selfNeighbors.sample);
 
+        Integer permutations = (Integer) Params.getValue(input,
+                LocalGStatisticsProcessFactory.permutations,
+                LocalGStatisticsProcessFactory.permutations.sample);
+
+        Integer parallelism = (Integer) Params.getValue(input,
+                LocalGStatisticsProcessFactory.parallelism,
+                LocalGStatisticsProcessFactory.parallelism.sample);
+
         // start process
         SimpleFeatureCollection resultFc = null;
 
@@ -123,6 +140,10 @@ public class LocalGStatisticsProcess extends AbstractStatisticsProcess {
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
         process.setSelfNeighbors(selfNeighbors);
+        process.setPermutations(permutations);
+        if (parallelism != null && parallelism > 0) {
+            process.setParallelism(parallelism);
+        }
 
         // searchDistance
         if (searchDistance > 0 && !Double.isNaN(searchDistance)) {
@@ -49,7 +49,8 @@ public class LocalGStatisticsProcessFactory extends SpatialStatisticsProcessFact
 
     /*
      * LocalGStatistics(SimpleFeatureCollection inputFeatures, String inputField, SpatialConcept spatialConcept, DistanceMethod distanceMethod,
-     * StandardizationMethod standardization, Double searchDistance, Boolean selfNeighbors) : SimpleFeatureCollection
+     * StandardizationMethod standardization, Double searchDistance, Boolean selfNeighbors, Integer permutations,
+     * Integer parallelism) : SimpleFeatureCollection
      */
 
     public LocalGStatisticsProcessFactory() {
@@ -116,6 +117,18 @@ public class LocalGStatisticsProcessFactory extends SpatialStatisticsProcessFact
             getResource("LocalGStatistics.selfNeighbors.description"), false, 0, 1, Boolean.TRUE,
             null);
 
+    /** permutations */
+    public static final Parameter<Integer> permutations = new Parameter<Integer>("permutations",
+            Integer.class, getResource("LocalGStatistics.permutations.title"),
+            getResource("LocalGStatistics.permutations.description"), false, 0, 1, Integer.valueOf(0),
+            null);
+
+    /** parallelism */
+    public static final Parameter<Integer> parallelism = new Parameter<Integer>("parallelism",
+            Integer.class, getResource("LocalGStatistics.parallelism.title"),
+            getResource("LocalGStatistics.parallelism.description"), false, 0, 1,
+            Integer.valueOf(0), null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
@@ -126,6 +139,8 @@ public class LocalGStatisticsProcessFactory extends SpatialStatisticsProcessFact
         parameterInfo.put(standardization.key, standardization);
         parameterInfo.put(searchDistance.key, searchDistance);
         // parameterInfo.put(selfNeighbors.key, selfNeighbors);
+        parameterInfo.put(permutations.key, permutations);
+        parameterInfo.put(parallelism.key, parallelism);
         return parameterInfo;
     }
 
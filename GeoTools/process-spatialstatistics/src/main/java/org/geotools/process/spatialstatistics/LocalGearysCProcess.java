@@ -114,6 +114,10 @@ public class LocalGearysCProcess extends AbstractStatisticsProcess {
                 LocalGearysCProcessFactory.selfNeighbors,
                 LocalGearysCProcessFactory.selfNeighbors.sample);
 
+        Integer parallelism = (Integer) Params.getValue(input,
+                LocalGearysCProcessFactory.parallelism,
+                LocalGearysCProcessFactory.parallelism.sample);
+
         // start process
         SimpleFeatureCollection resultFc = null;
 
@@ -122,6 +126,9 @@ public class LocalGearysCProcess extends AbstractStatisticsProcess {
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
         process.setSelfNeighbors(selfNeighbors);
+        if (parallelism != null && parallelism > 0) {
+            process.setParallelism(parallelism);
+        }
 
         // searchDistance
         if (searchDistance > 0 && !Double.isNaN(searchDistance)) {
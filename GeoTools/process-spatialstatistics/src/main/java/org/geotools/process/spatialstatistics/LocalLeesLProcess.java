@@ -128,6 +128,10 @@ public class LocalLeesLProcess extends AbstractStatisticsProcess {
                 LocalLeesLProcessFactory.selfNeighbors,
                 LocalLeesLProcessFactory.selfNeighbors.sample);
 
+        Integer parallelism = (Integer) Params.getValue(input,
+                LocalLeesLProcessFactory.parallelism,
+                LocalLeesLProcessFactory.parallelism.sample);
+
         // start process
         SimpleFeatureCollection resultFc = null;
 
@@ -136,6 +140,9 @@ public class LocalLeesLProcess extends AbstractStatisticsProcess {
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
         process.setSelfNeighbors(selfNeighbors);
+        if (parallelism != null && parallelism > 0) {
+            process.setParallelism(parallelism);
+        }
 
         // searchDistance
         if (searchDistance > 0 && !Double.isNaN(searchDistance)) {
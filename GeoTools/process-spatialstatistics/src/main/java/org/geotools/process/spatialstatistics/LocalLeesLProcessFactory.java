@@ -49,7 +49,8 @@ public class LocalLeesLProcessFactory extends SpatialStatisticsProcessFactory {
 
     /*
      * LocalLeesL(SimpleFeatureCollection inputFeatures, String xField, String yField, SpatialConcept spatialConcept, DistanceMethod distanceMethod,
-     * StandardizationMethod standardization, Double searchDistance, Boolean selfNeighbors) : SimpleFeatureCollection
+     * StandardizationMethod standardization, Double searchDistance, Boolean selfNeighbors,
+     * Integer parallelism) : SimpleFeatureCollection
      */
 
     public LocalLeesLProcessFactory() {
@@ -117,6 +118,12 @@ public class LocalLeesLProcessFactory extends SpatialStatisticsProcessFactory {
             Boolean.class, getResource("LocalLeesL.selfNeighbors.title"),
             getResource("LocalLeesL.selfNeighbors.description"), false, 0, 1, Boolean.TRUE, null);
 
+    /** parallelism */
+    public static final Parameter<Integer> parallelism = new Parameter<Integer>("parallelism",
+            Integer.class, getResource("LocalLeesL.parallelism.title"),
+            getResource("LocalLeesL.parallelism.description"), false, 0, 1,
+            Integer.valueOf(0), null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
@@ -128,6 +135,7 @@ public class LocalLeesLProcessFactory extends SpatialStatisticsProcessFactory {
         parameterInfo.put(standardization.key, standardization);
         parameterInfo.put(searchDistance.key, searchDistance);
         parameterInfo.put(selfNeighbors.key, selfNeighbors);
+        parameterInfo.put(parallelism.key, parallelism);
         return parameterInfo;
     }
 
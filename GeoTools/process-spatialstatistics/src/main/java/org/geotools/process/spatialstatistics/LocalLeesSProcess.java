@@ -122,6 +122,10 @@ public class LocalLeesSProcess extends AbstractStatisticsProcess {
                 LocalLeesSProcessFactory.selfNeighbors,
                 LocalLeesSProcessFactory.selfNeighbors.sample);
 
+        Integer parallelism = (Integer) Params.getValue(input,
+                LocalLeesSProcessFactory.parallelism,
+                LocalLeesSProcessFactory.parallelism.sample);
+
         // start process
         SimpleFeatureCollection resultFc = null;
 
@@ -130,6 +134,9 @@ public class LocalLeesSProcess extends AbstractStatisticsProcess {
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
         process.setSelfNeighbors(selfNeighbors);
+        if (parallelism != null && parallelism > 0) {
+            process.setParallelism(parallelism);
+        }
 
         // searchDistance
         if (searchDistance > 0 && !Double.isNaN(searchDistance)) {
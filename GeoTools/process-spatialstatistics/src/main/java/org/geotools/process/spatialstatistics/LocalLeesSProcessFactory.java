@@ -49,7 +49,8 @@ public class LocalLeesSProcessFactory extends SpatialStatisticsProcessFactory {
 
     /*
      * LocalLeesS(SimpleFeatureCollection inputFeatures, String inputField, SpatialConcept spatialConcept, DistanceMethod distanceMethod,
-     * StandardizationMethod standardization, Double searchDistance, Boolean selfNeighbors) : SimpleFeatureCollection
+     * StandardizationMethod standardization, Double searchDistance, Boolean selfNeighbors,
+     * Integer parallelism) : SimpleFeatureCollection
      */
 
     public LocalLeesSProcessFactory() {
@@ -113,6 +114,12 @@ public class LocalLeesSProcessFactory extends SpatialStatisticsProcessFactory {
             Boolean.class, getResource("LocalLeesS.selfNeighbors.title"),
             getResource("LocalLeesS.selfNeighbors.description"), false, 0, 1, Boolean.TRUE, null);
 
+    /** parallelism */
+    public static final Parameter<Integer> parallelism = new Parameter<Integer>("parallelism",
+            Integer.class, getResource("LocalLeesS.parallelism.title"),
+            getResource("LocalLeesS.parallelism.description"), false, 0, 1,
+            Integer.valueOf(0), null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
@@ -123,6 +130,7 @@ public class LocalLeesSProcessFactory extends SpatialStatisticsProcessFactory {
         parameterInfo.put(standardization.key, standardization);
         parameterInfo.put(searchDistance.key, searchDistance);
         parameterInfo.put(selfNeighbors.key, selfNeighbors);
+        parameterInfo.put(parallelism.key, parallelism);
         return parameterInfo;
     }
 
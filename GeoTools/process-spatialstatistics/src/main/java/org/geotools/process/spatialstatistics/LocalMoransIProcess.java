@@ -58,6 +58,14 @@ public class LocalMoransIProcess extends AbstractStatisticsProcess {
             String inputField, SpatialConcept spatialConcept, DistanceMethod distanceMethod,
             StandardizationMethod standardization, Double searchDistance, Boolean selfNeighbors,
             ProgressListener monitor) {
+        return process(inputFeatures, inputField, spatialConcept, distanceMethod, standardization,
+                searchDistance, selfNeighbors, Integer.valueOf(0), monitor);
+    }
+
+    public static SimpleFeatureCollection process(SimpleFeatureCollection inputFeatures,
+            String inputField, SpatialConcept spatialConcept, DistanceMethod distanceMethod,
+            StandardizationMethod standardization, Double searchDistance, Boolean selfNeighbors,
+            Integer permutations, ProgressListener monitor) {
         Map<String, Object> map = new HashMap<String, Object>();
         map.put(LocalMoransIProcessFactory.inputFeatures.key, inputFeatures);
         map.put(LocalMoransIProcessFactory.inputField.key, inputField);
@@ -66,6 +74,7 @@ public class LocalMoransIProcess extends AbstractStatisticsProcess {
         map.put(LocalMoransIProcessFactory.standardization.key, standardization);
         map.put(LocalMoransIProcessFactory.searchDistance.key, searchDistance);
         map.put(LocalMoransIProcessFactory.selfNeighbors.key, selfNeighbors);
+        map.put(LocalMoransIProcessFactory.permutations.key, permutations);
 
         Process process = new LocalMoransIProcess(null);
         Map<String, Object> resultMap;
@@ -115,6 +124,14 @@ public class LocalMoransIProcess extends AbstractStatisticsProcess {
                 LocalMoransIProcessFactory.selfNeighbors,
                 LocalMoransIProcessFactory.selfNeighbors.sample);
 
+        Integer permutations = (Integer) Params.getValue(input,
+                LocalMoransIProcessFactory.permutations,
+                LocalMoransIProcessFactory.permutations.sample);
+
+        Integer parallelism = (Integer) Params.getValue(input,
+                LocalMoransIProcessFactory.parallelism,
+                LocalMoransIProcessFactory.parallelism.sample);
+
         // start process
         SimpleFeatureCollection resultFc = null;
 
@@ -123,6 +140,10 @@ public class LocalMoransIProcess extends AbstractStatisticsProcess {
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
         process.setSelfNeighbors(selfNeighbors);
+        process.setPermutations(permutations);
+        if (parallelism != null && parallelism > 0) {
+            process.setParallelism(parallelism);
+        }
 
         // searchDistance
         if (searchDistance > 0 && !Double.isNaN(searchDistance)) {
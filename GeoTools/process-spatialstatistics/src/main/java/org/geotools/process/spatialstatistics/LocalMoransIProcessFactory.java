@@ -49,7 +49,8 @@ public class LocalMoransIProcessFactory extends SpatialStatisticsProcessFactory
 
     /*
      * LocalMoransI(SimpleFeatureCollection inputFeatures, String inputField, SpatialConcept spatialConcept, DistanceMethod distanceMethod,
-     * StandardizationMethod standardization, Double searchDistance, Boolean selfNeighbors) : SimpleFeatureCollection
+     * StandardizationMethod standardization, Double searchDistance, Boolean selfNeighbors, Integer permutations,
+     * Integer parallelism) : SimpleFeatureCollection
      */
 
     public LocalMoransIProcessFactory() {
@@ -115,6 +116,18 @@ public class LocalMoransIProcessFactory extends SpatialStatisticsProcessFactory
             Boolean.class, getResource("LocalMoransI.selfNeighbors.title"),
             getResource("LocalMoransI.selfNeighbors.description"), false, 0, 1, Boolean.FALSE, null);
 
+    /** permutations */
+    public static final Parameter<Integer> permutations = new Parameter<Integer>("permutations",
+            Integer.class, getResource("LocalMoransI.permutations.title"),
+            getResource("LocalMoransI.permutations.description"), false, 0, 1, Integer.valueOf(0),
+            null);
+
+    /** parallelism */
+    public static final Parameter<Integer> parallelism = new Parameter<Integer>("parallelism",
+            Integer.class, getResource("LocalMoransI.parallelism.title"),
+            getResource("LocalMoransI.parallelism.description"), false, 0, 1,
+            Integer.valueOf(0), null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
@@ -125,6 +138,8 @@ public class LocalMoransIProcessFactory extends SpatialStatisticsProcessFactory
         parameterInfo.put(standardization.key, standardization);
         parameterInfo.put(searchDistance.key, searchDistance);
         // parameterInfo.put(selfNeighbors.key, selfNeighbors);
+        parameterInfo.put(permutations.key, permutations);
+        parameterInfo.put(parallelism.key, parallelism);
         return parameterInfo;
     }
 
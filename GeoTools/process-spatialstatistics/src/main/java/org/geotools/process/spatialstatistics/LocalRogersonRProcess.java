@@ -124,6 +124,10 @@ public class LocalRogersonRProcess extends AbstractStatisticsProcess {
         Double kappa = (Double) Params.getValue(input, LocalRogersonRProcessFactory.kappa,
                 LocalRogersonRProcessFactory.kappa.sample);
 
+        Integer parallelism = (Integer) Params.getValue(input,
+                LocalRogersonRProcessFactory.parallelism,
+                LocalRogersonRProcessFactory.parallelism.sample);
+
         // start process
         SimpleFeatureCollection resultFc = null;
 
@@ -132,6 +136,9 @@ public class LocalRogersonRProcess extends AbstractStatisticsProcess {
         process.setDistanceType(distanceMethod);
         process.setStandardizationType(standardization);
         process.setKappa(kappa);
+        if (parallelism != null && parallelism > 0) {
+            process.setParallelism(parallelism);
+        }
 
         // searchDistance
         if (searchDistance > 0 && !Double.isNaN(searchDistance)) {
@@ -49,7 +49,8 @@ public class LocalRogersonRProcessFactory extends SpatialStatisticsProcessFactor
 
     /*
      * LocalRogersonR(SimpleFeatureCollection inputFeatures, String xField, String yField, SpatialConcept spatialConcept, DistanceMethod
-     * distanceMethod, StandardizationMethod standardization, Double searchDistance, Double kappa) : SimpleFeatureCollection
+     * distanceMethod, StandardizationMethod standardization, Double searchDistance, Double kappa,
+     * Integer parallelism) : SimpleFeatureCollection
      */
 
     public LocalRogersonRProcessFactory() {
@@ -121,6 +122,12 @@ public class LocalRogersonRProcessFactory extends SpatialStatisticsProcessFactor
             getResource("LocalRogersonR.kappa.title"),
             getResource("LocalRogersonR.kappa.description"), false, 0, 1, Double.valueOf(1.0), null);
 
+    /** parallelism */
+    public static final Parameter<Integer> parallelism = new Parameter<Integer>("parallelism",
+            Integer.class, getResource("LocalRogersonR.parallelism.title"),
+            getResource("LocalRogersonR.parallelism.description"), false, 0, 1,
+            Integer.valueOf(0), null);
+
     @Override
     protected Map<String, Parameter<?>> getParameterInfo() {
         HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
@@ -132,6 +139,7 @@ public class LocalRogersonRProcessFactory extends SpatialStatisticsProcessFactor
         // parameterInfo.put(standardization.key, standardization);
         // parameterInfo.put(searchDistance.key, searchDistance);
         parameterInfo.put(kappa.key, kappa);
+        parameterInfo.put(parallelism.key, parallelism);
         return parameterInfo;
     }
 
@@ -0,0 +1,138 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.api.util.ProgressListener;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.process.Process;
+import org.geotools.process.ProcessException;
+import org.geotools.process.ProcessFactory;
+import org.geotools.process.spatialstatistics.core.Params;
+import org.geotools.process.spatialstatistics.enumeration.SlopeType;
+import org.geotools.process.spatialstatistics.enumeration.TerrainType;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterTerrainOperation;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Calculates slope, aspect, hillshade, curvature, TPI, TRI and roughness of a raster surface in a single pass.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class RasterTerrainProcess extends AbstractStatisticsProcess {
+    protected static final Logger LOGGER = Logging.getLogger(RasterTerrainProcess.class);
+
+    public RasterTerrainProcess(ProcessFactory factory) {
+        super(factory);
+    }
+
+    public ProcessFactory getFactory() {
+        return factory;
+    }
+
+    public static Map<String, Object> process(GridCoverage2D inputCoverage, String terrainTypes,
+            SlopeType slopeType, double azimuth, double altitude, double zFactor,
+            ProgressListener monitor) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put(RasterTerrainProcessFactory.inputCoverage.key, inputCoverage);
+        map.put(RasterTerrainProcessFactory.terrainTypes.key, terrainTypes);
+        map.put(RasterTerrainProcessFactory.slopeType.key, slopeType);
+        map.put(RasterTerrainProcessFactory.azimuth.key, azimuth);
+        map.put(RasterTerrainProcessFactory.altitude.key, altitude);
+        map.put(RasterTerrainProcessFactory.zFactor.key, zFactor);
+
+        Process process = new RasterTerrainProcess(null);
+        try {
+            return process.execute(map, monitor);
+        } catch (ProcessException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Map<String, Object> execute(Map<String, Object> input, ProgressListener monitor)
+            throws ProcessException {
+        GridCoverage2D inputCoverage = (GridCoverage2D) Params.getValue(input,
+                RasterTerrainProcessFactory.inputCoverage, null);
+        if (inputCoverage == null) {
+            throw new NullPointerException("inputCoverage parameter required");
+        }
+
+        String terrainTypes = (String) Params.getValue(input,
+                RasterTerrainProcessFactory.terrainTypes,
+                RasterTerrainProcessFactory.terrainTypes.sample);
+
+        SlopeType slopeType = (SlopeType) Params.getValue(input,
+                RasterTerrainProcessFactory.slopeType, RasterTerrainProcessFactory.slopeType.sample);
+
+        Double azimuth = (Double) Params.getValue(input, RasterTerrainProcessFactory.azimuth,
+                RasterTerrainProcessFactory.azimuth.sample);
+
+        Double altitude = (Double) Params.getValue(input, RasterTerrainProcessFactory.altitude,
+                RasterTerrainProcessFactory.altitude.sample);
+
+        Double zFactor = (Double) Params.getValue(input, RasterTerrainProcessFactory.zFactor,
+                RasterTerrainProcessFactory.zFactor.sample);
+
+        // start process
+        List<TerrainType> types = new ArrayList<TerrainType>();
+        for (String name : terrainTypes.split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+
+            boolean found = false;
+            for (TerrainType type : TerrainType.values()) {
+                if (type.name().equalsIgnoreCase(name)) {
+                    types.add(type);
+                    found = true;
+                    break;
+                }
+            }
+
+            if (!found) {
+                throw new ProcessException("Unknown terrain type: " + name);
+            }
+        }
+
+        RasterTerrainOperation process = new RasterTerrainOperation();
+        process.setSlopeType(slopeType);
+        process.setAzimuth(azimuth);
+        process.setAltitude(altitude);
+        process.setZFactor(zFactor);
+
+        Map<TerrainType, GridCoverage2D> coverages = process.execute(inputCoverage, types);
+        // end process
+
+        Map<String, Object> resultMap = new HashMap<String, Object>();
+        for (Map.Entry<TerrainType, GridCoverage2D> entry : coverages.entrySet()) {
+            resultMap.put(entry.getKey().name().toLowerCase(), entry.getValue());
+        }
+        return resultMap;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.geotools.api.data.Parameter;
+import org.geotools.api.util.InternationalString;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.feature.NameImpl;
+import org.geotools.process.Process;
+import org.geotools.process.spatialstatistics.enumeration.SlopeType;
+import org.geotools.util.logging.Logging;
+
+/**
+ * RasterTerrainProcessFactory
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class RasterTerrainProcessFactory extends SpatialStatisticsProcessFactory {
+    protected static final Logger LOGGER = Logging.getLogger(RasterTerrainProcessFactory.class);
+
+    private static final String PROCESS_NAME = "RasterTerrain";
+
+    /*
+     * RasterTerrain(GridCoverage2D inputCoverage, String terrainTypes, SlopeType slopeType, Double azimuth, Double altitude, Double zFactor):
+     * GridCoverage2D slope, aspect, hillshade, curvature, tpi, tri, roughness
+     */
+
+    public RasterTerrainProcessFactory() {
+        super(new NameImpl(NAMESPACE, PROCESS_NAME));
+    }
+
+    @Override
+    public Process create() {
+        return new RasterTerrainProcess(this);
+    }
+
+    @Override
+    public InternationalString getTitle() {
+        return getResource("RasterTerrain.title");
+    }
+
+    @Override
+    public InternationalString getDescription() {
+        return getResource("RasterTerrain.description");
+    }
+
+    /** inputCoverage */
+    public static final Parameter<GridCoverage2D> inputCoverage = new Parameter<GridCoverage2D>(
+            "inputCoverage", GridCoverage2D.class,
+            getResource("RasterTerrain.inputCoverage.title"),
+            getResource("RasterTerrain.inputCoverage.description"), true, 1, 1, null, null);
+
+    /** terrainTypes */
+    public static final Parameter<String> terrainTypes = new Parameter<String>("terrainTypes",
+            String.class, getResource("RasterTerrain.terrainTypes.title"),
+            getResource("RasterTerrain.terrainTypes.description"), false, 0, 1,
+            "Slope,Aspect,Hillshade,Curvature,TPI,TRI,Roughness", null);
+
+    /** slopeType */
+    public static final Parameter<SlopeType> slopeType = new Parameter<SlopeType>("slopeType",
+            SlopeType.class, getResource("RasterSlope.slopeType.title"),
+            getResource("RasterSlope.slopeType.description"), false, 0, 1, SlopeType.Degree, null);
+
+    /** azimuth */
+    public static final Parameter<Double> azimuth = new Parameter<Double>("azimuth", Double.class,
+            getResource("RasterHillshade.azimuth.title"),
+            getResource("RasterHillshade.azimuth.description"), false, 0, 1, Double.valueOf(315.0),
+            null);
+
+    /** altitude */
+    public static final Parameter<Double> altitude = new Parameter<Double>("altitude",
+            Double.class, getResource("RasterHillshade.altitude.title"),
+            getResource("RasterHillshade.altitude.description"), false, 0, 1, Double.valueOf(45.0),
+            null);
+
+    /** zFactor */
+    public static final Parameter<Double> zFactor = new Parameter<Double>("zFactor", Double.class,
+            getResource("RasterSlope.zFactor.title"),
+            getResource("RasterSlope.zFactor.description"), false, 0, 1, Double.valueOf(1.0), null);
+
+    @Override
+    protected Map<String, Parameter<?>> getParameterInfo() {
+        HashMap<String, Parameter<?>> parameterInfo = new LinkedHashMap<String, Parameter<?>>();
+        parameterInfo.put(inputCoverage.key, inputCoverage);
+        parameterInfo.put(terrainTypes.key, terrainTypes);
+        parameterInfo.put(slopeType.key, slopeType);
+        parameterInfo.put(azimuth.key, azimuth);
+        parameterInfo.put(altitude.key, altitude);
+        parameterInfo.put(zFactor.key, zFactor);
+        return parameterInfo;
+    }
+
+    /** slope */
+    public static final Parameter<GridCoverage2D> slope = new Parameter<GridCoverage2D>("slope",
+            GridCoverage2D.class, getResource("RasterTerrain.slope.title"),
+            getResource("RasterTerrain.slope.description"), false, 0, 1, null, null);
+
+    /** aspect */
+    public static final Parameter<GridCoverage2D> aspect = new Parameter<GridCoverage2D>("aspect",
+            GridCoverage2D.class, getResource("RasterTerrain.aspect.title"),
+            getResource("RasterTerrain.aspect.description"), false, 0, 1, null, null);
+
+    /** hillshade */
+    public static final Parameter<GridCoverage2D> hillshade = new Parameter<GridCoverage2D>(
+            "hillshade", GridCoverage2D.class, getResource("RasterTerrain.hillshade.title"),
+            getResource("RasterTerrain.hillshade.description"), false, 0, 1, null, null);
+
+    /** curvature */
+    public static final Parameter<GridCoverage2D> curvature = new Parameter<GridCoverage2D>(
+            "curvature", GridCoverage2D.class, getResource("RasterTerrain.curvature.title"),
+            getResource("RasterTerrain.curvature.description"), false, 0, 1, null, null);
+
+    /** tpi */
+    public static final Parameter<GridCoverage2D> tpi = new Parameter<GridCoverage2D>("tpi",
+            GridCoverage2D.class, getResource("RasterTerrain.tpi.title"),
+            getResource("RasterTerrain.tpi.description"), false, 0, 1, null, null);
+
+    /** tri */
+    public static final Parameter<GridCoverage2D> tri = new Parameter<GridCoverage2D>("tri",
+            GridCoverage2D.class, getResource("RasterTerrain.tri.title"),
+            getResource("RasterTerrain.tri.description"), false, 0, 1, null, null);
+
+    /** roughness */
+    public static final Parameter<GridCoverage2D> roughness = new Parameter<GridCoverage2D>(
+            "roughness", GridCoverage2D.class, getResource("RasterTerrain.roughness.title"),
+            getResource("RasterTerrain.roughness.description"), false, 0, 1, null, null);
+
+    static final Map<String, Parameter<?>> resultInfo = new TreeMap<String, Parameter<?>>();
+    static {
+        resultInfo.put(slope.key, slope);
+        resultInfo.put(aspect.key, aspect);
+        resultInfo.put(hillshade.key, hillshade);
+        resultInfo.put(curvature.key, curvature);
+        resultInfo.put(tpi.key, tpi);
+        resultInfo.put(tri.key, tri);
+        resultInfo.put(roughness.key, roughness);
+    }
+
+    @Override
+    protected Map<String, Parameter<?>> getResultInfo(Map<String, Object> parameters)
+            throws IllegalArgumentException {
+        return Collections.unmodifiableMap(resultInfo);
+    }
+
+}
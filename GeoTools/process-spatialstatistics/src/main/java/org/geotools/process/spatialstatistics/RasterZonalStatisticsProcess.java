@@ -102,12 +102,29 @@ public class RasterZonalStatisticsProcess extends AbstractStatisticsProcess {
             targetField = statisticsType.name();
         }
 
+        String statisticsTypes = (String) Params.getValue(input,
+                RasterZonalStatisticsProcessFactory.statisticsTypes, null);
+
         // start process
         SimpleFeatureCollection result = null;
         try {
             RasterZonalOperation process = new RasterZonalOperation();
-            result = process.execute(zoneFeatures, targetField, valueCoverage, bandIndex,
-                    statisticsType);
+            if (statisticsTypes == null || statisticsTypes.trim().length() == 0) {
+                result = process.execute(zoneFeatures, targetField, valueCoverage, bandIndex,
+                        statisticsType);
+            } else {
+                // all statistics in one pass, the field names are the statistics types
+                String[] names = statisticsTypes.split(",");
+                ZonalStatisticsType[] types = new ZonalStatisticsType[names.length];
+                for (int index = 0; index < names.length; index++) {
+                    try {
+                        types[index] = ZonalStatisticsType.valueOf(names[index].trim());
+                    } catch (IllegalArgumentException e) {
+                        throw new ProcessException("Unknown statistics type: " + names[index]);
+                    }
+                }
+                result = process.execute(zoneFeatures, valueCoverage, bandIndex, types);
+            }
         } catch (IOException e) {
             throw new ProcessException(e);
         }
@@ -20,7 +20,12 @@ import java.io.File;
 import java.util.logging.Logger;
 
 import org.geotools.process.spatialstatistics.core.DistanceFactory;
+import org.geotools.process.spatialstatistics.core.FeatureSnapshot;
+import org.geotools.process.spatialstatistics.core.ParallelExecutor;
+import org.geotools.process.spatialstatistics.core.ParallelExecutor.RangeTask;
+import org.geotools.process.spatialstatistics.core.SparseWeightMatrix;
 import org.geotools.process.spatialstatistics.core.WeightMatrixBuilder;
+import org.geotools.process.spatialstatistics.core.WeightRow;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
 import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
@@ -53,6 +58,16 @@ public abstract class AbstractStatisticsOperation extends GeneralOperation {
 
     private File spatialWeightsFile = null;
 
+    private FeatureSnapshot featureSnapshot = null;
+
+    // default number of threads used by the per-feature pass of local statistics
+    private int parallelism = ParallelExecutor.getDefaultParallelism();
+
+    // number of conditional permutations for pseudo p-values, 0 = analytical inference only
+    private int permutations = 0;
+
+    private long randomSeed = 12345L;
+
     protected final DistanceFactory factory = DistanceFactory.newInstance();
 
     public WeightMatrixBuilder getSwMatrix() {
@@ -92,6 +107,18 @@ public abstract class AbstractStatisticsOperation extends GeneralOperation {
         return spatialWeightsFile;
     }
 
+    /**
+     * Sets the columnar snapshot of the input features, ex) swMatrix.getFeatureSnapshot() of a previous run on the same feature collection.
+     * The weight matrix then takes the centroids and values from it instead of reading the features again.
+     */
+    public void setFeatureSnapshot(FeatureSnapshot featureSnapshot) {
+        this.featureSnapshot = featureSnapshot;
+    }
+
+    public FeatureSnapshot getFeatureSnapshot() {
+        return featureSnapshot;
+    }
+
     public void setSpatialConceptType(SpatialConcept spatialConcept) {
         this.spatialConceptType = spatialConcept;
         this.isContiguity = spatialConcept == SpatialConcept.ContiguityEdgesNodes
@@ -114,4 +141,135 @@ public abstract class AbstractStatisticsOperation extends GeneralOperation {
     public void setSelfNeighbors(boolean selfNeighbors) {
         this.selfNeighbors = selfNeighbors;
     }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to calculate local statistics. 1 = sequential.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public int getPermutations() {
+        return permutations;
+    }
+
+    /**
+     * Sets the number of conditional permutations used to calculate pseudo p-values of local statistics, ex) 99, 499, 999. 0 = disabled.
+     */
+    public void setPermutations(int permutations) {
+        this.permutations = Math.max(0, permutations);
+    }
+
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+
+    public void setRandomSeed(long randomSeed) {
+        this.randomSeed = randomSeed;
+    }
+
+    /**
+     * Returns the weight wji of the transposed matrix for the non-zero weight wij of the row i.
+     */
+    protected double getTransposedWeight(int i, int j, double wij) {
+        if (swMatrix.isSparse()) {
+            return swMatrix.getSparseWeights().getWeight(j, i);
+        }
+
+        // dense weights are symmetric before row standardization
+        if (getStandardizationType() == StandardizationMethod.Row) {
+            double rowSum = swMatrix.getRowSum(j);
+            return rowSum == 0 ? 0.0 : wij * swMatrix.getRowSum(i) / rowSum;
+        }
+        return wij;
+    }
+
+    /**
+     * Returns the column sums of the sparse weights, or null if the weights are dense. The non-zero weights of the dense matrix are
+     * symmetric, so its column sums can be accumulated from the rows.
+     */
+    protected double[] getColumnSums() {
+        if (!swMatrix.isSparse()) {
+            return null;
+        }
+
+        SparseWeightMatrix sparse = swMatrix.getSparseWeights();
+        int[] indices = sparse.getIndices();
+        double[] weights = sparse.getWeights();
+
+        double[] columnSums = new double[sparse.getFeatureCount()];
+        for (int k = 0; k < sparse.getNeighborCount(); k++) {
+            columnSums[indices[k]] += weights[k];
+        }
+        return columnSums;
+    }
+
+    /**
+     * Accumulates the moments of the spatial weights from the non-zero weights of the rows: S0 = sum(wij), S1 = 1/2 * sum((wij + wji)^2) and
+     * S2 = sum((wi. + w.i)^2).
+     */
+    protected final class WeightMoments {
+        double s0 = 0.0;
+
+        double s1 = 0.0;
+
+        double s2 = 0.0;
+
+        private final double[] columnSums;
+
+        WeightMoments(double[] columnSums) {
+            this.columnSums = columnSums;
+        }
+
+        /**
+         * Creates an empty accumulator sharing the column sums, ex) for a range of features.
+         */
+        WeightMoments createEmpty() {
+            return new WeightMoments(columnSums);
+        }
+
+        void add(int i, WeightRow row) {
+            double rowSum = 0.0;
+            double columnSum = 0.0;
+            for (int k = 0; k < row.size; k++) {
+                double wij = row.weights[k];
+                double wji = getTransposedWeight(i, row.indices[k], wij);
+
+                // 1/2 * (wij + wji)^2 per ordered pair expands to wij^2 + wij * wji
+                s1 += (wij * wij) + (wij * wji);
+                rowSum += wij;
+                columnSum += wji;
+            }
+
+            if (columnSums != null) {
+                columnSum = columnSums[i];
+            }
+
+            s0 += rowSum;
+            s2 += (rowSum + columnSum) * (rowSum + columnSum);
+        }
+
+        synchronized void merge(WeightMoments other) {
+            s0 += other.s0;
+            s1 += other.s1;
+            s2 += other.s2;
+        }
+    }
+
+    /**
+     * Task calculating the statistics of features [start, end). Each feature must only write its own result slots.
+     */
+    protected interface FeatureRangeTask extends RangeTask {
+    }
+
+    /**
+     * Runs the task over all features, splitting the range in the shared pool if parallelism > 1.
+     */
+    protected void executeFeatureRange(int featureCount, FeatureRangeTask task) {
+        ParallelExecutor.execute(featureCount, parallelism, 64, task);
+    }
 }
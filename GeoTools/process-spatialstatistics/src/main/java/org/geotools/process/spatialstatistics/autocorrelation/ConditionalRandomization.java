@@ -0,0 +1,136 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.autocorrelation;
+
+import java.util.SplittableRandom;
+
+import org.geotools.process.spatialstatistics.core.WeightRow;
+
+/**
+ * Conditional randomization of local statistics: the value of feature i is held fixed while the values of its neighbours are drawn at random,
+ * without replacement, from the remaining n - 1 features. <br>
+ * Every feature uses its own random stream derived from the seed and the feature index, so the results do not depend on the number of threads.
+ *
+ * @author Minpa Lee, MangoSystem
+ *
+ * @source $URL$
+ */
+public class ConditionalRandomization {
+
+    private final double[] values;
+
+    private final int permutations;
+
+    private final long seed;
+
+    /**
+     * @param values the value of each feature used in the spatial lag
+     * @param permutations the number of permutations, ex) 99, 499, 999
+     * @param seed the random seed
+     */
+    public ConditionalRandomization(double[] values, int permutations, long seed) {
+        this.values = values;
+        this.permutations = permutations;
+        this.seed = seed;
+    }
+
+    public int getPermutations() {
+        return permutations;
+    }
+
+    /**
+     * Creates the working array for {@link #pseudoPValue}. Each thread needs its own array.
+     */
+    public int[] createPool() {
+        int[] pool = new int[values.length];
+        for (int k = 0; k < pool.length; k++) {
+            pool[k] = k;
+        }
+        return pool;
+    }
+
+    /**
+     * Calculates the folded pseudo p-value of the statistic scale * sum(wij * values[j]) of feature i. As in GeoDa and PySAL, the p-value is
+     * one-sided in the direction of the observed statistic.
+     *
+     * @param i feature index
+     * @param row the neighbours of feature i
+     * @param scale constant factor of the statistic
+     * @param observed the observed statistic
+     * @param pool working array created by {@link #createPool()}
+     * @return (extreme + 1) / (permutations + 1) or NaN if feature i has no neighbours
+     */
+    public double pseudoPValue(int i, WeightRow row, double scale, double observed, int[] pool) {
+        if (row.size == 0 || Double.isNaN(observed) || Double.isInfinite(observed)) {
+            return Double.NaN;
+        }
+
+        final int n = pool.length;
+        final int[] swaps = new int[row.size + 1];
+        SplittableRandom random = new SplittableRandom(mix64(seed + i * 0x9E3779B97F4A7C15L));
+
+        int larger = 0;
+        for (int p = 0; p < permutations; p++) {
+            // partial Fisher-Yates shuffle of the pool
+            double lag = 0.0;
+            int t = 0;
+            for (int k = 0; k < row.size; k++) {
+                if (row.indices[k] == i) {
+                    // the weight of i itself (self neighbors) keeps the observed value
+                    lag += row.weights[k] * values[i];
+                    continue;
+                }
+
+                int j;
+                do {
+                    int r = t + random.nextInt(n - t);
+                    j = pool[r];
+                    pool[r] = pool[t];
+                    pool[t] = j;
+                    swaps[t++] = r;
+                } while (j == i);
+
+                lag += row.weights[k] * values[j];
+            }
+
+            // undo the swaps so that every permutation starts from the same pool
+            while (t > 0) {
+                int r = swaps[--t];
+                int j = pool[r];
+                pool[r] = pool[t];
+                pool[t] = j;
+            }
+
+            if (scale * lag >= observed) {
+                larger++;
+            }
+        }
+
+        // fold to the tail of the reference distribution the observed value lies in
+        if (permutations - larger < larger) {
+            larger = permutations - larger;
+        }
+
+        return (larger + 1.0) / (permutations + 1.0);
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
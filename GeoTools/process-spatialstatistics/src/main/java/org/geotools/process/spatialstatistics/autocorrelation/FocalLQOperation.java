@@ -28,6 +28,7 @@ import org.geotools.process.spatialstatistics.core.FeatureTypes;
 import org.geotools.process.spatialstatistics.core.FormatUtils;
 import org.geotools.process.spatialstatistics.core.SpatialEvent;
 import org.geotools.process.spatialstatistics.core.WeightMatrixBuilder;
+import org.geotools.process.spatialstatistics.core.WeightRow;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
 import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
@@ -84,6 +85,8 @@ public class FocalLQOperation extends AbstractStatisticsOperation {
         swMatrix = new WeightMatrixBuilder(getSpatialConceptType(), getStandardizationType());
         swMatrix.setDistanceMethod(getDistanceType());
         swMatrix.setDistanceBandWidth(getDistanceBand());
+        swMatrix.setSpatialWeightsFile(getSpatialWeightsFile());
+        swMatrix.setFeatureSnapshot(getFeatureSnapshot());
         swMatrix.buildWeightMatrix(inputFeatures, xField, yField);
 
         int featureCount = swMatrix.getEvents().size();
@@ -98,36 +101,52 @@ public class FocalLQOperation extends AbstractStatisticsOperation {
         final double dXY = swMatrix.sumX / swMatrix.sumY;
 
         // Calculate LQ for each feature i.
-        for (int i = 0; i < featureCount; i++) {
-            SpatialEvent source = swMatrix.getEvents().get(i);
-
-            // Initialize working variables.
-            double sumX = 0.0;
-            double sumY = 0.0;
-
-            // Look for local neighbors
-            for (int j = 0; j < featureCount; j++) {
-                SpatialEvent target = swMatrix.getEvents().get(j);
-                double wij = swMatrix.getWeight(source, target);
-                if (wij == 0) {
-                    continue;
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                WeightRow row = new WeightRow();
+                for (int i = start; i < end; i++) {
+                    SpatialEvent source = swMatrix.getEvents().get(i);
+
+                    // Initialize working variables.
+                    double sumX = 0.0;
+                    double sumY = 0.0;
+
+                    // Look for local neighbors, the focal feature itself included
+                    boolean selfVisited = swMatrix.getWeight(source, source) == 0;
+                    swMatrix.getRow(i, row);
+                    for (int k = 0; k < row.size; k++) {
+                        if (!selfVisited && row.indices[k] > i) {
+                            sumX += source.xVal;
+                            sumY += source.yVal;
+                            selfVisited = true;
+                        }
+
+                        SpatialEvent target = swMatrix.getEvents().get(row.indices[k]);
+                        sumX += target.xVal;
+                        sumY += target.yVal;
+                    }
+
+                    if (!selfVisited) {
+                        sumX += source.xVal;
+                        sumY += source.yVal;
+                    }
+
+                    double dxy = sumY == 0.0 ? 0.0 : sumX / sumY; // y / x
+                    double tmpval2 = sumX * dXY; // x * Y/X
+                    double tmpval4 = 0.0;
+                    if (source.xVal != 0.0) {
+                        tmpval4 = source.yVal / source.xVal; // y / x
+                    }
+
+                    localLQ[i] = validateDouble(tmpval4 / dXY);
+                    lqD[i] = validateDouble(dxy / dXY);
+                    lqZ[i] = validateDouble((sumY - tmpval2) / Math.sqrt(tmpval2));
                 }
-
-                sumX += target.xVal;
-                sumY += target.yVal;
-            }
-
-            double dxy = sumY == 0.0 ? 0.0 : sumX / sumY; // y / x
-            double tmpval2 = sumX * dXY; // x * Y/X
-            double tmpval4 = 0.0;
-            if (source.xVal != 0.0) {
-                tmpval4 = source.yVal / source.xVal; // y / x
             }
+        });
 
-            localLQ[i] = validateDouble(tmpval4 / dXY);
-            lqD[i] = validateDouble(dxy / dXY);
-            lqZ[i] = validateDouble((sumY - tmpval2) / Math.sqrt(tmpval2));
-
+        for (int i = 0; i < featureCount; i++) {
             globalLQ += Math.abs(lqD[i]);
         }
 
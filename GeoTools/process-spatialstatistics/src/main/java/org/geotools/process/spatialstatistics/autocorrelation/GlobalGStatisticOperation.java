@@ -21,8 +21,8 @@ import java.util.logging.Logger;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
-import org.geotools.process.spatialstatistics.core.SpatialEvent;
 import org.geotools.process.spatialstatistics.core.WeightMatrixBuilder;
+import org.geotools.process.spatialstatistics.core.WeightRow;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
 import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
@@ -57,49 +57,58 @@ public class GlobalGStatisticOperation extends AbstractStatisticsOperation {
         swMatrix = new WeightMatrixBuilder(getSpatialConceptType(), getStandardizationType());
         swMatrix.setDistanceMethod(getDistanceType());
         swMatrix.setDistanceBandWidth(getDistanceBand());
+        swMatrix.setSpatialWeightsFile(getSpatialWeightsFile());
         swMatrix.setSelfNeighbors(isSelfNeighbors());
+        swMatrix.setFeatureSnapshot(getFeatureSnapshot());
         swMatrix.buildWeightMatrix(inputFeatures, inputField);
 
-        double wijSum = 0.0; // sum of all weights (wij)
-        double tpSum = 0.0;
-        double npSum = 0.0;
-        double sumS1 = 0.0;
-        double s2 = 0.0;
-
-        double n = swMatrix.getEvents().size();
-
-        for (SpatialEvent source : swMatrix.getEvents()) {
-            double jwijSum = 0.0;
-            double jwjiSum = 0.0;
-
-            for (SpatialEvent target : swMatrix.getEvents()) {
-                if (!isSelfNeighbors() && source.id == target.id) {
-                    continue;
+        final int featureCount = swMatrix.getEvents().size();
+        final double[] x = new double[featureCount];
+        for (int i = 0; i < featureCount; i++) {
+            x[i] = swMatrix.getEvents().get(i).xVal;
+        }
+
+        final double[] npSums = new double[1];
+        final WeightMoments moments = new WeightMoments(getColumnSums());
+
+        // only the neighbours of each feature contribute to the statistic and the moments
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                WeightRow row = new WeightRow();
+                WeightMoments local = moments.createEmpty();
+                double npSum = 0.0;
+
+                for (int i = start; i < end; i++) {
+                    swMatrix.getRow(i, row);
+                    double xjWSum = 0.0;
+                    for (int k = 0; k < row.size; k++) {
+                        xjWSum += row.weights[k] * x[row.indices[k]];
+                    }
+                    npSum += x[i] * xjWSum;
+                    local.add(i, row);
                 }
 
-                tpSum += source.xVal * target.xVal;
-
-                double wij = swMatrix.getWeight(source, target);
-                double wji = wij;
-                wij = swMatrix.standardizeWeight(source, wij);
-                wji = swMatrix.standardizeWeight(target, wji);
-                if (wij == 0) {
-                    continue;
+                moments.merge(local);
+                synchronized (npSums) {
+                    npSums[0] += npSum;
                 }
-
-                npSum += wij * source.xVal * target.xVal;
-
-                wijSum += wij;
-                sumS1 += Math.pow(wij + wji, 2.0);
-                jwijSum += wij;
-                jwjiSum += wji;
             }
+        });
+
+        double n = featureCount;
+        double npSum = npSums[0];
+        double wijSum = moments.s0; // sum of all weights (wij)
+        double s1 = moments.s1;
+        double s2 = moments.s2;
 
-            s2 += Math.pow(jwijSum + jwjiSum, 2.0);
+        // sum of xi * xj over all pairs
+        double tpSum = Math.pow(swMatrix.sumX, 2.0);
+        if (!isSelfNeighbors()) {
+            tpSum -= swMatrix.sumX2;
         }
 
         // calculate B and S working variables needed to calculate variance.
-        double s1 = 0.5 * sumS1;
         double wijSum2 = Math.pow(wijSum, 2.0);
 
         double b0 = ((Math.pow(n, 2.0) + (-3.0 * n) + 3.0) * s1) - (n * s2) + (3.0 * wijSum2);
@@ -21,8 +21,8 @@ import java.util.logging.Logger;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
-import org.geotools.process.spatialstatistics.core.SpatialEvent;
 import org.geotools.process.spatialstatistics.core.WeightMatrixBuilder;
+import org.geotools.process.spatialstatistics.core.WeightRow;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
 import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
@@ -51,53 +51,62 @@ public class GlobalGearysCOperation extends AbstractStatisticsOperation {
         swMatrix = new WeightMatrixBuilder(getSpatialConceptType(), getStandardizationType());
         swMatrix.setDistanceMethod(getDistanceType());
         swMatrix.setDistanceBandWidth(getDistanceBand());
+        swMatrix.setSpatialWeightsFile(getSpatialWeightsFile());
         swMatrix.setSelfNeighbors(isSelfNeighbors());
+        swMatrix.setFeatureSnapshot(getFeatureSnapshot());
         swMatrix.buildWeightMatrix(inputFeatures, inputField);
 
-        double cijWSum = 0.0;
-        double wijSum = 0.0; // sum of all weights (wij)
-        double m2 = 0.0;
-        double m4 = 0.0;
-        double sumS1 = 0.0;
-        double sumS2 = 0.0;
-
-        double n = swMatrix.getEvents().size();
-        double meanX = swMatrix.sumX / n;
-
-        for (SpatialEvent source : swMatrix.getEvents()) {
-            double jwijSum = 0.0;
-            double jwjiSum = 0.0;
-
-            double zi = source.xVal - meanX;
-            m2 += Math.pow(zi, 2.0);
-            m4 += Math.pow(zi, 4.0);
-
-            for (SpatialEvent target : swMatrix.getEvents()) {
-                if (!isSelfNeighbors() && source.id == target.id) {
-                    continue;
+        final int featureCount = swMatrix.getEvents().size();
+        final double meanX = swMatrix.sumX / featureCount;
+        final double[] x = new double[featureCount];
+        for (int i = 0; i < featureCount; i++) {
+            x[i] = swMatrix.getEvents().get(i).xVal;
+        }
+
+        // cijWSum, m2, m4
+        final double[] sums = new double[3];
+        final WeightMoments moments = new WeightMoments(getColumnSums());
+
+        // only the neighbours of each feature contribute to the statistic and the moments
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                WeightRow row = new WeightRow();
+                WeightMoments local = moments.createEmpty();
+                double cijWSum = 0.0;
+                double m2 = 0.0;
+                double m4 = 0.0;
+
+                for (int i = start; i < end; i++) {
+                    double zi = x[i] - meanX;
+                    double zi2 = zi * zi;
+                    m2 += zi2;
+                    m4 += zi2 * zi2;
+
+                    swMatrix.getRow(i, row);
+                    for (int k = 0; k < row.size; k++) {
+                        double dx = x[i] - x[row.indices[k]];
+                        cijWSum += row.weights[k] * dx * dx;
+                    }
+                    local.add(i, row);
                 }
 
-                double wij = swMatrix.getWeight(source, target);
-                double wji = wij;
-                wij = swMatrix.standardizeWeight(source, wij);
-                wji = swMatrix.standardizeWeight(target, wji);
-                if (wij == 0) {
-                    continue;
+                moments.merge(local);
+                synchronized (sums) {
+                    sums[0] += cijWSum;
+                    sums[1] += m2;
+                    sums[2] += m4;
                 }
-
-                double cij = Math.pow(source.xVal - target.xVal, 2.0);
-
-                cijWSum += wij * cij;
-                wijSum += wij;
-                jwijSum += wij;
-                jwjiSum += wji;
-                sumS1 += Math.pow(wij + wji, 2.0);
             }
-
-            sumS2 += Math.pow(jwijSum + jwjiSum, 2.0);
-        }
-
-        double dS1 = 0.5 * sumS1;
+        });
+
+        double n = featureCount;
+        double cijWSum = sums[0];
+        double m2 = sums[1];
+        double m4 = sums[2];
+        double wijSum = moments.s0; // sum of all weights (wij)
+        double dS1 = moments.s1;
+        double sumS2 = moments.s2;
 
         m2 = m2 / (n - 1.0);
         m4 = m4 / (n - 1.0);
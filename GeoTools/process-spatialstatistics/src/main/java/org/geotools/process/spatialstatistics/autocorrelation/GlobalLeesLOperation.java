@@ -21,8 +21,8 @@ import java.util.logging.Logger;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
-import org.geotools.process.spatialstatistics.core.SpatialEvent;
 import org.geotools.process.spatialstatistics.core.WeightMatrixBuilder;
+import org.geotools.process.spatialstatistics.core.WeightRow;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
 import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
@@ -50,52 +50,67 @@ public class GlobalLeesLOperation extends AbstractStatisticsOperation {
         swMatrix = new WeightMatrixBuilder(getSpatialConceptType(), getStandardizationType());
         swMatrix.setDistanceMethod(getDistanceType());
         swMatrix.setDistanceBandWidth(getDistanceBand());
+        swMatrix.setSpatialWeightsFile(getSpatialWeightsFile());
         swMatrix.setSelfNeighbors(isSelfNeighbors());
+        swMatrix.setFeatureSnapshot(getFeatureSnapshot());
         swMatrix.buildWeightMatrix(inputFeatures, xField, yField);
 
-        double wijSum = 0.0; // sum of all weights (wij)
-        double wijSum2 = 0.0;
-        double jxydWSum = 0.0;
-        double zxiSum2 = 0.0;
-        double zyiSum2 = 0.0;
-
-        double n = swMatrix.getEvents().size();
-        double meanX = swMatrix.sumX / n;
-        double meanY = swMatrix.sumY / n;
-
-        for (SpatialEvent source : swMatrix.getEvents()) {
-            double jwijSum = 0.0;
-            double zxjWSum = 0.0;
-            double zyjWSum = 0.0;
-
-            double zxi = source.xVal - meanX;
-            double zyi = source.yVal - meanY;
-            zxiSum2 += Math.pow(zxi, 2.0);
-            zyiSum2 += Math.pow(zyi, 2.0);
-
-            for (SpatialEvent target : swMatrix.getEvents()) {
-                if (!isSelfNeighbors() && source.id == target.id) {
-                    continue;
+        final int featureCount = swMatrix.getEvents().size();
+        final double[] zx = new double[featureCount];
+        final double[] zy = new double[featureCount];
+        double meanX = swMatrix.sumX / featureCount;
+        double meanY = swMatrix.sumY / featureCount;
+        for (int i = 0; i < featureCount; i++) {
+            zx[i] = swMatrix.getEvents().get(i).xVal - meanX;
+            zy[i] = swMatrix.getEvents().get(i).yVal - meanY;
+        }
+
+        // wijSum, wijSum2, jxydWSum, zxiSum2, zyiSum2
+        final double[] sums = new double[5];
+
+        // only the neighbours of each feature contribute to the statistic
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                WeightRow row = new WeightRow();
+                double[] local = new double[5];
+
+                for (int i = start; i < end; i++) {
+                    local[3] += zx[i] * zx[i];
+                    local[4] += zy[i] * zy[i];
+
+                    swMatrix.getRow(i, row);
+                    double jwijSum = 0.0;
+                    double zxjWSum = 0.0;
+                    double zyjWSum = 0.0;
+                    for (int k = 0; k < row.size; k++) {
+                        double wij = row.weights[k];
+                        int j = row.indices[k];
+
+                        zxjWSum += wij * zx[j];
+                        zyjWSum += wij * zy[j];
+                        jwijSum += wij;
+                    }
+
+                    local[0] += jwijSum;
+                    local[1] += jwijSum * jwijSum;
+                    local[2] += Math.abs(zxjWSum * zyjWSum);
                 }
 
-                double wij = swMatrix.getWeight(source, target);
-                wij = swMatrix.standardizeWeight(source, wij);
-                if (wij == 0) {
-                    continue;
+                synchronized (sums) {
+                    for (int k = 0; k < sums.length; k++) {
+                        sums[k] += local[k];
+                    }
                 }
-
-                double zxj = target.xVal - meanX;
-                double zyj = target.yVal - meanY;
-
-                zxjWSum += wij * zxj;
-                zyjWSum += wij * zyj;
-                jwijSum += wij;
             }
-
-            wijSum += jwijSum;
-            wijSum2 += Math.pow(jwijSum, 2.0);
-            jxydWSum += Math.abs(zxjWSum * zyjWSum);
-        }
+        });
+
+        double n = featureCount;
+        double wijSum = sums[0]; // sum of all weights (wij)
+        double wijSum2 = sums[1];
+        double jxydWSum = sums[2];
+        double zxiSum2 = sums[3];
+        double zyiSum2 = sums[4];
 
         // TODO modify
         double dExpected = 0.0;
@@ -21,8 +21,8 @@ import java.util.logging.Logger;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
-import org.geotools.process.spatialstatistics.core.SpatialEvent;
 import org.geotools.process.spatialstatistics.core.WeightMatrixBuilder;
+import org.geotools.process.spatialstatistics.core.WeightRow;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
 import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
@@ -50,45 +50,57 @@ public class GlobalLeesSOperation extends AbstractStatisticsOperation {
         swMatrix = new WeightMatrixBuilder(getSpatialConceptType(), getStandardizationType());
         swMatrix.setDistanceMethod(getDistanceType());
         swMatrix.setDistanceBandWidth(getDistanceBand());
+        swMatrix.setSpatialWeightsFile(getSpatialWeightsFile());
         swMatrix.setSelfNeighbors(isSelfNeighbors());
+        swMatrix.setFeatureSnapshot(getFeatureSnapshot());
         swMatrix.buildWeightMatrix(inputFeatures, inputField);
 
-        double wijSum = 0.0; // sum of all weights (wij)
-        double zjWSum2 = 0.0;
-        double wijSum2 = 0.0;
-        double ziSum2 = 0.0;
-
-        double n = swMatrix.getEvents().size();
-        double meanX = swMatrix.sumX / n;
-
-        for (SpatialEvent source : swMatrix.getEvents()) {
-            double jwijSum = 0.0;
-            double zjWSum = 0.0;
-
-            double zi = source.xVal - meanX;
-            ziSum2 += Math.pow(zi, 2.0);
-
-            for (SpatialEvent target : swMatrix.getEvents()) {
-                if (!isSelfNeighbors() && source.id == target.id) {
-                    continue;
+        final int featureCount = swMatrix.getEvents().size();
+        final double[] z = new double[featureCount];
+        double meanX = swMatrix.sumX / featureCount;
+        for (int i = 0; i < featureCount; i++) {
+            z[i] = swMatrix.getEvents().get(i).xVal - meanX;
+        }
+
+        // wijSum, wijSum2, zjWSum2, ziSum2
+        final double[] sums = new double[4];
+
+        // only the neighbours of each feature contribute to the statistic
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                WeightRow row = new WeightRow();
+                double[] local = new double[4];
+
+                for (int i = start; i < end; i++) {
+                    local[3] += z[i] * z[i];
+
+                    swMatrix.getRow(i, row);
+                    double jwijSum = 0.0;
+                    double zjWSum = 0.0;
+                    for (int k = 0; k < row.size; k++) {
+                        zjWSum += row.weights[k] * z[row.indices[k]];
+                        jwijSum += row.weights[k];
+                    }
+
+                    local[0] += jwijSum;
+                    local[1] += jwijSum * jwijSum;
+                    local[2] += zjWSum * zjWSum;
                 }
 
-                double wij = swMatrix.getWeight(source, target);
-                wij = swMatrix.standardizeWeight(source, wij);
-                if (wij == 0) {
-                    continue;
+                synchronized (sums) {
+                    for (int k = 0; k < sums.length; k++) {
+                        sums[k] += local[k];
+                    }
                 }
-
-                double zj = target.xVal - meanX;
-
-                zjWSum += wij * zj;
-                jwijSum += wij;
             }
+        });
 
-            wijSum += jwijSum;
-            wijSum2 += Math.pow(jwijSum, 2.0);
-            zjWSum2 += Math.pow(zjWSum, 2.0);
-        }
+        double n = featureCount;
+        double wijSum = sums[0]; // sum of all weights (wij)
+        double wijSum2 = sums[1];
+        double zjWSum2 = sums[2];
+        double ziSum2 = sums[3];
 
         // TODO modify
         double dExpected = 0.0;
@@ -21,8 +21,8 @@ import java.util.logging.Logger;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
-import org.geotools.process.spatialstatistics.core.SpatialEvent;
 import org.geotools.process.spatialstatistics.core.WeightMatrixBuilder;
+import org.geotools.process.spatialstatistics.core.WeightRow;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
 import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
@@ -50,51 +50,81 @@ public class GlobalMoranIStatisticOperation extends AbstractStatisticsOperation
         swMatrix = new WeightMatrixBuilder(getSpatialConceptType(), getStandardizationType());
         swMatrix.setDistanceMethod(getDistanceType());
         swMatrix.setDistanceBandWidth(getDistanceBand());
+        swMatrix.setSpatialWeightsFile(getSpatialWeightsFile());
         swMatrix.setSelfNeighbors(isSelfNeighbors());
+        swMatrix.setFeatureSnapshot(getFeatureSnapshot());
         swMatrix.buildWeightMatrix(inputFeatures, inputField);
 
-        double zijWSum = 0.0;
-        double wijSum = 0.0; // sum of all weights (wij)
-        double ziSum2 = 0.0;
-        double ziSum4 = 0.0;
-        double sumS1 = 0.0;
-        double sumS2 = 0.0;
-
-        double n = swMatrix.getEvents().size();
-        double meanX = swMatrix.sumX / n;
-
-        for (SpatialEvent source : swMatrix.getEvents()) {
-            double jwijSum = 0.0;
-            double jwjiSum = 0.0;
-
-            double zi = source.xVal - meanX;
-            ziSum2 += Math.pow(zi, 2.0);
-            ziSum4 += Math.pow(zi, 4.0);
-
-            for (SpatialEvent target : swMatrix.getEvents()) {
-                if (!isSelfNeighbors() && source.id == target.id) {
-                    continue;
+        final int featureCount = swMatrix.getEvents().size();
+        final double meanX = swMatrix.sumX / featureCount;
+        final double[] z = new double[featureCount];
+        for (int i = 0; i < featureCount; i++) {
+            z[i] = swMatrix.getEvents().get(i).xVal - meanX;
+        }
+
+        // zijWSum, ziSum2, ziSum4
+        final double[] sums = new double[3];
+        final WeightMoments moments = new WeightMoments(getColumnSums());
+
+        // only the neighbours of each feature contribute to the statistic and the moments
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                WeightRow row = new WeightRow();
+                WeightMoments local = moments.createEmpty();
+                double zijWSum = 0.0;
+                double ziSum2 = 0.0;
+                double ziSum4 = 0.0;
+
+                for (int i = start; i < end; i++) {
+                    double zi = z[i];
+                    double zi2 = zi * zi;
+                    ziSum2 += zi2;
+                    ziSum4 += zi2 * zi2;
+
+                    swMatrix.getRow(i, row);
+                    double zjWSum = 0.0;
+                    for (int k = 0; k < row.size; k++) {
+                        zjWSum += row.weights[k] * z[row.indices[k]];
+                    }
+                    zijWSum += zi * zjWSum;
+                    local.add(i, row);
                 }
 
-                double wij = swMatrix.getWeight(source, target);
-                double wji = wij;
-                wij = swMatrix.standardizeWeight(source, wij);
-                wji = swMatrix.standardizeWeight(target, wji);
-                if (wij == 0) {
-                    continue;
+                moments.merge(local);
+                synchronized (sums) {
+                    sums[0] += zijWSum;
+                    sums[1] += ziSum2;
+                    sums[2] += ziSum4;
                 }
+            }
+        });
 
-                double zj = target.xVal - meanX;
+        MoransI moransI = calculateMoransI(featureCount, sums[0], sums[1], sums[2], moments.s0,
+                moments.s1, moments.s2);
+        moransI.setConceptualization(getSpatialConceptType());
+        moransI.setDistanceMethod(getDistanceType());
+        moransI.setRowStandardization(getStandardizationType());
+        moransI.setDistanceThreshold(swMatrix.getDistanceBandWidth());
 
-                zijWSum += wij * zi * zj;
-                wijSum += wij;
-                jwijSum += wij;
-                jwjiSum += wji;
-                sumS1 += Math.pow(wij + wji, 2.0);
-            }
+        return moransI;
+    }
 
-            sumS2 += Math.pow(jwijSum + jwjiSum, 2.0);
-        }
+    /**
+     * Calculates Moran's I and its variance under the randomization assumption.
+     * 
+     * @param n number of features
+     * @param zijWSum sum(wij * zi * zj)
+     * @param ziSum2 sum(zi^2)
+     * @param ziSum4 sum(zi^4)
+     * @param s0 sum of all weights
+     * @param s1 1/2 * sum((wij + wji)^2)
+     * @param s2 sum((wi. + w.i)^2)
+     */
+    static MoransI calculateMoransI(double n, double zijWSum, double ziSum2, double ziSum4,
+            double s0, double s1, double s2) {
+        double wijSum = s0; // sum of all weights (wij)
+        double sumS2 = s2;
 
         ziSum2 = ziSum2 / n; // standard deviation
         ziSum4 = ziSum4 / n;
@@ -102,17 +132,11 @@ public class GlobalMoranIStatisticOperation extends AbstractStatisticsOperation
         double dExpected = -1.0 / (n - 1.0);
 
         if (wijSum <= 0.0) {
-            MoransI moransI = new MoransI(0d, dExpected, 0d);
-            moransI.setConceptualization(getSpatialConceptType());
-            moransI.setDistanceMethod(getDistanceType());
-            moransI.setRowStandardization(getStandardizationType());
-            moransI.setDistanceThreshold(swMatrix.getDistanceBandWidth());
-            return moransI;
+            return new MoransI(0d, dExpected, 0d);
         }
 
         double dObserved = zijWSum / (ziSum2 * wijSum);
 
-        double s1 = 0.5 * sumS1;
         double wijSum2 = Math.pow(wijSum, 2.0);
         double b2 = ziSum4 / (ziSum2 * ziSum2); // sample kurtosis
         double a = n * ((Math.pow(n, 2.0) - (3.0 * n) + 3.0) * s1 - (n * sumS2) + 3.0 * wijSum2);
@@ -121,14 +145,7 @@ public class GlobalMoranIStatisticOperation extends AbstractStatisticsOperation
 
         double zVariance = (a / c) - (b / c) - Math.pow(dExpected, 2.0);
 
-        // finally build result
-        MoransI moransI = new MoransI(dObserved, dExpected, zVariance);
-        moransI.setConceptualization(getSpatialConceptType());
-        moransI.setDistanceMethod(getDistanceType());
-        moransI.setRowStandardization(getStandardizationType());
-        moransI.setDistanceThreshold(swMatrix.getDistanceBandWidth());
-
-        return moransI;
+        return new MoransI(dObserved, dExpected, zVariance);
     }
 
     public static final class MoransI {
@@ -62,67 +62,103 @@ public class GlobalRogersonROperation extends AbstractStatisticsOperation {
         swMatrix = new WeightMatrixBuilder(getSpatialConceptType(), getStandardizationType());
         swMatrix.setDistanceMethod(getDistanceType());
         swMatrix.setDistanceBandWidth(getDistanceBand());
+        swMatrix.setSpatialWeightsFile(getSpatialWeightsFile());
         swMatrix.setSelfNeighbors(isSelfNeighbors());
+        swMatrix.setFeatureSnapshot(getFeatureSnapshot());
         swMatrix.buildWeightMatrix(inputFeatures, caseField, popField);
 
         // spatial version of the chi-square goodness-of-fit statistic
-        int featureCount = swMatrix.getEvents().size();
-        double m = swMatrix.getEvents().size();
+        final int featureCount = swMatrix.getEvents().size();
+        double m = featureCount;
+
+        final SpatialEvent[] events = new SpatialEvent[featureCount];
+        final double[] r = new double[featureCount];
+        final double[] p = new double[featureCount];
+        final double[] sqrtP = new double[featureCount];
+        for (int i = 0; i < featureCount; i++) {
+            events[i] = swMatrix.getEvents().get(i);
+            r[i] = events[i].xVal / swMatrix.sumX;
+            p[i] = events[i].yVal / swMatrix.sumY;
+            sqrtP[i] = Math.sqrt(p[i]);
+        }
+
+        // sum(aik * sqrt(pk)), k != i: sum(aik * sqrt(pk / pj)) = akSums[i] / sqrt(pj)
+        final double[] akSums = new double[featureCount];
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    double sum = 0.0;
+                    for (int k = 0; k < featureCount; k++) {
+                        if (k != i) {
+                            sum += getKernel(events[i], events[k]) * sqrtP[k];
+                        }
+                    }
+                    akSums[i] = sum;
+                }
+            }
+        });
 
         // R = Goodness-Of-Fit (GOF) and Spatial Association (SA)
         // Rogerson (1999) partitioned Tango’s index, T, into the sum of a goodness-of-fit(GOF) and a Spatial Association(SA) component
 
-        double gof = 0.0;
-        double sa = 0.0;
-        double aijSum = 0.0;
-        double yijyjiSum = 0.0;
+        // gof, sa, aijSum, yijyjiSum
+        final double[] sums = new double[4];
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                double[] local = new double[4];
 
-        for (int i = 0; i < featureCount; i++) {
-            SpatialEvent source = swMatrix.getEvents().get(i);
+                for (int i = start; i < end; i++) {
+                    double pi = p[i];
+                    double ripi = r[i] - pi;
 
-            double ri = source.xVal / swMatrix.sumX;
-            double pi = source.yVal / swMatrix.sumY;
-            double ripi = ri - pi;
+                    local[0] += (ripi * ripi) / pi;
 
-            gof += (ripi * ripi) / pi;
+                    double yijSum = 0.0;
+                    double yjiSum = 0.0;
 
-            double ajSum = 0.0;
-            double yijSum = 0.0;
-            double yjiSum = 0.0;
+                    for (int j = 0; j < featureCount; j++) {
+                        if (i == j) {
+                            continue; // gof
+                        }
 
-            for (int j = 0; j < featureCount; j++) {
-                SpatialEvent target = swMatrix.getEvents().get(j);
-                if (source.id == target.id) {
-                    continue; // gof
-                }
+                        double pj = p[j];
+                        double rjpj = r[j] - pj;
+                        double pipjSqrt = sqrtP[i] * sqrtP[j];
 
-                double rj = target.xVal / swMatrix.sumX;
-                double pj = target.yVal / swMatrix.sumY;
-                double rjpj = rj - pj;
-                double pipjSqrt = Math.sqrt(pi * pj);
+                        double aij = getKernel(events[i], events[j]);
+                        double wij = aij / pipjSqrt;
 
-                double dij = factory.getDistance(source, target);
-                double aij = dij <= 1.0 ? 1.0 : 1.0 / Math.pow(dij, kappa);
-                double wij = aij / pipjSqrt;
+                        local[1] += wij * (ripi * rjpj);
 
-                sa += wij * (ripi * rjpj);
+                        if (j < i) {
+                            local[2] += aij * pipjSqrt;
+                        }
 
-                if (j < i) {
-                    ajSum += aij * pipjSqrt;
-                }
+                        // TODO Verify
+                        yijSum += ((1.0 - pj) * aij * sqrtP[j] / sqrtP[i])
+                                - (pj * akSums[j] / sqrtP[i]);
 
-                // TODO Verify
-                yijSum += ((1.0 - pj) * aij * Math.sqrt(pj / pi)) - (pj * sumKJ(target, pi));
+                        yjiSum += ((1.0 - pi) * aij * sqrtP[i] / sqrtP[j])
+                                - (pi * akSums[i] / sqrtP[j]);
+                    }
 
-                yjiSum += ((1.0 - pi) * aij * Math.sqrt(pi / pj)) - (pi * sumKJ(source, pj));
-            }
+                    local[3] += yijSum * yjiSum;
+                }
 
-            if (i > 0) {
-                aijSum += ajSum;
+                synchronized (sums) {
+                    for (int k = 0; k < sums.length; k++) {
+                        sums[k] += local[k];
+                    }
+                }
             }
+        });
 
-            yijyjiSum += yijSum * yjiSum;
-        }
+        double gof = sums[0];
+        double sa = sums[1];
+        double aijSum = sums[2];
+        double yijyjiSum = sums[3];
 
         double dObserved = gof + sa;
 
@@ -141,21 +177,9 @@ public class GlobalRogersonROperation extends AbstractStatisticsOperation {
         return rogersonR;
     }
 
-    private double sumKJ(SpatialEvent source, double pi) {
-        double sum = 0.0;
-        int featureCount = swMatrix.getEvents().size();
-        for (int k = 0; k < featureCount; k++) {
-            SpatialEvent target = swMatrix.getEvents().get(k);
-            if (source.id == target.id) {
-                continue;
-            }
-
-            double pk = target.yVal / swMatrix.sumY;
-            double dik = factory.getDistance(source, target);
-            double aik = dik <= 1.0 ? 1.0 : 1.0 / Math.pow(dik, kappa);
-            sum += aik * Math.sqrt(pk / pi);
-        }
-        return sum;
+    private double getKernel(SpatialEvent source, SpatialEvent target) {
+        double dij = factory.getDistance(source, target);
+        return dij <= 1.0 ? 1.0 : 1.0 / Math.pow(dij, kappa);
     }
 
     public static final class RogersonR {
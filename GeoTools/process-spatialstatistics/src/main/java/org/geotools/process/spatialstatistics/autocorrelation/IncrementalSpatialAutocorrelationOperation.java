@@ -0,0 +1,535 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.autocorrelation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.geotools.api.filter.expression.Expression;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.process.spatialstatistics.autocorrelation.GlobalMoranIStatisticOperation.MoransI;
+import org.geotools.process.spatialstatistics.core.FeatureSnapshot;
+import org.geotools.process.spatialstatistics.core.SpatialEvent;
+import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
+import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
+import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.ItemVisitor;
+import org.locationtech.jts.index.strtree.ItemBoundable;
+import org.locationtech.jts.index.strtree.ItemDistance;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import com.thoughtworks.xstream.annotations.XStreamImplicit;
+
+/**
+ * Measures Global Moran's I with fixed distance band weights for a series of increasing distance bands (Incremental Spatial Autocorrelation).
+ * <br>
+ * The neighbours of each feature within the largest band are searched once and bucketed by the first band that contains them, so the
+ * statistic and the weight moments of all bands are accumulated incrementally instead of rebuilding the spatial weights for every band.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class IncrementalSpatialAutocorrelationOperation extends AbstractStatisticsOperation {
+    protected static final Logger LOGGER = Logging
+            .getLogger(IncrementalSpatialAutocorrelationOperation.class);
+
+    private int numberOfBands = 10;
+
+    private double beginningDistance = 0.0;
+
+    private double distanceIncrement = 0.0;
+
+    private SpatialEvent[] events;
+
+    private STRtree spatialIndex;
+
+    public IncrementalSpatialAutocorrelationOperation() {
+        // Default Setting
+        this.setDistanceType(DistanceMethod.Euclidean);
+        this.setSpatialConceptType(SpatialConcept.FixedDistance);
+        this.setStandardizationType(StandardizationMethod.None);
+        this.setSelfNeighbors(false);
+    }
+
+    public int getNumberOfBands() {
+        return numberOfBands;
+    }
+
+    public void setNumberOfBands(int numberOfBands) {
+        this.numberOfBands = Math.max(1, numberOfBands);
+    }
+
+    public double getBeginningDistance() {
+        return beginningDistance;
+    }
+
+    /**
+     * Sets the distance of the first band. 0 = the distance that ensures every feature has at least one neighbor.
+     */
+    public void setBeginningDistance(double beginningDistance) {
+        this.beginningDistance = beginningDistance;
+    }
+
+    public double getDistanceIncrement() {
+        return distanceIncrement;
+    }
+
+    /**
+     * Sets the distance added to the band in each iteration. 0 = the average distance to the nearest neighbor.
+     */
+    public void setDistanceIncrement(double distanceIncrement) {
+        this.distanceIncrement = distanceIncrement;
+    }
+
+    public IncrementalMoransI execute(SimpleFeatureCollection inputFeatures, String inputField) {
+        Expression expression = ff.property(inputField);
+
+        // load events and build spatial index
+        FeatureSnapshot snapshot = getFeatureSnapshot();
+        if (snapshot == null || snapshot.getUniqueField() != null
+                || !snapshot.isLoadedFrom(inputFeatures) || !snapshot.hasColumn(expression)) {
+            snapshot = FeatureSnapshot.load(inputFeatures, null, expression);
+            setFeatureSnapshot(snapshot);
+        }
+
+        List<SpatialEvent> eventList = snapshot.toEvents(expression, null, 1.0);
+        spatialIndex = snapshot.createCentroidIndex();
+
+        events = eventList.toArray(new SpatialEvent[eventList.size()]);
+        final int featureCount = events.length;
+        final int bandCount = numberOfBands;
+
+        IncrementalMoransI result = new IncrementalMoransI();
+        result.setRowStandardization(getStandardizationType());
+        if (featureCount < 4) {
+            LOGGER.warning("At least 4 features are required to calculate Moran's I!");
+            return result;
+        }
+
+        double begin = beginningDistance;
+        double increment = distanceIncrement;
+        if (begin <= 0 || increment <= 0) {
+            double[] nearest = getNearestNeighborDistances();
+            if (begin <= 0) {
+                begin = nearest[0] * 1.0001;
+            }
+            if (increment <= 0) {
+                increment = nearest[1];
+            }
+        }
+
+        final double[] bands = new double[bandCount];
+        for (int b = 0; b < bandCount; b++) {
+            bands[b] = begin + (b * increment);
+        }
+
+        double sumX = 0.0;
+        for (int i = 0; i < featureCount; i++) {
+            sumX += events[i].xVal;
+        }
+
+        final double meanX = sumX / featureCount;
+        final double[] z = new double[featureCount];
+        double ziSum2 = 0.0;
+        double ziSum4 = 0.0;
+        for (int i = 0; i < featureCount; i++) {
+            z[i] = events[i].xVal - meanX;
+            ziSum2 += z[i] * z[i];
+            ziSum4 += z[i] * z[i] * z[i] * z[i];
+        }
+
+        final boolean rowStandardization = getStandardizationType() == StandardizationMethod.Row;
+
+        // cumulative number of neighbors of each feature within each band
+        final int[] counts = new int[featureCount * bandCount];
+
+        // per band: sum(wij * zi * zj), S0, S1, S2
+        final double[] zijWSums = new double[bandCount];
+        final double[] s0 = new double[bandCount];
+        final double[] s1 = new double[bandCount];
+        final double[] s2 = new double[bandCount];
+
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                NeighborBuffer buffer = new NeighborBuffer();
+                double[] lags = new double[bandCount];
+                double[] localZijW = new double[bandCount];
+                double[] localS0 = new double[bandCount];
+                double[] localS1 = new double[bandCount];
+                double[] localS2 = new double[bandCount];
+
+                for (int i = start; i < end; i++) {
+                    findNeighbors(i, bands, buffer);
+
+                    // bucket the neighbors by the first band containing them
+                    final int offset = i * bandCount;
+                    Arrays.fill(lags, 0.0);
+                    for (int k = 0; k < buffer.size; k++) {
+                        counts[offset + buffer.bands[k]]++;
+                        lags[buffer.bands[k]] += z[buffer.indices[k]];
+                    }
+
+                    // accumulate band by band
+                    int count = 0;
+                    double lag = 0.0;
+                    for (int b = 0; b < bandCount; b++) {
+                        count += counts[offset + b];
+                        lag += lags[b];
+                        counts[offset + b] = count;
+                        if (count == 0) {
+                            continue;
+                        }
+
+                        if (rowStandardization) {
+                            localZijW[b] += z[i] * lag / count;
+                            localS0[b] += 1.0;
+                            localS1[b] += 1.0 / count; // sum(wij^2), the wij * wji part follows
+                        } else {
+                            // binary symmetric weights: S1 = 2 * S0, S2 = sum((2 * count)^2)
+                            localZijW[b] += z[i] * lag;
+                            localS0[b] += count;
+                            localS1[b] += 2.0 * count;
+                            localS2[b] += 4.0 * count * count;
+                        }
+                    }
+                }
+
+                synchronized (s0) {
+                    for (int b = 0; b < bandCount; b++) {
+                        zijWSums[b] += localZijW[b];
+                        s0[b] += localS0[b];
+                        s1[b] += localS1[b];
+                        s2[b] += localS2[b];
+                    }
+                }
+            }
+        });
+
+        if (rowStandardization) {
+            // wij * wji and the column sums depend on the number of neighbors of both features
+            executeFeatureRange(featureCount, new FeatureRangeTask() {
+                @Override
+                public void execute(int start, int end) {
+                    NeighborBuffer buffer = new NeighborBuffer();
+                    double[] columnSums = new double[bandCount];
+                    double[] localS1 = new double[bandCount];
+                    double[] localS2 = new double[bandCount];
+
+                    for (int i = start; i < end; i++) {
+                        findNeighbors(i, bands, buffer);
+
+                        final int offset = i * bandCount;
+                        Arrays.fill(columnSums, 0.0);
+                        for (int k = 0; k < buffer.size; k++) {
+                            final int jOffset = buffer.indices[k] * bandCount;
+                            for (int b = buffer.bands[k]; b < bandCount; b++) {
+                                double wji = 1.0 / counts[jOffset + b];
+                                localS1[b] += wji / counts[offset + b];
+                                columnSums[b] += wji;
+                            }
+                        }
+
+                        for (int b = 0; b < bandCount; b++) {
+                            double rowSum = counts[offset + b] == 0 ? 0.0 : 1.0;
+                            localS2[b] += Math.pow(rowSum + columnSums[b], 2.0);
+                        }
+                    }
+
+                    synchronized (s0) {
+                        for (int b = 0; b < bandCount; b++) {
+                            s1[b] += localS1[b];
+                            s2[b] += localS2[b];
+                        }
+                    }
+                }
+            });
+        }
+
+        // finally build result
+        for (int b = 0; b < bandCount; b++) {
+            MoransI moransI = GlobalMoranIStatisticOperation.calculateMoransI(featureCount,
+                    zijWSums[b], ziSum2, ziSum4, s0[b], s1[b], s2[b]);
+            result.add(new MoransIBand(bands[b], moransI));
+        }
+        result.findPeaks();
+
+        return result;
+    }
+
+    /**
+     * Returns the maximum and the average distance to the nearest neighbor.
+     */
+    private double[] getNearestNeighborDistances() {
+        final int featureCount = events.length;
+        final double[] distances = new double[featureCount];
+
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                ItemDistance itemDistance = new ItemDistance() {
+                    @Override
+                    public double distance(ItemBoundable item1, ItemBoundable item2) {
+                        int i = ((Integer) item1.getItem()).intValue();
+                        int j = ((Integer) item2.getItem()).intValue();
+                        if (i == j) {
+                            return Double.MAX_VALUE;
+                        }
+                        return events[i].distance(events[j]);
+                    }
+                };
+
+                for (int i = start; i < end; i++) {
+                    Envelope envelope = new Envelope(events[i].coordinate);
+                    Object nearest = spatialIndex.nearestNeighbour(envelope, Integer.valueOf(i),
+                            itemDistance);
+                    distances[i] = factory.getDistance(events[i],
+                            events[((Integer) nearest).intValue()]);
+                }
+            }
+        });
+
+        double maxDistance = 0.0;
+        double sumDistance = 0.0;
+        for (int i = 0; i < featureCount; i++) {
+            maxDistance = Math.max(maxDistance, distances[i]);
+            sumDistance += distances[i];
+        }
+
+        return new double[] { maxDistance, sumDistance / featureCount };
+    }
+
+    /**
+     * Collects the neighbors of the i-th feature within the largest band and the index of the first band containing each of them.
+     */
+    private void findNeighbors(final int i, final double[] bands, final NeighborBuffer buffer) {
+        final SpatialEvent source = events[i];
+        final double maxBand = bands[bands.length - 1];
+        final double begin = bands[0];
+        final double increment = bands.length > 1 ? bands[1] - bands[0] : 1.0;
+
+        Envelope searchEnvelope = new Envelope(source.coordinate);
+        searchEnvelope.expandBy(maxBand);
+
+        buffer.size = 0;
+        spatialIndex.query(searchEnvelope, new ItemVisitor() {
+            @Override
+            public void visitItem(Object item) {
+                int j = ((Integer) item).intValue();
+                if (j == i) {
+                    return;
+                }
+
+                double dist = factory.getDistance(source, events[j]);
+                if (dist > maxBand) {
+                    return;
+                }
+
+                int band = 0;
+                if (dist > begin) {
+                    band = (int) Math.ceil((dist - begin) / increment);
+                    band = Math.min(band, bands.length - 1);
+                    while (band > 0 && dist <= bands[band - 1]) {
+                        band--;
+                    }
+                    while (band < bands.length - 1 && dist > bands[band]) {
+                        band++;
+                    }
+                }
+                buffer.add(j, band);
+            }
+        });
+    }
+
+    static final class NeighborBuffer {
+        int size = 0;
+
+        int[] indices = new int[16];
+
+        int[] bands = new int[16];
+
+        void add(int index, int band) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+                bands = Arrays.copyOf(bands, size * 2);
+            }
+            indices[size] = index;
+            bands[size] = band;
+            size++;
+        }
+    }
+
+    // WPS PPIO output XML for Incremental Spatial Autocorrelation Result
+    public static final class IncrementalMoransI {
+
+        StandardizationMethod rowStandardization = StandardizationMethod.None;
+
+        Double firstPeak;
+
+        Double maxPeak;
+
+        @XStreamImplicit(itemFieldName = "Band")
+        List<MoransIBand> bands = new ArrayList<MoransIBand>();
+
+        public IncrementalMoransI() {
+        }
+
+        public void add(MoransIBand band) {
+            this.bands.add(band);
+        }
+
+        public List<MoransIBand> getBands() {
+            return bands;
+        }
+
+        public void setBands(List<MoransIBand> bands) {
+            this.bands = bands;
+        }
+
+        /**
+         * Returns the distance of the first statistically significant peak z-score, or null if there is no significant peak.
+         */
+        public Double getFirstPeak() {
+            return firstPeak;
+        }
+
+        public void setFirstPeak(Double firstPeak) {
+            this.firstPeak = firstPeak;
+        }
+
+        /**
+         * Returns the distance of the statistically significant peak with the largest z-score, or null if there is no significant peak.
+         */
+        public Double getMaxPeak() {
+            return maxPeak;
+        }
+
+        public void setMaxPeak(Double maxPeak) {
+            this.maxPeak = maxPeak;
+        }
+
+        public StandardizationMethod getRowStandardization() {
+            return rowStandardization;
+        }
+
+        public void setRowStandardization(StandardizationMethod rowStandardization) {
+            this.rowStandardization = rowStandardization;
+        }
+
+        /**
+         * A peak is a z-score larger than the z-scores of the previous and the next band, significant at the 0.05 level.
+         */
+        void findPeaks() {
+            firstPeak = null;
+            maxPeak = null;
+
+            double maxZScore = Double.NEGATIVE_INFINITY;
+            for (int b = 1; b < bands.size() - 1; b++) {
+                MoransIBand band = bands.get(b);
+                if (band.zScore <= bands.get(b - 1).zScore
+                        || band.zScore <= bands.get(b + 1).zScore || band.pValue >= 0.05) {
+                    continue;
+                }
+
+                if (firstPeak == null) {
+                    firstPeak = Double.valueOf(band.distance);
+                }
+
+                if (band.zScore > maxZScore) {
+                    maxZScore = band.zScore;
+                    maxPeak = Double.valueOf(band.distance);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            final String separator = System.getProperty("line.separator");
+
+            StringBuffer sb = new StringBuffer();
+            sb.append("Incremental Spatial Autocorrelation").append(separator);
+            sb.append("RowStandardization: ").append(rowStandardization).append(separator);
+            sb.append("First Peak: ").append(firstPeak).append(separator);
+            sb.append("Max Peak: ").append(maxPeak).append(separator);
+            for (MoransIBand band : bands) {
+                sb.append(band.toString()).append(separator);
+            }
+
+            return sb.toString();
+        }
+    }
+
+    public static final class MoransIBand {
+
+        double distance;
+
+        double observedIndex;
+
+        double expectedIndex;
+
+        double variance;
+
+        double zScore;
+
+        double pValue;
+
+        public MoransIBand(double distance, MoransI moransI) {
+            this.distance = distance;
+            this.observedIndex = moransI.getObservedIndex();
+            this.expectedIndex = moransI.getExpectedIndex();
+            this.variance = moransI.getZVariance();
+            this.zScore = moransI.getZScore();
+            this.pValue = moransI.getPValue();
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+
+        public double getObservedIndex() {
+            return observedIndex;
+        }
+
+        public double getExpectedIndex() {
+            return expectedIndex;
+        }
+
+        public double getVariance() {
+            return variance;
+        }
+
+        public double getZScore() {
+            return zScore;
+        }
+
+        public double getPValue() {
+            return pValue;
+        }
+
+        @Override
+        public String toString() {
+            return "Distance: " + distance + ", Moran's I: " + observedIndex + ", Expected: "
+                    + expectedIndex + ", Variance: " + variance + ", z Score: " + zScore
+                    + ", p Value: " + pValue;
+        }
+    }
+}
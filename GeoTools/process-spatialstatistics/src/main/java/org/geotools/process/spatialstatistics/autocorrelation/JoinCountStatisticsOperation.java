@@ -17,19 +17,24 @@
 package org.geotools.process.spatialstatistics.autocorrelation;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.api.filter.Filter;
+import org.geotools.api.filter.expression.Expression;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
-import org.geotools.process.spatialstatistics.core.DataUtils;
+import org.geotools.process.spatialstatistics.core.SparseWeightMatrix;
+import org.geotools.process.spatialstatistics.core.SpatialEvent;
+import org.geotools.process.spatialstatistics.core.WeightMatrixBuilder;
 import org.geotools.process.spatialstatistics.enumeration.ContiguityType;
+import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
+import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
 import org.geotools.process.spatialstatistics.operations.GeneralOperation;
 import org.geotools.util.logging.Logging;
-import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.geom.MultiPoint;
-import org.locationtech.jts.geom.Point;
 
 /**
  * Spatial autocorrelation for binary attributes.
@@ -49,65 +54,57 @@ public class JoinCountStatisticsOperation extends GeneralOperation {
     public JoinCount execute(SimpleFeatureCollection features, Filter blackExpression,
             ContiguityType contiguityType) throws IOException {
         String typeName = features.getSchema().getTypeName();
-        String the_geom = features.getSchema().getGeometryDescriptor().getLocalName();
 
-        int blackCount = 0;
-        int whiteCount = 0;
-        int m = 0;
-
-        // using SpatialIndexFeatureCollection
-        SimpleFeatureCollection indexed = DataUtils.toSpatialIndexFeatureCollection(features);
+        // contiguity neighbours in compressed sparse row format
+        WeightMatrixBuilder swMatrix = new WeightMatrixBuilder(
+                getSpatialConcept(contiguityType), StandardizationMethod.None);
+        swMatrix.setSelfNeighbors(false);
+        swMatrix.buildWeightMatrix(features, (Expression) null);
 
-        JoinCount joinCounts = new JoinCount(typeName, contiguityType);
-        SimpleFeatureIterator featureIter = indexed.features();
+        Map<Object, Boolean> blackMap = new HashMap<Object, Boolean>();
+        SimpleFeatureIterator featureIter = features.features();
         try {
             while (featureIter.hasNext()) {
-                SimpleFeature pFeature = featureIter.next();
-                Geometry pGeometry = (Geometry) pFeature.getDefaultGeometry();
-                boolean primary = blackExpression.evaluate(pFeature);
-                if (primary) {
-                    blackCount++;
-                } else {
-                    whiteCount++;
-                }
+                SimpleFeature feature = featureIter.next();
+                blackMap.put(feature.getID(), Boolean.valueOf(blackExpression.evaluate(feature)));
+            }
+        } finally {
+            featureIter.close();
+        }
+
+        List<SpatialEvent> events = swMatrix.getEvents();
+        final int featureCount = events.size();
+        boolean[] black = new boolean[featureCount];
+        int blackCount = 0;
+        for (int i = 0; i < featureCount; i++) {
+            black[i] = Boolean.TRUE.equals(blackMap.get(events.get(i).id));
+            if (black[i]) {
+                blackCount++;
+            }
+        }
+        int whiteCount = featureCount - blackCount;
+
+        // contiguity is symmetric: each join is visited once, from the feature with the lower index
+        JoinCount joinCounts = new JoinCount(typeName, contiguityType);
+        SparseWeightMatrix sparse = swMatrix.getSparseWeights();
+        int[] offsets = sparse.getOffsets();
+        int[] indices = sparse.getIndices();
 
-                Filter filter = getIntersectsFilter(the_geom, pGeometry);
-                SimpleFeatureIterator subIter = indexed.subCollection(filter).features();
-                int neighborCount = 0;
-                try {
-                    while (subIter.hasNext()) {
-                        SimpleFeature sFeature = subIter.next();
-                        if (pFeature.getID().equals(sFeature.getID())) {
-                            continue;
-                        }
-
-                        Geometry sGeometry = (Geometry) sFeature.getDefaultGeometry();
-                        Geometry intersects = pGeometry.intersection(sGeometry);
-                        if (contiguityType != ContiguityType.Queen) {
-                            if (intersects instanceof Point || intersects instanceof MultiPoint) {
-                                if (contiguityType == ContiguityType.Rook) {
-                                    continue;
-                                }
-                            } else {
-                                if (contiguityType == ContiguityType.Bishops) {
-                                    continue;
-                                }
-                            }
-                        }
-
-                        // evaluate
-                        boolean secondary = blackExpression.evaluate(sFeature);
-                        joinCounts.visit(primary, secondary);
-                        neighborCount++;
-                    }
-                } finally {
-                    subIter.close();
+        int m = 0;
+        for (int i = 0; i < featureCount; i++) {
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                int j = indices[k];
+                if (j <= i) {
+                    continue;
                 }
 
-                m += neighborCount * (neighborCount - 1);
+                // evaluate, both directions of the join
+                joinCounts.visit(black[i], black[j]);
+                joinCounts.visit(black[j], black[i]);
             }
-        } finally {
-            featureIter.close();
+
+            int neighborCount = offsets[i + 1] - offsets[i];
+            m += neighborCount * (neighborCount - 1);
         }
 
         // post process
@@ -118,6 +115,17 @@ public class JoinCountStatisticsOperation extends GeneralOperation {
         return joinCounts;
     }
 
+    private SpatialConcept getSpatialConcept(ContiguityType contiguityType) {
+        switch (contiguityType) {
+        case Rook:
+            return SpatialConcept.ContiguityEdgesOnly;
+        case Bishops:
+            return SpatialConcept.ContiguityNodesOnly;
+        default:
+            return SpatialConcept.ContiguityEdgesNodes;
+        }
+    }
+
     public static class JoinCount {
 
         private String typeName;
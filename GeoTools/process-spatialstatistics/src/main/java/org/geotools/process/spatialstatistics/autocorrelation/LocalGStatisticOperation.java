@@ -30,6 +30,7 @@ import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
 import org.geotools.process.spatialstatistics.core.SpatialEvent;
 import org.geotools.process.spatialstatistics.core.WeightMatrixBuilder;
+import org.geotools.process.spatialstatistics.core.WeightRow;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
 import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
@@ -52,6 +53,8 @@ public class LocalGStatisticOperation extends AbstractStatisticsOperation {
 
     private double[] dcVar;
 
+    private double[] dcPseudoP;
+
     public LocalGStatisticOperation() {
         // Default Setting
         this.setDistanceType(DistanceMethod.Euclidean);
@@ -65,7 +68,9 @@ public class LocalGStatisticOperation extends AbstractStatisticsOperation {
         swMatrix = new WeightMatrixBuilder(getSpatialConceptType(), getStandardizationType());
         swMatrix.setDistanceMethod(getDistanceType());
         swMatrix.setDistanceBandWidth(getDistanceBand());
+        swMatrix.setSpatialWeightsFile(getSpatialWeightsFile());
         swMatrix.setSelfNeighbors(isSelfNeighbors());
+        swMatrix.setFeatureSnapshot(getFeatureSnapshot());
         swMatrix.buildWeightMatrix(inputFeatures, inputField);
 
         int featureCount = swMatrix.getEvents().size();
@@ -88,47 +93,64 @@ public class LocalGStatisticOperation extends AbstractStatisticsOperation {
         dcMean = new double[featureCount];
         dcVar = new double[featureCount];
 
-        // calculate Gi* for each feature i.
-        for (int i = 0; i < featureCount; i++) {
-            SpatialEvent source = swMatrix.getEvents().get(i);
-
-            // initialize working variables.
-            double localSum = 0.0;
-            double wijSum = 0.0;
-            double wij2Sum = 0.0;
-
-            // look for i's local neighbors
-            for (int j = 0; j < featureCount; j++) {
-                SpatialEvent target = swMatrix.getEvents().get(j);
-                if (!isSelfNeighbors() && source.id == target.id) {
-                    continue;
-                }
-
-                // calculate the weight (wij)
-                double wij = swMatrix.getWeight(source, target);
-                wij = swMatrix.standardizeWeight(source, wij);
-                if (wij == 0) {
-                    continue;
-                }
-
-                localSum += wij * target.xVal;
-                wijSum += wij;
-                wij2Sum += Math.pow(wij, 2.0);
+        // conditional randomization of the neighbours' values
+        final ConditionalRandomization randomization;
+        if (getPermutations() > 0) {
+            double[] xValues = new double[featureCount];
+            for (int i = 0; i < featureCount; i++) {
+                xValues[i] = swMatrix.getEvents().get(i).xVal;
             }
+            randomization = new ConditionalRandomization(xValues, getPermutations(),
+                    getRandomSeed());
+            dcPseudoP = new double[featureCount];
+        } else {
+            randomization = null;
+            dcPseudoP = null;
+        }
 
-            dcMean[i] = wijSum / (n * (n - 1.0));
-            dcVar[i] = Math.pow((wij2Sum / n) - Math.pow(dcMean[i], 2), 0.5);
-
-            // calculate Gi / Gi*
-            dcGiZScore[i] = Double.NaN;
-            try {
-                double wijSum2 = Math.pow(wijSum, 2.0);
-                double b = (varX * Math.pow((((n * wij2Sum) - wijSum2) / (n - 1.0)), 0.5));
-                dcGiZScore[i] = (localSum - (wijSum * meanX)) / b;
-            } catch (Exception e) {
-                LOGGER.log(Level.FINE, e.getMessage(), e);
+        // calculate Gi* for each feature i.
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                WeightRow row = new WeightRow();
+                int[] pool = randomization == null ? null : randomization.createPool();
+                for (int i = start; i < end; i++) {
+                    // initialize working variables.
+                    double localSum = 0.0;
+                    double wijSum = 0.0;
+                    double wij2Sum = 0.0;
+
+                    // look for i's local neighbors
+                    swMatrix.getRow(i, row);
+                    for (int k = 0; k < row.size; k++) {
+                        SpatialEvent target = swMatrix.getEvents().get(row.indices[k]);
+                        double wij = row.weights[k];
+
+                        localSum += wij * target.xVal;
+                        wijSum += wij;
+                        wij2Sum += Math.pow(wij, 2.0);
+                    }
+
+                    dcMean[i] = wijSum / (n * (n - 1.0));
+                    dcVar[i] = Math.pow((wij2Sum / n) - Math.pow(dcMean[i], 2), 0.5);
+
+                    // calculate Gi / Gi*
+                    dcGiZScore[i] = Double.NaN;
+                    try {
+                        double wijSum2 = Math.pow(wijSum, 2.0);
+                        double b = (varX * Math.pow((((n * wij2Sum) - wijSum2) / (n - 1.0)), 0.5));
+                        dcGiZScore[i] = (localSum - (wijSum * meanX)) / b;
+                    } catch (Exception e) {
+                        LOGGER.log(Level.FINE, e.getMessage(), e);
+                    }
+
+                    // Gi* is monotonic in the local sum
+                    if (randomization != null) {
+                        dcPseudoP[i] = randomization.pseudoPValue(i, row, 1.0, localSum, pool);
+                    }
+                }
             }
-        }
+        });
 
         return buildFeatureCollection(inputFeatures);
     }
@@ -144,6 +166,11 @@ public class LocalGStatisticOperation extends AbstractStatisticsOperation {
             featureType = FeatureTypes.add(featureType, fieldList[k], Double.class);
         }
 
+        final String pseudoField = "GiPseudoP";
+        if (dcPseudoP != null) {
+            featureType = FeatureTypes.add(featureType, pseudoField, Double.class);
+        }
+
         // prepare transactional feature store
         IFeatureInserter featureWriter = getFeatureWriter(featureType);
 
@@ -175,6 +202,14 @@ public class LocalGStatisticOperation extends AbstractStatisticsOperation {
                 newFeature.setAttribute(fieldList[2], FormatUtils.round(dcMean[idx]));
                 newFeature.setAttribute(fieldList[3], FormatUtils.round(dcVar[idx]));
 
+                if (dcPseudoP != null) {
+                    double pseudoP = dcPseudoP[idx];
+                    if (Double.isNaN(pseudoP)) {
+                        pseudoP = 1.0;
+                    }
+                    newFeature.setAttribute(pseudoField, FormatUtils.round(pseudoP));
+                }
+
                 featureWriter.write(newFeature);
                 idx++;
             }
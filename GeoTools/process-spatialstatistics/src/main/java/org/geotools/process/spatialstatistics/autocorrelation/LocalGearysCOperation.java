@@ -30,6 +30,7 @@ import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
 import org.geotools.process.spatialstatistics.core.SpatialEvent;
 import org.geotools.process.spatialstatistics.core.WeightMatrixBuilder;
+import org.geotools.process.spatialstatistics.core.WeightRow;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
 import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
@@ -73,75 +74,75 @@ public class LocalGearysCOperation extends AbstractStatisticsOperation {
         swMatrix = new WeightMatrixBuilder(getSpatialConceptType(), getStandardizationType());
         swMatrix.setDistanceMethod(getDistanceType());
         swMatrix.setDistanceBandWidth(getDistanceBand());
+        swMatrix.setSpatialWeightsFile(getSpatialWeightsFile());
         swMatrix.setSelfNeighbors(isSelfNeighbors());
+        swMatrix.setFeatureSnapshot(getFeatureSnapshot());
         swMatrix.buildWeightMatrix(inputFeatures, inputField);
 
         // calculate the mean and standard deviation for this data set.
         int featureCount = swMatrix.getEvents().size();
         double n = swMatrix.getEvents().size();
         double meanX = swMatrix.sumX / n;
-        double m2 = 0.0;
-        double m4 = 0.0;
+        double m2Sum = 0.0;
+        double m4Sum = 0.0;
 
         // calculate deviation from the mean sums.
         for (SpatialEvent source : swMatrix.getEvents()) {
-            m2 += Math.pow(source.xVal - meanX, 2.0);
-            m4 += Math.pow(source.xVal - meanX, 4.0);
+            m2Sum += Math.pow(source.xVal - meanX, 2.0);
+            m4Sum += Math.pow(source.xVal - meanX, 4.0);
         }
 
-        m2 = m2 / (n - 1.0);
-        m4 = m4 / (n - 1.0);
-        double b2 = m4 / Math.pow(m2, 2.0);
+        final double m2 = m2Sum / (n - 1.0);
+        final double m4 = m4Sum / (n - 1.0);
+        final double b2 = m4 / Math.pow(m2, 2.0);
 
         // calculate local index for each feature i.
         dcIndex = new double[featureCount];
         dcZScore = new double[featureCount];
-        for (int i = 0; i < featureCount; i++) {
-            SpatialEvent source = swMatrix.getEvents().get(i);
-
-            // initialize working variables.
-            double localDevSum = 0.0;
-            double wijSum = 0.0;
-            double wij2Sum = 0.0;
-
-            // look for i's local neighbors
-            for (int j = 0; j < featureCount; j++) {
-                SpatialEvent target = swMatrix.getEvents().get(j);
-                if (!isSelfNeighbors() && source.id == target.id) {
-                    continue;
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                WeightRow row = new WeightRow();
+                for (int i = start; i < end; i++) {
+                    SpatialEvent source = swMatrix.getEvents().get(i);
+
+                    // initialize working variables.
+                    double localDevSum = 0.0;
+                    double wijSum = 0.0;
+                    double wij2Sum = 0.0;
+
+                    // look for i's local neighbors
+                    swMatrix.getRow(i, row);
+                    for (int k = 0; k < row.size; k++) {
+                        SpatialEvent target = swMatrix.getEvents().get(row.indices[k]);
+                        double wij = row.weights[k];
+
+                        // geary's c
+                        double ijxd = source.xVal - target.xVal;
+                        localDevSum += wij * Math.pow(ijxd, 2.0);
+                        wijSum += wij;
+                        wij2Sum += Math.pow(wij, 2.0);
+                    }
+
+                    // calculate local index
+                    dcIndex[i] = Double.NaN;
+                    dcZScore[i] = Double.NaN;
+                    try {
+                        dcIndex[i] = localDevSum / m2;
+
+                        double dExpected = (2.0 * n * wijSum) / (n - 1.0);
+                        double v1 = n / (n - 1.0);
+                        double v2 = Math.pow(wijSum, 2.0) + wij2Sum;
+                        double v3 = 3.0 + b2;
+                        double v4 = Math.pow((2.0 * n * wijSum) / (n - 1.0), 2.0);
+                        double dVariance = (v1 * v2 * v3) - v4;
+                        dcZScore[i] = (dcIndex[i] - dExpected) / Math.pow(dVariance, 0.5);
+                    } catch (Exception e) {
+                        LOGGER.log(Level.FINE, e.getMessage(), e);
+                    }
                 }
-
-                // calculate the weight (wij)
-                double wij = swMatrix.getWeight(source, target);
-                wij = swMatrix.standardizeWeight(source, wij);
-                if (wij == 0) {
-                    continue;
-                }
-
-                // geary's c
-                double ijxd = source.xVal - target.xVal;
-                localDevSum += wij * Math.pow(ijxd, 2.0);
-                wijSum += wij;
-                wij2Sum += Math.pow(wij, 2.0);
             }
-
-            // calculate local index
-            dcIndex[i] = Double.NaN;
-            dcZScore[i] = Double.NaN;
-            try {
-                dcIndex[i] = localDevSum / m2;
-
-                double dExpected = (2.0 * n * wijSum) / (n - 1.0);
-                double v1 = n / (n - 1.0);
-                double v2 = Math.pow(wijSum, 2.0) + wij2Sum;
-                double v3 = 3.0 + b2;
-                double v4 = Math.pow((2.0 * n * wijSum) / (n - 1.0), 2.0);
-                double dVariance = (v1 * v2 * v3) - v4;
-                dcZScore[i] = (dcIndex[i] - dExpected) / Math.pow(dVariance, 0.5);
-            } catch (Exception e) {
-                LOGGER.log(Level.FINE, e.getMessage(), e);
-            }
-        }
+        });
 
         return buildFeatureCollection(inputFeatures);
     }
@@ -30,6 +30,7 @@ import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
 import org.geotools.process.spatialstatistics.core.SpatialEvent;
 import org.geotools.process.spatialstatistics.core.WeightMatrixBuilder;
+import org.geotools.process.spatialstatistics.core.WeightRow;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
 import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
@@ -71,7 +72,9 @@ public class LocalLeesLOperation extends AbstractStatisticsOperation {
         swMatrix = new WeightMatrixBuilder(getSpatialConceptType(), getStandardizationType());
         swMatrix.setDistanceMethod(getDistanceType());
         swMatrix.setDistanceBandWidth(getDistanceBand());
+        swMatrix.setSpatialWeightsFile(getSpatialWeightsFile());
         swMatrix.setSelfNeighbors(isSelfNeighbors());
+        swMatrix.setFeatureSnapshot(getFeatureSnapshot());
         swMatrix.buildWeightMatrix(inputFeatures, xField, yField);
 
         // calculate the mean and standard deviation for this data set.
@@ -81,69 +84,60 @@ public class LocalLeesLOperation extends AbstractStatisticsOperation {
         double meanY = swMatrix.sumY / n;
         double mx2 = 0.0;
         double my2 = 0.0;
-        double wij2Sum = 0.0;
+        double rowSum2 = 0.0;
 
         // calculate deviation from the mean sums.
-        for (SpatialEvent source : swMatrix.getEvents()) {
+        for (int i = 0; i < featureCount; i++) {
+            SpatialEvent source = swMatrix.getEvents().get(i);
             mx2 += Math.pow(source.xVal - meanX, 2.0);
             my2 += Math.pow(source.yVal - meanY, 2.0);
-            double jwijSum = 0.0;
-            for (SpatialEvent target : swMatrix.getEvents()) {
-                if (!isSelfNeighbors() && source.id == target.id) {
-                    continue;
-                }
-                jwijSum += swMatrix.getWeight(source, target);
-            }
-            wij2Sum += Math.pow(jwijSum, 2);
+            rowSum2 += Math.pow(swMatrix.getRowSum(i), 2);
         }
 
-        double mx2sqr = Math.sqrt(mx2);
-        double my2sqr = Math.sqrt(my2);
+        final double wij2Sum = rowSum2;
+        final double mx2sqr = Math.sqrt(mx2);
+        final double my2sqr = Math.sqrt(my2);
 
         // calculate local index for each feature i.
         dcIndex = new double[featureCount];
         dcZScore = new double[featureCount];
-        for (int i = 0; i < featureCount; i++) {
-            SpatialEvent source = swMatrix.getEvents().get(i);
-
-            // initialize working variables.
-            double zxjWSum = 0.0;
-            double zyjWSum = 0.0;
-
-            // look for i's local neighbors
-            for (int j = 0; j < featureCount; j++) {
-                SpatialEvent target = swMatrix.getEvents().get(j);
-                if (!isSelfNeighbors() && source.id == target.id) {
-                    continue;
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                WeightRow row = new WeightRow();
+                for (int i = start; i < end; i++) {
+                    // initialize working variables.
+                    double zxjWSum = 0.0;
+                    double zyjWSum = 0.0;
+
+                    // look for i's local neighbors
+                    swMatrix.getRow(i, row);
+                    for (int k = 0; k < row.size; k++) {
+                        SpatialEvent target = swMatrix.getEvents().get(row.indices[k]);
+                        double wij = row.weights[k];
+
+                        // lee's l
+                        double zxj = target.xVal - meanX;
+                        double zyj = target.yVal - meanY;
+
+                        zxjWSum += wij * zxj;
+                        zyjWSum += wij * zyj;
+                    }
+
+                    // calculate local index
+                    dcIndex[i] = Double.NaN;
+                    dcZScore[i] = Double.NaN;
+                    try {
+                        dcIndex[i] = (Math.pow(n, 2) / wij2Sum) * ((zxjWSum * zyjWSum) / (mx2sqr * my2sqr));
+
+                        // TODO correct
+                        dcZScore[i] = 0.0;
+                    } catch (Exception e) {
+                        LOGGER.log(Level.FINE, e.getMessage(), e);
+                    }
                 }
-
-                // calculate the weight (dWij)
-                double wij = swMatrix.getWeight(source, target);
-                wij = swMatrix.standardizeWeight(source, wij);
-                if (wij == 0) {
-                    continue;
-                }
-
-                // lee's l
-                double zxj = target.xVal - meanX;
-                double zyj = target.yVal - meanY;
-
-                zxjWSum += wij * zxj;
-                zyjWSum += wij * zyj;
             }
-
-            // calculate local index
-            dcIndex[i] = Double.NaN;
-            dcZScore[i] = Double.NaN;
-            try {
-                dcIndex[i] = (Math.pow(n, 2) / wij2Sum) * ((zxjWSum * zyjWSum) / (mx2sqr * my2sqr));
-
-                // TODO correct
-                dcZScore[i] = 0.0;
-            } catch (Exception e) {
-                LOGGER.log(Level.FINE, e.getMessage(), e);
-            }
-        }
+        });
 
         return buildFeatureCollection(inputFeatures);
     }
@@ -30,6 +30,7 @@ import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
 import org.geotools.process.spatialstatistics.core.SpatialEvent;
 import org.geotools.process.spatialstatistics.core.WeightMatrixBuilder;
+import org.geotools.process.spatialstatistics.core.WeightRow;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
 import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
@@ -71,68 +72,63 @@ public class LocalLeesSOperation extends AbstractStatisticsOperation {
         swMatrix = new WeightMatrixBuilder(getSpatialConceptType(), getStandardizationType());
         swMatrix.setDistanceMethod(getDistanceType());
         swMatrix.setDistanceBandWidth(getDistanceBand());
+        swMatrix.setSpatialWeightsFile(getSpatialWeightsFile());
         swMatrix.setSelfNeighbors(isSelfNeighbors());
+        swMatrix.setFeatureSnapshot(getFeatureSnapshot());
         swMatrix.buildWeightMatrix(inputFeatures, inputField);
 
         // calculate the mean and standard deviation for this data set.
         int featureCount = swMatrix.getEvents().size();
         double n = swMatrix.getEvents().size();
         double meanX = swMatrix.sumX / n;
-        double m2 = 0.0;
-        double wij2Sum = 0.0;
+        double m2Sum = 0.0;
+        double rowSum2 = 0.0;
 
         // calculate deviation from the mean sums.
-        for (SpatialEvent source : swMatrix.getEvents()) {
-            m2 += Math.pow(source.xVal - meanX, 2.0);
-            double jwijSum = 0.0;
-            for (SpatialEvent target : swMatrix.getEvents()) {
-                if (!isSelfNeighbors() && source.id == target.id) {
-                    continue;
-                }
-                jwijSum += swMatrix.getWeight(source, target);
-            }
-            wij2Sum += Math.pow(jwijSum, 2);
+        for (int i = 0; i < featureCount; i++) {
+            SpatialEvent source = swMatrix.getEvents().get(i);
+            m2Sum += Math.pow(source.xVal - meanX, 2.0);
+            rowSum2 += Math.pow(swMatrix.getRowSum(i), 2);
         }
 
+        final double m2 = m2Sum;
+        final double wij2Sum = rowSum2;
+
         // calculate local index for each feature i.
         dcIndex = new double[featureCount];
         dcZScore = new double[featureCount];
-        for (int i = 0; i < featureCount; i++) {
-            SpatialEvent source = swMatrix.getEvents().get(i);
-
-            // initialize working variables.
-            double zxjWSum = 0.0;
-
-            // look for i's local neighbors
-            for (int j = 0; j < featureCount; j++) {
-                SpatialEvent target = swMatrix.getEvents().get(j);
-                if (!isSelfNeighbors() && source.id == target.id) {
-                    continue;
-                }
-
-                // calculate the weight (dWij)
-                double wij = swMatrix.getWeight(source, target);
-                wij = swMatrix.standardizeWeight(source, wij);
-                if (wij == 0) {
-                    continue;
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                WeightRow row = new WeightRow();
+                for (int i = start; i < end; i++) {
+                    // initialize working variables.
+                    double zxjWSum = 0.0;
+
+                    // look for i's local neighbors
+                    swMatrix.getRow(i, row);
+                    for (int k = 0; k < row.size; k++) {
+                        SpatialEvent target = swMatrix.getEvents().get(row.indices[k]);
+                        double wij = row.weights[k];
+
+                        // lee's s
+                        zxjWSum += wij * (target.xVal - meanX);
+                    }
+
+                    // calculate local index
+                    dcIndex[i] = Double.NaN;
+                    dcZScore[i] = Double.NaN;
+                    try {
+                        dcIndex[i] = (Math.pow(n, 2) / wij2Sum) * (Math.pow(zxjWSum, 2.0) / m2);
+
+                        // TODO correct
+                        dcZScore[i] = 0.0;
+                    } catch (Exception e) {
+                        LOGGER.log(Level.FINE, e.getMessage(), e);
+                    }
                 }
-
-                // lee's s
-                zxjWSum += wij * (target.xVal - meanX);
             }
-
-            // calculate local index
-            dcIndex[i] = Double.NaN;
-            dcZScore[i] = Double.NaN;
-            try {
-                dcIndex[i] = (Math.pow(n, 2) / wij2Sum) * (Math.pow(zxjWSum, 2.0) / m2);
-
-                // TODO correct
-                dcZScore[i] = 0.0;
-            } catch (Exception e) {
-                LOGGER.log(Level.FINE, e.getMessage(), e);
-            }
-        }
+        });
 
         return buildFeatureCollection(inputFeatures);
     }
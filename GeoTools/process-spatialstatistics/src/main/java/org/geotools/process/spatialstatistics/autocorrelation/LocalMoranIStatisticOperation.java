@@ -30,6 +30,7 @@ import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
 import org.geotools.process.spatialstatistics.core.SpatialEvent;
 import org.geotools.process.spatialstatistics.core.WeightMatrixBuilder;
+import org.geotools.process.spatialstatistics.core.WeightRow;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
 import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
@@ -53,6 +54,8 @@ public class LocalMoranIStatisticOperation extends AbstractStatisticsOperation {
 
     private String[] moranBins;
 
+    private double[] dcPseudoP;
+
     public LocalMoranIStatisticOperation() {
         // Default Setting
         this.setDistanceType(DistanceMethod.Euclidean);
@@ -69,6 +72,10 @@ public class LocalMoranIStatisticOperation extends AbstractStatisticsOperation {
         return dcZScore;
     }
 
+    public double[] getPseudoPValue() {
+        return dcPseudoP;
+    }
+
     public WeightMatrixBuilder getSpatialWeightMatrix() {
         return swMatrix;
     }
@@ -78,89 +85,111 @@ public class LocalMoranIStatisticOperation extends AbstractStatisticsOperation {
         swMatrix = new WeightMatrixBuilder(getSpatialConceptType(), getStandardizationType());
         swMatrix.setDistanceMethod(getDistanceType());
         swMatrix.setDistanceBandWidth(getDistanceBand());
+        swMatrix.setSpatialWeightsFile(getSpatialWeightsFile());
         swMatrix.setSelfNeighbors(isSelfNeighbors());
+        swMatrix.setFeatureSnapshot(getFeatureSnapshot());
         swMatrix.buildWeightMatrix(inputFeatures, inputField);
 
         // Calculate the mean and standard deviation for this data set.
         int featureCount = swMatrix.getEvents().size();
         double n = swMatrix.getEvents().size();
         double meanX = swMatrix.sumX / n;
-        double m2 = 0.0;
-        double m4 = 0.0;
+        double m2Sum = 0.0;
+        double m4Sum = 0.0;
 
         // calculate deviation from the mean sums.
         for (SpatialEvent source : swMatrix.getEvents()) {
-            m2 += Math.pow(source.xVal - meanX, 2.0);
-            m4 += Math.pow(source.xVal - meanX, 4.0);
+            m2Sum += Math.pow(source.xVal - meanX, 2.0);
+            m4Sum += Math.pow(source.xVal - meanX, 4.0);
         }
 
-        m2 = m2 / (n - 1.0);
-        m4 = m4 / (n - 1.0);
-        double b2 = m4 / Math.pow(m2, 2.0);
+        final double m2 = m2Sum / (n - 1.0);
+        final double m4 = m4Sum / (n - 1.0);
+        final double b2 = m4 / Math.pow(m2, 2.0);
+
+        // conditional randomization of the deviations from the mean
+        final ConditionalRandomization randomization;
+        if (getPermutations() > 0 && featureCount > 1) {
+            double[] zValues = new double[featureCount];
+            for (int i = 0; i < featureCount; i++) {
+                zValues[i] = swMatrix.getEvents().get(i).xVal - meanX;
+            }
+            randomization = new ConditionalRandomization(zValues, getPermutations(),
+                    getRandomSeed());
+            dcPseudoP = new double[featureCount];
+        } else {
+            randomization = null;
+            dcPseudoP = null;
+        }
 
         // calculate local index for each feature i.
         dcIndex = new double[featureCount];
         dcZScore = new double[featureCount];
         moranBins = new String[featureCount];
-        for (int i = 0; i < featureCount; i++) {
-            SpatialEvent source = swMatrix.getEvents().get(i);
-
-            // initialize working variables.
-            double zxjWSum = 0.0;
-            double wijSum = 0.0;
-            double wij2Sum = 0.0;
-            double localBinSum = 0.0;
-            int numNeighbors = 0;
-
-            // look for i's local neighbors
-            for (int j = 0; j < featureCount; j++) {
-                SpatialEvent target = swMatrix.getEvents().get(j);
-                if (!isSelfNeighbors() && source.id == target.id) {
-                    continue;
-                }
-
-                // calculate the weight (wij)
-                double wij = swMatrix.getWeight(source, target);
-                wij = swMatrix.standardizeWeight(source, wij);
-                if (wij == 0) {
-                    continue;
-                }
-
-                if (wij > 0) {
-                    localBinSum += wij * target.xVal;
-                    numNeighbors++;
-                }
-
-                zxjWSum += wij * (target.xVal - meanX);
-                wijSum += wij;
-                wij2Sum += Math.pow(wij, 2.0);
-            }
-
-            // calculate Local i
-            dcIndex[i] = Double.NaN;
-            dcZScore[i] = Double.NaN;
-            moranBins[i] = "";
-
-            try {
-                dcIndex[i] = ((source.xVal - meanX) / m2) * zxjWSum;
-
-                double dExpected = (-1.0 * wijSum) / (n - 1);
-                double wijWihSum = Math.pow(wijSum, 2.0) - wij2Sum;
-                double v1 = (wij2Sum * (n - b2)) / (n - 1);
-                double v2 = Math.pow(wijSum, 2.0) / Math.pow(n - 1, 2.0);
-                double v3 = wijWihSum * ((2.0 * b2) - n);
-                double v4 = (n - 1) * (n - 2);
-                double dVariance = v1 + (v3 / v4) - v2;
-                dcZScore[i] = (dcIndex[i] - dExpected) / Math.pow(dVariance, 0.5);
-
-                if (numNeighbors > 0) {
-                    double localMean = localBinSum / wijSum;
-                    moranBins[i] = returnMoranBin(dcZScore[i], source.xVal, meanX, localMean);
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                WeightRow row = new WeightRow();
+                int[] pool = randomization == null ? null : randomization.createPool();
+                for (int i = start; i < end; i++) {
+                    SpatialEvent source = swMatrix.getEvents().get(i);
+
+                    // initialize working variables.
+                    double zxjWSum = 0.0;
+                    double wijSum = 0.0;
+                    double wij2Sum = 0.0;
+                    double localBinSum = 0.0;
+                    int numNeighbors = 0;
+
+                    // look for i's local neighbors
+                    swMatrix.getRow(i, row);
+                    for (int k = 0; k < row.size; k++) {
+                        SpatialEvent target = swMatrix.getEvents().get(row.indices[k]);
+                        double wij = row.weights[k];
+
+                        if (wij > 0) {
+                            localBinSum += wij * target.xVal;
+                            numNeighbors++;
+                        }
+
+                        zxjWSum += wij * (target.xVal - meanX);
+                        wijSum += wij;
+                        wij2Sum += Math.pow(wij, 2.0);
+                    }
+
+                    // calculate Local i
+                    dcIndex[i] = Double.NaN;
+                    dcZScore[i] = Double.NaN;
+                    moranBins[i] = "";
+
+                    try {
+                        dcIndex[i] = ((source.xVal - meanX) / m2) * zxjWSum;
+
+                        double dExpected = (-1.0 * wijSum) / (n - 1);
+                        double wijWihSum = Math.pow(wijSum, 2.0) - wij2Sum;
+                        double v1 = (wij2Sum * (n - b2)) / (n - 1);
+                        double v2 = Math.pow(wijSum, 2.0) / Math.pow(n - 1, 2.0);
+                        double v3 = wijWihSum * ((2.0 * b2) - n);
+                        double v4 = (n - 1) * (n - 2);
+                        double dVariance = v1 + (v3 / v4) - v2;
+                        dcZScore[i] = (dcIndex[i] - dExpected) / Math.pow(dVariance, 0.5);
+
+                        if (numNeighbors > 0) {
+                            double localMean = localBinSum / wijSum;
+                            moranBins[i] = returnMoranBin(dcZScore[i], source.xVal, meanX, localMean);
+                        }
+
+                        if (randomization != null) {
+                            double scale = (source.xVal - meanX) / m2;
+                            dcPseudoP[i] = randomization.pseudoPValue(i, row, scale, dcIndex[i],
+                                    pool);
+                        }
+                    } catch (Exception e) {
+                        LOGGER.log(Level.FINE, e.getMessage(), e);
+                    }
                 }
-            } catch (Exception e) {
-                LOGGER.log(Level.FINE, e.getMessage(), e);
             }
-        }
+        });
 
         return buildFeatureCollection(inputFeatures);
     }
@@ -178,6 +207,11 @@ public class LocalMoranIStatisticOperation extends AbstractStatisticsOperation {
         }
         featureType = FeatureTypes.add(featureType, fields[fields.length - 1], String.class, 10);
 
+        final String pseudoField = "LMiPseudoP";
+        if (dcPseudoP != null) {
+            featureType = FeatureTypes.add(featureType, pseudoField, Double.class);
+        }
+
         // prepare transactional feature store
         IFeatureInserter featureWriter = getFeatureWriter(featureType);
 
@@ -213,6 +247,14 @@ public class LocalMoranIStatisticOperation extends AbstractStatisticsOperation {
                 newFeature.setAttribute(fields[2], FormatUtils.round(pValue));
                 newFeature.setAttribute(fields[3], coType);
 
+                if (dcPseudoP != null) {
+                    double pseudoP = dcPseudoP[idx];
+                    if (Double.isNaN(pseudoP)) {
+                        pseudoP = 1.0;
+                    }
+                    newFeature.setAttribute(pseudoField, FormatUtils.round(pseudoP));
+                }
+
                 featureWriter.write(newFeature);
                 idx++;
             }
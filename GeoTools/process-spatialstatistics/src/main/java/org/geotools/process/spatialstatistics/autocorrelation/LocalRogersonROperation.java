@@ -81,7 +81,9 @@ public class LocalRogersonROperation extends AbstractStatisticsOperation {
         swMatrix = new WeightMatrixBuilder(getSpatialConceptType(), getStandardizationType());
         swMatrix.setDistanceMethod(getDistanceType());
         swMatrix.setDistanceBandWidth(getDistanceBand());
+        swMatrix.setSpatialWeightsFile(getSpatialWeightsFile());
         swMatrix.setSelfNeighbors(isSelfNeighbors());
+        swMatrix.setFeatureSnapshot(getFeatureSnapshot());
         swMatrix.buildWeightMatrix(inputFeatures, caseField, popField);
 
         // calculate the mean and standard deviation for this data set.
@@ -91,46 +93,51 @@ public class LocalRogersonROperation extends AbstractStatisticsOperation {
         // calculate local index for each feature i.
         dcIndex = new double[featureCount];
         dcZScore = new double[featureCount];
-        for (int i = 0; i < featureCount; i++) {
-            SpatialEvent source = swMatrix.getEvents().get(i);
+        executeFeatureRange(featureCount, new FeatureRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    SpatialEvent source = swMatrix.getEvents().get(i);
 
-            double ri = source.xVal / swMatrix.sumX;
-            double pi = source.yVal / swMatrix.sumY;
-            double ripi = ri - pi;
+                    double ri = source.xVal / swMatrix.sumX;
+                    double pi = source.yVal / swMatrix.sumY;
+                    double ripi = ri - pi;
 
-            double rjpjWSum = 0.0;
+                    double rjpjWSum = 0.0;
 
-            // look for i's local neighbors
-            for (int j = 0; j < featureCount; j++) {
-                SpatialEvent target = swMatrix.getEvents().get(j);
+                    // look for i's local neighbors
+                    for (int j = 0; j < featureCount; j++) {
+                        SpatialEvent target = swMatrix.getEvents().get(j);
 
-                double rj = target.xVal / swMatrix.sumX;
-                double pj = target.yVal / swMatrix.sumY;
-                double rjpj = rj - pj;
+                        double rj = target.xVal / swMatrix.sumX;
+                        double pj = target.yVal / swMatrix.sumY;
+                        double rjpj = rj - pj;
 
-                double aij = 0.0;
-                if (source.id == target.id) {
-                    aij = 1.0;
-                } else {
-                    double dij = factory.getDistance(source, target);
-                    aij = dij <= 1.0 ? 1.0 : 1.0 / Math.pow(dij, kappa);
-                }
+                        double aij = 0.0;
+                        if (source.id == target.id) {
+                            aij = 1.0;
+                        } else {
+                            double dij = factory.getDistance(source, target);
+                            aij = dij <= 1.0 ? 1.0 : 1.0 / Math.pow(dij, kappa);
+                        }
 
-                rjpjWSum += (aij * rjpj) / Math.sqrt(pj);
-            }
+                        rjpjWSum += (aij * rjpj) / Math.sqrt(pj);
+                    }
 
-            // calculate local index Ri
-            dcIndex[i] = (ripi / Math.sqrt(pi)) * rjpjWSum;
+                    // calculate local index Ri
+                    dcIndex[i] = (ripi / Math.sqrt(pi)) * rjpjWSum;
 
-            // E(Ri) = (aii * (1 - pi)) / N
-            double expected = (1.0 - pi) / swMatrix.sumX;
+                    // E(Ri) = (aii * (1 - pi)) / N
+                    double expected = (1.0 - pi) / swMatrix.sumX;
 
-            // Var(Ri) = sqrt(2) * E(Ri)
-            // double variance = sqrtTwo * expected;
+                    // Var(Ri) = sqrt(2) * E(Ri)
+                    // double variance = sqrtTwo * expected;
 
-            // Z = 1.0 + ((dcIndex[i] - expected) / variance) * sqrtTwo = Ri / E(Ri)
-            dcZScore[i] = dcIndex[i] / expected;
-        }
+                    // Z = 1.0 + ((dcIndex[i] - expected) / variance) * sqrtTwo = Ri / E(Ri)
+                    dcZScore[i] = dcIndex[i] / expected;
+                }
+            }
+        });
 
         return buildFeatureCollection(inputFeatures);
     }
@@ -0,0 +1,279 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.clsssifier;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.api.data.ServiceInfo;
+import org.geotools.api.data.SimpleFeatureSource;
+import org.geotools.api.filter.Filter;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.util.URLs;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Least recently used cache of class breaks. <br>
+ * The key is the layer name, the filter of the features (or the grid geometry of a coverage), the attribute (or band), the classification method,
+ * the number of classes and a data version given by the caller, ex) the last modified time of the layer. The data is never scanned to build the
+ * key, so the cache is only used when the caller supplies a data version that changes whenever the values or the source of the data change;
+ * without it the class breaks are always classified.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class ClassBreaksCache {
+    protected static final Logger LOGGER = Logging.getLogger(ClassBreaksCache.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    static final ClassBreaksCache INSTANCE = new ClassBreaksCache(Integer.getInteger(
+            "org.geotools.process.spatialstatistics.classbreaks.cache", DEFAULT_MAX_ENTRIES));
+
+    public static ClassBreaksCache getInstance() {
+        return INSTANCE;
+    }
+
+    private final LinkedHashMap<CacheKey, Double[]> entries;
+
+    private int maxEntries;
+
+    private long hitCount = 0;
+
+    private long missCount = 0;
+
+    /**
+     * @param maxEntries the maximum number of cached class breaks, 0 = disabled
+     */
+    public ClassBreaksCache(int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.entries = new LinkedHashMap<CacheKey, Double[]>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, Double[]> eldest) {
+                return size() > ClassBreaksCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the class breaks of the features, the cache is used only if the data version is not null.
+     * 
+     * @param filter the filter used to query the features, null = Filter.INCLUDE
+     * @param dataVersion the version of the layer, ex) the last modified time
+     */
+    public Double[] getClassBreaks(SimpleFeatureCollection features, Filter filter,
+            String propertyName, String methodName, int numClasses, Object dataVersion) {
+        DataClassify classifier = DataClassify.getDataClassifier(methodName);
+        if (dataVersion == null || getMaxEntries() == 0) {
+            return classifier.classify(features, propertyName, numClasses);
+        }
+
+        String filterKey = filter == null ? Filter.INCLUDE.toString() : filter.toString();
+        CacheKey key = new CacheKey(features.getSchema().getName().toString(), filterKey,
+                propertyName, classifier.getMethodName(), numClasses, dataVersion);
+
+        Double[] classBreaks = get(key);
+        if (classBreaks == null) {
+            classBreaks = classifier.classify(features, propertyName, numClasses);
+            put(key, classBreaks);
+        }
+        return classBreaks;
+    }
+
+    /**
+     * Returns the class breaks of the coverage, the cache is used only if the data version is not null. <br>
+     * Coverages derived from the same source, ex) slope and aspect of a DEM, share the name and the grid geometry, so the data version must also
+     * identify the coverage itself.
+     */
+    public Double[] getClassBreaks(GridCoverage2D coverage, int bandIndex, String methodName,
+            int numClasses, Object dataVersion) {
+        DataClassify classifier = DataClassify.getDataClassifier(methodName);
+        if (dataVersion == null || getMaxEntries() == 0) {
+            return classifier.classify(coverage, bandIndex, numClasses);
+        }
+
+        CacheKey key = new CacheKey(coverage.getName().toString(), Integer.valueOf(bandIndex),
+                classifier.getMethodName(), numClasses,
+                coverage.getGridGeometry().getGridRange2D().toString(),
+                coverage.getEnvelope2D().toString(), dataVersion);
+
+        Double[] classBreaks = get(key);
+        if (classBreaks == null) {
+            classBreaks = classifier.classify(coverage, bandIndex, numClasses);
+            put(key, classBreaks);
+        }
+        return classBreaks;
+    }
+
+    /**
+     * Returns the last modified time of the files of a file based feature source, ex) the .shp and .dbf files of a shapefile, so that editing the
+     * layer changes the data version. Returns null if the data store is not backed by files.
+     */
+    public static Object getDataVersion(SimpleFeatureSource featureSource) {
+        ServiceInfo info = featureSource.getDataStore().getInfo();
+        URI uri = info == null ? null : info.getSource();
+        if (uri == null || !"file".equalsIgnoreCase(uri.getScheme())) {
+            return null;
+        }
+
+        File file = null;
+        try {
+            file = URLs.urlToFile(uri.toURL());
+        } catch (MalformedURLException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+            return null;
+        }
+
+        // a directory data store or a single file data store
+        String baseName = featureSource.getSchema().getTypeName();
+        File folder = file;
+        if (!file.isDirectory()) {
+            folder = file.getParentFile();
+            baseName = file.getName();
+            int pos = baseName.lastIndexOf('.');
+            if (pos > 0) {
+                baseName = baseName.substring(0, pos);
+            }
+        }
+
+        File[] files = folder == null ? null : folder.listFiles();
+        if (files == null) {
+            return null;
+        }
+
+        long lastModified = 0;
+        for (File current : files) {
+            String name = current.getName();
+            int pos = name.lastIndexOf('.');
+            if (pos <= 0 || !name.substring(0, pos).equalsIgnoreCase(baseName)) {
+                continue;
+            }
+
+            // spatial index files are written by the readers, not by edits
+            String extension = name.substring(pos + 1).toLowerCase();
+            if (extension.equals("qix") || extension.equals("fix")) {
+                continue;
+            }
+            lastModified = Math.max(lastModified, current.lastModified());
+        }
+        return lastModified == 0 ? null : Long.valueOf(lastModified);
+    }
+
+    /**
+     * Removes the class breaks of a layer, ex) after the layer was edited.
+     */
+    public synchronized void invalidate(String layerName) {
+        Iterator<CacheKey> iter = entries.keySet().iterator();
+        while (iter.hasNext()) {
+            CacheKey key = iter.next();
+            if (key.layerName.equals(layerName) || key.layerName.endsWith(":" + layerName)) {
+                iter.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized void setMaxEntries(int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+
+        // evict the least recently used entries
+        Iterator<CacheKey> iter = entries.keySet().iterator();
+        while (entries.size() > this.maxEntries && iter.hasNext()) {
+            iter.next();
+            iter.remove();
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    private synchronized Double[] get(CacheKey key) {
+        Double[] classBreaks = entries.get(key);
+        if (classBreaks == null) {
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        LOGGER.log(Level.FINEST, "class breaks cache hit: " + key.layerName);
+        return classBreaks.clone();
+    }
+
+    private synchronized void put(CacheKey key, Double[] classBreaks) {
+        if (classBreaks != null && maxEntries > 0) {
+            entries.put(key, classBreaks.clone());
+        }
+    }
+
+    static final class CacheKey {
+        final String layerName;
+
+        final Object[] parts;
+
+        final int hashCode;
+
+        CacheKey(String layerName, Object... parts) {
+            this.layerName = layerName;
+            this.parts = parts;
+            this.hashCode = 31 * layerName.hashCode() + Arrays.hashCode(parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+
+            CacheKey other = (CacheKey) obj;
+            return layerName.equals(other.layerName) && Arrays.equals(parts, other.parts);
+        }
+    }
+}
@@ -16,7 +16,8 @@
  */
 package org.geotools.process.spatialstatistics.clsssifier;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -31,6 +32,11 @@ import org.geotools.util.logging.Logging;
 /**
  * The NaturalBreaks uses a statistical formula to determine natural clusters of attribute values. The formula is known as Jenk's method. This
  * attempts to minimize the variance within a class and to maximize the variance between classes.
+ * <p>
+ * The breaks are the exact Fisher-Jenks optimum, found by dynamic programming over the sorted distinct values and their frequencies. Every class
+ * count is solved with the divide and conquer optimization (the optimal start of the last class is monotone), so the cost is O(k n log n) for n
+ * distinct values and k classes. If a sample size is set and there are more distinct values, consecutive values are first grouped into sample size
+ * groups of equal frequency and the breaks are searched on the group boundaries.
  * 
  * @author Minpa Lee, MangoSystem
  * 
@@ -41,11 +47,24 @@ public class NaturalBreaksClassify extends DataClassify {
 
     static final String sMethodName = "Natural Breaks(Jenks)";
 
+    private int sampleSize = 0;
+
     @Override
     public String getMethodName() {
         return sMethodName;
     }
 
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Sets the maximum number of distinct values (groups) searched for the breaks, 0 = exact.
+     */
+    public void setSampleSize(int sampleSize) {
+        this.sampleSize = Math.max(0, sampleSize);
+    }
+
     @Override
     public Double[] classify(double[] arrayValues, int[] arrayFrequencies, int binCount) {
         initializeClassBreaks(binCount);
@@ -54,18 +73,7 @@ public class NaturalBreaksClassify extends DataClassify {
             return classBreaks;
         }
 
-        double sumOfVal = 0.0;
-        int count = 0;
-        List<ValuePair> valuePairs = new ArrayList<ValuePair>();
-        for (int index = 0; index < arrayFrequencies.length; index++) {
-            ValuePair vp = new ValuePair(arrayValues[index], arrayFrequencies[index]);
-            valuePairs.add(vp);
-
-            count += vp.frequency;
-            sumOfVal += vp.value * vp.frequency;
-        }
-
-        calculateJenksBreaks(valuePairs, sumOfVal / count, binCount);
+        calculateJenksBreaks(arrayValues, arrayFrequencies, binCount);
 
         return classBreaks;
     }
@@ -77,16 +85,7 @@ public class NaturalBreaksClassify extends DataClassify {
 
         DataHistogram histo = new HistogramFeatures();
         if (histo.calculateHistogram(inputFeatures, propertyName)) {
-            final double mean = histo.getMean();
-            final double[] arrayValues = histo.getArrayValues();
-            final int[] arrayFrequencies = histo.getArrayFrequencies();
-
-            List<ValuePair> valuePairs = new ArrayList<ValuePair>();
-            for (int index = 0; index < arrayFrequencies.length; index++) {
-                valuePairs.add(new ValuePair(arrayValues[index], arrayFrequencies[index]));
-            }
-
-            calculateJenksBreaks(valuePairs, mean, binCount);
+            calculateJenksBreaks(histo.getArrayValues(), histo.getArrayFrequencies(), binCount);
         }
 
         return classBreaks;
@@ -99,376 +98,226 @@ public class NaturalBreaksClassify extends DataClassify {
         final double noDataValue = RasterHelper.getNoDataValue(inputGc);
         DataHistogram histo = new HistogramGridCoverage();
         if (histo.calculateHistogram(inputGc, bandIndex, noDataValue)) {
-            final double mean = histo.getMean();
-            final double[] arrayValues = histo.getArrayValues();
-            final int[] arrayFrequencies = histo.getArrayFrequencies();
-
-            List<ValuePair> valuePairs = new ArrayList<ValuePair>();
-            for (int index = 0; index < arrayFrequencies.length; index++) {
-                valuePairs.add(new ValuePair(arrayValues[index], arrayFrequencies[index]));
-            }
-
-            calculateJenksBreaks(valuePairs, mean, binCount);
+            calculateJenksBreaks(histo.getArrayValues(), histo.getArrayFrequencies(), binCount);
         }
 
         return classBreaks;
     }
 
+    /**
+     * Calculates the natural breaks of the value pairs.
+     * 
+     * @deprecated use {@link #calculateJenksBreaks(double[], int[], int)}, the mean is computed internally
+     */
+    @Deprecated
     public boolean calculateJenksBreaks(List<ValuePair> valuePairs, double mean, int numOfClass) {
-        if (numOfClass >= valuePairs.size()) {
-            classBreaks = new Double[valuePairs.size()];
-            for (int index = 0; index < valuePairs.size(); index++) {
-                classBreaks[index] = valuePairs.get(index).value;
-            }
-            return true;
-        }
-
-        // 1. calculate mean & the sum of squared deviations from the array mean (SDAM).
-        double[] ldSDAM = new double[1];
-
-        double[] finalGVF = new double[1];
-        double[] newGVF = new double[1];
-
-        // Calculate the sum of squared deviations from the array mean (SDAM).
-        ldSDAM[0] = calculateSDAM(valuePairs, mean);
-
-        int[] initClass = new int[numOfClass - 1];
-        int numOfElement = valuePairs.size() / numOfClass;
-        for (int index = 0; index < initClass.length; index++) {
-            if (index == 0) {
-                initClass[index] = numOfElement - 1;
-            } else {
-                initClass[index] = initClass[index - 1] + numOfElement;
-            }
+        final double[] values = new double[valuePairs.size()];
+        final int[] frequencies = new int[valuePairs.size()];
+        for (int index = 0; index < values.length; index++) {
+            ValuePair vp = valuePairs.get(index);
+            values[index] = vp.value;
+            frequencies[index] = vp.frequency;
         }
 
-        DataClass[] ldaSDCM_Parciales = new DataClass[initClass.length + 1];
-        DataClass[] ldaSDCM_Validos = new DataClass[initClass.length + 1];
+        return calculateJenksBreaks(values, frequencies, numOfClass);
+    }
 
-        if (!calculateGVF(valuePairs, ldaSDCM_Parciales, initClass, ldSDAM[0], finalGVF, -1,
-                false)) {
-            calculateJenksBreaks(valuePairs, mean, valuePairs.size());
+    /**
+     * Calculates the natural breaks of the values weighted by their frequencies.
+     * 
+     * @param values the values, sorted in ascending order or not
+     * @param frequencies the frequency of each value
+     * @param numOfClass the number of classes
+     */
+    public boolean calculateJenksBreaks(double[] values, int[] frequencies, int numOfClass) {
+        final int length = Math.min(values.length, frequencies.length);
+        if (length == 0 || numOfClass < 1) {
             return false;
         }
 
-        ldaSDCM_Validos = getArray(ldaSDCM_Parciales);
-
-        boolean lbMoverADerecha;
-        boolean lbMoverAIzquierda;
-        boolean lbIntentarDesplazamiento;
-        int llIndiceRupturaOriginal;
-
-        final int maxIteration = 100;
-        double currentGVF = finalGVF[0];
-
-        int i;
-        for (int iter = 1; iter <= maxIteration; iter++) {
-            for (i = 0; i < initClass.length; i++) {
-                lbMoverADerecha = false;
-                lbMoverAIzquierda = false;
-                llIndiceRupturaOriginal = initClass[i];
-                ldaSDCM_Validos = getArray(ldaSDCM_Parciales);
-
-                lbIntentarDesplazamiento = false;
-
-                if (i == (initClass.length - 1)) {
-                    if ((initClass[i] + 1) < valuePairs.size()) {
-                        lbIntentarDesplazamiento = true;
-                    }
-                } else {
-                    if ((initClass[i] + 1) < initClass[i + 1]) {
-                        lbIntentarDesplazamiento = true;
-                    }
-                }
-
-                if (lbIntentarDesplazamiento) {
-                    initClass[i] = initClass[i] + 1;
-
-                    if (!calculateGVF(valuePairs, ldaSDCM_Parciales, initClass, ldSDAM[0], newGVF,
-                            i, false)) {
-                        return false;
-                    }
-
-                    if (newGVF[0] > finalGVF[0]) {
-                        lbMoverADerecha = true;
-                        ldaSDCM_Validos = getArray(ldaSDCM_Parciales);
-                    } else {
-                        initClass[i] = llIndiceRupturaOriginal;
-                        ldaSDCM_Parciales = getArray(ldaSDCM_Validos);
-                    }
-                }
-
-                lbIntentarDesplazamiento = false;
-
-                if (!lbMoverADerecha) {
-                    if (i == 0) {
-                        if ((initClass[i] - 1) >= 0) {
-                            lbIntentarDesplazamiento = true;
-                        }
-                    } else {
-                        if ((initClass[i] - 1) > initClass[i - 1]) {
-                            lbIntentarDesplazamiento = true;
-                        }
-                    }
-                }
-
-                if (lbIntentarDesplazamiento) {
-                    initClass[i] = initClass[i] - 1;
-
-                    if (!calculateGVF(valuePairs, ldaSDCM_Parciales, initClass, ldSDAM[0], newGVF,
-                            i, true)) {
-                        return false;
-                    }
-
-                    if (newGVF[0] > finalGVF[0]) {
-                        lbMoverAIzquierda = true;
-                        ldaSDCM_Validos = getArray(ldaSDCM_Parciales);
-                    } else {
-                        initClass[i] = llIndiceRupturaOriginal;
-                        ldaSDCM_Parciales = getArray(ldaSDCM_Validos);
-                    }
-                }
-
-                lbIntentarDesplazamiento = false;
-
-                if (lbMoverAIzquierda || lbMoverADerecha) {
-                    finalGVF[0] = newGVF[0];
-
-                    boolean exit = false;
-
-                    while (!exit) {
-                        llIndiceRupturaOriginal = initClass[i];
-
-                        if (lbMoverADerecha) {
-                            if (i == (initClass.length - 1)) {
-                                if ((initClass[i] + 1) >= valuePairs.size()) {
-                                    exit = true;
-                                }
-                            } else {
-                                if ((initClass[i] + 1) >= initClass[i + 1]) {
-                                    exit = true;
-                                }
-                            }
-
-                            initClass[i] = initClass[i] + 1;
-                        } else {
-                            if (i == 0) {
-                                if ((initClass[i] - 1) < 0) {
-                                    exit = true;
-                                }
-                            } else {
-                                if ((initClass[i] - 1) <= initClass[i - 1]) {
-                                    exit = true;
-                                }
-                            }
-                            initClass[i] = initClass[i] - 1;
-                        }
-
-                        if (!calculateGVF(valuePairs, ldaSDCM_Parciales, initClass, ldSDAM[0],
-                                newGVF, i, lbMoverAIzquierda)) {
-                            return false;
-                        }
-
-                        if (newGVF[0] < finalGVF[0]) {
-                            initClass[i] = llIndiceRupturaOriginal;
-                            ldaSDCM_Parciales = getArray(ldaSDCM_Validos);
-                            exit = true;
-                        } else {
-                            finalGVF[0] = newGVF[0];
-                            ldaSDCM_Validos = getArray(ldaSDCM_Parciales);
-                        }
-                    }
-                }
+        if (!isSorted(values, length)) {
+            final double[] unsorted = values;
+            final int[] unsortedFrequencies = frequencies;
+            Integer[] order = new Integer[length];
+            for (int index = 0; index < length; index++) {
+                order[index] = Integer.valueOf(index);
             }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Double.compare(unsorted[a], unsorted[b]);
+                }
+            });
 
-            if (finalGVF[0] <= currentGVF) {
-                i = maxIteration + 1;
+            values = new double[length];
+            frequencies = new int[length];
+            for (int index = 0; index < length; index++) {
+                values[index] = unsorted[order[index]];
+                frequencies[index] = unsortedFrequencies[order[index]];
             }
-
-            currentGVF = finalGVF[0];
         }
 
-        initializeClassBreaks(numOfClass);
-
-        classBreaks[0] = Double.valueOf(valuePairs.get(0).value);
-        classBreaks[classBreaks.length - 1] = Double
-                .valueOf(valuePairs.get(valuePairs.size() - 1).value);
-
-        double[] mdaValInit = new double[initClass.length];
-        for (int index = 0; index < mdaValInit.length; index++) {
-            if (initClass[index] == -1) {
-                initClass[index] = 1;
-            }
-
-            if (initClass[index] > valuePairs.size() - 1) {
-                initClass[index] = valuePairs.size() - 1;
-            }
-
-            classBreaks[index + 1] = Double.valueOf(valuePairs.get(initClass[index]).value);
-
-            if ((initClass[index] + 1) < valuePairs.size()) {
-                mdaValInit[index] = valuePairs.get(initClass[index] + 1).value;
-            } else {
-                mdaValInit[index] = valuePairs.get(initClass[index]).value;
+        if (numOfClass >= length) {
+            classBreaks = new Double[length];
+            for (int index = 0; index < length; index++) {
+                classBreaks[index] = values[index];
             }
+            return true;
         }
 
-        ldaSDCM_Validos = null;
-        ldaSDCM_Parciales = null;
-
-        return true;
-    }
-
-    private DataClass[] getArray(DataClass[] dataClass) {
-        DataClass[] aux = new DataClass[dataClass.length];
-
-        for (int i = 0; i < dataClass.length; i++) {
-            aux[i] = new DataClass();
-            aux[i].Mean = dataClass[i].Mean;
-            aux[i].Count = dataClass[i].Count;
-            aux[i].SDCM = dataClass[i].SDCM;
-            aux[i].SumOfSquaredTotal = dataClass[i].SumOfSquaredTotal;
-            aux[i].SumOfTotal = dataClass[i].SumOfTotal;
+        // 1. items: distinct values or groups of consecutive values
+        int itemCount = length;
+        if (sampleSize > numOfClass && sampleSize < length) {
+            itemCount = sampleSize;
         }
 
-        return aux;
-    }
-
-    private double calculateSDAM(List<ValuePair> valuePairs, double mean) {
-        double rdSDAM = 0;
-        for (ValuePair vp : valuePairs) {
-            rdSDAM += Math.pow((vp.value - mean), 2) * vp.frequency;
+        // prefix sums of weight, weighted value and weighted squared value, upper value of each item
+        final double[] w = new double[itemCount + 1];
+        final double[] wx = new double[itemCount + 1];
+        final double[] wxx = new double[itemCount + 1];
+        final double[] upper = new double[itemCount];
+
+        double totalWeight = 0;
+        double weightedSum = 0;
+        for (int index = 0; index < length; index++) {
+            totalWeight += frequencies[index];
+            weightedSum += frequencies[index] * values[index];
         }
-        return rdSDAM;
-    }
-
-    private boolean calculateGVF(List<ValuePair> valuePairs, DataClass[] dataClass,
-            int[] rlaIndicesRuptura, double vdSDAM, double[] rdGVF, int vlIndiceRupturaActual,
-            boolean vbDesplazAIzquierda) {
-        int i;
-
-        if (vlIndiceRupturaActual == -1) {
-            for (i = 0; i < rlaIndicesRuptura.length; i++) {
-                if (i == 0) {
-                    if (!getDataClass(valuePairs, 0, rlaIndicesRuptura[i], dataClass, i)) {
-                        return false;
-                    }
-                } else {
-                    if (!getDataClass(valuePairs, rlaIndicesRuptura[i - 1] + 1,
-                            rlaIndicesRuptura[i], dataClass, i)) {
-                        return false;
-                    }
-                }
-            }
-
-            if (!getDataClass(valuePairs, rlaIndicesRuptura[rlaIndicesRuptura.length - 1] + 1,
-                    valuePairs.size() - 1, dataClass, dataClass.length - 1)) {
-                return false;
-            }
-        } else {
-            i = vlIndiceRupturaActual;
-
-            if (vbDesplazAIzquierda) {
-                if (!recalculateDataClass(dataClass, i, valuePairs, rlaIndicesRuptura[i] + 1,
-                        vdSDAM, false)) {
-                    return false;
-                }
 
-                if (!recalculateDataClass(dataClass, i + 1, valuePairs, rlaIndicesRuptura[i] + 1,
-                        vdSDAM, true)) {
-                    return false;
-                }
-            } else {
-                if (!recalculateDataClass(dataClass, i, valuePairs, rlaIndicesRuptura[i], vdSDAM,
-                        true)) {
-                    return false;
-                }
-
-                if (!recalculateDataClass(dataClass, i + 1, valuePairs, rlaIndicesRuptura[i],
-                        vdSDAM, false)) {
-                    return false;
+        // the sums are taken around the weighted mean, otherwise the class sum of squares
+        // wxx - wx * wx / w cancels catastrophically for values with a large offset
+        final double shift = totalWeight > 0 ? weightedSum / totalWeight : values[0];
+
+        int item = 0;
+        double cumulative = 0;
+        for (int index = 0; index < length; index++) {
+            final double weight = frequencies[index];
+            final double value = values[index] - shift;
+
+            w[item + 1] += weight;
+            wx[item + 1] += weight * value;
+            wxx[item + 1] += weight * value * value;
+            upper[item] = values[index];
+            cumulative += weight;
+
+            // close the group at the next equal frequency quantile, keep enough values for the rest
+            if (item + 1 < itemCount) {
+                final boolean full = cumulative >= totalWeight * (item + 1) / itemCount;
+                if (full || length - index - 1 == itemCount - item - 1) {
+                    item++;
                 }
             }
         }
 
-        double ldSDCM_aux = 0;
-        for (i = 0; i < dataClass.length; i++) {
-            ldSDCM_aux += dataClass[i].SDCM;
+        for (int index = 1; index <= itemCount; index++) {
+            w[index] += w[index - 1];
+            wx[index] += wx[index - 1];
+            wxx[index] += wxx[index - 1];
         }
 
-        rdGVF[0] = (vdSDAM - ldSDCM_aux) / vdSDAM;
-
-        return true;
-    }
+        // 2. dynamic programming: cost[j] = minimum within class sum of squares of items [0, j)
+        double[] previous = new double[itemCount + 1];
+        double[] current = new double[itemCount + 1];
+        final int[][] starts = new int[numOfClass + 1][];
 
-    private boolean getDataClass(List<ValuePair> valuePairs, int limitInf, int limitSup,
-            DataClass[] dataClass, int clsIndex) {
-        if (limitInf < 0) {
-            return false;
+        for (int j = 1; j <= itemCount; j++) {
+            previous[j] = sumOfSquares(w, wx, wxx, 0, j);
         }
 
-        if (limitSup > valuePairs.size()) {
-            return false;
-        }
+        for (int cls = 2; cls <= numOfClass; cls++) {
+            starts[cls] = new int[itemCount + 1];
+            Arrays.fill(current, Double.POSITIVE_INFINITY);
 
-        if (limitSup < limitInf) {
-            return false;
+            if (cls == numOfClass) {
+                // only the full range is needed for the last class
+                solve(previous, current, starts[cls], w, wx, wxx, cls, itemCount, itemCount,
+                        cls - 1, itemCount - 1);
+            } else {
+                solve(previous, current, starts[cls], w, wx, wxx, cls, cls, itemCount, cls - 1,
+                        itemCount - 1);
+            }
+
+            double[] swap = previous;
+            previous = current;
+            current = swap;
         }
 
-        dataClass[clsIndex] = new DataClass();
+        // 3. backtrack the start of each class
+        initializeClassBreaks(numOfClass);
 
-        for (int i = limitInf; i < (limitSup + 1); i++) {
-            dataClass[clsIndex].Count += valuePairs.get(i).frequency;
-            dataClass[clsIndex].SumOfTotal += valuePairs.get(i).getMultiValue();
-            dataClass[clsIndex].SumOfSquaredTotal += (Math.pow(valuePairs.get(i).getMultiValue(),
-                    2));
-        }
+        classBreaks[0] = Double.valueOf(values[0]);
+        classBreaks[numOfClass] = Double.valueOf(values[length - 1]);
 
-        dataClass[clsIndex].Mean = dataClass[clsIndex].SumOfTotal / dataClass[clsIndex].Count;
-        dataClass[clsIndex].SDCM = (dataClass[clsIndex].SumOfSquaredTotal)
-                - (2 * dataClass[clsIndex].Mean * dataClass[clsIndex].SumOfTotal)
-                + (dataClass[clsIndex].Count * Math.pow(dataClass[clsIndex].Mean, 2));
+        int end = itemCount;
+        for (int cls = numOfClass; cls >= 2; cls--) {
+            final int start = starts[cls][end];
+            classBreaks[cls - 1] = Double.valueOf(upper[start - 1]);
+            end = start;
+        }
 
         return true;
     }
 
-    private boolean recalculateDataClass(DataClass[] dataClass, int idxCls,
-            List<ValuePair> valuePairs, int idxVp, double vdSDAM, boolean vbAnyadir) {
-        try {
-            if (idxVp > valuePairs.size() - 1) {
-                return true;
+    /**
+     * Computes current[j] for j in [lo, hi] knowing that the optimal start of the last class lies in [optLo, optHi].
+     */
+    private void solve(double[] previous, double[] current, int[] start, double[] w, double[] wx,
+            double[] wxx, int cls, int lo, int hi, int optLo, int optHi) {
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+
+            int best = optLo;
+            double bestCost = Double.POSITIVE_INFINITY;
+            final int last = Math.min(optHi, mid - 1);
+            for (int i = Math.max(optLo, cls - 1); i <= last; i++) {
+                final double cost = previous[i] + sumOfSquares(w, wx, wxx, i, mid);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = i;
+                }
             }
 
-            final double multi = valuePairs.get(idxVp).getMultiValue();
-            final int frequency = valuePairs.get(idxVp).frequency;
+            current[mid] = bestCost;
+            start[mid] = best;
 
-            if (vbAnyadir) {
-                dataClass[idxCls].SumOfTotal += multi;
-                dataClass[idxCls].SumOfSquaredTotal += Math.pow(multi, 2);
-                dataClass[idxCls].Count += frequency;
+            // recurse on the smaller half, loop on the larger one
+            if (mid - lo < hi - mid) {
+                solve(previous, current, start, w, wx, wxx, cls, lo, mid - 1, optLo, best);
+                lo = mid + 1;
+                optLo = best;
             } else {
-                dataClass[idxCls].SumOfTotal -= multi;
-                dataClass[idxCls].SumOfSquaredTotal -= Math.pow(multi, 2);
-                dataClass[idxCls].Count -= frequency;
+                solve(previous, current, start, w, wx, wxx, cls, mid + 1, hi, best, optHi);
+                hi = mid - 1;
+                optHi = best;
             }
+        }
+    }
 
-            if (dataClass[idxCls].Count <= 0) {
-                dataClass[idxCls].Count = 1;
-            }
+    private static double sumOfSquares(double[] w, double[] wx, double[] wxx, int from, int to) {
+        final double weight = w[to] - w[from];
+        if (weight <= 0) {
+            return 0.0;
+        }
 
-            dataClass[idxCls].Mean = dataClass[idxCls].SumOfTotal / dataClass[idxCls].Count;
+        // the sums are shifted to the mean, the clamp only removes a negative rounding residue
+        final double sum = wx[to] - wx[from];
+        return Math.max(0.0, (wxx[to] - wxx[from]) - sum * sum / weight);
+    }
 
-            dataClass[idxCls].SDCM = (dataClass[idxCls].SumOfSquaredTotal)
-                    - (2 * dataClass[idxCls].Mean * dataClass[idxCls].SumOfTotal)
-                    + (dataClass[idxCls].Count * Math.pow(dataClass[idxCls].Mean, 2));
-        } catch (Exception e) {
-            return false;
+    private static boolean isSorted(double[] values, int length) {
+        for (int index = 1; index < length; index++) {
+            if (values[index - 1] > values[index]) {
+                return false;
+            }
         }
-
         return true;
     }
 
-    final class DataClass {
+    /**
+     * @deprecated the breaks are computed from prefix sums, kept for compatibility
+     */
+    @Deprecated
+    public static final class DataClass {
         public long Count;
 
         public double Mean;
@@ -480,7 +329,11 @@ public class NaturalBreaksClassify extends DataClassify {
         public double SDCM;
     }
 
-    final class ValuePair {
+    /**
+     * @deprecated use {@link NaturalBreaksClassify#calculateJenksBreaks(double[], int[], int)}
+     */
+    @Deprecated
+    public static final class ValuePair {
         public double value;
 
         public int frequency;
@@ -47,6 +47,10 @@ public abstract class AbstractWeightMatrix {
 
     protected boolean uniqueFieldIsFID = false;
 
+    private boolean denseIDs = false;
+
+    private boolean offHeap = false;
+
     public boolean isSelfNeighbors() {
         return selfNeighbors;
     }
@@ -63,6 +67,31 @@ public abstract class AbstractWeightMatrix {
         this.standardizationMethod = standardizationMethod;
     }
 
+    public boolean isDenseIDs() {
+        return denseIDs;
+    }
+
+    /**
+     * Interns feature IDs to int ordinals and keeps neighbour lists in primitive arrays.
+     */
+    public void setDenseIDs(boolean denseIDs) {
+        this.denseIDs = denseIDs;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    public void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    protected WeightMatrix createWeightMatrix(SpatialWeightMatrixType spatialWeightMatrixType) {
+        WeightMatrix matrix = new WeightMatrix(spatialWeightMatrixType, denseIDs);
+        matrix.setOffHeap(offHeap);
+        return matrix;
+    }
+
     public abstract WeightMatrix execute(SimpleFeatureCollection features,
             String uniqueField);
 
@@ -81,45 +81,56 @@ public class DistanceFactory {
     }
 
     public double getThresholDistance(SimpleFeatureCollection features) {
-        // build spatial index
-        final List<SpatialEvent> events = new ArrayList<SpatialEvent>();
-        final STRtree spatialIndex = new STRtree();
-        SimpleFeatureIterator featureIter = features.features();
-        try {
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                Coordinate centroid = geometry.getCentroid().getCoordinate();
+        return getThresholDistance(FeatureSnapshot.load(features));
+    }
 
-                SpatialEvent event = new SpatialEvent(feature.getID(), centroid);
-                events.add(event);
-                spatialIndex.insert(new Envelope(centroid), event);
-            }
-        } finally {
-            featureIter.close();
-        }
+    /**
+     * Returns the distance that ensures every feature has at least one neighbor.
+     */
+    public double getThresholDistance(final FeatureSnapshot snapshot) {
+        final STRtree spatialIndex = snapshot.createCentroidIndex();
 
         // calculate nearest neighbor index
+        ItemDistance itemDistance = new ItemDistance() {
+            @Override
+            public double distance(ItemBoundable item1, ItemBoundable item2) {
+                int i = ((Integer) item1.getItem()).intValue();
+                int j = ((Integer) item2.getItem()).intValue();
+                if (i == j) {
+                    return Double.MAX_VALUE;
+                }
+                return getEuclideanDistance(snapshot.getX(i), snapshot.getY(i),
+                        snapshot.getX(j), snapshot.getY(j));
+            }
+        };
+
         double threshold = Double.MIN_VALUE;
-        for (SpatialEvent source : events) {
-            SpatialEvent nearest = (SpatialEvent) spatialIndex
-                    .nearestNeighbour(new Envelope(source.coordinate), source, new ItemDistance() {
-                        @Override
-                        public double distance(ItemBoundable item1, ItemBoundable item2) {
-                            SpatialEvent s1 = (SpatialEvent) item1.getItem();
-                            SpatialEvent s2 = (SpatialEvent) item2.getItem();
-                            if (s1.id.equals(s2.id)) {
-                                return Double.MAX_VALUE;
-                            }
-                            return s1.distance(s2);
-                        }
-                    });
-            threshold = Math.max(threshold, getDistance(source, nearest));
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.isEmpty(i)) {
+                continue;
+            }
+
+            Envelope envelope = new Envelope(snapshot.getCentroid(i));
+            Object nearest = spatialIndex.nearestNeighbour(envelope, Integer.valueOf(i),
+                    itemDistance);
+            if (nearest != null) {
+                int j = ((Integer) nearest).intValue();
+                threshold = Math.max(threshold, getDistance(snapshot, i, j));
+            }
         }
 
         return threshold * 1.0001;
     }
 
+    private double getDistance(FeatureSnapshot snapshot, int i, int j) {
+        if (distanceType == DistanceMethod.Manhattan) {
+            return Math.abs(snapshot.getX(i) - snapshot.getX(j))
+                    + Math.abs(snapshot.getY(i) - snapshot.getY(j));
+        }
+        return getEuclideanDistance(snapshot.getX(i), snapshot.getY(i), snapshot.getX(j),
+                snapshot.getY(j));
+    }
+
     public double getMinimumDistance(List<SpatialEvent> srcEvents, SpatialEvent curEvent) {
         double minDistance = Double.MAX_VALUE;
         for (SpatialEvent destEvent : srcEvents) {
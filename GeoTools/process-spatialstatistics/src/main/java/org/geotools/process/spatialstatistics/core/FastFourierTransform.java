@@ -0,0 +1,149 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+/**
+ * Iterative radix-2 complex fast fourier transform of a fixed, power of two size. <br>
+ * The twiddle factors are computed once, so a single instance can be shared between threads.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class FastFourierTransform {
+
+    private final int size;
+
+    private final int[] reversed;
+
+    private final double[] cos;
+
+    private final double[] sin;
+
+    public FastFourierTransform(int size) {
+        if (size < 1 || (size & (size - 1)) != 0) {
+            throw new IllegalArgumentException("size must be a power of two: " + size);
+        }
+
+        this.size = size;
+
+        int bits = Integer.numberOfTrailingZeros(size);
+        this.reversed = new int[size];
+        for (int i = 0; i < size; i++) {
+            reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+
+        this.cos = new double[Math.max(1, size / 2)];
+        this.sin = new double[Math.max(1, size / 2)];
+        for (int k = 0; k < size / 2; k++) {
+            final double angle = 2.0 * Math.PI * k / size;
+            cos[k] = Math.cos(angle);
+            sin[k] = Math.sin(angle);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the smallest power of two greater than or equal to value.
+     */
+    public static int nextPowerOfTwo(int value) {
+        int power = 1;
+        while (power < value) {
+            power <<= 1;
+        }
+        return power;
+    }
+
+    /**
+     * Transforms size elements of re and im, starting at offset, in place. The inverse transform is not scaled.
+     */
+    public void transform(double[] re, double[] im, int offset, boolean inverse) {
+        for (int i = 0; i < size; i++) {
+            final int j = reversed[i];
+            if (j > i) {
+                double temp = re[offset + i];
+                re[offset + i] = re[offset + j];
+                re[offset + j] = temp;
+
+                temp = im[offset + i];
+                im[offset + i] = im[offset + j];
+                im[offset + j] = temp;
+            }
+        }
+
+        final double sign = inverse ? 1.0 : -1.0;
+        for (int length = 2; length <= size; length <<= 1) {
+            final int half = length >> 1;
+            final int step = size / length;
+            for (int i = 0; i < size; i += length) {
+                for (int k = 0; k < half; k++) {
+                    final double wr = cos[k * step];
+                    final double wi = sign * sin[k * step];
+
+                    final int a = offset + i + k;
+                    final int b = a + half;
+
+                    final double xr = re[b] * wr - im[b] * wi;
+                    final double xi = re[b] * wi + im[b] * wr;
+
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                }
+            }
+        }
+    }
+
+    /**
+     * Transforms a size x size row-major matrix in place. The inverse transform is scaled by 1 / (size * size).
+     */
+    public void transform2D(double[] re, double[] im, boolean inverse) {
+        // rows
+        for (int row = 0; row < size; row++) {
+            transform(re, im, row * size, inverse);
+        }
+
+        // columns
+        final double[] colRe = new double[size];
+        final double[] colIm = new double[size];
+        for (int col = 0; col < size; col++) {
+            for (int row = 0, pos = col; row < size; row++, pos += size) {
+                colRe[row] = re[pos];
+                colIm[row] = im[pos];
+            }
+
+            transform(colRe, colIm, 0, inverse);
+
+            for (int row = 0, pos = col; row < size; row++, pos += size) {
+                re[pos] = colRe[row];
+                im[pos] = colIm[row];
+            }
+        }
+
+        if (inverse) {
+            final double scale = 1.0 / ((double) size * size);
+            for (int i = 0; i < re.length; i++) {
+                re[i] *= scale;
+                im[i] *= scale;
+            }
+        }
+    }
+}
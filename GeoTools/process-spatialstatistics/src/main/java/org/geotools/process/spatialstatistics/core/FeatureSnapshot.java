@@ -0,0 +1,304 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.filter.FilterFactory;
+import org.geotools.api.filter.expression.Expression;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.index.strtree.STRtree;
+
+/**
+ * Columnar snapshot of a feature collection: feature IDs, centroids, envelopes and selected numeric attributes in primitive arrays, read in a
+ * single pass over the features. <br>
+ * The snapshot can be shared by operations working on the same feature collection, ex) weight matrix building, threshold distance and the
+ * statistic itself, instead of reopening the collection and recomputing the centroids each time. It is used by the spatial
+ * autocorrelation operations, the point mode of the cluster operations and the nearest neighbor index. <br>
+ * Row i is the i-th feature of the collection: features without geometry keep an empty row with NaN centroid and envelope, see
+ * {@link #isEmpty(int)}, so the rows stay aligned with callers iterating the collection. Null attribute values are stored as NaN.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class FeatureSnapshot {
+    protected static final Logger LOGGER = Logging.getLogger(FeatureSnapshot.class);
+
+    private final SimpleFeatureCollection source;
+
+    private final String typeName;
+
+    private final String uniqueField;
+
+    private int size = 0;
+
+    private Object[] ids;
+
+    private double[] x;
+
+    private double[] y;
+
+    // minx, miny, maxx, maxy of each feature
+    private double[] bounds;
+
+    private final Map<String, double[]> columns = new LinkedHashMap<String, double[]>();
+
+    private FeatureSnapshot(SimpleFeatureCollection source, String uniqueField, int capacity) {
+        this.source = source;
+        this.typeName = source.getSchema().getTypeName();
+        this.uniqueField = uniqueField;
+        this.ids = new Object[capacity];
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        this.bounds = new double[capacity * 4];
+    }
+
+    /**
+     * Loads the feature IDs, centroids, envelopes and the numeric fields.
+     */
+    public static FeatureSnapshot load(SimpleFeatureCollection features, String... fields) {
+        FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+
+        List<Expression> expressions = new ArrayList<Expression>();
+        for (String field : fields) {
+            if (field != null && !field.isEmpty()) {
+                field = FeatureTypes.validateProperty(features.getSchema(), field);
+                expressions.add(ff.property(field));
+            }
+        }
+
+        return load(features, null, expressions.toArray(new Expression[expressions.size()]));
+    }
+
+    /**
+     * Loads the IDs, centroids, envelopes and the numeric expressions. The columns are named after the expressions.
+     * 
+     * @param uniqueField the field used as feature ID, null = FID
+     */
+    public static FeatureSnapshot load(SimpleFeatureCollection features, String uniqueField,
+            Expression... expressions) {
+        FeatureSnapshot snapshot = new FeatureSnapshot(features, uniqueField, 1024);
+
+        List<double[]> values = new ArrayList<double[]>();
+        for (int k = 0; k < expressions.length; k++) {
+            values.add(new double[1024]);
+        }
+
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+
+                int i = snapshot.size;
+                if (i == snapshot.x.length) {
+                    snapshot.grow(i * 2);
+                    for (int k = 0; k < values.size(); k++) {
+                        values.set(k, Arrays.copyOf(values.get(k), i * 2));
+                    }
+                }
+
+                snapshot.ids[i] = uniqueField == null ? feature.getID()
+                        : feature.getAttribute(uniqueField);
+                if (geometry == null || geometry.isEmpty()) {
+                    // keep an empty row
+                    snapshot.x[i] = snapshot.y[i] = Double.NaN;
+                    Arrays.fill(snapshot.bounds, i * 4, i * 4 + 4, Double.NaN);
+                } else {
+                    Coordinate centroid = geometry.getCentroid().getCoordinate();
+                    Envelope envelope = geometry.getEnvelopeInternal();
+
+                    snapshot.x[i] = centroid.x;
+                    snapshot.y[i] = centroid.y;
+                    snapshot.bounds[i * 4] = envelope.getMinX();
+                    snapshot.bounds[i * 4 + 1] = envelope.getMinY();
+                    snapshot.bounds[i * 4 + 2] = envelope.getMaxX();
+                    snapshot.bounds[i * 4 + 3] = envelope.getMaxY();
+                }
+
+                for (int k = 0; k < expressions.length; k++) {
+                    Double value = expressions[k].evaluate(feature, Double.class);
+                    values.get(k)[i] = value == null ? Double.NaN : value.doubleValue();
+                }
+                snapshot.size++;
+            }
+        } finally {
+            featureIter.close();
+        }
+
+        snapshot.grow(snapshot.size);
+        for (int k = 0; k < expressions.length; k++) {
+            snapshot.columns.put(getColumnName(expressions[k]),
+                    Arrays.copyOf(values.get(k), snapshot.size));
+        }
+
+        return snapshot;
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        bounds = Arrays.copyOf(bounds, capacity * 4);
+    }
+
+    /**
+     * Returns the name of the column holding the values of the expression, ex) the property name.
+     */
+    public static String getColumnName(Expression expression) {
+        return String.valueOf(expression);
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    /**
+     * Returns true if the snapshot was loaded from this feature collection instance. A filtered or reloaded collection of the same layer is a
+     * different instance and must be loaded again.
+     */
+    public boolean isLoadedFrom(SimpleFeatureCollection features) {
+        return source == features;
+    }
+
+    /**
+     * Returns the field used as feature ID, or null if the IDs are FIDs.
+     */
+    public String getUniqueField() {
+        return uniqueField;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Object getID(int i) {
+        return ids[i];
+    }
+
+    /**
+     * Returns true if the feature of the row has no geometry, its centroid and envelope are NaN.
+     */
+    public boolean isEmpty(int i) {
+        return Double.isNaN(x[i]);
+    }
+
+    public double getX(int i) {
+        return x[i];
+    }
+
+    public double getY(int i) {
+        return y[i];
+    }
+
+    public Coordinate getCentroid(int i) {
+        return new Coordinate(x[i], y[i]);
+    }
+
+    public Envelope getEnvelope(int i) {
+        return new Envelope(bounds[i * 4], bounds[i * 4 + 2], bounds[i * 4 + 1],
+                bounds[i * 4 + 3]);
+    }
+
+    /**
+     * Returns the envelope of all features.
+     */
+    public Envelope getBounds() {
+        Envelope extent = new Envelope();
+        for (int i = 0; i < size; i++) {
+            if (isEmpty(i)) {
+                continue;
+            }
+            extent.expandToInclude(bounds[i * 4], bounds[i * 4 + 1]);
+            extent.expandToInclude(bounds[i * 4 + 2], bounds[i * 4 + 3]);
+        }
+        return extent;
+    }
+
+    public boolean hasColumn(String name) {
+        return columns.containsKey(name);
+    }
+
+    public boolean hasColumn(Expression expression) {
+        return expression == null || columns.containsKey(getColumnName(expression));
+    }
+
+    public Set<String> getColumnNames() {
+        return columns.keySet();
+    }
+
+    /**
+     * Returns the values of the column, or null if the column was not loaded. The array is shared, do not modify it.
+     */
+    public double[] getColumn(String name) {
+        return columns.get(name);
+    }
+
+    public double[] getColumn(Expression expression) {
+        return columns.get(getColumnName(expression));
+    }
+
+    /**
+     * Creates the spatial events of the centroids. Missing or null values are replaced by the default value.
+     */
+    public List<SpatialEvent> toEvents(Expression xField, Expression yField, double defaultValue) {
+        double[] xValues = xField == null ? null : getColumn(xField);
+        double[] yValues = yField == null ? null : getColumn(yField);
+
+        List<SpatialEvent> events = new ArrayList<SpatialEvent>(size);
+        for (int i = 0; i < size; i++) {
+            SpatialEvent event = new SpatialEvent(ids[i], new Coordinate(x[i], y[i]));
+            if (xValues != null) {
+                event.xVal = Double.isNaN(xValues[i]) ? defaultValue : xValues[i];
+            }
+            if (yValues != null) {
+                event.yVal = Double.isNaN(yValues[i]) ? defaultValue : yValues[i];
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * Builds an STRtree of the centroids. The items are the feature indexes (Integer), empty rows are not indexed.
+     */
+    public STRtree createCentroidIndex() {
+        STRtree spatialIndex = new STRtree();
+        for (int i = 0; i < size; i++) {
+            if (isEmpty(i)) {
+                continue;
+            }
+            spatialIndex.insert(new Envelope(x[i], x[i], y[i], y[i]), Integer.valueOf(i));
+        }
+        spatialIndex.build();
+        return spatialIndex;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.util.Arrays;
+
+/**
+ * Frequency table of double values, an open addressing hash of the value bits without boxing. <br>
+ * Used for categorical rasters (histograms, majority) where the number of distinct values is small compared to the number of cells.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class FrequencyTable {
+
+    static final int INITIAL_CAPACITY = 1024;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+
+    private long[] frequencies = new long[INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    public FrequencyTable() {
+
+    }
+
+    /**
+     * Returns the number of distinct values.
+     */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+
+        if (keys.length > 65536) {
+            keys = new long[INITIAL_CAPACITY];
+            frequencies = new long[INITIAL_CAPACITY];
+        } else {
+            Arrays.fill(frequencies, 0);
+        }
+        size = 0;
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    public void add(double value, long frequency) {
+        if (value == 0.0) {
+            value = 0.0; // -0.0
+        }
+
+        final long key = Double.doubleToLongBits(value);
+        final int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (frequencies[slot] != 0) {
+            if (keys[slot] == key) {
+                frequencies[slot] += frequency;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+            add(value, frequency);
+            return;
+        }
+
+        keys[slot] = key;
+        frequencies[slot] = frequency;
+        size++;
+    }
+
+    public void merge(FrequencyTable other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.frequencies[slot] != 0) {
+                add(Double.longBitsToDouble(other.keys[slot]), other.frequencies[slot]);
+            }
+        }
+    }
+
+    public long getFrequency(double value) {
+        if (value == 0.0) {
+            value = 0.0; // -0.0
+        }
+
+        final long key = Double.doubleToLongBits(value);
+        final int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (frequencies[slot] != 0) {
+            if (keys[slot] == key) {
+                return frequencies[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the distinct values in ascending order.
+     */
+    public double[] getSortedValues() {
+        double[] values = new double[size];
+        int index = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (frequencies[slot] != 0) {
+                values[index++] = Double.longBitsToDouble(keys[slot]);
+            }
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    /**
+     * Returns the most frequent value, the smallest one if there are ties.
+     */
+    public double majority() {
+        double majority = Double.NaN;
+        long maxFrequency = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            final long frequency = frequencies[slot];
+            if (frequency == 0) {
+                continue;
+            }
+
+            final double value = Double.longBitsToDouble(keys[slot]);
+            if (frequency > maxFrequency || (frequency == maxFrequency && value < majority)) {
+                majority = value;
+                maxFrequency = frequency;
+            }
+        }
+        return majority;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldFrequencies = frequencies;
+
+        keys = new long[capacity];
+        frequencies = new long[capacity];
+        final int mask = capacity - 1;
+        for (int old = 0; old < oldKeys.length; old++) {
+            if (oldFrequencies[old] == 0) {
+                continue;
+            }
+
+            int slot = hash(oldKeys[old]) & mask;
+            while (frequencies[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[old];
+            frequencies[slot] = oldFrequencies[old];
+        }
+    }
+
+    private static int hash(long key) {
+        key = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+        key = (key ^ (key >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return (int) (key ^ (key >>> 33));
+    }
+}
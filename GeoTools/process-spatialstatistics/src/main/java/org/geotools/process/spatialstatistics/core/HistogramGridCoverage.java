@@ -16,20 +16,21 @@
  */
 package org.geotools.process.spatialstatistics.core;
 
-import java.util.Iterator;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.awt.image.RenderedImage;
 import java.util.logging.Logger;
 
-import javax.media.jai.PlanarImage;
-import javax.media.jai.iterator.RectIter;
-import javax.media.jai.iterator.RectIterFactory;
-
 import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.process.spatialstatistics.core.RasterTileScanner.TileVisitor;
 import org.geotools.util.logging.Logging;
 
 /**
  * Histogram GridCoverage
+ * <p>
+ * The frequencies of the distinct cell values are counted in a primitive hash per range of tiles. By default every distinct value is kept, so the
+ * classifiers (natural breaks, quantile) see the exact cell values. If a bin count is set, or the number of distinct values exceeds the maximum
+ * number of distinct values (continuous rasters), the cells are counted in fixed width bins between the minimum and maximum value instead, and
+ * the centre of each non-empty bin is used as its value. <br>
+ * NaN cells are treated as NoData and are not counted.
  * 
  * @author Minpa Lee
  * @since 1.0
@@ -38,12 +39,53 @@ import org.geotools.util.logging.Logging;
 public class HistogramGridCoverage extends DataHistogram {
     protected static final Logger LOGGER = Logging.getLogger(HistogramGridCoverage.class);
 
+    static final int DEFAULT_BIN_COUNT = 1024;
+
     private GridCoverage2D coverage = null;
 
     private int bandIndex = 0;
 
     private double noData = 0.0d;
 
+    private int binCount = 0;
+
+    private int maxDistinctValues = 0;
+
+    private int parallelism = ParallelExecutor.getDefaultParallelism();
+
+    public int getBinCount() {
+        return binCount;
+    }
+
+    /**
+     * Sets the number of fixed width bins, 0 = the frequencies of the distinct values.
+     */
+    public void setBinCount(int binCount) {
+        this.binCount = Math.max(0, binCount);
+    }
+
+    public int getMaxDistinctValues() {
+        return maxDistinctValues;
+    }
+
+    /**
+     * Sets the maximum number of distinct values counted before falling back to DEFAULT_BIN_COUNT fixed width bins, 0 = unlimited (exact values).
+     */
+    public void setMaxDistinctValues(int maxDistinctValues) {
+        this.maxDistinctValues = Math.max(0, maxDistinctValues);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to read the tiles of the raster. 1 = sequential.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
     @Override
     public boolean calculateHistogram(GridCoverage2D coverage, int bandIndex, double noData) {
         this.coverage = coverage;
@@ -62,50 +104,159 @@ public class HistogramGridCoverage extends DataHistogram {
             throw new ArrayIndexOutOfBoundsException("Process failed during execution");
         }
 
-        SortedMap<Double, Integer> valueCountsMap = new TreeMap<Double, Integer>();
-
-        // 1. Iteration
-        PlanarImage inputImage = (PlanarImage) coverage.getRenderedImage();
-        RectIter readIter = RectIterFactory.create(inputImage, inputImage.getBounds());
-
-        readIter.startLines();
-        while (!readIter.finishedLines()) {
-            readIter.startPixels();
-            while (!readIter.finishedPixels()) {
-                double sampleValue = readIter.getSampleDouble(bandIndex);
-                if (!SSUtils.compareDouble(noData, sampleValue)) {
-                    if (valueCountsMap.containsKey(sampleValue)) {
-                        int cnt = valueCountsMap.get(sampleValue);
-                        valueCountsMap.put(sampleValue, Integer.valueOf(cnt + 1));
-                    } else {
-                        valueCountsMap.put(sampleValue, Integer.valueOf(1));
+        // 1. count, sum, range and the frequencies of the distinct values
+        RenderedImage image = coverage.getRenderedImage();
+        final int maxDistinct = maxDistinctValues == 0 ? Integer.MAX_VALUE : Math.min(
+                Integer.MAX_VALUE / 4, maxDistinctValues);
+        final boolean distinct = binCount == 0;
+        ValueFrequencies values = RasterTileScanner.scan(image, bandIndex, parallelism,
+                new TileVisitor<ValueFrequencies>() {
+                    @Override
+                    public ValueFrequencies createPartial() {
+                        return new ValueFrequencies(distinct ? new FrequencyTable() : null);
                     }
 
-                    count++;
-                    sumOfVals += sampleValue;
-                }
-                readIter.nextPixel();
-            }
-            readIter.nextLine();
-        }
+                    @Override
+                    public void visit(ValueFrequencies partial, double[] samples, int length) {
+                        partial.add(samples, length, noData, maxDistinct);
+                    }
+
+                    @Override
+                    public ValueFrequencies merge(ValueFrequencies first,
+                            ValueFrequencies following) {
+                        first.merge(following, maxDistinct);
+                        return first;
+                    }
+                });
 
-        if (valueCountsMap.size() == 0) {
+        if (values.count == 0) {
             return false;
         }
 
-        doubleArrayValues = new double[valueCountsMap.size()];
-        longArrayFrequencies = new int[valueCountsMap.size()];
+        count = (int) Math.min(Integer.MAX_VALUE, values.count);
+        sumOfVals = values.sum;
 
-        Iterator<Double> iterator = valueCountsMap.keySet().iterator();
-        int k = 0;
-        while (iterator.hasNext()) {
-            final double key = iterator.next();
-            doubleArrayValues[k] = key;
-            longArrayFrequencies[k] = valueCountsMap.get(key);
-            k++;
+        if (values.table != null) {
+            doubleArrayValues = values.table.getSortedValues();
+            longArrayFrequencies = new int[doubleArrayValues.length];
+            for (int k = 0; k < doubleArrayValues.length; k++) {
+                longArrayFrequencies[k] = toInt(values.table.getFrequency(doubleArrayValues[k]));
+            }
+            return true;
+        }
+
+        // 2. fixed width bins
+        final int bins = binCount > 0 ? binCount : DEFAULT_BIN_COUNT;
+        final double minimum = values.minimum;
+        final double width = (values.maximum - minimum) / bins;
+        long[] frequencies = RasterTileScanner.scan(image, bandIndex, parallelism,
+                new TileVisitor<long[]>() {
+                    @Override
+                    public long[] createPartial() {
+                        return new long[bins];
+                    }
+
+                    @Override
+                    public void visit(long[] partial, double[] samples, int length) {
+                        for (int k = 0; k < length; k++) {
+                            final double value = samples[k];
+                            if (Double.isNaN(value) || SSUtils.compareDouble(noData, value)) {
+                                continue;
+                            }
+
+                            int bin = width == 0 ? 0 : (int) ((value - minimum) / width);
+                            partial[Math.max(0, Math.min(bins - 1, bin))]++;
+                        }
+                    }
+
+                    @Override
+                    public long[] merge(long[] first, long[] following) {
+                        for (int k = 0; k < first.length; k++) {
+                            first[k] += following[k];
+                        }
+                        return first;
+                    }
+                });
+
+        int nonEmpty = 0;
+        for (int k = 0; k < bins; k++) {
+            if (frequencies[k] > 0) {
+                nonEmpty++;
+            }
+        }
+
+        doubleArrayValues = new double[nonEmpty];
+        longArrayFrequencies = new int[nonEmpty];
+        int index = 0;
+        for (int k = 0; k < bins; k++) {
+            if (frequencies[k] > 0) {
+                doubleArrayValues[index] = minimum + (k + 0.5) * width;
+                longArrayFrequencies[index] = toInt(frequencies[k]);
+                index++;
+            }
         }
 
         return true;
     }
 
+    private static int toInt(long frequency) {
+        return (int) Math.min(Integer.MAX_VALUE, frequency);
+    }
+
+    /**
+     * Partial result of a range of tiles: count, sum, minimum, maximum and the frequencies of the distinct values while there are at most
+     * maxDistinct values.
+     */
+    static final class ValueFrequencies {
+        FrequencyTable table;
+
+        long count = 0;
+
+        double sum = 0;
+
+        double minimum = Double.MAX_VALUE;
+
+        double maximum = -Double.MAX_VALUE;
+
+        ValueFrequencies(FrequencyTable table) {
+            this.table = table;
+        }
+
+        void add(double[] samples, int length, double noData, int maxDistinct) {
+            for (int k = 0; k < length; k++) {
+                final double value = samples[k];
+                if (Double.isNaN(value) || SSUtils.compareDouble(noData, value)) {
+                    continue;
+                }
+
+                count++;
+                sum += value;
+                minimum = Math.min(minimum, value);
+                maximum = Math.max(maximum, value);
+
+                if (table != null) {
+                    table.add(value);
+                    if (table.size() > maxDistinct) {
+                        table = null; // continuous raster, use fixed width bins
+                    }
+                }
+            }
+        }
+
+        void merge(ValueFrequencies other, int maxDistinct) {
+            count += other.count;
+            sum += other.sum;
+            minimum = Math.min(minimum, other.minimum);
+            maximum = Math.max(maximum, other.maximum);
+
+            if (table == null || other.table == null) {
+                table = null;
+            } else {
+                table.merge(other.table);
+                if (table.size() > maxDistinct) {
+                    table = null;
+                }
+            }
+        }
+    }
 }
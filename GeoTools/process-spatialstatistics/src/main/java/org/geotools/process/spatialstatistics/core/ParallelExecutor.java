@@ -0,0 +1,133 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Shared executor of the parallel operations. <br>
+ * Ranges of features, tiles or circles are split in fork-join pools that are created once per parallelism and shared by all operations, instead
+ * of creating and shutting down a pool on every call. The default parallelism is read once from the system property
+ * org.geotools.process.spatialstatistics.parallelism (default 1 = sequential).
+ *
+ * @author Minpa Lee, MangoSystem
+ *
+ * @source $URL$
+ */
+public final class ParallelExecutor {
+
+    public static final String PARALLELISM_PROPERTY = "org.geotools.process.spatialstatistics.parallelism";
+
+    private static final int DEFAULT_PARALLELISM = Math.max(1,
+            Integer.getInteger(PARALLELISM_PROPERTY, 1));
+
+    private static final ConcurrentMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<Integer, ForkJoinPool>();
+
+    /**
+     * Task processing the items [start, end). Each item must only write its own result slots.
+     */
+    public interface RangeTask {
+        void execute(int start, int end);
+    }
+
+    private ParallelExecutor() {
+
+    }
+
+    /**
+     * Returns the default number of threads, 1 = sequential.
+     */
+    public static int getDefaultParallelism() {
+        return DEFAULT_PARALLELISM;
+    }
+
+    /**
+     * Returns the shared pool of the given parallelism. The worker threads are daemon threads and are released when idle.
+     */
+    public static ForkJoinPool getPool(int parallelism) {
+        Integer key = Integer.valueOf(Math.max(1, parallelism));
+        ForkJoinPool pool = POOLS.get(key);
+        if (pool == null) {
+            ForkJoinPool created = new ForkJoinPool(key.intValue());
+            pool = POOLS.putIfAbsent(key, created);
+            if (pool == null) {
+                pool = created;
+            } else {
+                created.shutdown();
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Runs the task over the items [0, count), splitting the range in the shared pool if parallelism > 1. A range is not split below
+     * minBlockSize items.
+     */
+    public static void execute(int count, int parallelism, int minBlockSize, RangeTask task) {
+        minBlockSize = Math.max(1, minBlockSize);
+        if (parallelism <= 1 || count < minBlockSize * 2) {
+            task.execute(0, count);
+            return;
+        }
+
+        // a few ranges per thread to balance the load
+        int blockSize = Math.max(minBlockSize, count / (parallelism * 8));
+        getPool(parallelism).invoke(new RangeAction(task, 0, count, blockSize));
+    }
+
+    /**
+     * Runs the fork-join task in the shared pool and returns its result.
+     */
+    public static <T> T invoke(int parallelism, ForkJoinTask<T> task) {
+        return getPool(parallelism).invoke(task);
+    }
+
+    static final class RangeAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeTask task;
+
+        private final int start;
+
+        private final int end;
+
+        private final int blockSize;
+
+        RangeAction(RangeTask task, int start, int end, int blockSize) {
+            this.task = task;
+            this.start = start;
+            this.end = end;
+            this.blockSize = blockSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= blockSize) {
+                task.execute(start, end);
+                return;
+            }
+
+            int mid = (start + end) >>> 1;
+            invokeAll(new RangeAction(task, start, mid, blockSize),
+                    new RangeAction(task, mid, end, blockSize));
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch (KLL) for approximate percentiles of a stream of values. <br>
+ * The values are kept in a hierarchy of compactors: level h holds items of weight 2^h and when a level exceeds its capacity it is sorted and every
+ * other item is promoted to the next level. The memory is bounded by about 3 * k values regardless of the number of values, and the rank error is
+ * about 1.7 / k (1% for the default k = 200). <br>
+ * Sketches built on separate threads or tiles can be combined with {@link #merge(QuantileSketch)}.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class QuantileSketch {
+
+    public static final int DEFAULT_K = 200;
+
+    static final int MIN_CAPACITY = 8;
+
+    static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+    private final int k;
+
+    private double[][] levels;
+
+    private int[] sizes;
+
+    private int levelCount;
+
+    private int retained; // number of retained items
+
+    private int maxRetained; // total capacity of all levels
+
+    private long count;
+
+    private double minimum;
+
+    private double maximum;
+
+    private long randomState;
+
+    // sorted view of the retained items, rebuilt after changes
+    private double[] sortedValues;
+
+    private long[] cumulativeWeights;
+
+    private boolean dirty = true;
+
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * @param k the accuracy parameter, the rank error is about 1.7 / k
+     */
+    public QuantileSketch(int k) {
+        if (k < MIN_CAPACITY) {
+            throw new IllegalArgumentException("k must be at least " + MIN_CAPACITY);
+        }
+        this.k = k;
+        reset();
+    }
+
+    public QuantileSketch createEmpty() {
+        return new QuantileSketch(k);
+    }
+
+    public void reset() {
+        levels = new double[][] { new double[k] };
+        sizes = new int[1];
+        levelCount = 1;
+        retained = 0;
+        maxRetained = capacity(0);
+        count = 0;
+        minimum = Double.NaN;
+        maximum = Double.NaN;
+        randomState = 0x9E3779B97F4A7C15L;
+        dirty = true;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public double getMinimum() {
+        return minimum;
+    }
+
+    public double getMaximum() {
+        return maximum;
+    }
+
+    public int getRetainedCount() {
+        return retained;
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+
+        if (count == 0) {
+            minimum = maximum = value;
+        } else if (value < minimum) {
+            minimum = value;
+        } else if (value > maximum) {
+            maximum = value;
+        }
+
+        append(0, value);
+        count++;
+        dirty = true;
+
+        if (retained >= maxRetained) {
+            compress();
+        }
+    }
+
+    /**
+     * Adds all values of the other sketch to this sketch. The other sketch is not changed.
+     */
+    public void merge(QuantileSketch other) {
+        if (other == null || other.count == 0) {
+            return;
+        }
+
+        if (count == 0) {
+            minimum = other.minimum;
+            maximum = other.maximum;
+        } else {
+            minimum = Math.min(minimum, other.minimum);
+            maximum = Math.max(maximum, other.maximum);
+        }
+
+        while (levelCount < other.levelCount) {
+            addLevel();
+        }
+
+        for (int level = 0; level < other.levelCount; level++) {
+            final double[] items = other.levels[level];
+            for (int index = 0; index < other.sizes[level]; index++) {
+                append(level, items[index]);
+            }
+        }
+        count += other.count;
+        dirty = true;
+
+        compress();
+    }
+
+    /**
+     * Returns the approximate value at the given fraction of the ranks: the smallest retained value whose cumulative weight reaches ceil(fraction *
+     * count). The minimum and maximum are exact.
+     * 
+     * @param fraction 0.0 ~ 1.0, ex) 0.5 for the median
+     * @return the approximate quantile or NaN if the sketch is empty
+     */
+    public double getQuantile(double fraction) {
+        if (count == 0 || Double.isNaN(fraction)) {
+            return Double.NaN;
+        } else if (fraction <= 0.0) {
+            return minimum;
+        } else if (fraction >= 1.0) {
+            return maximum;
+        }
+
+        if (dirty) {
+            buildSortedView();
+        }
+
+        final long rank = Math.max(1L, (long) Math.ceil(fraction * count));
+        int index = Arrays.binarySearch(cumulativeWeights, 0, retained, rank);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return sortedValues[Math.min(index, retained - 1)];
+    }
+
+    public double[] getQuantiles(double[] fractions) {
+        double[] quantiles = new double[fractions.length];
+        for (int index = 0; index < fractions.length; index++) {
+            quantiles[index] = getQuantile(fractions[index]);
+        }
+        return quantiles;
+    }
+
+    private int capacity(int level) {
+        final int depth = levelCount - level - 1;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    private void addLevel() {
+        if (levelCount == levels.length) {
+            levels = Arrays.copyOf(levels, levelCount * 2);
+            sizes = Arrays.copyOf(sizes, levelCount * 2);
+        }
+        levels[levelCount] = new double[MIN_CAPACITY];
+        sizes[levelCount] = 0;
+        levelCount++;
+
+        maxRetained = 0;
+        for (int level = 0; level < levelCount; level++) {
+            maxRetained += capacity(level);
+        }
+    }
+
+    private void append(int level, double value) {
+        double[] items = levels[level];
+        final int size = sizes[level];
+        if (size == items.length) {
+            items = levels[level] = Arrays.copyOf(items, Math.max(MIN_CAPACITY, size * 2));
+        }
+        items[size] = value;
+        sizes[level] = size + 1;
+        retained++;
+    }
+
+    private void compress() {
+        while (retained >= maxRetained) {
+            // compact the lowest level that exceeds its capacity
+            int level = 0;
+            while (level < levelCount && sizes[level] < capacity(level)) {
+                level++;
+            }
+
+            if (level == levelCount) {
+                return;
+            }
+
+            if (level + 1 == levelCount) {
+                addLevel();
+            }
+            compact(level);
+        }
+    }
+
+    private void compact(int level) {
+        final double[] items = levels[level];
+        final int size = sizes[level];
+        Arrays.sort(items, 0, size);
+
+        // promote every other item from a random offset, a promoted item has the double weight
+        final int pairs = size / 2;
+        final int offset = nextBit();
+        for (int pair = 0; pair < pairs; pair++) {
+            append(level + 1, items[pair * 2 + offset]);
+        }
+        retained -= pairs * 2;
+
+        // an odd item stays at this level
+        if (size % 2 == 1) {
+            items[0] = items[size - 1];
+            sizes[level] = 1;
+        } else {
+            sizes[level] = 0;
+        }
+    }
+
+    private int nextBit() {
+        // xorshift64
+        randomState ^= randomState << 13;
+        randomState ^= randomState >>> 7;
+        randomState ^= randomState << 17;
+        return (int) (randomState >>> 63);
+    }
+
+    private void buildSortedView() {
+        if (sortedValues == null || sortedValues.length < retained) {
+            sortedValues = new double[retained];
+            cumulativeWeights = new long[retained];
+        }
+
+        // sort every level and merge them in ascending order
+        final int[] positions = new int[levelCount];
+        for (int level = 0; level < levelCount; level++) {
+            Arrays.sort(levels[level], 0, sizes[level]);
+        }
+
+        long cumulative = 0;
+        for (int index = 0; index < retained; index++) {
+            int next = -1;
+            for (int level = 0; level < levelCount; level++) {
+                if (positions[level] == sizes[level]) {
+                    continue;
+                }
+
+                if (next == -1 || levels[level][positions[level]] < levels[next][positions[next]]) {
+                    next = level;
+                }
+            }
+
+            sortedValues[index] = levels[next][positions[next]++];
+            cumulative += 1L << next;
+            cumulativeWeights[index] = cumulative;
+        }
+        dirty = false;
+    }
+}
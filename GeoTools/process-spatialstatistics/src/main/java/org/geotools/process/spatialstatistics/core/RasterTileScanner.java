@@ -0,0 +1,144 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads the samples of one band of a raster tile by tile into a reusable double[] row buffer and reduces them into partial results. <br>
+ * If parallelism > 1, the tiles are split into ranges processed in the shared pool of {@link ParallelExecutor}; every range accumulates its own partial result and the
+ * partials are merged in tile order, so the result does not depend on the number of threads.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public final class RasterTileScanner {
+
+    /**
+     * Accumulates the samples of a range of tiles into a partial result.
+     */
+    public interface TileVisitor<T> {
+        /**
+         * Creates an empty partial result.
+         */
+        T createPartial();
+
+        /**
+         * Accumulates samples[0..length) of a row of a tile.
+         */
+        void visit(T partial, double[] samples, int length);
+
+        /**
+         * Merges the partial result of the following tiles into the first one and returns the merged result.
+         */
+        T merge(T first, T following);
+    }
+
+    private RasterTileScanner() {
+
+    }
+
+    public static <T> T scan(RenderedImage image, int bandIndex, int parallelism,
+            TileVisitor<T> visitor) {
+        final int tileCount = image.getNumXTiles() * image.getNumYTiles();
+        if (parallelism <= 1 || tileCount < 2) {
+            T partial = visitor.createPartial();
+            scanTiles(image, bandIndex, 0, tileCount, visitor, partial);
+            return partial;
+        }
+
+        // a few ranges per thread to balance the load
+        final int grain = Math.max(1, tileCount / (parallelism * 4));
+        return ParallelExecutor.invoke(parallelism, new ScanTask<T>(image, bandIndex, visitor, 0,
+                tileCount, grain));
+    }
+
+    static <T> void scanTiles(RenderedImage image, int bandIndex, int start, int end,
+            TileVisitor<T> visitor, T partial) {
+        final Rectangle bounds = new Rectangle(image.getMinX(), image.getMinY(),
+                image.getWidth(), image.getHeight());
+        final int numXTiles = image.getNumXTiles();
+
+        double[] samples = new double[image.getTileWidth()];
+        for (int tile = start; tile < end; tile++) {
+            final int tileX = image.getMinTileX() + tile % numXTiles;
+            final int tileY = image.getMinTileY() + tile / numXTiles;
+            Raster raster = image.getTile(tileX, tileY);
+
+            // tiles on the right and bottom edges may extend beyond the image
+            Rectangle rect = raster.getBounds().intersection(bounds);
+            if (rect.isEmpty()) {
+                continue;
+            }
+
+            if (samples.length < rect.width) {
+                samples = new double[rect.width];
+            }
+
+            for (int y = rect.y; y < rect.y + rect.height; y++) {
+                raster.getSamples(rect.x, y, rect.width, 1, bandIndex, samples);
+                visitor.visit(partial, samples, rect.width);
+            }
+        }
+    }
+
+    static final class ScanTask<T> extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final RenderedImage image;
+
+        private final int bandIndex;
+
+        private final TileVisitor<T> visitor;
+
+        private final int start;
+
+        private final int end;
+
+        private final int grain;
+
+        ScanTask(RenderedImage image, int bandIndex, TileVisitor<T> visitor, int start, int end,
+                int grain) {
+            this.image = image;
+            this.bandIndex = bandIndex;
+            this.visitor = visitor;
+            this.start = start;
+            this.end = end;
+            this.grain = grain;
+        }
+
+        @Override
+        protected T compute() {
+            if (end - start <= grain) {
+                T partial = visitor.createPartial();
+                scanTiles(image, bandIndex, start, end, visitor, partial);
+                return partial;
+            }
+
+            final int mid = (start + end) >>> 1;
+            ScanTask<T> first = new ScanTask<T>(image, bandIndex, visitor, start, mid, grain);
+            ScanTask<T> following = new ScanTask<T>(image, bandIndex, visitor, mid, end, grain);
+            following.fork();
+            T result = first.compute();
+            return visitor.merge(result, following.join());
+        }
+    }
+}
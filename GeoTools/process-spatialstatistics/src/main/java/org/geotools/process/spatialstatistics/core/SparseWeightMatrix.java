@@ -0,0 +1,103 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+import java.util.Arrays;
+
+/**
+ * SparseWeightMatrix - spatial weights stored in compressed sparse row (CSR) format. <br>
+ * The neighbours of feature i are stored in indices[offsets[i]..offsets[i + 1]) in ascending order, weights holds the (optionally row standardized)
+ * weight of each neighbour and rowSums the raw row sums.
+ *
+ * @author Minpa Lee, MangoSystem
+ *
+ * @source $URL$
+ */
+public class SparseWeightMatrix {
+
+    private final int[] offsets;
+
+    private final int[] indices;
+
+    private final double[] weights;
+
+    private final double[] rowSums;
+
+    public SparseWeightMatrix(int[] offsets, int[] indices, double[] weights, double[] rowSums) {
+        this.offsets = offsets;
+        this.indices = indices;
+        this.weights = weights;
+        this.rowSums = rowSums;
+    }
+
+    public int getFeatureCount() {
+        return offsets.length - 1;
+    }
+
+    public int getNeighborCount() {
+        return offsets[offsets.length - 1];
+    }
+
+    public int getNeighborCount(int i) {
+        return offsets[i + 1] - offsets[i];
+    }
+
+    public int getMaxNeighborCount() {
+        int maxCount = 0;
+        for (int i = 0; i < offsets.length - 1; i++) {
+            maxCount = Math.max(maxCount, offsets[i + 1] - offsets[i]);
+        }
+        return maxCount;
+    }
+
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    public int[] getIndices() {
+        return indices;
+    }
+
+    public double[] getWeights() {
+        return weights;
+    }
+
+    public double getRowSum(int i) {
+        return rowSums[i];
+    }
+
+    public boolean isNeighbor(int i, int j) {
+        return Arrays.binarySearch(indices, offsets[i], offsets[i + 1], j) >= 0;
+    }
+
+    public double getWeight(int i, int j) {
+        int pos = Arrays.binarySearch(indices, offsets[i], offsets[i + 1], j);
+        return pos < 0 ? 0.0 : weights[pos];
+    }
+
+    public WeightRow getRow(int i, WeightRow row) {
+        final int start = offsets[i];
+        final int count = offsets[i + 1] - start;
+
+        row.ensureCapacity(count);
+        System.arraycopy(indices, start, row.indices, 0, count);
+        System.arraycopy(weights, start, row.weights, 0, count);
+        row.size = count;
+
+        return row;
+    }
+}
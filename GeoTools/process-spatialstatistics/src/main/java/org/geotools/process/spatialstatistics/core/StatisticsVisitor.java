@@ -18,6 +18,8 @@ package org.geotools.process.spatialstatistics.core;
 
 import java.util.logging.Logger;
 
+import java.awt.image.RenderedImage;
+
 import javax.media.jai.PlanarImage;
 import javax.media.jai.iterator.RectIter;
 import javax.media.jai.iterator.RectIterFactory;
@@ -32,6 +34,7 @@ import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.filter.IllegalFilterException;
+import org.geotools.process.spatialstatistics.core.RasterTileScanner.TileVisitor;
 import org.geotools.util.logging.Logging;
 
 /**
@@ -52,6 +55,9 @@ public class StatisticsVisitor {
 
     private StatisticsStrategy strategy = null;
 
+    // number of threads used to visit the tiles of a raster
+    private int parallelism = ParallelExecutor.getDefaultParallelism();
+
     public StatisticsVisitor(StatisticsStrategy strategy) {
         this.strategy = strategy;
     }
@@ -65,6 +71,17 @@ public class StatisticsVisitor {
         init(schema, schema.getDescriptor(attrIndex));
     }
 
+    /**
+     * Creates a visitor with the strategy of the attribute type, numeric strategies also feed the quantile sketch.
+     */
+    public StatisticsVisitor(SimpleFeatureType schema, String propertyName, QuantileSketch sketch)
+            throws IllegalFilterException {
+        AttributeDescriptor descriptor = schema.getDescriptor(FeatureTypes.validateProperty(
+                schema, propertyName));
+        expression = ff.property(descriptor.getLocalName());
+        strategy = createStrategy(descriptor.getType().getBinding(), sketch);
+    }
+
     public StatisticsVisitor(Expression expression, StatisticsStrategy strategy)
             throws IllegalFilterException {
         this.expression = expression;
@@ -77,14 +94,18 @@ public class StatisticsVisitor {
     }
 
     private static StatisticsStrategy createStrategy(Class<?> type) {
+        return createStrategy(type, null);
+    }
+
+    private static StatisticsStrategy createStrategy(Class<?> type, QuantileSketch sketch) {
         if (type == Integer.class) {
-            return new IntegerStrategy();
+            return new IntegerStrategy(sketch);
         } else if (type == Long.class) {
-            return new LongStrategy();
+            return new LongStrategy(sketch);
         } else if (type == Float.class) {
-            return new FloatStrategy();
+            return new FloatStrategy(sketch);
         } else if (Number.class.isAssignableFrom(type)) {
-            return new DoubleStrategy();
+            return new DoubleStrategy(sketch);
         } else if (String.class.isAssignableFrom(type)) {
             return new StringStrategy();
         }
@@ -92,6 +113,17 @@ public class StatisticsVisitor {
         return null;
     }
 
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to visit the tiles of a raster. 1 = sequential.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
     public void setNoData(Number noData) {
         if (strategy != null && noData != null)
             strategy.setNoData(noData);
@@ -102,9 +134,43 @@ public class StatisticsVisitor {
             strategy.reset();
     }
 
+    /**
+     * Visits the cells of a band. With a {@link DoubleStrategy} the tiles are read as double[] rows into per-tile accumulators that are merged,
+     * without boxing every cell.
+     */
     public void visit(GridCoverage2D inputCoverage, Integer bandIndex) {
         reset();
 
+        if (strategy == null) {
+            strategy = new DoubleStrategy();
+        }
+
+        if (strategy instanceof DoubleStrategy) {
+            final DoubleStrategy target = (DoubleStrategy) strategy;
+            RenderedImage image = inputCoverage.getRenderedImage();
+            DoubleStrategy result = RasterTileScanner.scan(image, bandIndex, parallelism,
+                    new TileVisitor<DoubleStrategy>() {
+                        @Override
+                        public DoubleStrategy createPartial() {
+                            return target.createEmpty();
+                        }
+
+                        @Override
+                        public void visit(DoubleStrategy partial, double[] samples, int length) {
+                            partial.add(samples, 0, length);
+                        }
+
+                        @Override
+                        public DoubleStrategy merge(DoubleStrategy first,
+                                DoubleStrategy following) {
+                            first.merge(following);
+                            return first;
+                        }
+                    });
+            target.merge(result);
+            return;
+        }
+
         PlanarImage inputImage = (PlanarImage) inputCoverage.getRenderedImage();
         RectIter readIter = RectIterFactory.create(inputImage, inputImage.getBounds());
 
@@ -158,10 +224,15 @@ public class StatisticsVisitor {
         public void reset();
     }
 
+    /**
+     * Statistics of double values, optionally with a {@link QuantileSketch} for the approximate percentiles.
+     */
     public static class DoubleStrategy implements StatisticsStrategy {
 
         Double noData = null;
 
+        QuantileSketch sketch = null;
+
         int count = 0;
 
         int invalidCount = 0;
@@ -172,12 +243,20 @@ public class StatisticsVisitor {
 
         double minVal = Double.MAX_VALUE;
 
-        double maxVal = Double.MIN_VALUE;
+        double maxVal = -Double.MAX_VALUE;
 
         double sumOfVals = 0.0d;
 
         double sumOfSqrs = 0.0d;
 
+        public DoubleStrategy() {
+
+        }
+
+        public DoubleStrategy(QuantileSketch sketch) {
+            this.sketch = sketch;
+        }
+
         @Override
         public void add(Object value) {
             if (value == null) {
@@ -186,7 +265,8 @@ public class StatisticsVisitor {
             }
 
             // for BigDecimal, Double...
-            double curVal = Double.valueOf(value.toString());
+            double curVal = value instanceof Number ? ((Number) value).doubleValue() : Double
+                    .valueOf(value.toString());
             if (Double.isNaN(curVal) || Double.isInfinite(curVal)) {
                 invalidCount++;
                 return;
@@ -205,11 +285,66 @@ public class StatisticsVisitor {
             maxVal = Math.max(maxVal, curVal);
             minVal = Math.min(minVal, curVal);
 
+            if (sketch != null) {
+                sketch.add(curVal);
+            }
+
             lastValue = value;
 
             count++;
         }
 
+        /**
+         * Adds values[offset..offset + length) without boxing, the first and last values are boxed once per call.
+         */
+        public void add(double[] values, int offset, int length) {
+            final boolean hasNoData = noData != null;
+            final double noDataValue = hasNoData ? noData.doubleValue() : 0.0d;
+
+            int last = -1;
+            for (int index = offset; index < offset + length; index++) {
+                final double curVal = values[index];
+                if (Double.isNaN(curVal) || Double.isInfinite(curVal)) {
+                    invalidCount++;
+                    continue;
+                } else if (hasNoData && SSUtils.compareDouble(curVal, noDataValue)) {
+                    invalidCount++;
+                    continue;
+                }
+
+                if (firstValue == null) {
+                    firstValue = Double.valueOf(curVal);
+                }
+
+                sumOfVals += curVal;
+                sumOfSqrs += curVal * curVal;
+
+                maxVal = Math.max(maxVal, curVal);
+                minVal = Math.min(minVal, curVal);
+
+                if (sketch != null) {
+                    sketch.add(curVal);
+                }
+
+                last = index;
+                count++;
+            }
+
+            if (last >= 0) {
+                lastValue = Double.valueOf(values[last]);
+            }
+        }
+
+        /**
+         * Creates an empty strategy with the same NoData value and quantile sketch settings.
+         */
+        public DoubleStrategy createEmpty() {
+            QuantileSketch emptySketch = sketch == null ? null : sketch.createEmpty();
+            DoubleStrategy strategy = new DoubleStrategy(emptySketch);
+            strategy.noData = noData;
+            return strategy;
+        }
+
         @Override
         public StatisticsVisitorResult getResult() {
             StatisticsVisitorResult sr = new StatisticsVisitorResult();
@@ -221,6 +356,7 @@ public class StatisticsVisitor {
             sr.setMaximum(maxVal);
             sr.setSum(sumOfVals);
             sr.setNoData(noData);
+            sr.setQuantileSketch(sketch);
 
             if (count > 0) {
                 // Population Standard Deviation
@@ -235,8 +371,40 @@ public class StatisticsVisitor {
             count = invalidCount = 0;
             firstValue = lastValue = null;
             minVal = Double.MAX_VALUE;
-            maxVal = Double.MIN_VALUE;
+            maxVal = -Double.MAX_VALUE;
             sumOfVals = sumOfSqrs = 0.0d;
+            if (sketch != null) {
+                sketch.reset();
+            }
+        }
+
+        /**
+         * Adds the values visited by the other strategy, ex) the statistics of another thread or tile.
+         */
+        public void merge(DoubleStrategy other) {
+            if (other.count == 0) {
+                invalidCount += other.invalidCount;
+                return;
+            }
+
+            if (firstValue == null) {
+                firstValue = other.firstValue;
+            }
+            lastValue = other.lastValue;
+
+            count += other.count;
+            invalidCount += other.invalidCount;
+            sumOfVals += other.sumOfVals;
+            sumOfSqrs += other.sumOfSqrs;
+            minVal = Math.min(minVal, other.minVal);
+            maxVal = Math.max(maxVal, other.maxVal);
+
+            if (other.sketch != null) {
+                if (sketch == null) {
+                    sketch = other.sketch.createEmpty();
+                }
+                sketch.merge(other.sketch);
+            }
         }
 
         @Override
@@ -249,6 +417,8 @@ public class StatisticsVisitor {
 
         Float noData = null;
 
+        QuantileSketch sketch = null;
+
         int count = 0;
 
         int invalidCount = 0;
@@ -259,12 +429,20 @@ public class StatisticsVisitor {
 
         float minVal = Float.MAX_VALUE;
 
-        float maxVal = Float.MIN_VALUE;
+        float maxVal = -Float.MAX_VALUE;
 
         double sumOfVals = 0.0d;
 
         double sumOfSqrs = 0.0d;
 
+        public FloatStrategy() {
+
+        }
+
+        public FloatStrategy(QuantileSketch sketch) {
+            this.sketch = sketch;
+        }
+
         @Override
         public void add(Object value) {
             if (value == null) {
@@ -291,6 +469,10 @@ public class StatisticsVisitor {
             maxVal = Math.max(maxVal, curVal);
             minVal = Math.min(minVal, curVal);
 
+            if (sketch != null) {
+                sketch.add(curVal);
+            }
+
             lastValue = value;
 
             count++;
@@ -307,6 +489,7 @@ public class StatisticsVisitor {
             sr.setMaximum(maxVal);
             sr.setSum(sumOfVals);
             sr.setNoData(noData);
+            sr.setQuantileSketch(sketch);
 
             if (count > 0) {
                 // Population Standard Deviation
@@ -321,8 +504,11 @@ public class StatisticsVisitor {
             count = invalidCount = 0;
             firstValue = lastValue = null;
             minVal = Float.MAX_VALUE;
-            maxVal = Float.MIN_VALUE;
+            maxVal = -Float.MAX_VALUE;
             sumOfVals = sumOfSqrs = 0.0d;
+            if (sketch != null) {
+                sketch.reset();
+            }
         }
 
         @Override
@@ -335,6 +521,8 @@ public class StatisticsVisitor {
 
         Long noData = null;
 
+        QuantileSketch sketch = null;
+
         int count = 0;
 
         int invalidCount = 0;
@@ -351,6 +539,14 @@ public class StatisticsVisitor {
 
         double sumOfSqrs = 0.0d;
 
+        public LongStrategy() {
+
+        }
+
+        public LongStrategy(QuantileSketch sketch) {
+            this.sketch = sketch;
+        }
+
         @Override
         public void add(Object value) {
             if (value == null) {
@@ -374,6 +570,10 @@ public class StatisticsVisitor {
             maxVal = Math.max(maxVal, curVal);
             minVal = Math.min(minVal, curVal);
 
+            if (sketch != null) {
+                sketch.add(curVal);
+            }
+
             lastValue = value;
 
             count++;
@@ -390,6 +590,7 @@ public class StatisticsVisitor {
             sr.setMaximum(maxVal);
             sr.setSum(sumOfVals);
             sr.setNoData(noData);
+            sr.setQuantileSketch(sketch);
 
             if (count > 0) {
                 // Population Standard Deviation
@@ -406,6 +607,9 @@ public class StatisticsVisitor {
             minVal = Long.MAX_VALUE;
             maxVal = Long.MIN_VALUE;
             sumOfVals = sumOfSqrs = 0.0d;
+            if (sketch != null) {
+                sketch.reset();
+            }
         }
 
         @Override
@@ -418,6 +622,8 @@ public class StatisticsVisitor {
 
         Integer noData = null;
 
+        QuantileSketch sketch = null;
+
         int count = 0;
 
         int invalidCount = 0;
@@ -434,6 +640,14 @@ public class StatisticsVisitor {
 
         double sumOfSqrs = 0.0d;
 
+        public IntegerStrategy() {
+
+        }
+
+        public IntegerStrategy(QuantileSketch sketch) {
+            this.sketch = sketch;
+        }
+
         @Override
         public void add(Object value) {
             if (value == null) {
@@ -457,6 +671,10 @@ public class StatisticsVisitor {
             maxVal = Math.max(maxVal, curVal);
             minVal = Math.min(minVal, curVal);
 
+            if (sketch != null) {
+                sketch.add(curVal);
+            }
+
             lastValue = value;
 
             count++;
@@ -473,6 +691,7 @@ public class StatisticsVisitor {
             sr.setMaximum(maxVal);
             sr.setSum(sumOfVals);
             sr.setNoData(noData);
+            sr.setQuantileSketch(sketch);
 
             if (count > 0) {
                 // Population Standard Deviation
@@ -489,6 +708,9 @@ public class StatisticsVisitor {
             minVal = Integer.MAX_VALUE;
             maxVal = Integer.MIN_VALUE;
             sumOfVals = sumOfSqrs = 0.0d;
+            if (sketch != null) {
+                sketch.reset();
+            }
         }
 
         @Override
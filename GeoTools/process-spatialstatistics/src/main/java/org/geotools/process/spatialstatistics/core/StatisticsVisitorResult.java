@@ -51,6 +51,8 @@ public class StatisticsVisitorResult {
 
     Object noData;
 
+    QuantileSketch quantileSketch;
+
     public Object getNoData() {
         return noData;
     }
@@ -59,6 +61,27 @@ public class StatisticsVisitorResult {
         this.noData = noDataValue;
     }
 
+    public QuantileSketch getQuantileSketch() {
+        return quantileSketch;
+    }
+
+    public void setQuantileSketch(QuantileSketch quantileSketch) {
+        this.quantileSketch = quantileSketch;
+    }
+
+    /**
+     * Returns the approximate percentile of the values or NaN if the statistics were calculated without a quantile sketch.
+     * 
+     * @param fraction 0.0 ~ 1.0, ex) 0.9 for the 90th percentile
+     */
+    public double getQuantile(double fraction) {
+        return quantileSketch == null ? Double.NaN : quantileSketch.getQuantile(fraction);
+    }
+
+    public double getMedian() {
+        return getQuantile(0.5);
+    }
+
     public Object getFirstValue() {
         return firstValue;
     }
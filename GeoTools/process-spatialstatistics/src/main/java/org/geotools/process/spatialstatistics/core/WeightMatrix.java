@@ -16,16 +16,36 @@
  */
 package org.geotools.process.spatialstatistics.core;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -34,7 +54,9 @@ import org.geotools.process.spatialstatistics.core.AbstractWeightMatrix.SpatialW
 import org.geotools.util.logging.Logging;
 
 /**
- * SpatialWeightMatrixResult
+ * SpatialWeightMatrixResult. <br>
+ * In dense-ID mode feature IDs are interned to int ordinals and neighbour lists are kept in primitive arrays (optionally off-heap) in compressed
+ * sparse row order instead of boxed hashtables.
  * 
  * @author Minpa Lee, MangoSystem
  * 
@@ -43,6 +65,11 @@ import org.geotools.util.logging.Logging;
 public class WeightMatrix {
     protected static final Logger LOGGER = Logging.getLogger(WeightMatrix.class);
 
+    // binary weights file: "SWMB", little endian
+    private static final int BINARY_MAGIC = 0x424D5753;
+
+    private static final int BINARY_VERSION = 1;
+
     private final String newLine = System.getProperty("line.separator");
 
     private final String space = " ";
@@ -53,13 +80,67 @@ public class WeightMatrix {
 
     private SpatialWeightMatrixType spatialWeightMatrixType = SpatialWeightMatrixType.Distance;
 
+    // parameters used to build this matrix, stored in the binary file header
+    private Map<String, String> properties = new LinkedHashMap<String, String>();
+
     // primaryID, <secondaryID, distance>
     private LinkedHashMap<Object, Hashtable<Object, Double>> items;
 
+    private boolean denseIDs = false;
+
+    private boolean offHeap = false;
+
+    // dense-ID mode: id <-> ordinal
+    private Map<Object, Integer> ordinals;
+
+    private List<Object> ids;
+
+    // dense-ID mode: pending edges (primary ordinal, secondary ordinal, distance)
+    private int pendingCount = 0;
+
+    private int[] pendingRows;
+
+    private int[] pendingCols;
+
+    private double[] pendingValues;
+
+    // dense-ID mode: compressed sparse rows
+    private int[] offsets = new int[1];
+
+    private IntBuffer neighbors = IntBuffer.allocate(0);
+
+    private DoubleBuffer distances = DoubleBuffer.allocate(0);
+
+    private int primaryCount = 0;
+
+    private volatile boolean dirty = false;
+
     public int getFeatureCount() {
+        if (denseIDs) {
+            ensureCompacted();
+            return primaryCount;
+        }
         return this.items.size();
     }
 
+    public boolean isDenseIDs() {
+        return denseIDs;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Stores the compacted neighbour arrays in direct (off-heap) buffers, for very large graphs.
+     */
+    public void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+        if (denseIDs) {
+            this.dirty = true;
+        }
+    }
+
     public String getUniqueField() {
         return uniqueField;
     }
@@ -88,7 +169,36 @@ public class WeightMatrix {
         this.spatialWeightMatrixType = spatialWeightMatrixType;
     }
 
+    public String getProperty(String key) {
+        return properties.get(key);
+    }
+
+    public void setProperty(String key, String value) {
+        properties.put(key, value);
+    }
+
+    /**
+     * Returns the neighbours as a map. In dense-ID mode the map is a copy built from the primitive arrays.
+     */
     public LinkedHashMap<Object, Hashtable<Object, Double>> getItems() {
+        if (denseIDs) {
+            ensureCompacted();
+            LinkedHashMap<Object, Hashtable<Object, Double>> copy = new LinkedHashMap<Object, Hashtable<Object, Double>>();
+            for (int ordinal = 0; ordinal < ids.size(); ordinal++) {
+                int start = offsets[ordinal];
+                int end = offsets[ordinal + 1];
+                if (start == end) {
+                    continue;
+                }
+
+                Hashtable<Object, Double> row = new Hashtable<Object, Double>();
+                for (int k = start; k < end; k++) {
+                    row.put(ids.get(neighbors.get(k)), Double.valueOf(distances.get(k)));
+                }
+                copy.put(ids.get(ordinal), row);
+            }
+            return copy;
+        }
         return items;
     }
 
@@ -97,8 +207,21 @@ public class WeightMatrix {
     }
 
     public WeightMatrix(SpatialWeightMatrixType spatialWeightMatrixType) {
+        this(spatialWeightMatrixType, false);
+    }
+
+    public WeightMatrix(SpatialWeightMatrixType spatialWeightMatrixType, boolean denseIDs) {
         this.setSpatialWeightMatrixType(spatialWeightMatrixType);
-        this.setItems(new LinkedHashMap<Object, Hashtable<Object, Double>>());
+        this.denseIDs = denseIDs;
+        if (denseIDs) {
+            this.ordinals = new HashMap<Object, Integer>();
+            this.ids = new ArrayList<Object>();
+            this.pendingRows = new int[1024];
+            this.pendingCols = new int[1024];
+            this.pendingValues = new double[1024];
+        } else {
+            this.setItems(new LinkedHashMap<Object, Hashtable<Object, Double>>());
+        }
     }
 
     public void setupVariables(String typeName, String uniqueField) {
@@ -107,14 +230,37 @@ public class WeightMatrix {
     }
 
     public void visit(Object primaryID, Object secondaryID) {
-        this.visit(primaryID, secondaryID, Double.valueOf(1.0));
+        this.visit(primaryID, secondaryID, 1.0);
     }
 
     public void visit(Object primaryID, Object secondaryID, Double distance) {
+        this.visit(primaryID, secondaryID, distance.doubleValue());
+    }
+
+    public void visit(Object primaryID, Object secondaryID, double distance) {
+        if (denseIDs) {
+            int row = intern(primaryID);
+            int col = intern(secondaryID);
+            synchronized (this) {
+                if (pendingCount == pendingRows.length) {
+                    int capacity = pendingCount * 2;
+                    pendingRows = Arrays.copyOf(pendingRows, capacity);
+                    pendingCols = Arrays.copyOf(pendingCols, capacity);
+                    pendingValues = Arrays.copyOf(pendingValues, capacity);
+                }
+                pendingRows[pendingCount] = row;
+                pendingCols[pendingCount] = col;
+                pendingValues[pendingCount] = distance;
+                pendingCount++;
+                dirty = true;
+            }
+            return;
+        }
+
         if (!items.containsKey(primaryID)) {
             items.put(primaryID, new Hashtable<Object, Double>());
         }
-        items.get(primaryID).put(secondaryID, distance);
+        items.get(primaryID).put(secondaryID, Double.valueOf(distance));
     }
 
     public boolean isNeighbor(SpatialEvent source, SpatialEvent target) {
@@ -122,12 +268,206 @@ public class WeightMatrix {
     }
 
     public boolean isNeighbor(Object primaryID, Object secondaryID) {
+        if (denseIDs) {
+            return isNeighbor(getOrdinal(primaryID), getOrdinal(secondaryID));
+        }
+
         if (items.containsKey(primaryID)) {
             return items.get(primaryID).containsKey(secondaryID);
         }
         return false;
     }
 
+    /**
+     * Returns the ordinal of the feature ID in dense-ID mode, or -1 if the ID was never visited.
+     */
+    public int getOrdinal(Object id) {
+        if (!denseIDs) {
+            return -1;
+        }
+        Integer ordinal = ordinals.get(id);
+        return ordinal == null ? -1 : ordinal.intValue();
+    }
+
+    public Object getID(int ordinal) {
+        return ids.get(ordinal);
+    }
+
+    public int getOrdinalCount() {
+        return ids.size();
+    }
+
+    public int getNeighborCount(int ordinal) {
+        ensureCompacted();
+        return offsets[ordinal + 1] - offsets[ordinal];
+    }
+
+    /**
+     * Returns the ordinal of the k-th neighbour of the given ordinal. Neighbours are sorted by ordinal.
+     */
+    public int getNeighbor(int ordinal, int k) {
+        ensureCompacted();
+        return neighbors.get(offsets[ordinal] + k);
+    }
+
+    public double getDistance(int ordinal, int k) {
+        ensureCompacted();
+        return distances.get(offsets[ordinal] + k);
+    }
+
+    public boolean isNeighbor(int primary, int secondary) {
+        if (primary < 0 || secondary < 0) {
+            return false;
+        }
+        ensureCompacted();
+        return indexOf(primary, secondary) >= 0;
+    }
+
+    public double getWeight(int primary, int secondary) {
+        return isNeighbor(primary, secondary) ? 1.0 : 0.0;
+    }
+
+    private void ensureCompacted() {
+        if (dirty) {
+            compact();
+        }
+    }
+
+    private synchronized int intern(Object id) {
+        Integer ordinal = ordinals.get(id);
+        if (ordinal == null) {
+            ordinal = Integer.valueOf(ids.size());
+            ordinals.put(id, ordinal);
+            ids.add(id);
+        }
+        return ordinal.intValue();
+    }
+
+    private int indexOf(int primary, int secondary) {
+        if (primary >= offsets.length - 1) {
+            return -1;
+        }
+
+        int low = offsets[primary];
+        int high = offsets[primary + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = neighbors.get(mid);
+            if (value < secondary) {
+                low = mid + 1;
+            } else if (value > secondary) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Merges pending edges into the compressed sparse rows. Later visits of the same pair overwrite earlier ones.
+     */
+    public synchronized void compact() {
+        if (!denseIDs || !dirty) {
+            return;
+        }
+
+        final int rowCount = ids.size();
+        final int oldCount = offsets[offsets.length - 1];
+        final int edgeCount = oldCount + pendingCount;
+
+        // all edges in visiting order: existing rows first, then pending edges
+        int[] rows = new int[edgeCount];
+        int[] cols = new int[edgeCount];
+        double[] values = new double[edgeCount];
+        for (int row = 0; row < offsets.length - 1; row++) {
+            for (int k = offsets[row]; k < offsets[row + 1]; k++) {
+                rows[k] = row;
+                cols[k] = neighbors.get(k);
+                values[k] = distances.get(k);
+            }
+        }
+        System.arraycopy(pendingRows, 0, rows, oldCount, pendingCount);
+        System.arraycopy(pendingCols, 0, cols, oldCount, pendingCount);
+        System.arraycopy(pendingValues, 0, values, oldCount, pendingCount);
+
+        // stable counting sort by row
+        int[] newOffsets = new int[rowCount + 1];
+        for (int k = 0; k < edgeCount; k++) {
+            newOffsets[rows[k] + 1]++;
+        }
+        for (int row = 0; row < rowCount; row++) {
+            newOffsets[row + 1] += newOffsets[row];
+        }
+
+        int[] cursor = Arrays.copyOf(newOffsets, rowCount);
+        int[] sortedCols = new int[edgeCount];
+        double[] sortedValues = new double[edgeCount];
+        for (int k = 0; k < edgeCount; k++) {
+            int pos = cursor[rows[k]]++;
+            sortedCols[pos] = cols[k];
+            sortedValues[pos] = values[k];
+        }
+        rows = null;
+        cols = null;
+        values = null;
+
+        // sort each row by secondary ordinal and drop duplicates, keeping the last visit
+        int[] compactOffsets = new int[rowCount + 1];
+        long[] keys = new long[16];
+        int nnz = 0;
+        primaryCount = 0;
+        for (int row = 0; row < rowCount; row++) {
+            int start = newOffsets[row];
+            int count = newOffsets[row + 1] - start;
+            compactOffsets[row] = nnz;
+            if (count == 0) {
+                continue;
+            }
+            primaryCount++;
+
+            if (keys.length < count) {
+                keys = new long[count];
+            }
+            for (int k = 0; k < count; k++) {
+                keys[k] = ((long) sortedCols[start + k] << 32) | k;
+            }
+            Arrays.sort(keys, 0, count);
+
+            double[] rowValues = Arrays.copyOfRange(sortedValues, start, start + count);
+            for (int k = 0; k < count; k++) {
+                int col = (int) (keys[k] >>> 32);
+                int seq = (int) (keys[k] & 0xFFFFFFFFL);
+                if (k + 1 < count && (int) (keys[k + 1] >>> 32) == col) {
+                    continue; // a later visit of the same pair wins
+                }
+                sortedCols[nnz] = col;
+                sortedValues[nnz] = rowValues[seq];
+                nnz++;
+            }
+        }
+        compactOffsets[rowCount] = nnz;
+
+        this.offsets = compactOffsets;
+        if (offHeap) {
+            this.neighbors = ByteBuffer.allocateDirect(nnz * 4).order(ByteOrder.nativeOrder())
+                    .asIntBuffer();
+            this.distances = ByteBuffer.allocateDirect(nnz * 8).order(ByteOrder.nativeOrder())
+                    .asDoubleBuffer();
+            this.neighbors.put(sortedCols, 0, nnz);
+            this.distances.put(sortedValues, 0, nnz);
+        } else {
+            this.neighbors = IntBuffer.wrap(Arrays.copyOf(sortedCols, nnz));
+            this.distances = DoubleBuffer.wrap(Arrays.copyOf(sortedValues, nnz));
+        }
+
+        this.pendingCount = 0;
+        this.pendingRows = new int[1024];
+        this.pendingCols = new int[1024];
+        this.pendingValues = new double[1024];
+        this.dirty = false;
+    }
+
     public double getWeight(SpatialEvent source, SpatialEvent target) {
         return getWeight(source.id, target.id);
     }
@@ -144,12 +484,343 @@ public class WeightMatrix {
         }
     }
 
+    /**
+     * Writes the matrix in the binary weights format (header + compressed sparse rows).
+     */
+    public void save(File outputFile) throws IOException {
+        WeightMatrix dense = this;
+        if (!denseIDs) {
+            dense = new WeightMatrix(spatialWeightMatrixType, true);
+            for (Entry<Object, Hashtable<Object, Double>> entry : items.entrySet()) {
+                for (Entry<Object, Double> second : entry.getValue().entrySet()) {
+                    dense.visit(entry.getKey(), second.getKey(), second.getValue().doubleValue());
+                }
+            }
+        }
+        dense.ensureCompacted();
+
+        // write to a temporary file first so that concurrent readers never see a partial file
+        File tempFile = new File(outputFile.getPath() + ".tmp");
+        FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+
+            final int rowCount = dense.ids.size();
+            final int nnz = dense.offsets[dense.offsets.length - 1];
+
+            buffer.putInt(BINARY_MAGIC);
+            buffer.putInt(BINARY_VERSION);
+            buffer.putInt(spatialWeightMatrixType.ordinal());
+            buffer.putInt(rowCount);
+            buffer.putInt(nnz);
+
+            StringBuilder sb = new StringBuilder();
+            for (Entry<String, String> entry : properties.entrySet()) {
+                sb.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+            }
+            writeString(channel, buffer, sb.toString());
+            writeString(channel, buffer, typeName == null ? "" : typeName);
+            writeString(channel, buffer, uniqueField == null ? "" : uniqueField);
+
+            for (int ordinal = 0; ordinal < rowCount; ordinal++) {
+                writeID(channel, buffer, dense.ids.get(ordinal));
+            }
+
+            // compressed sparse rows, 8 byte aligned
+            long position = channel.position() + buffer.position();
+            int padding = (int) ((8 - position % 8) % 8);
+            ensureRemaining(channel, buffer, padding);
+            for (int k = 0; k < padding; k++) {
+                buffer.put((byte) 0);
+            }
+
+            for (int ordinal = 0; ordinal < rowCount; ordinal++) {
+                ensureRemaining(channel, buffer, 4);
+                buffer.putInt(ordinal < dense.offsets.length ? dense.offsets[ordinal] : nnz);
+            }
+            ensureRemaining(channel, buffer, 4);
+            buffer.putInt(nnz);
+
+            for (int k = 0; k < nnz; k++) {
+                ensureRemaining(channel, buffer, 4);
+                buffer.putInt(dense.neighbors.get(k));
+            }
+
+            position = channel.position() + buffer.position();
+            padding = (int) ((8 - position % 8) % 8);
+            ensureRemaining(channel, buffer, padding);
+            for (int k = 0; k < padding; k++) {
+                buffer.put((byte) 0);
+            }
+
+            for (int k = 0; k < nnz; k++) {
+                ensureRemaining(channel, buffer, 8);
+                buffer.putDouble(dense.distances.get(k));
+            }
+
+            flush(channel, buffer);
+            channel.force(false);
+        } finally {
+            closeQuietly(channel);
+        }
+
+        try {
+            Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Loads a weights file written by save(). Binary files are memory-mapped and the neighbour arrays are used in place; text files (GWT/SWM-like)
+     * are parsed line by line.
+     */
     public boolean load(File swmFile, Charset charset) {
-        // TODO code here
+        if (swmFile == null || !swmFile.exists()) {
+            return false;
+        }
 
+        try {
+            if (isBinary(swmFile)) {
+                loadBinary(swmFile);
+            } else {
+                loadText(swmFile, charset);
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, e.getMessage(), e);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Invalid spatial weights file: " + swmFile.getName(), e);
+        }
         return false;
     }
 
+    private boolean isBinary(File swmFile) throws IOException {
+        if (swmFile.length() < 4) {
+            return false;
+        }
+
+        FileChannel channel = FileChannel.open(swmFile.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(buffer, 0);
+            buffer.flip();
+            return buffer.remaining() == 4 && buffer.getInt() == BINARY_MAGIC;
+        } finally {
+            closeQuietly(channel);
+        }
+    }
+
+    private void loadBinary(File swmFile) throws IOException {
+        MappedByteBuffer mapped = null;
+        FileChannel channel = FileChannel.open(swmFile.toPath(), StandardOpenOption.READ);
+        try {
+            mapped = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            closeQuietly(channel); // the mapping stays valid after the channel is closed
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (mapped.getInt() != BINARY_MAGIC) {
+            throw new IOException(swmFile.getName() + " is not a binary spatial weights file!");
+        }
+
+        int version = mapped.getInt();
+        if (version != BINARY_VERSION) {
+            throw new IOException("Unsupported spatial weights file version: " + version);
+        }
+
+        SpatialWeightMatrixType type = SpatialWeightMatrixType.values()[mapped.getInt()];
+        final int rowCount = mapped.getInt();
+        final int nnz = mapped.getInt();
+
+        Map<String, String> fileProperties = new LinkedHashMap<String, String>();
+        for (String line : readString(mapped).split("\n")) {
+            int pos = line.indexOf('=');
+            if (pos > 0) {
+                fileProperties.put(line.substring(0, pos), line.substring(pos + 1));
+            }
+        }
+        String fileTypeName = readString(mapped);
+        String fileUniqueField = readString(mapped);
+
+        Map<Object, Integer> fileOrdinals = new HashMap<Object, Integer>(rowCount * 2);
+        List<Object> fileIDs = new ArrayList<Object>(rowCount);
+        for (int ordinal = 0; ordinal < rowCount; ordinal++) {
+            Object id = readID(mapped);
+            fileOrdinals.put(id, Integer.valueOf(ordinal));
+            fileIDs.add(id);
+        }
+
+        mapped.position(mapped.position() + (8 - mapped.position() % 8) % 8);
+        int[] fileOffsets = new int[rowCount + 1];
+        mapped.asIntBuffer().get(fileOffsets);
+        mapped.position(mapped.position() + (rowCount + 1) * 4);
+
+        // zero-copy views over the mapped file
+        ByteBuffer slice = mapped.slice().order(ByteOrder.LITTLE_ENDIAN);
+        slice.limit(nnz * 4);
+        IntBuffer fileNeighbors = slice.asIntBuffer();
+        mapped.position(mapped.position() + nnz * 4);
+
+        mapped.position(mapped.position() + (8 - mapped.position() % 8) % 8);
+        slice = mapped.slice().order(ByteOrder.LITTLE_ENDIAN);
+        slice.limit(nnz * 8);
+        DoubleBuffer fileDistances = slice.asDoubleBuffer();
+
+        int fileRowCount = 0;
+        for (int ordinal = 0; ordinal < rowCount; ordinal++) {
+            if (fileOffsets[ordinal + 1] > fileOffsets[ordinal]) {
+                fileRowCount++;
+            }
+        }
+
+        synchronized (this) {
+            this.spatialWeightMatrixType = type;
+            this.properties = fileProperties;
+            this.typeName = fileTypeName;
+            this.uniqueField = fileUniqueField;
+            this.denseIDs = true;
+            this.items = null;
+            this.ordinals = fileOrdinals;
+            this.ids = fileIDs;
+            this.offsets = fileOffsets;
+            this.neighbors = fileNeighbors;
+            this.distances = fileDistances;
+            this.primaryCount = fileRowCount;
+            this.pendingCount = 0;
+            this.pendingRows = new int[1024];
+            this.pendingCols = new int[1024];
+            this.pendingValues = new double[1024];
+            this.dirty = false;
+        }
+    }
+
+    private void loadText(File swmFile, Charset charset) throws IOException {
+        BufferedReader reader = null;
+        try {
+            FileInputStream fis = new FileInputStream(swmFile);
+            reader = new BufferedReader(new InputStreamReader(fis, charset));
+
+            // header : 0 25 seoul_series sgg_cd
+            String line = reader.readLine();
+            if (line == null) {
+                return;
+            }
+
+            String[] header = line.trim().split("\\s+");
+            if (header.length > 2) {
+                this.setTypeName(header[2]);
+            }
+            if (header.length > 3) {
+                this.setUniqueField(header[3]);
+            }
+
+            while ((line = reader.readLine()) != null) {
+                String[] tokens = line.trim().split("\\s+");
+                if (tokens.length == 0 || tokens[0].isEmpty()) {
+                    continue;
+                }
+
+                if (tokens.length >= 3) {
+                    // 11545 11620 4029.25183
+                    this.spatialWeightMatrixType = SpatialWeightMatrixType.Distance;
+                    this.visit(tokens[0], tokens[1], Double.parseDouble(tokens[2]));
+                } else if (tokens.length == 2) {
+                    // 11170 7
+                    // 11440 11590 11140 11200 11650 11560 11680
+                    this.spatialWeightMatrixType = SpatialWeightMatrixType.Contiguity;
+                    int count = Integer.parseInt(tokens[1]);
+                    String neighborLine = count == 0 ? "" : reader.readLine();
+                    if (neighborLine == null) {
+                        break;
+                    }
+                    for (String secondaryID : neighborLine.trim().split("\\s+")) {
+                        if (!secondaryID.isEmpty()) {
+                            this.visit(tokens[0], secondaryID);
+                        }
+                    }
+                    if (count == 0) {
+                        reader.readLine(); // empty neighbour line
+                    }
+                }
+            }
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    private void writeString(FileChannel channel, ByteBuffer buffer, String value)
+            throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureRemaining(channel, buffer, 4);
+        buffer.putInt(bytes.length);
+
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush(channel, buffer);
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeID(FileChannel channel, ByteBuffer buffer, Object id) throws IOException {
+        ensureRemaining(channel, buffer, 9);
+        if (id instanceof Integer || id instanceof Short || id instanceof Byte) {
+            buffer.put((byte) 1);
+            buffer.putInt(((Number) id).intValue());
+        } else if (id instanceof Long) {
+            buffer.put((byte) 2);
+            buffer.putLong(((Long) id).longValue());
+        } else if (id instanceof Double || id instanceof Float) {
+            buffer.put((byte) 3);
+            buffer.putDouble(((Number) id).doubleValue());
+        } else {
+            buffer.put((byte) 0);
+            writeString(channel, buffer, id.toString());
+        }
+    }
+
+    private Object readID(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+        case 1:
+            return Integer.valueOf(buffer.getInt());
+        case 2:
+            return Long.valueOf(buffer.getLong());
+        case 3:
+            return Double.valueOf(buffer.getDouble());
+        default:
+            return readString(buffer);
+        }
+    }
+
+    private void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes)
+            throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+    }
+
+    private void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
     private void writeContiguity(File outputFile, Charset charset) throws IOException {
         BufferedWriter writer = null;
         try {
@@ -164,7 +835,7 @@ public class WeightMatrix {
             writer.write(sb.append(newLine).toString());
 
             // matrix
-            for (Entry<Object, Hashtable<Object, Double>> entry : items.entrySet()) {
+            for (Entry<Object, Hashtable<Object, Double>> entry : getItems().entrySet()) {
                 Object primaryID = entry.getKey();
                 int count = entry.getValue().size();
 
@@ -205,7 +876,7 @@ public class WeightMatrix {
             writer.write(sb.append(newLine).toString());
 
             // matrix
-            for (Entry<Object, Hashtable<Object, Double>> entry : items.entrySet()) {
+            for (Entry<Object, Hashtable<Object, Double>> entry : getItems().entrySet()) {
                 Object primaryID = entry.getKey();
                 for (Entry<Object, Double> second : entry.getValue().entrySet()) {
                     // 11545 11620 4029.25183
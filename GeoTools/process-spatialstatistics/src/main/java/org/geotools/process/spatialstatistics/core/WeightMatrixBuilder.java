@@ -16,25 +16,30 @@
  */
 package org.geotools.process.spatialstatistics.core;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.api.filter.FilterFactory;
 import org.geotools.api.filter.expression.Expression;
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.process.spatialstatistics.core.AbstractWeightMatrix.SpatialWeightMatrixType;
 import org.geotools.process.spatialstatistics.enumeration.ContiguityType;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
 import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
 import org.geotools.util.factory.GeoTools;
 import org.geotools.util.logging.Logging;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Envelope;
 
 /**
  * SpatialWeightMatrix
@@ -76,12 +81,22 @@ public class WeightMatrixBuilder {
 
     private WeightMatrix weightMatrix;
 
+    private SparseWeightMatrix sparseWeights;
+
+    private double[] rowSums;
+
     private StandardizationMethod standardizationMethod = StandardizationMethod.None;
 
     private boolean selfNeighbors = false;
 
     private DistanceFactory factory = DistanceFactory.newInstance();
 
+    private File spatialWeightsFile = null;
+
+    private FeatureSnapshot featureSnapshot = null;
+
+    private boolean loadedFromFile = false;
+
     public WeightMatrixBuilder() {
 
     }
@@ -128,6 +143,49 @@ public class WeightMatrixBuilder {
         return weightMatrix;
     }
 
+    public File getSpatialWeightsFile() {
+        return spatialWeightsFile;
+    }
+
+    /**
+     * Binary spatial weights file used as a cache: it is loaded (memory-mapped) if it was built with the same parameters, otherwise the weights
+     * are rebuilt and saved to it. With SpatialConcept.WeightsFromFile the file is always used as is.
+     */
+    public void setSpatialWeightsFile(File spatialWeightsFile) {
+        this.spatialWeightsFile = spatialWeightsFile;
+    }
+
+    /**
+     * Returns true if the last built weights were loaded from the spatial weights file instead of being rebuilt.
+     */
+    public boolean isLoadedFromFile() {
+        return loadedFromFile;
+    }
+
+    public FeatureSnapshot getFeatureSnapshot() {
+        return featureSnapshot;
+    }
+
+    /**
+     * Columnar snapshot of the input features. If it was loaded from the same feature collection with the FID and holds the value columns, the
+     * centroids and values are taken from it instead of reading the features again. After building, the snapshot actually used is available here.
+     */
+    public void setFeatureSnapshot(FeatureSnapshot featureSnapshot) {
+        this.featureSnapshot = featureSnapshot;
+    }
+
+    /**
+     * Returns the CSR weights, or null if the spatial concept gives every pair of features a weight (InverseDistance, InverseDistanceSquared,
+     * ZoneOfIndifference).
+     */
+    public SparseWeightMatrix getSparseWeights() {
+        return sparseWeights;
+    }
+
+    public boolean isSparse() {
+        return sparseWeights != null;
+    }
+
     public double getMeanX() {
         return this.sumX / this.getEvents().size();
     }
@@ -163,11 +221,117 @@ public class WeightMatrixBuilder {
 
     public WeightMatrix buildWeightMatrix(SimpleFeatureCollection inputFeatures, Expression xField,
             Expression yField) {
-        this.events = loadEvents(inputFeatures, xField, yField);
+        FeatureSnapshot snapshot = featureSnapshot;
+        if (!isReusable(snapshot, inputFeatures, xField, yField)) {
+            snapshot = loadSnapshot(inputFeatures, xField, yField);
+        }
+        this.featureSnapshot = snapshot;
+        this.events = loadEvents(snapshot, xField, yField);
+
+        final double requestedBandWidth = distanceBandWidth;
+
+        weightMatrix = null;
+        if (spatialWeightsFile != null) {
+            weightMatrix = loadWeightMatrix(inputFeatures, requestedBandWidth);
+        }
+        this.loadedFromFile = weightMatrix != null;
+
+        if (weightMatrix == null) {
+            if (spatialConcept == SpatialConcept.WeightsFromFile) {
+                LOGGER.log(Level.WARNING, "Spatial weights file does not exist: " + spatialWeightsFile);
+                weightMatrix = new WeightMatrix(SpatialWeightMatrixType.Contiguity, true);
+            } else {
+                weightMatrix = buildNeighbors(inputFeatures, snapshot);
+                if (spatialWeightsFile != null) {
+                    saveWeightMatrix(inputFeatures, requestedBandWidth);
+                }
+            }
+        }
+
+        this.rowSums = null;
+        this.sparseWeights = null;
+        if (isContiguity || spatialConcept == SpatialConcept.FixedDistance
+                || spatialConcept == SpatialConcept.KNearestNeighbors
+                || spatialConcept == SpatialConcept.WeightsFromFile) {
+            this.sparseWeights = buildSparseWeights();
+        }
+
+        if (standardizationMethod == StandardizationMethod.Row) {
+            calculateRowSum();
+        }
+
+        return weightMatrix;
+    }
 
+    private WeightMatrix loadWeightMatrix(SimpleFeatureCollection inputFeatures,
+            double requestedBandWidth) {
+        WeightMatrix matrix = new WeightMatrix(SpatialWeightMatrixType.Distance, true);
+        if (!matrix.load(spatialWeightsFile, StandardCharsets.UTF_8)) {
+            return null;
+        }
+
+        if (spatialConcept == SpatialConcept.WeightsFromFile) {
+            return matrix;
+        }
+
+        // reuse only if the weights were built from the same features with the same parameters
+        String typeName = inputFeatures.getSchema().getTypeName();
+        if (!typeName.equals(matrix.getTypeName())
+                || !spatialConcept.name().equals(matrix.getProperty("spatialConcept"))
+                || !getDistanceMethod().name().equals(matrix.getProperty("distanceMethod"))
+                || !String.valueOf(selfNeighbors).equals(matrix.getProperty("selfNeighbors"))
+                || !String.valueOf(requestedBandWidth).equals(matrix.getProperty("distanceBand"))
+                || !String.valueOf(events.size()).equals(matrix.getProperty("featureCount"))
+                || !getDataSignature(featureSnapshot).equals(matrix.getProperty("dataSignature"))
+                || matrix.getProperty("threshold") == null) {
+            LOGGER.log(Level.FINE, "Spatial weights file is outdated: " + spatialWeightsFile);
+            return null;
+        }
+
+        distanceBandWidth = Double.parseDouble(matrix.getProperty("threshold"));
+        return matrix;
+    }
+
+    private void saveWeightMatrix(SimpleFeatureCollection inputFeatures, double requestedBandWidth) {
+        weightMatrix.setTypeName(inputFeatures.getSchema().getTypeName());
+        weightMatrix.setProperty("spatialConcept", spatialConcept.name());
+        weightMatrix.setProperty("distanceMethod", getDistanceMethod().name());
+        weightMatrix.setProperty("selfNeighbors", String.valueOf(selfNeighbors));
+        weightMatrix.setProperty("distanceBand", String.valueOf(requestedBandWidth));
+        weightMatrix.setProperty("threshold", String.valueOf(distanceBandWidth));
+        weightMatrix.setProperty("featureCount", String.valueOf(events.size()));
+        weightMatrix.setProperty("dataSignature", getDataSignature(featureSnapshot));
+        try {
+            weightMatrix.save(spatialWeightsFile);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Hash of the feature IDs and envelopes, changes when a feature is added, removed, reordered or its geometry is edited.
+     */
+    private String getDataSignature(FeatureSnapshot snapshot) {
+        long hash = 1;
+        for (int i = 0; i < snapshot.size(); i++) {
+            hash = 31 * hash + String.valueOf(snapshot.getID(i)).hashCode();
+            Envelope envelope = snapshot.getEnvelope(i);
+            hash = 31 * hash + Double.doubleToLongBits(envelope.getMinX());
+            hash = 31 * hash + Double.doubleToLongBits(envelope.getMinY());
+            hash = 31 * hash + Double.doubleToLongBits(envelope.getMaxX());
+            hash = 31 * hash + Double.doubleToLongBits(envelope.getMaxY());
+        }
+        return Long.toHexString(hash);
+    }
+
+    private WeightMatrix buildNeighbors(SimpleFeatureCollection inputFeatures,
+            FeatureSnapshot snapshot) {
+        WeightMatrix matrix = null;
         if (isContiguity) {
+            // contiguity needs the geometries themselves
             WeightMatrixContiguity contiguity = new WeightMatrixContiguity();
             contiguity.setSelfNeighbors(isSelfNeighbors());
+            contiguity.setDenseIDs(true);
             if (spatialConcept == SpatialConcept.ContiguityEdgesNodes) {
                 contiguity.setContiguityType(ContiguityType.Queen);
             } else if (spatialConcept == SpatialConcept.ContiguityEdgesOnly) {
@@ -175,15 +339,16 @@ public class WeightMatrixBuilder {
             } else if (spatialConcept == SpatialConcept.ContiguityNodesOnly) {
                 contiguity.setContiguityType(ContiguityType.Bishops);
             }
-            weightMatrix = contiguity.execute(inputFeatures, null);
+            matrix = contiguity.execute(inputFeatures, null);
         } else {
             if (spatialConcept == SpatialConcept.KNearestNeighbors) {
                 WeightMatrixKNearestNeighbors swmKnearest = new WeightMatrixKNearestNeighbors();
                 swmKnearest.setSelfNeighbors(isSelfNeighbors());
-                weightMatrix = swmKnearest.execute(inputFeatures, null);
+                swmKnearest.setDenseIDs(true);
+                matrix = swmKnearest.execute(snapshot);
             } else {
                 if (distanceBandWidth == 0) {
-                    distanceBandWidth = factory.getThresholDistance(inputFeatures);
+                    distanceBandWidth = factory.getThresholDistance(snapshot);
                 }
 
                 WeightMatrixDistance wmsDist = new WeightMatrixDistance();
@@ -192,15 +357,59 @@ public class WeightMatrixBuilder {
                 wmsDist.setStandardizationMethod(standardizationMethod);
                 wmsDist.setSelfNeighbors(isSelfNeighbors());
                 wmsDist.setThresholdDistance(distanceBandWidth);
-                weightMatrix = wmsDist.execute(inputFeatures, null);
+                wmsDist.setDenseIDs(true);
+                matrix = wmsDist.execute(snapshot);
             }
         }
+        return matrix;
+    }
 
-        if (standardizationMethod == StandardizationMethod.Row) {
-            calculateRowSum();
+    /**
+     * Fills the row buffer with the neighbours of the i-th event and their (standardized) weights, in ascending index order. Zero weights are
+     * skipped.
+     */
+    public WeightRow getRow(int i, WeightRow row) {
+        if (sparseWeights != null) {
+            return sparseWeights.getRow(i, row);
         }
 
-        return weightMatrix;
+        final int featureCount = events.size();
+        row.ensureCapacity(featureCount);
+        row.size = 0;
+
+        SpatialEvent source = events.get(i);
+        for (int j = 0; j < featureCount; j++) {
+            if (!selfNeighbors && i == j) {
+                continue;
+            }
+
+            double wij = getWeight(source, events.get(j));
+            if (standardizationMethod == StandardizationMethod.Row) {
+                wij = rowSums[i] == 0 ? 0.0 : wij / rowSums[i];
+            }
+
+            if (wij == 0) {
+                continue;
+            }
+
+            row.indices[row.size] = j;
+            row.weights[row.size] = wij;
+            row.size++;
+        }
+
+        return row;
+    }
+
+    /**
+     * Returns the sum of the raw (not standardized) weights of the i-th event.
+     */
+    public double getRowSum(int i) {
+        if (sparseWeights != null) {
+            return sparseWeights.getRowSum(i);
+        } else if (rowSums != null) {
+            return rowSums[i];
+        }
+        return getRowSum(events.get(i));
     }
 
     public double getWeight(SpatialEvent source, SpatialEvent target) {
@@ -218,7 +427,8 @@ public class WeightMatrixBuilder {
                 weight = dist <= distanceBandWidth ? 1.0 : 0.0;
             } else if (spatialConcept == SpatialConcept.ZoneOfIndifference) {
                 weight = dist > distanceBandWidth ? 1.0 / ((dist - distanceBandWidth) + 1) : 1.0;
-            } else if (spatialConcept == SpatialConcept.KNearestNeighbors) {
+            } else if (spatialConcept == SpatialConcept.KNearestNeighbors
+                    || spatialConcept == SpatialConcept.WeightsFromFile) {
                 weight = weightMatrix.isNeighbor(source.id, target.id) ? 1.0 : 0.0;
             }
         }
@@ -236,11 +446,99 @@ public class WeightMatrixBuilder {
 
     private void calculateRowSum() {
         this.rowSum.clear();
-        for (SpatialEvent current : events) {
-            this.rowSum.put(current.id, getRowSum(current));
+        if (sparseWeights == null) {
+            this.rowSums = new double[events.size()];
+        }
+
+        for (int i = 0; i < events.size(); i++) {
+            SpatialEvent current = events.get(i);
+            if (sparseWeights == null) {
+                this.rowSums[i] = getRowSum(current);
+            }
+            this.rowSum.put(current.id, getRowSum(i));
         }
     }
 
+    private SparseWeightMatrix buildSparseWeights() {
+        final int featureCount = events.size();
+
+        Map<Object, Integer> indexMap = new HashMap<Object, Integer>(featureCount * 2);
+        for (int i = 0; i < featureCount; i++) {
+            indexMap.put(events.get(i).id, Integer.valueOf(i));
+        }
+
+        // weight matrix ordinal -> event index
+        int[] eventIndex = new int[weightMatrix.getOrdinalCount()];
+        for (int ordinal = 0; ordinal < eventIndex.length; ordinal++) {
+            Integer index = indexMap.get(weightMatrix.getID(ordinal));
+            eventIndex[ordinal] = index == null ? -1 : index.intValue();
+        }
+
+        int[] offsets = new int[featureCount + 1];
+        int[] indices = new int[Math.max(16, featureCount * 4)];
+        double[] weights = new double[indices.length];
+        double[] sums = new double[featureCount];
+        int[] candidates = new int[16];
+
+        int nnz = 0;
+        for (int i = 0; i < featureCount; i++) {
+            SpatialEvent source = events.get(i);
+            offsets[i] = nnz;
+
+            int ordinal = weightMatrix.getOrdinal(source.id);
+            if (ordinal < 0) {
+                continue;
+            }
+
+            // collect candidate indices in ascending order
+            int count = 0;
+            int neighborCount = weightMatrix.getNeighborCount(ordinal);
+            if (candidates.length < neighborCount) {
+                candidates = new int[neighborCount];
+            }
+            for (int k = 0; k < neighborCount; k++) {
+                int j = eventIndex[weightMatrix.getNeighbor(ordinal, k)];
+                if (j < 0 || (!selfNeighbors && j == i)) {
+                    continue;
+                }
+                candidates[count++] = j;
+            }
+            Arrays.sort(candidates, 0, count);
+
+            if (indices.length < nnz + count) {
+                int capacity = Math.max(indices.length * 2, nnz + count);
+                indices = Arrays.copyOf(indices, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+
+            for (int k = 0; k < count; k++) {
+                int j = candidates[k];
+                double wij = getWeight(source, events.get(j));
+                if (wij == 0) {
+                    continue;
+                }
+
+                indices[nnz] = j;
+                weights[nnz] = wij;
+                sums[i] += wij;
+                nnz++;
+            }
+        }
+        offsets[featureCount] = nnz;
+
+        // row standardization is applied once
+        if (standardizationMethod == StandardizationMethod.Row) {
+            for (int i = 0; i < featureCount; i++) {
+                for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                    weights[k] = sums[i] == 0 ? 0.0 : weights[k] / sums[i];
+                }
+            }
+        }
+
+        return new SparseWeightMatrix(offsets, Arrays.copyOf(indices, nnz),
+                Arrays.copyOf(weights, nnz), sums);
+    }
+
     private double getRowSum(SpatialEvent source) {
         double rowSum = 0.0;
         for (SpatialEvent current : events) {
@@ -252,49 +550,51 @@ public class WeightMatrixBuilder {
         return rowSum;
     }
 
-    private double getValue(SimpleFeature feature, Expression expression) {
-        Double value = expression.evaluate(feature, Double.class);
-        if (value == null) {
-            return Double.valueOf(1.0);
+    private boolean isReusable(FeatureSnapshot snapshot, SimpleFeatureCollection features,
+            Expression xField, Expression yField) {
+        if (snapshot == null || snapshot.getUniqueField() != null) {
+            return false;
+        }
+
+        // a filtered or edited collection is another instance
+        return snapshot.isLoadedFrom(features) && snapshot.hasColumn(xField)
+                && snapshot.hasColumn(yField);
+    }
+
+    private FeatureSnapshot loadSnapshot(SimpleFeatureCollection features, Expression xField,
+            Expression yField) {
+        List<Expression> expressions = new ArrayList<Expression>();
+        if (xField != null) {
+            expressions.add(xField);
+        }
+        if (yField != null) {
+            expressions.add(yField);
         }
-        return value;
+        return FeatureSnapshot.load(features, null,
+                expressions.toArray(new Expression[expressions.size()]));
     }
 
-    private List<SpatialEvent> loadEvents(SimpleFeatureCollection features, Expression xField,
+    private List<SpatialEvent> loadEvents(FeatureSnapshot snapshot, Expression xField,
             Expression yField) {
-        List<SpatialEvent> eventList = new ArrayList<SpatialEvent>();
+        List<SpatialEvent> eventList = snapshot.toEvents(xField, yField, 1.0);
 
         this.sumX = this.sumX2 = this.sumX3 = this.sumX4 = 0.0;
         this.sumY = this.sumY2 = this.sumY3 = this.sumY4 = 0.0;
 
-        SimpleFeatureIterator featureIter = features.features();
-        try {
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                Coordinate coordinate = geometry.getCentroid().getCoordinate();
-
-                SpatialEvent event = new SpatialEvent(feature.getID(), coordinate);
-                event.xVal = getValue(feature, xField);
-
+        for (SpatialEvent event : eventList) {
+            if (xField != null) {
                 sumX += event.xVal;
                 sumX2 += Math.pow(event.xVal, 2.0);
                 sumX3 += Math.pow(event.xVal, 3.0);
                 sumX4 += Math.pow(event.xVal, 4.0);
+            }
 
-                if (yField != null) {
-                    event.yVal = getValue(feature, yField);
-
-                    sumY += event.yVal;
-                    sumY2 += Math.pow(event.yVal, 2.0);
-                    sumY3 += Math.pow(event.yVal, 3.0);
-                    sumY4 += Math.pow(event.yVal, 4.0);
-                }
-
-                eventList.add(event);
+            if (yField != null) {
+                sumY += event.yVal;
+                sumY2 += Math.pow(event.yVal, 2.0);
+                sumY3 += Math.pow(event.yVal, 3.0);
+                sumY4 += Math.pow(event.yVal, 4.0);
             }
-        } finally {
-            featureIter.close();
         }
 
         return eventList;
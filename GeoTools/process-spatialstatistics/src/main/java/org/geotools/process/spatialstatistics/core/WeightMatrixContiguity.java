@@ -92,7 +92,7 @@ public class WeightMatrixContiguity extends AbstractWeightMatrix {
     // Polygon Contiguity (Edges and Corners)—A queen weights matrix defines a location's
     // neighbors as those with either a shared border or vertex
     private WeightMatrix queen(SimpleFeatureCollection features, String uniqueField) {
-        WeightMatrix matrix = new WeightMatrix(SpatialWeightMatrixType.Contiguity);
+        WeightMatrix matrix = createWeightMatrix(SpatialWeightMatrixType.Contiguity);
         matrix.setupVariables(features.getSchema().getTypeName(), uniqueField);
 
         final String the_geom = features.getSchema().getGeometryDescriptor().getLocalName();
@@ -131,7 +131,7 @@ public class WeightMatrixContiguity extends AbstractWeightMatrix {
     // Polygon Contiguity (Edges Only)—A rook weights matrix defines a location's neighbors as
     // those areas with shared borders
     private WeightMatrix rook(SimpleFeatureCollection features, String uniqueField) {
-        WeightMatrix matrix = new WeightMatrix(SpatialWeightMatrixType.Contiguity);
+        WeightMatrix matrix = createWeightMatrix(SpatialWeightMatrixType.Contiguity);
         matrix.setupVariables(features.getSchema().getTypeName(), uniqueField);
 
         uniqueField = FeatureTypes.validateProperty(features.getSchema(), uniqueField);
@@ -176,7 +176,7 @@ public class WeightMatrixContiguity extends AbstractWeightMatrix {
     // Polygon Contiguity (Corners Only)—A rook weights matrix defines a location's neighbors as
     // those areas with shared vertex
     private WeightMatrix bishops(SimpleFeatureCollection features, String uniqueField) {
-        WeightMatrix matrix = new WeightMatrix(SpatialWeightMatrixType.Contiguity);
+        WeightMatrix matrix = createWeightMatrix(SpatialWeightMatrixType.Contiguity);
         matrix.setupVariables(features.getSchema().getTypeName(), uniqueField);
 
         uniqueField = FeatureTypes.validateProperty(features.getSchema(), uniqueField);
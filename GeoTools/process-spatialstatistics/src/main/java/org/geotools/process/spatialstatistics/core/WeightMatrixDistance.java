@@ -16,18 +16,13 @@
  */
 package org.geotools.process.spatialstatistics.core;
 
-import java.util.Iterator;
 import java.util.logging.Logger;
 
-import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
 import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
 import org.geotools.util.logging.Logging;
-import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
-import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.index.strtree.STRtree;
 
 /**
@@ -49,8 +44,6 @@ public class WeightMatrixDistance extends AbstractWeightMatrix {
     @SuppressWarnings("unused")
     private double exponent = 1.0; // 1 or 2
 
-    private STRtree spatialIndex;
-
     public WeightMatrixDistance() {
 
     }
@@ -85,59 +78,46 @@ public class WeightMatrixDistance extends AbstractWeightMatrix {
         uniqueField = FeatureTypes.validateProperty(features.getSchema(), uniqueField);
         this.uniqueFieldIsFID = uniqueField == null || uniqueField.isEmpty();
 
-        WeightMatrix matrix = new WeightMatrix(SpatialWeightMatrixType.Distance);
-        matrix.setupVariables(features.getSchema().getTypeName(), uniqueField);
+        return execute(FeatureSnapshot.load(features, uniqueFieldIsFID ? null : uniqueField));
+    }
 
-        // 1. extract centroid and build spatial index
-        this.buildSpatialIndex(features, uniqueField);
+    /**
+     * Builds the weights from the centroids of the snapshot, without reading the features again.
+     */
+    public WeightMatrix execute(FeatureSnapshot snapshot) {
+        WeightMatrix matrix = createWeightMatrix(SpatialWeightMatrixType.Distance);
+        matrix.setupVariables(snapshot.getTypeName(), snapshot.getUniqueField());
 
-        SimpleFeatureIterator featureIter = features.features();
-        try {
-            Envelope queryEnv = new Envelope();
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                Coordinate coordinate = geometry.getCentroid().getCoordinate();
-                Object primaryID = getFeatureID(feature, uniqueField);
+        // 1. build spatial index of the centroids
+        STRtree spatialIndex = snapshot.createCentroidIndex();
 
-                queryEnv.init(coordinate);
-                queryEnv.expandBy(thresholdDistance);
+        Envelope queryEnv = new Envelope();
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.isEmpty(i)) {
+                continue;
+            }
 
-                for (@SuppressWarnings("unchecked")
-                Iterator<SpatialEvent> iter = (Iterator<SpatialEvent>) spatialIndex.query(queryEnv)
-                        .iterator(); iter.hasNext();) {
-                    SpatialEvent sample = iter.next();
+            final double x = snapshot.getX(i);
+            final double y = snapshot.getY(i);
+            Object primaryID = snapshot.getID(i);
 
-                    double distance = coordinate.distance(sample.coordinate);
-                    if (!this.isSelfNeighbors()
-                            && (primaryID.equals(sample.id) || distance > thresholdDistance)) {
-                        continue;
-                    }
+            queryEnv.init(x, x, y, y);
+            queryEnv.expandBy(thresholdDistance);
 
-                    matrix.visit(primaryID, sample.id, distance);
+            for (Object item : spatialIndex.query(queryEnv)) {
+                int j = ((Integer) item).intValue();
+
+                double dx = snapshot.getX(j) - x;
+                double dy = snapshot.getY(j) - y;
+                double distance = Math.sqrt((dx * dx) + (dy * dy));
+                if (!this.isSelfNeighbors() && (i == j || distance > thresholdDistance)) {
+                    continue;
                 }
+
+                matrix.visit(primaryID, snapshot.getID(j), distance);
             }
-        } finally {
-            featureIter.close();
         }
 
         return matrix;
     }
-
-    private void buildSpatialIndex(SimpleFeatureCollection features, String uniqueField) {
-        spatialIndex = new STRtree();
-        SimpleFeatureIterator featureIter = features.features();
-        try {
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                Coordinate centroid = geometry.getCentroid().getCoordinate();
-                Object primaryID = getFeatureID(feature, uniqueField);
-
-                spatialIndex.insert(new Envelope(centroid), new SpatialEvent(primaryID, centroid));
-            }
-        } finally {
-            featureIter.close();
-        }
-    }
 }
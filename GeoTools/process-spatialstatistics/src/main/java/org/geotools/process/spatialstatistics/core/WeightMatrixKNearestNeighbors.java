@@ -19,13 +19,9 @@ package org.geotools.process.spatialstatistics.core;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.util.logging.Logging;
-import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
-import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.index.strtree.ItemBoundable;
 import org.locationtech.jts.index.strtree.ItemDistance;
 import org.locationtech.jts.index.strtree.STRtree;
@@ -45,10 +41,6 @@ public class WeightMatrixKNearestNeighbors extends AbstractWeightMatrix {
     // default number of neighbors = 8, maximum = 24
     private int numberOfNeighbors = 8;
 
-    private STRtree spatialIndex;
-
-    private int featureCount = 0;
-
     public WeightMatrixKNearestNeighbors() {
 
     }
@@ -70,98 +62,76 @@ public class WeightMatrixKNearestNeighbors extends AbstractWeightMatrix {
         uniqueField = FeatureTypes.validateProperty(features.getSchema(), uniqueField);
         this.uniqueFieldIsFID = uniqueField == null || uniqueField.isEmpty();
 
-        WeightMatrix matrix = new WeightMatrix(SpatialWeightMatrixType.Distance);
-        matrix.setupVariables(features.getSchema().getTypeName(), uniqueField);
+        return execute(FeatureSnapshot.load(features, uniqueFieldIsFID ? null : uniqueField));
+    }
 
-        // 1. extract centroid and build spatial index
-        this.buildSpatialIndex(features, uniqueField);
+    /**
+     * Builds the weights from the centroids of the snapshot, without reading the features again.
+     */
+    public WeightMatrix execute(final FeatureSnapshot snapshot) {
+        WeightMatrix matrix = createWeightMatrix(SpatialWeightMatrixType.Distance);
+        matrix.setupVariables(snapshot.getTypeName(), snapshot.getUniqueField());
 
+        final int featureCount = snapshot.size();
         if (numberOfNeighbors >= featureCount) {
-            insertAll(matrix, features, uniqueField);
-        } else {
-            SimpleFeatureIterator featureIter = features.features();
-            try {
-                while (featureIter.hasNext()) {
-                    SimpleFeature feature = featureIter.next();
-                    Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                    Coordinate coordinate = geometry.getCentroid().getCoordinate();
-                    Object primaryID = getFeatureID(feature, uniqueField);
-
-                    SpatialEvent soruce = new SpatialEvent(primaryID, coordinate);
-                    Object[] knns = spatialIndex.nearestNeighbour(new Envelope(coordinate), soruce,
-                            new ItemDistance() {
-                                @Override
-                                public double distance(ItemBoundable item1, ItemBoundable item2) {
-                                    SpatialEvent s1 = (SpatialEvent) item1.getItem();
-                                    SpatialEvent s2 = (SpatialEvent) item2.getItem();
-                                    if (!isSelfNeighbors() && s1.id.equals(s2.id)) {
-                                        return Double.MAX_VALUE;
-                                    }
-                                    return s1.distance(s2);
-                                }
-                            }, numberOfNeighbors);
-
-                    // build weight matrix
-                    for (Object object : knns) {
-                        SpatialEvent current = (SpatialEvent) object;
-                        matrix.visit(primaryID, current.id, soruce.distance(current));
-                    }
+            insertAll(matrix, snapshot);
+            return matrix;
+        }
+
+        // 1. build spatial index of the centroids
+        STRtree spatialIndex = snapshot.createCentroidIndex();
+
+        ItemDistance itemDistance = new ItemDistance() {
+            @Override
+            public double distance(ItemBoundable item1, ItemBoundable item2) {
+                int i = ((Integer) item1.getItem()).intValue();
+                int j = ((Integer) item2.getItem()).intValue();
+                if (!isSelfNeighbors() && i == j) {
+                    return Double.MAX_VALUE;
                 }
-            } finally {
-                featureIter.close();
+                return getDistance(snapshot, i, j);
+            }
+        };
+
+        for (int i = 0; i < featureCount; i++) {
+            if (snapshot.isEmpty(i)) {
+                continue;
+            }
+
+            Envelope envelope = new Envelope(snapshot.getCentroid(i));
+            Object[] knns = spatialIndex.nearestNeighbour(envelope, Integer.valueOf(i),
+                    itemDistance, numberOfNeighbors);
+
+            // build weight matrix
+            Object primaryID = snapshot.getID(i);
+            for (Object object : knns) {
+                int j = ((Integer) object).intValue();
+                matrix.visit(primaryID, snapshot.getID(j), getDistance(snapshot, i, j));
             }
         }
 
         return matrix;
     }
 
-    private void insertAll(WeightMatrix matrix, SimpleFeatureCollection features, String uniqueField) {
-        SimpleFeatureIterator featureIter = features.features();
-        try {
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-                Object primaryID = getFeatureID(feature, uniqueField);
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                Coordinate coordinate = geometry.getCentroid().getCoordinate();
-
-                SimpleFeatureIterator subIter = features.features();
-                try {
-                    while (subIter.hasNext()) {
-                        SimpleFeature secondaryFeature = subIter.next();
-                        Object secondaryID = getFeatureID(secondaryFeature, uniqueField);
-                        if (!this.isSelfNeighbors() && primaryID.equals(secondaryID)) {
-                            continue;
-                        }
-
-                        Geometry secGeom = (Geometry) secondaryFeature.getDefaultGeometry();
-                        Coordinate secCoord = secGeom.getCentroid().getCoordinate();
-                        matrix.visit(primaryID, secondaryID, coordinate.distance(secCoord));
-                    }
-                } finally {
-                    subIter.close();
+    private void insertAll(WeightMatrix matrix, FeatureSnapshot snapshot) {
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.isEmpty(i)) {
+                continue;
+            }
+
+            Object primaryID = snapshot.getID(i);
+            for (int j = 0; j < snapshot.size(); j++) {
+                if (snapshot.isEmpty(j) || (!this.isSelfNeighbors() && i == j)) {
+                    continue;
                 }
+                matrix.visit(primaryID, snapshot.getID(j), getDistance(snapshot, i, j));
             }
-        } finally {
-            featureIter.close();
         }
-
     }
 
-    private void buildSpatialIndex(SimpleFeatureCollection features, String uniqueField) {
-        spatialIndex = new STRtree();
-        SimpleFeatureIterator featureIter = features.features();
-        try {
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                Coordinate centroid = geometry.getCentroid().getCoordinate();
-                Object primaryID = getFeatureID(feature, uniqueField);
-
-                spatialIndex.insert(new Envelope(centroid), new SpatialEvent(primaryID, centroid));
-                featureCount++;
-            }
-        } finally {
-            featureIter.close();
-        }
+    private double getDistance(FeatureSnapshot snapshot, int i, int j) {
+        double dx = snapshot.getX(j) - snapshot.getX(i);
+        double dy = snapshot.getY(j) - snapshot.getY(i);
+        return Math.sqrt((dx * dx) + (dy * dy));
     }
 }
@@ -0,0 +1,49 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.core;
+
+/**
+ * WeightRow - reusable buffer holding the neighbour indices and weights of a single feature.
+ *
+ * @author Minpa Lee, MangoSystem
+ *
+ * @source $URL$
+ */
+public class WeightRow {
+
+    public int size = 0;
+
+    public int[] indices;
+
+    public double[] weights;
+
+    public WeightRow() {
+        this(16);
+    }
+
+    public WeightRow(int capacity) {
+        this.indices = new int[capacity];
+        this.weights = new double[capacity];
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (indices.length < capacity) {
+            this.indices = new int[capacity];
+            this.weights = new double[capacity];
+        }
+    }
+}
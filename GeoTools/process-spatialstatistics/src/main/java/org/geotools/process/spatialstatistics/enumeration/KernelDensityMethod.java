@@ -0,0 +1,42 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.enumeration;
+
+/**
+ * KernelDensityMethod
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public enum KernelDensityMethod {
+    /**
+     * Chooses Direct or FFT from the number of points and the size of the kernel.
+     */
+    Auto,
+
+    /**
+     * Adds the kernel of each point to the output raster. The cost is proportional to points x kernel cells.
+     */
+    Direct,
+
+    /**
+     * Bins the points onto the grid and convolves the bins with the kernel by fast fourier transform, block by block. The cost does not depend on the
+     * number of points.
+     */
+    FFT
+}
@@ -0,0 +1,61 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.enumeration;
+
+/**
+ * Terrain derivatives of a raster surface
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public enum TerrainType {
+    /**
+     * The slope (gradient, or rate of maximum change in z-value) of each cell.
+     */
+    Slope,
+
+    /**
+     * The aspect (downslope direction of the maximum rate of change) of each cell.
+     */
+    Aspect,
+
+    /**
+     * The shaded relief considering the illumination source angle.
+     */
+    Hillshade,
+
+    /**
+     * The curvature (second derivative) of the surface.
+     */
+    Curvature,
+
+    /**
+     * Topographic Position Index, the difference between the central cell and the mean of the surrounding cells.
+     */
+    TPI,
+
+    /**
+     * Terrain Ruggedness Index, the average difference in height between the central cell and the surrounding cells.
+     */
+    TRI,
+
+    /**
+     * Roughness, the largest difference between any two cells of the 3 x 3 window.
+     */
+    Roughness
+}
@@ -58,5 +58,25 @@ public enum ZonalStatisticsType {
     /**
      * Finds the standard deviation on values of all cells in the value raster that belong to the same zone as the output cell.
      */
-    StdDev
+    StdDev,
+
+    /**
+     * Finds the value that occurs most often of all cells in the value raster that belong to the same zone as the output cell.
+     */
+    Majority,
+
+    /**
+     * Finds the approximate 10th percentile of all cells in the value raster that belong to the same zone as the output cell.
+     */
+    P10,
+
+    /**
+     * Finds the approximate median of all cells in the value raster that belong to the same zone as the output cell.
+     */
+    P50,
+
+    /**
+     * Finds the approximate 90th percentile of all cells in the value raster that belong to the same zone as the output cell.
+     */
+    P90
 }
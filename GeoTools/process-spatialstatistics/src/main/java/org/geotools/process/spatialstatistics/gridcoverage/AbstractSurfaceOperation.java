@@ -19,6 +19,7 @@ package org.geotools.process.spatialstatistics.gridcoverage;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.image.Raster;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 import javax.media.jai.PlanarImage;
@@ -27,7 +28,9 @@ import org.geotools.coverage.grid.GridCoordinates2D;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridGeometry2D;
 import org.geotools.process.spatialstatistics.core.SSUtils;
+import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
+import org.jaitools.tiledimage.DiskMemImage;
 
 /**
  * Abstract Surface Operation
@@ -125,4 +128,227 @@ public abstract class AbstractSurfaceOperation extends RasterProcessingOperation
 
         return mx;
     }
-}
\ No newline at end of file
+
+    /**
+     * 3 x 3 surface kernel. Implementations must be thread safe.
+     */
+    protected interface SurfaceKernel {
+        /**
+         * Calculates the value of the center cell.
+         * 
+         * <pre>
+         * +-------+ +-------+
+         * | 0 1 2 | | a b c |
+         * | 3 4 5 |>| d e f |
+         * | 6 7 8 | | g h i |
+         * +-------+ +-------+
+         * </pre>
+         * 
+         * @param z the 3 x 3 window in row-major order, NoData neighbours already replaced by the center cell
+         * @return the output value or noData
+         */
+        double evaluate(double[] z);
+    }
+
+    /**
+     * Output of a surface kernel: the kernel, its z factor and pixel type, and after execution the output image and its statistics.
+     */
+    protected static class SurfaceOutput {
+        final SurfaceKernel kernel;
+
+        final RasterPixelType pixelType;
+
+        final double zFactor;
+
+        DiskMemImage image;
+
+        double minValue = Double.MAX_VALUE;
+
+        double maxValue = Double.MIN_VALUE;
+
+        public SurfaceOutput(SurfaceKernel kernel, RasterPixelType pixelType, double zFactor) {
+            this.kernel = kernel;
+            this.pixelType = pixelType;
+            this.zFactor = zFactor;
+        }
+
+        public DiskMemImage getImage() {
+            return image;
+        }
+
+        public double getMinValue() {
+            return minValue;
+        }
+
+        public double getMaxValue() {
+            return maxValue;
+        }
+
+        synchronized void updateStatistics(double tileMin, double tileMax) {
+            this.minValue = Math.min(minValue, tileMin);
+            this.maxValue = Math.max(maxValue, tileMax);
+        }
+    }
+
+    /**
+     * Applies the kernel to every cell of the surface initialized by {@link #initSurface(GridCoverage2D)}.
+     */
+    protected DiskMemImage executeSurface(GridCoverage2D inputGc, RasterPixelType transferType,
+            double zFactor, SurfaceKernel kernel) {
+        SurfaceOutput output = new SurfaceOutput(kernel, transferType, zFactor);
+        executeSurface(inputGc, output);
+
+        this.pixelType = transferType;
+        this.minValue = output.minValue;
+        this.maxValue = output.maxValue;
+
+        return output.image;
+    }
+
+    /**
+     * Applies the kernels to every cell of the surface initialized by {@link #initSurface(GridCoverage2D)} in a single pass over the source. <br>
+     * The source is read tile by tile with a 1 pixel halo into reusable buffers, and the tiles are processed in parallel if parallelism > 1.
+     * If the center cell is NoData, the output is NoData.
+     */
+    protected void executeSurface(GridCoverage2D inputGc, final SurfaceOutput... outputs) {
+        final DiskMemImageWriter[] writers = new DiskMemImageWriter[outputs.length];
+        for (int o = 0; o < outputs.length; o++) {
+            outputs[o].image = this.createDiskMemImage(inputGc, outputs[o].pixelType);
+            writers[o] = new DiskMemImageWriter(outputs[o].image);
+        }
+
+        final DiskMemImage layout = outputs[0].image;
+        final Rectangle outputBounds = layout.getBounds();
+
+        final int minTileX = layout.getMinTileX();
+        final int minTileY = layout.getMinTileY();
+        final int numXTiles = layout.getNumXTiles();
+        final int tileCount = numXTiles * layout.getNumYTiles();
+
+        executeTileRange(tileCount, new TileRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                final int tw = layout.getTileWidth();
+                final int th = layout.getTileHeight();
+                final int count = outputs.length;
+
+                double[] window = new double[(tw + 2) * (th + 2)];
+                double[] samples = new double[(tw + 2) * (th + 2)];
+                double[][] values = new double[count][tw * th];
+                double[] tileMin = new double[count];
+                double[] tileMax = new double[count];
+                double[] z = new double[9];
+                double[] scaled = new double[9];
+
+                for (int index = start; index < end; index++) {
+                    int tileX = minTileX + (index % numXTiles);
+                    int tileY = minTileY + (index / numXTiles);
+
+                    Rectangle tileRect = layout.getTileRect(tileX, tileY).intersection(outputBounds);
+                    if (tileRect.isEmpty()) {
+                        continue;
+                    }
+
+                    // source window with 1 pixel halo, NaN = NoData or outside of the image
+                    final int stride = tileRect.width + 2;
+                    final int rows = tileRect.height + 2;
+                    readWindow(bounds.x + tileRect.x - 1, bounds.y + tileRect.y - 1, stride, rows,
+                            window, samples);
+
+                    Arrays.fill(tileMin, Double.MAX_VALUE);
+                    Arrays.fill(tileMax, -Double.MAX_VALUE);
+
+                    int k = 0;
+                    for (int row = 1; row <= tileRect.height; row++) {
+                        int pos = row * stride + 1;
+                        for (int col = 1; col <= tileRect.width; col++, pos++, k++) {
+                            final double center = window[pos];
+                            if (Double.isNaN(center)) {
+                                for (int o = 0; o < count; o++) {
+                                    values[o][k] = noData;
+                                }
+                                continue;
+                            }
+
+                            z[0] = window[pos - stride - 1];
+                            z[1] = window[pos - stride];
+                            z[2] = window[pos - stride + 1];
+                            z[3] = window[pos - 1];
+                            z[4] = center;
+                            z[5] = window[pos + 1];
+                            z[6] = window[pos + stride - 1];
+                            z[7] = window[pos + stride];
+                            z[8] = window[pos + stride + 1];
+
+                            // If any neighborhood cells are NoData, they are assigned the value of
+                            // the center cell
+                            for (int n = 0; n < 9; n++) {
+                                if (Double.isNaN(z[n])) {
+                                    z[n] = center;
+                                }
+                            }
+
+                            for (int o = 0; o < count; o++) {
+                                final double zFactor = outputs[o].zFactor;
+
+                                double value;
+                                if (zFactor == 1.0) {
+                                    value = outputs[o].kernel.evaluate(z);
+                                } else {
+                                    for (int n = 0; n < 9; n++) {
+                                        scaled[n] = z[n] * zFactor;
+                                    }
+                                    value = outputs[o].kernel.evaluate(scaled);
+                                }
+                                values[o][k] = value;
+
+                                if (!SSUtils.compareDouble(value, noData)) {
+                                    if (value < tileMin[o]) {
+                                        tileMin[o] = value;
+                                    }
+                                    if (value > tileMax[o]) {
+                                        tileMax[o] = value;
+                                    }
+                                }
+                            }
+                        }
+                    }
+
+                    for (int o = 0; o < count; o++) {
+                        writers[o].setSamples(tileRect.x, tileRect.y, tileRect.width,
+                                tileRect.height, values[o]);
+
+                        // skip tiles without any valid value
+                        if (tileMin[o] <= tileMax[o]) {
+                            outputs[o].updateStatistics(tileMin[o], tileMax[o]);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private void readWindow(int x, int y, int width, int height, double[] window,
+            double[] samples) {
+        Arrays.fill(window, 0, width * height, Double.NaN);
+
+        Rectangle rect = new Rectangle(x, y, width, height).intersection(bounds);
+        if (rect.isEmpty()) {
+            return;
+        }
+
+        Raster subsetRs = image.getData(rect);
+        subsetRs.getSamples(rect.x, rect.y, rect.width, rect.height, 0, samples);
+
+        int k = 0;
+        for (int row = rect.y - y; row < rect.y - y + rect.height; row++) {
+            int pos = row * width + (rect.x - x);
+            for (int col = 0; col < rect.width; col++, pos++) {
+                double ret = samples[k++];
+                if (!SSUtils.compareDouble(ret, this.srcNoData)) {
+                    window[pos] = ret;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.awt.Rectangle;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+
+import org.jaitools.tiledimage.DiskMemImage;
+
+/**
+ * Reads and writes the samples of a DiskMemImage in place, tile by tile. <br>
+ * Unlike getData() / setData(), the whole image is never copied into a single Raster, so the size of the output is not limited by the heap. Each
+ * tile has its own lock, so several threads can write disjoint tiles of one image at the same time.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class DiskMemImageWriter {
+
+    private final DiskMemImage image;
+
+    private final Rectangle bounds;
+
+    private final Object[] tileLocks;
+
+    public DiskMemImageWriter(DiskMemImage image) {
+        this.image = image;
+        this.bounds = image.getBounds();
+
+        this.tileLocks = new Object[image.getNumXTiles() * image.getNumYTiles()];
+        for (int index = 0; index < tileLocks.length; index++) {
+            tileLocks[index] = new Object();
+        }
+    }
+
+    public DiskMemImage getImage() {
+        return image;
+    }
+
+    /**
+     * Returns the samples of band 0 in the rectangle (x, y, w, h) in row-major order. Cells outside of the image are not modified.
+     */
+    public float[] getSamples(final int x, final int y, final int w, int h, float[] samples) {
+        if (samples == null || samples.length < w * h) {
+            samples = new float[w * h];
+        }
+
+        final float[] values = samples;
+        visitTiles(new Rectangle(x, y, w, h), new TileVisitor() {
+            @Override
+            public void visit(WritableRaster tile, Rectangle part) {
+                float[] row = new float[part.width];
+                for (int dy = part.y; dy < part.y + part.height; dy++) {
+                    tile.getSamples(part.x, dy, part.width, 1, 0, row);
+                    System.arraycopy(row, 0, values, (dy - y) * w + (part.x - x), part.width);
+                }
+            }
+        });
+
+        return samples;
+    }
+
+    /**
+     * Writes the samples of band 0 in the rectangle (x, y, w, h), given in row-major order. Cells outside of the image are ignored.
+     */
+    public void setSamples(final int x, final int y, final int w, int h, final float[] samples) {
+        visitTiles(new Rectangle(x, y, w, h), new TileVisitor() {
+            @Override
+            public void visit(WritableRaster tile, Rectangle part) {
+                float[] row = new float[part.width];
+                for (int dy = part.y; dy < part.y + part.height; dy++) {
+                    System.arraycopy(samples, (dy - y) * w + (part.x - x), row, 0, part.width);
+                    tile.setSamples(part.x, dy, part.width, 1, 0, row);
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes the samples of band 0 in the rectangle (x, y, w, h), given in row-major order, without reducing them to float precision. Cells
+     * outside of the image are ignored.
+     */
+    public void setSamples(final int x, final int y, final int w, int h, final double[] samples) {
+        visitTiles(new Rectangle(x, y, w, h), new TileVisitor() {
+            @Override
+            public void visit(WritableRaster tile, Rectangle part) {
+                double[] row = new double[part.width];
+                for (int dy = part.y; dy < part.y + part.height; dy++) {
+                    System.arraycopy(samples, (dy - y) * w + (part.x - x), row, 0, part.width);
+                    tile.setSamples(part.x, dy, part.width, 1, 0, row);
+                }
+            }
+        });
+    }
+
+    /**
+     * Copies all bands of the source image, reading only one tile sized region of the source at a time.
+     */
+    public void copy(final RenderedImage source) {
+        Rectangle sourceBounds = new Rectangle(source.getMinX(), source.getMinY(),
+                source.getWidth(), source.getHeight());
+
+        visitTiles(sourceBounds, new TileVisitor() {
+            @Override
+            public void visit(WritableRaster tile, Rectangle part) {
+                tile.setRect(source.getData(part));
+            }
+        });
+    }
+
+    private void visitTiles(Rectangle region, TileVisitor visitor) {
+        Rectangle rect = region.intersection(bounds);
+        if (rect.isEmpty()) {
+            return;
+        }
+
+        final int minTileX = image.getMinTileX();
+        final int minTileY = image.getMinTileY();
+        final int numXTiles = image.getNumXTiles();
+
+        for (int tileY = image.YToTileY(rect.y); tileY <= image
+                .YToTileY(rect.y + rect.height - 1); tileY++) {
+            for (int tileX = image.XToTileX(rect.x); tileX <= image
+                    .XToTileX(rect.x + rect.width - 1); tileX++) {
+                Rectangle part = image.getTileRect(tileX, tileY).intersection(rect);
+                if (part.isEmpty()) {
+                    continue;
+                }
+
+                Object lock = tileLocks[(tileY - minTileY) * numXTiles + (tileX - minTileX)];
+                synchronized (lock) {
+                    WritableRaster tile = image.getWritableTile(tileX, tileY);
+                    try {
+                        visitor.visit(tile, part);
+                    } finally {
+                        image.releaseWritableTile(tileX, tileY);
+                    }
+                }
+            }
+        }
+    }
+
+    interface TileVisitor {
+        void visit(WritableRaster tile, Rectangle part);
+    }
+}
@@ -18,12 +18,7 @@ package org.geotools.process.spatialstatistics.gridcoverage;
 
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
-import org.geotools.coverage.grid.GridCoordinates2D;
 import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
 import org.jaitools.tiledimage.DiskMemImage;
@@ -50,35 +45,22 @@ public class RasterAspectOperation extends AbstractSurfaceOperation {
     public GridCoverage2D execute(GridCoverage2D inputGc) {
         this.initSurface(inputGc);
 
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
-        WritableRectIter writer = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
-
-        GridCoordinates2D pos = new GridCoordinates2D();
-
-        int y = bounds.y;
-        writer.startLines();
-        while (!writer.finishedLines()) {
+        DiskMemImage outputImage = executeSurface(inputGc, RasterPixelType.FLOAT, 1.0,
+                createKernel());
 
-            int x = bounds.x;
-            writer.startPixels();
-            while (!writer.finishedPixels()) {
-                pos.setLocation(x, y);
-
-                visitAspect(writer, pos);
+        return createGridCoverage("Aspect", outputImage);
+    }
 
-                writer.nextPixel();
-                x++;
+    SurfaceKernel createKernel() {
+        return new SurfaceKernel() {
+            @Override
+            public double evaluate(double[] z) {
+                return visitAspect(z);
             }
-
-            writer.nextLine();
-            y++;
-        }
-
-        return createGridCoverage("Aspect", outputImage);
+        };
     }
 
-    private void visitAspect(WritableRectIter writer, GridCoordinates2D pos) {
+    private double visitAspect(double[] z) {
         // http://webhelp.esri.com/arcgisdesktop/9.3/index.cfm?TopicName=How%20Aspect%20works
         // Burrough, P. A. and McDonell, R.A., 1998. Principles of Geographical Information Systems
         // (Oxford University Press, New York), p. 190.
@@ -98,28 +80,18 @@ public class RasterAspectOperation extends AbstractSurfaceOperation {
         // | 3 4 5 |>| d e f |
         // | 6 7 8 | | g h i |
         // +-------+ +-------+
-        double[][] mx = getSubMatrix(pos, 3, 3);
-        if (Double.isNaN(mx[1][1]) || SSUtils.compareDouble(srcNoData, mx[1][1])) {
-            writer.setSample(0, noData);
-            return;
-        }
-
-        double dZdX = ((mx[2][0] + 2 * mx[2][1] + mx[2][2]) - (mx[0][0] + 2 * mx[0][1] + mx[0][2]))
-                / (_8DX);
-        double dZdY = ((mx[0][2] + 2 * mx[1][2] + mx[2][2]) - (mx[0][0] + 2 * mx[1][0] + mx[2][0]))
-                / (_8DY);
+        double dZdX = ((z[2] + 2 * z[5] + z[8]) - (z[0] + 2 * z[3] + z[6])) / (_8DX);
+        double dZdY = ((z[6] + 2 * z[7] + z[8]) - (z[0] + 2 * z[1] + z[2])) / (_8DY);
 
         double rise_run = (dZdX * dZdX) + (dZdY * dZdY);
         double slope = Math.toDegrees(Math.atan(Math.sqrt(rise_run)));
         if (Double.isNaN(slope) || Double.isInfinite(slope) || slope == 0) {
-            writer.setSample(0, -1);
-            updateStatistics(-1);
-            return;
+            return -1;
         }
 
         // aspect
-        dZdX = ((mx[2][0] + 2 * mx[2][1] + mx[2][2]) - (mx[0][0] + 2 * mx[0][1] + mx[0][2])) / (8.0);
-        dZdY = ((mx[0][2] + 2 * mx[1][2] + mx[2][2]) - (mx[0][0] + 2 * mx[1][0] + mx[2][0])) / (8.0);
+        dZdX = ((z[2] + 2 * z[5] + z[8]) - (z[0] + 2 * z[3] + z[6])) / (8.0);
+        dZdY = ((z[6] + 2 * z[7] + z[8]) - (z[0] + 2 * z[1] + z[2])) / (8.0);
 
         // double aspect = Math.toDegrees(Math.atan2(H, -G));
         double aspect = Math.atan2(dZdY, -dZdX) * RADTODEG;
@@ -136,7 +108,6 @@ public class RasterAspectOperation extends AbstractSurfaceOperation {
             aspect = -1.0;
         }
 
-        writer.setSample(0, aspect);
-        updateStatistics(aspect);
+        return aspect;
     }
 }
\ No newline at end of file
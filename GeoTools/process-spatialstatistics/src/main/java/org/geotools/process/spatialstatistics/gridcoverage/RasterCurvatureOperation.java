@@ -18,12 +18,7 @@ package org.geotools.process.spatialstatistics.gridcoverage;
 
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
-import org.geotools.coverage.grid.GridCoordinates2D;
 import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
 import org.jaitools.tiledimage.DiskMemImage;
@@ -62,52 +57,33 @@ public class RasterCurvatureOperation extends AbstractSurfaceOperation {
     public GridCoverage2D execute(GridCoverage2D inputGc, double zFactor) {
         this.initSurface(inputGc);
 
+        DiskMemImage outputImage = executeSurface(inputGc, RasterPixelType.FLOAT, zFactor,
+                createKernel(zFactor));
+
+        return createGridCoverage("Curvature", outputImage);
+    }
+
+    SurfaceKernel createKernel(final double zFactor) {
         xL2 = pixelSizeX * pixelSizeX;
         x2L = 2.0 * pixelSizeX;
 
         yL2 = pixelSizeY * pixelSizeY;
         y2L = 2.0 * pixelSizeY;
 
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
-        WritableRectIter writer = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
-
-        GridCoordinates2D pos = new GridCoordinates2D();
-
-        int y = bounds.y;
-        writer.startLines();
-        while (!writer.finishedLines()) {
-
-            int x = bounds.x;
-            writer.startPixels();
-            while (!writer.finishedPixels()) {
-                pos.setLocation(x, y);
-
-                visitCurvature(writer, pos, zFactor);
-
-                writer.nextPixel();
-                x++;
+        return new SurfaceKernel() {
+            @Override
+            public double evaluate(double[] z) {
+                return visitCurvature(z, zFactor);
             }
-
-            writer.nextLine();
-            y++;
-        }
-
-        return createGridCoverage("Curvature", outputImage);
+        };
     }
 
-    private void visitCurvature(WritableRectIter writer, GridCoordinates2D pos, double zFactor) {
+    private double visitCurvature(double[] z, double zFactor) {
         // http://resources.arcgis.com/en/help/main/10.1/#/How_Curvature_works/009z000000vs000000/
         // Zeverbergen, L. W., and C. R. Thorne. 1987. Quantitative Analysis of Land Surface
         // Topography.
         // Earth Surface Processes and Landforms 12: 47–56.
 
-        double[][] mx = getSubMatrix(pos, 3, 3, zFactor);
-        if (Double.isNaN(mx[1][1]) || SSUtils.compareDouble(srcNoData, mx[1][1])) {
-            writer.setSample(0, noData);
-            return;
-        }
-
         // Z = Ax²y² + Bx²y + Cxy² + Dx² + Ey² + Fxy + Gx + Hy + I
 
         // A = [(Z1 + Z3 + Z7 + Z9) / 4 - (Z2 + Z4 + Z6 + Z8) / 2 + Z5] / L4
@@ -125,19 +101,19 @@ public class RasterCurvatureOperation extends AbstractSurfaceOperation {
         // | 6 7 8 | | Z7 Z8 Z9 |
         // +-------+ +----------+
         // D = [(Z4 + Z6) /2 - Z5] / L2
-        double D = ((mx[0][1] + mx[2][1]) / 2.0 - mx[1][1]) / xL2;
+        double D = ((z[3] + z[5]) / 2.0 - z[4]) / xL2;
 
         // E = [(Z2 + Z8) /2 - Z5] / L2
-        double E = ((mx[1][0] + mx[1][2]) / 2.0 - mx[1][1]) / yL2;
+        double E = ((z[1] + z[7]) / 2.0 - z[4]) / yL2;
 
         // F = (-Z1 + Z3 + Z7 - Z9) / 4L2
-        // double F = (mx[2][0] - mx[0][0] + mx[0][2] - mx[2][2]) / x4L2;
+        // double F = (z[2] - z[0] + z[6] - z[8]) / x4L2;
 
         // G = (-Z4 + Z6) / 2L
-        double G = (mx[2][1] - mx[0][1]) / x2L;
+        double G = (z[5] - z[3]) / x2L;
 
         // H = (Z2 - Z8) / 2L
-        double H = (mx[1][0] - mx[1][2]) / y2L;
+        double H = (z[1] - z[7]) / y2L;
 
         // I = Z5
         // double I = Z5;
@@ -162,7 +138,6 @@ public class RasterCurvatureOperation extends AbstractSurfaceOperation {
 
         curvature = curvature * (100.0 * zFactor);
 
-        writer.setSample(0, curvature);
-        updateStatistics(curvature);
+        return curvature;
     }
 }
\ No newline at end of file
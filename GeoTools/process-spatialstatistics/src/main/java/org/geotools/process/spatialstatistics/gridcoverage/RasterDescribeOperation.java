@@ -23,17 +23,12 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
 
-import javax.media.jai.PlanarImage;
-import javax.media.jai.iterator.RectIter;
-import javax.media.jai.iterator.RectIterFactory;
-
 import org.geotools.api.coverage.SampleDimension;
 import org.geotools.api.coverage.SampleDimensionType;
 import org.geotools.api.geometry.Bounds;
 import org.geotools.api.referencing.crs.CoordinateReferenceSystem;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridGeometry2D;
-import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.StatisticsVisitor;
 import org.geotools.process.spatialstatistics.core.StatisticsVisitor.DoubleStrategy;
 import org.geotools.process.spatialstatistics.core.StatisticsVisitorResult;
@@ -136,23 +131,9 @@ public class RasterDescribeOperation {
             visitor[index].setNoData(ndvs[index]);
         }
 
-        // calculate min, max
-        PlanarImage inputImage = (PlanarImage) coverage.getRenderedImage();
-        RectIter readIter = RectIterFactory.create(inputImage, inputImage.getBounds());
-
-        readIter.startLines();
-        while (!readIter.finishedLines()) {
-            readIter.startPixels();
-            while (!readIter.finishedPixels()) {
-                for (int index = 0; index < numberofBands; index++) {
-                    double sampleValue = readIter.getSampleDouble(index);
-                    if (!SSUtils.compareDouble(ndvs[index], sampleValue)) {
-                        visitor[index].visit(sampleValue);
-                    }
-                }
-                readIter.nextPixel();
-            }
-            readIter.nextLine();
+        // calculate statistics, tile by tile without boxing the cells
+        for (int index = 0; index < numberofBands; index++) {
+            visitor[index].visit(coverage, index);
         }
 
         for (int index = 0; index < numberofBands; index++) {
@@ -16,12 +16,12 @@
  */
 package org.geotools.process.spatialstatistics.gridcoverage;
 
+import java.awt.Rectangle;
+import java.awt.image.Raster;
 import java.util.Arrays;
 import java.util.logging.Logger;
 
 import javax.media.jai.PlanarImage;
-import javax.media.jai.iterator.RectIter;
-import javax.media.jai.iterator.RectIterFactory;
 
 import org.geotools.api.filter.Filter;
 import org.geotools.api.filter.FilterFactory;
@@ -38,7 +38,7 @@ import org.jaitools.tiledimage.DiskMemImage;
  * Calculates, for each cell, the Euclidean distance to the closest source.
  * 
  * @author Minpa Lee, MangoSystem
- * @reference https://github.com/DotSpatial/DotSpatial/blob/master/Source/DotSpatial.Tools/RasterDistance.cs
+ * @reference Meijster, A., Roerdink, J.B.T.M., Hesselink, W.H., 2000. A general algorithm for computing distance transforms in linear time.
  * 
  * @source $URL$
  */
@@ -46,16 +46,25 @@ public class RasterEuclideanDistanceOperation extends RasterProcessingOperation
     protected static final Logger LOGGER = Logging
             .getLogger(RasterEuclideanDistanceOperation.class);
 
-    static final int INT_MAX = Integer.MAX_VALUE;
-
-    static final int INT_ZERO = 0;
-
     private double maximumDistance = Double.MAX_VALUE;
 
     private FilterFactory ff = CommonFactoryFinder.getFilterFactory(GeoTools.getDefaultHints());
 
     private DiskMemImage outputImage;
 
+    private int bandHeight = 256;
+
+    /**
+     * Sets the number of rows processed at a time. Memory use is about 12 bytes per cell of a band.
+     */
+    public void setBandHeight(int bandHeight) {
+        this.bandHeight = Math.max(1, bandHeight);
+    }
+
+    public int getBandHeight() {
+        return bandHeight;
+    }
+
     public GridCoverage2D execute(SimpleFeatureCollection inputFeatures, double maximumDistance) {
         final Number gridVal = Short.valueOf((short) 1);
         GridCoverage2D finalGc = null;
@@ -96,268 +105,164 @@ public class RasterEuclideanDistanceOperation extends RasterProcessingOperation
         // create raster
         outputImage = createDiskMemImage(valueCoverage, RasterPixelType.FLOAT);
 
-        // declare two jagged arrays for storing the (Rx, Ry) vectors.
-        // rX is distance from current cell to nearest target cell measured in the x-direction
-        // rY is distance from current cell to nearest target cell measured in the y-direction
-        // the actual distance can be calculated as sqrt(rX^2 + rY^2).
-        // in the resulting distance raster we store the squared distance as well as the rX, rY
-        // relative coordinates to improve computation speed
-
+        // exact euclidean distance transform of Meijster et al., computed in bands of rows.
+        // phase 1 finds, for each cell, the vertical distance g to the nearest source in its
+        // column: the top-down scan is stored in the output image, the bottom-up scan completes
+        // it band by band. phase 2 finds the minimum of (x - i)^2 + g(i)^2 along each row of a
+        // band, in parallel. only bandHeight rows are held in memory at a time.
         PlanarImage inputImage = (PlanarImage) valueCoverage.getRenderedImage();
         final double inputNoData = RasterHelper.getNoDataValue(valueCoverage);
 
-        // ====================================================================
-        // initialize the arrays
-        // ====================================================================
-        final int numColumns = inputImage.getWidth() + 2;
-        final int numRows = inputImage.getHeight() + 2;
-
-        int[][] aRx = new int[numRows][];
-        int[][] aRy = new int[numRows][];
-        int[][] aSqDist = new int[numRows][];
+        final int width = inputImage.getWidth();
+        final int height = inputImage.getHeight();
+        final int infinity = width + height; // larger than any distance in cells
 
-        initializeArrays(inputImage, inputNoData, aRx, aRy, aSqDist, numColumns);
+        DiskMemImageWriter writer = new DiskMemImageWriter(outputImage);
 
         // ====================================================================
-        // raster distance calculation pass one - top to bottom, left to right
+        // phase 1, top to bottom: rows since the last source above
         // ====================================================================
-        int[] aNcels = new int[4]; // the values of four neighbouring cells (W, NW, N, NE)
-        int[] aDiff = new int[4]; // the | y coordinate distances to nearest target cell
-
-        for (int row = 1; row < numRows; row++) {
-            for (int col = 1; col < numColumns - 1; col++) {
-                int val = aSqDist[row][col];
-
-                // Continue processing only if the current cell is not a target
-                if (val == INT_ZERO) {
-                    continue;
-                }
-
-                // read the values of the cell's neighbours
-                aNcels[0] = aSqDist[row][col - 1]; // W
-                aNcels[1] = aSqDist[row - 1][col - 1]; // NW
-                aNcels[2] = aSqDist[row - 1][col]; // N
-                aNcels[3] = aSqDist[row - 1][col + 1]; // NE
-
-                // calculate the squared euclidean distances to each neighbouring cell and to the
-                // nearest target cell
-                if (aNcels[0] < INT_MAX) {
-                    aDiff[0] = aNcels[0] + 2 * aRx[row][col - 1] + 1;
-                } else {
-                    aDiff[0] = INT_MAX;
-                }
-
-                if (aNcels[1] < INT_MAX) {
-                    aDiff[1] = aNcels[1] + 2 * (aRx[row - 1][col - 1] + aRy[row - 1][col - 1] + 1);
-                } else {
-                    aDiff[1] = INT_MAX;
-                }
-
-                if (aNcels[2] < INT_MAX) {
-                    aDiff[2] = aNcels[2] + 2 * aRy[row - 1][col] + 1;
-                } else {
-                    aDiff[2] = INT_MAX;
-                }
-
-                if (aNcels[3] < INT_MAX) {
-                    aDiff[3] = aNcels[3] + 2 * (aRx[row - 1][col + 1] + aRy[row - 1][col + 1] + 1);
-                } else {
-                    aDiff[3] = INT_MAX;
-                }
-
-                // find neighbouring cell with minimum distance difference
-                int minDiff = aDiff[0];
-                int minDiffCell = 0;
-                for (int i = 1; i < 4; i++) {
-                    if (aDiff[i] < minDiff) {
-                        minDiff = aDiff[i];
-                        minDiffCell = i;
-                    }
-                }
-
-                // if a neighbouring cell with known distance was found:
-                if (minDiff < INT_MAX) {
-                    // assign the minimum euclidean distance
-                    aSqDist[row][col] = minDiff;
-
-                    // update the (rX, rY) cell-to-nearest-target vector
-                    switch (minDiffCell) {
-                    case 0: // W
-                        aRx[row][col] = aRx[row][col - 1] + 1;
-                        aRy[row][col] = aRy[row][col - 1];
-                        break;
-                    case 1: // NW
-                        aRx[row][col] = aRx[row - 1][col - 1] + 1;
-                        aRy[row][col] = aRy[row - 1][col - 1] + 1;
-                        break;
-                    case 2: // N
-                        aRx[row][col] = aRx[row - 1][col];
-                        aRy[row][col] = aRy[row - 1][col] + 1;
-                        break;
-                    case 3: // NE
-                        aRx[row][col] = aRx[row - 1][col + 1] + 1;
-                        aRy[row][col] = aRy[row - 1][col + 1] + 1;
-                        break;
+        int[] above = new int[width];
+        Arrays.fill(above, infinity);
+
+        int[] samples = new int[width];
+        for (int bandY = 0; bandY < height; bandY += bandHeight) {
+            final int rows = Math.min(bandHeight, height - bandY);
+            Raster source = inputImage.getData(new Rectangle(inputImage.getMinX(),
+                    inputImage.getMinY() + bandY, width, rows));
+
+            float[] values = new float[width * rows];
+            for (int row = 0; row < rows; row++) {
+                source.getSamples(inputImage.getMinX(), inputImage.getMinY() + bandY + row,
+                        width, 1, 0, samples);
+                for (int col = 0; col < width; col++) {
+                    if (!SSUtils.compareDouble(samples[col], inputNoData)) {
+                        above[col] = 0;
+                    } else if (above[col] < infinity) {
+                        above[col]++;
                     }
+                    values[row * width + col] = above[col];
                 }
-                // end of update (rX, rY) cell-to-nearest-target vector
             }
-            // end or current row processing
+            writer.setSamples(0, bandY, width, rows, values);
         }
-        // ====================================================================
-        // end of first pass for loop
-        // ====================================================================
 
         // ====================================================================
-        // raster distance calculation PASS TWO - bottom to top, right to left
+        // phase 1, bottom to top, and phase 2 of each band
         // ====================================================================
-        for (int row = numRows - 2; row > 0; row--) {
-            for (int col = numColumns - 2; col > 0; col--) {
-                int val = aSqDist[row][col];
-
-                // Continue processing only if the current cell is not a target
-                if (val == INT_ZERO) {
-                    continue;
-                }
-
-                // read the values of the cell's neighbours
-                aNcels[0] = aSqDist[row][col + 1]; // E
-                aNcels[1] = aSqDist[row + 1][col + 1]; // SE
-                aNcels[2] = aSqDist[row + 1][col]; // S
-                aNcels[3] = aSqDist[row + 1][col - 1]; // SW
-
-                // calculate the squared euclidean distances to each neighbouring cell and to the
-                // nearest target cell
-                if (aNcels[0] < INT_MAX) {
-                    aDiff[0] = aNcels[0] + 2 * aRx[row][col + 1] + 1;
-                } else {
-                    aDiff[0] = INT_MAX;
-                }
-
-                if (aNcels[1] < INT_MAX) {
-                    aDiff[1] = aNcels[1] + 2 * (aRx[row + 1][col + 1] + aRy[row + 1][col + 1] + 1);
-                } else {
-                    aDiff[1] = INT_MAX;
-                }
-
-                if (aNcels[2] < INT_MAX) {
-                    aDiff[2] = aNcels[2] + 2 * aRy[row + 1][col] + 1;
-                } else {
-                    aDiff[2] = INT_MAX;
-                }
-
-                if (aNcels[3] < INT_MAX) {
-                    aDiff[3] = aNcels[3] + 2 * (aRx[row + 1][col - 1] + aRy[row + 1][col - 1] + 1);
-                } else {
-                    aDiff[3] = INT_MAX;
+        int[] below = new int[width];
+        Arrays.fill(below, infinity);
+
+        final int bandCount = (height + bandHeight - 1) / bandHeight;
+        for (int band = bandCount - 1; band >= 0; band--) {
+            final int bandY = band * bandHeight;
+            final int rows = Math.min(bandHeight, height - bandY);
+
+            final float[] values = writer.getSamples(0, bandY, width, rows, null);
+            final int[] g = new int[width * rows];
+            for (int row = rows - 1; row >= 0; row--) {
+                final int offset = row * width;
+                for (int col = 0; col < width; col++) {
+                    final int up = (int) values[offset + col];
+                    if (up == 0) {
+                        below[col] = 0;
+                    } else if (below[col] < infinity) {
+                        below[col]++;
+                    }
+                    g[offset + col] = Math.min(up, below[col]);
                 }
+            }
 
-                // find neighbouring cell with minimum distance difference
-                int minDiff = aDiff[0];
-                int minDiffCell = 0;
-                for (int i = 1; i < 4; i++) {
-                    if (aDiff[i] < minDiff) {
-                        minDiff = aDiff[i];
-                        minDiffCell = i;
+            executeTileRange(rows, new TileRangeTask() {
+                @Override
+                public void execute(int start, int end) {
+                    int[] s = new int[width];
+                    int[] t = new int[width];
+                    double min = Double.MAX_VALUE;
+                    double max = -Double.MAX_VALUE;
+
+                    for (int row = start; row < end; row++) {
+                        final int offset = row * width;
+                        transformRow(g, offset, width, infinity, s, t, values);
+
+                        for (int col = 0; col < width; col++) {
+                            final double distance = values[offset + col];
+                            if (!SSUtils.compareDouble(distance, noData)) {
+                                min = Math.min(min, distance);
+                                max = Math.max(max, distance);
+                            }
+                        }
                     }
-                }
 
-                // if a neighbouring cell with known distance smaller than current known distance
-                // was found:
-                if (minDiff < val) {
-                    // assign the minimum euclidean distance
-                    aSqDist[row][col] = minDiff;
-
-                    // update the (rX, rY) cell-to-nearest-target vector
-                    switch (minDiffCell) {
-                    case 0: // E
-                        aRx[row][col] = aRx[row][col + 1] + 1;
-                        aRy[row][col] = aRy[row][col + 1];
-                        break;
-                    case 1: // SE
-                        aRx[row][col] = aRx[row + 1][col + 1] + 1;
-                        aRy[row][col] = aRy[row + 1][col + 1] + 1;
-                        break;
-                    case 2: // S
-                        aRx[row][col] = aRx[row + 1][col];
-                        aRy[row][col] = aRy[row + 1][col] + 1;
-                        break;
-                    case 3: // SW
-                        aRx[row][col] = aRx[row + 1][col - 1] + 1;
-                        aRy[row][col] = aRy[row + 1][col - 1] + 1;
-                        break;
+                    if (min <= max) {
+                        updateStatistics(min, max);
                     }
                 }
-                // end of update (rX, rY) cell-to-nearest-target vector
-            }
+            });
 
-            // write output distance
-            writeDistance(row - 1, aSqDist[row]);
+            writer.setSamples(0, bandY, width, rows, values);
         }
-        // *******************************************************************
-        // end of second pass proximity calculation loop
-        // *******************************************************************
 
         return createGridCoverage("EuclideanDistance", outputImage);
     }
 
-    private void writeDistance(int row, int[] colValues) {
-        final int length = colValues.length;
-        for (int col = 0; col < length - 1; col++) {
-            int val = colValues[col + 1];
+    /**
+     * Phase 2 of Meijster's algorithm: the lower envelope of the parabolas (x - i)^2 + g(i)^2 of a row, written as distance or NoData to values.
+     */
+    private void transformRow(int[] g, int offset, int width, long infinity, int[] s, int[] t,
+            float[] values) {
+        // forward scan: s holds the parabolas of the envelope, t the start of their segments
+        int q = 0;
+        s[0] = 0;
+        t[0] = 0;
+        for (int u = 1; u < width; u++) {
+            while (q >= 0 && f(g, offset, t[q], s[q]) > f(g, offset, t[q], u)) {
+                q--;
+            }
 
-            if (val == INT_MAX) {
-                outputImage.setSample(col, row, 0, noData);
+            if (q < 0) {
+                q = 0;
+                s[0] = u;
             } else {
-                double distance = Math.sqrt(val) * pixelSizeX;
-                if (maximumDistance < distance) {
-                    outputImage.setSample(col, row, 0, noData);
-                } else {
-                    outputImage.setSample(col, row, 0, distance);
-                    updateStatistics(distance);
+                final long w = 1 + sep(g, offset, s[q], u);
+                if (w < width) {
+                    q++;
+                    s[q] = u;
+                    t[q] = (int) w;
                 }
             }
         }
-    }
 
-    private void initializeArrays(PlanarImage inputImage, double inputNoData, final int[][] aRx,
-            final int[][] aRy, final int[][] aSqDist, int numColumns) {
-        final RectIter readIter = RectIterFactory.create(inputImage, inputImage.getBounds());
-
-        // first row
-        int dy = 0;
-        aRx[dy] = new int[numColumns];
-        aRy[dy] = new int[numColumns];
-        aSqDist[dy] = new int[numColumns];
-        Arrays.fill(aSqDist[dy], INT_MAX);
-
-        // valid cell
-        dy++;
-        readIter.startLines();
-        while (!readIter.finishedLines()) {
-            aRx[dy] = new int[numColumns];
-            aRy[dy] = new int[numColumns];
-            aSqDist[dy] = new int[numColumns];
-            Arrays.fill(aSqDist[dy], INT_MAX);
-
-            int dx = 1;
-            readIter.startPixels();
-            while (!readIter.finishedPixels()) {
-                final int val = readIter.getSample(0);
-                if (!SSUtils.compareDouble(val, inputNoData)) {
-                    aSqDist[dy][dx] = INT_ZERO;
-                }
-                readIter.nextPixel();
-                dx++;
+        // backward scan
+        final long unreachable = infinity * infinity;
+        for (int u = width - 1; u >= 0; u--) {
+            final long sqDist = f(g, offset, u, s[q]);
+            if (sqDist >= unreachable) {
+                values[offset + u] = (float) noData;
+            } else {
+                final double distance = Math.sqrt(sqDist) * pixelSizeX;
+                values[offset + u] = (float) (maximumDistance < distance ? noData : distance);
+            }
+
+            if (u == t[q]) {
+                q--;
             }
-            readIter.nextLine();
-            dy++;
         }
+    }
+
+    private static long f(int[] g, int offset, int x, int i) {
+        final long gi = g[offset + i];
+        return (long) (x - i) * (x - i) + gi * gi;
+    }
+
+    private static long sep(int[] g, int offset, int i, int u) {
+        final long gi = g[offset + i];
+        final long gu = g[offset + u];
+        return Math.floorDiv((long) u * u - (long) i * i + gu * gu - gi * gi, 2L * (u - i));
+    }
 
-        // last row
-        aRx[dy] = new int[numColumns];
-        aRy[dy] = new int[numColumns];
-        aSqDist[dy] = new int[numColumns];
-        Arrays.fill(aSqDist[dy], INT_MAX);
+    private synchronized void updateStatistics(double min, double max) {
+        this.minValue = Math.min(minValue, min);
+        this.maxValue = Math.max(maxValue, max);
     }
-}
\ No newline at end of file
+}
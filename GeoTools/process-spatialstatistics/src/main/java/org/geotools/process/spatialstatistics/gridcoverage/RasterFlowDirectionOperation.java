@@ -18,16 +18,10 @@ package org.geotools.process.spatialstatistics.gridcoverage;
 
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
-import org.geotools.coverage.grid.GridCoordinates2D;
 import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
 import org.jaitools.tiledimage.DiskMemImage;
-import org.locationtech.jts.geom.Coordinate;
 
 /**
  * Creates a raster of flow direction from each cell to its downslope neighbor, or neighbors, using D8 methods.
@@ -46,35 +40,22 @@ public class RasterFlowDirectionOperation extends AbstractSurfaceOperation {
     public GridCoverage2D execute(GridCoverage2D inputCoverage) {
         this.initSurface(inputCoverage);
 
-        DiskMemImage outputImage = this.createDiskMemImage(inputCoverage, RasterPixelType.INTEGER);
-        WritableRectIter writer = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
-
-        GridCoordinates2D pos = new GridCoordinates2D();
-
-        int y = bounds.y;
-        writer.startLines();
-        while (!writer.finishedLines()) {
-
-            int x = bounds.x;
-            writer.startPixels();
-            while (!writer.finishedPixels()) {
-                pos.setLocation(x, y);
+        DiskMemImage outputImage = executeSurface(inputCoverage, RasterPixelType.INTEGER, 1.0,
+                createKernel());
 
-                visitAspect(writer, pos);
+        return createGridCoverage("FlowDirection", outputImage);
+    }
 
-                writer.nextPixel();
-                x++;
+    SurfaceKernel createKernel() {
+        return new SurfaceKernel() {
+            @Override
+            public double evaluate(double[] z) {
+                return visitAspect(z);
             }
-
-            writer.nextLine();
-            y++;
-        }
-
-        return createGridCoverage("FlowDirection", outputImage);
+        };
     }
 
-    private void visitAspect(WritableRectIter writer, GridCoordinates2D pos) {
+    private double visitAspect(double[] z) {
         // https://pro.arcgis.com/en/pro-app/tool-reference/spatial-analyst/how-flow-direction-works.htm
         // +-------+ +-----------+
         // | 0 1 2 | | 32 64 128 |
@@ -82,19 +63,12 @@ public class RasterFlowDirectionOperation extends AbstractSurfaceOperation {
         // | 6 7 8 | | 8 4 2 |
         // +-------+ +-----------+
 
-        double[][] mx = getSubMatrix(pos, 3, 3);
-        if (Double.isNaN(mx[1][1]) || SSUtils.compareDouble(srcNoData, mx[1][1])) {
-            writer.setSample(0, noData);
-            return;
-        }
-
-        Coordinate center_pos = new Coordinate(1, 1);
-        Coordinate max_drop_pos = null;
+        int maxCol = -1;
+        int maxRow = -1;
 
-        int flowDir = -1;
         double max_drop = 0;
         for (int row = 0; row < 3; row++) {
-            int dY = (int) (center_pos.y - row);
+            int dY = 1 - row;
             for (int col = 0; col < 3; col++) {
                 if (col == 1 && row == 1) {
                     continue;
@@ -103,24 +77,22 @@ public class RasterFlowDirectionOperation extends AbstractSurfaceOperation {
                 // The distance is calculated between cell centers.
                 // Therefore, if the cell size is 1, the distance between two orthogonal cells is 1,
                 // and the distance between two diagonal cells is 1.414 (the square root of 2)
-                int dX = (int) (center_pos.x - col);
+                int dX = 1 - col;
 
                 // maximum_drop = change_in_z-value / distance * 100
-                double drop = (mx[1][1] - mx[col][row]) / (Math.hypot(dX, dY) * 100);
-                if (max_drop_pos == null || drop > max_drop) {
-                    max_drop_pos = new Coordinate(col, row);
+                double drop = (z[4] - z[row * 3 + col]) / (Math.hypot(dX, dY) * 100);
+                if (maxCol == -1 || drop > max_drop) {
+                    maxCol = col;
+                    maxRow = row;
                     max_drop = drop;
                 }
             }
         }
 
-        flowDir = getFlowDirection(center_pos, max_drop_pos);
-
-        writer.setSample(0, flowDir);
-        updateStatistics(flowDir);
+        return getFlowDirection(maxCol, maxRow);
     }
 
-    private int getFlowDirection(Coordinate from, Coordinate to) {
+    private int getFlowDirection(int toCol, int toRow) {
         // +-------+ +-----------+
         // | 0 1 2 | | 32 64 128 |
         // | 3 4 5 |>| 16 x 1 |
@@ -128,26 +100,26 @@ public class RasterFlowDirectionOperation extends AbstractSurfaceOperation {
         // +-------+ +-----------+
 
         int directionPow = -1;
-        if (from.y == to.y) {
-            if (from.x < to.x) {
+        if (toRow == 1) {
+            if (toCol > 1) {
                 directionPow = 0; // 1
-            } else if (from.x == to.x) {
+            } else if (toCol == 1) {
                 directionPow = -1; // c
             } else {
                 directionPow = 4; // 16
             }
-        } else if (from.y < to.y) {
-            if (from.x < to.x) {
+        } else if (toRow > 1) {
+            if (toCol > 1) {
                 directionPow = 1; // 2
-            } else if (from.x == to.x) {
+            } else if (toCol == 1) {
                 directionPow = 2; // 4
             } else {
                 directionPow = 3; // 8
             }
         } else {
-            if (from.x < to.x) {
+            if (toCol > 1) {
                 directionPow = 7; // 128
-            } else if (from.x == to.x) {
+            } else if (toCol == 1) {
                 directionPow = 6; // 64
             } else {
                 directionPow = 5; // 32
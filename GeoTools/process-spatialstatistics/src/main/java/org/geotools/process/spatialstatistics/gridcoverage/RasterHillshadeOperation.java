@@ -18,12 +18,7 @@ package org.geotools.process.spatialstatistics.gridcoverage;
 
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
-import org.geotools.coverage.grid.GridCoordinates2D;
 import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
 import org.jaitools.tiledimage.DiskMemImage;
@@ -60,36 +55,24 @@ public class RasterHillshadeOperation extends AbstractSurfaceOperation {
             double zFactor) {
         this.initSurface(inputGc);
 
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
-        WritableRectIter writer = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
-
-        GridCoordinates2D pos = new GridCoordinates2D();
-
-        int y = bounds.y;
-        writer.startLines();
-        while (!writer.finishedLines()) {
+        DiskMemImage outputImage = executeSurface(inputGc, RasterPixelType.FLOAT, zFactor,
+                createKernel(azimuth, altitude, zFactor));
 
-            int x = bounds.x;
-            writer.startPixels();
-            while (!writer.finishedPixels()) {
-                pos.setLocation(x, y);
-
-                visitHillShade(writer, pos, azimuth, altitude, zFactor);
+        return createGridCoverage("Aspect", outputImage);
+    }
 
-                writer.nextPixel();
-                x++;
+    SurfaceKernel createKernel(final double azimuth, final double altitude,
+            final double zFactor) {
+        return new SurfaceKernel() {
+            @Override
+            public double evaluate(double[] z) {
+                return visitHillShade(z, azimuth, altitude, zFactor);
             }
-
-            writer.nextLine();
-            y++;
-        }
-
-        return createGridCoverage("Aspect", outputImage);
+        };
     }
 
-    private void visitHillShade(WritableRectIter writer, GridCoordinates2D pos,
-            final double azimuth, final double altitude, final double zFactor) {
+    private double visitHillShade(double[] z, final double azimuth, final double altitude,
+            final double zFactor) {
         // http://webhelp.esri.com/arcgisdesktop/9.2/index.cfm?TopicName=How%20Hillshade%20works
         // Burrough, P. A. and McDonell, R.A., 1998. Principles of Geographical Information Systems
         // (Oxford University Press, New York), p. 190.
@@ -101,21 +84,12 @@ public class RasterHillshadeOperation extends AbstractSurfaceOperation {
         // | 3 4 5 |>| d e f |
         // | 6 7 8 | | g h i |
         // +-------+ +-------+
-        double[][] mx = getSubMatrix(pos, 3, 3, zFactor);
-        if (Double.isNaN(mx[1][1]) || SSUtils.compareDouble(srcNoData, mx[1][1])) {
-            writer.setSample(0, noData);
-            return;
-        }
-
-        double dZdX = ((mx[2][0] + 2 * mx[2][1] + mx[2][2]) - (mx[0][0] + 2 * mx[0][1] + mx[0][2]))
-                / (_8DX);
-        double dZdY = ((mx[0][2] + 2 * mx[1][2] + mx[2][2]) - (mx[0][0] + 2 * mx[1][0] + mx[2][0]))
-                / (_8DY);
+        double dZdX = ((z[2] + 2 * z[5] + z[8]) - (z[0] + 2 * z[3] + z[6])) / (_8DX);
+        double dZdY = ((z[6] + 2 * z[7] + z[8]) - (z[0] + 2 * z[1] + z[2])) / (_8DY);
 
         if (Double.isNaN(dZdX) || Double.isNaN(dZdY) || Double.isInfinite(dZdX)
                 || Double.isInfinite(dZdY)) {
-            writer.setSample(0, noData);
-            return;
+            return noData;
         }
 
         // Computing the illumination angle
@@ -166,7 +140,6 @@ public class RasterHillshadeOperation extends AbstractSurfaceOperation {
             hsdVal = 255;
         }
 
-        writer.setSample(0, hsdVal);
-        updateStatistics(hsdVal);
+        return hsdVal;
     }
 }
\ No newline at end of file
@@ -16,7 +16,7 @@
  */
 package org.geotools.process.spatialstatistics.gridcoverage;
 
-import java.awt.image.WritableRaster;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -31,8 +31,10 @@ import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.core.FastFourierTransform;
 import org.geotools.process.spatialstatistics.core.StringHelper;
 import org.geotools.process.spatialstatistics.core.UnitConverter;
+import org.geotools.process.spatialstatistics.enumeration.KernelDensityMethod;
 import org.geotools.process.spatialstatistics.enumeration.KernelType;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
@@ -52,8 +54,16 @@ import org.locationtech.jts.geom.Geometry;
 public class RasterKernelDensityOperation extends RasterDensityOperation {
     protected static final Logger LOGGER = Logging.getLogger(RasterKernelDensityOperation.class);
 
+    // relative cost of a butterfly of the transform against a kernel cell of the direct method
+    static final double FFT_COST_FACTOR = 8.0;
+
+    // larger blocks are only used if the kernel requires them
+    static final int MAX_BLOCK_SIZE = 1024;
+
     private KernelType kernelType = KernelType.Quadratic;
 
+    private KernelDensityMethod densityMethod = KernelDensityMethod.Auto;
+
     public KernelType getKernelType() {
         return kernelType;
     }
@@ -62,6 +72,14 @@ public class RasterKernelDensityOperation extends RasterDensityOperation {
         this.kernelType = kernelType;
     }
 
+    public KernelDensityMethod getDensityMethod() {
+        return densityMethod;
+    }
+
+    public void setDensityMethod(KernelDensityMethod densityMethod) {
+        this.densityMethod = densityMethod == null ? KernelDensityMethod.Auto : densityMethod;
+    }
+
     public RasterKernelDensityOperation() {
 
     }
@@ -80,7 +98,6 @@ public class RasterKernelDensityOperation extends RasterDensityOperation {
         calculateExtentAndCellSize(pointFeatures, Integer.MIN_VALUE);
 
         DiskMemImage outputImage = this.createDiskMemImage(gridExtent, RasterPixelType.FLOAT);
-        WritableRaster raster = (WritableRaster) outputImage.getData();
 
         KernelJAI kernel = getKernel(searchRadius);
 
@@ -93,22 +110,45 @@ public class RasterKernelDensityOperation extends RasterDensityOperation {
 
         Filter filter = getBBoxFilter(pointFeatures.getSchema(), gridExtent, searchRadius);
 
+        KernelPoints points = collectPoints(pointFeatures.subCollection(filter), weightField,
+                kernel, outputImage.getWidth(), outputImage.getHeight());
+
+        KernelDensityMethod method = densityMethod;
+        if (method == KernelDensityMethod.Auto) {
+            method = selectDensityMethod(points.size, kernel, outputImage.getWidth(),
+                    outputImage.getHeight());
+        }
+
+        LOGGER.log(Level.FINE, "Kernel density of " + points.size + " points using " + method);
+
+        if (method == KernelDensityMethod.FFT) {
+            fftDensity(outputImage, kernel, points);
+        } else {
+            directDensity(outputImage, kernel, points);
+        }
+
+        return createGridCoverage("KernelDensity", outputImage);
+    }
+
+    /**
+     * Reads the grid location and weight of every point whose kernel overlaps the output grid.
+     */
+    private KernelPoints collectPoints(SimpleFeatureCollection pointFeatures, String weightField,
+            KernelJAI kernel, int imageWidth, int imageHeight) {
+        final int xOrigin = kernel.getXOrigin();
+        final int yOrigin = kernel.getYOrigin();
+        final int w = kernel.getWidth();
+        final int h = kernel.getHeight();
+
+        KernelPoints points = new KernelPoints();
         GridTransformer trans = new GridTransformer(gridExtent, pixelSizeX, pixelSizeY);
-        SimpleFeatureIterator featureIter = pointFeatures.subCollection(filter).features();
+        SimpleFeatureIterator featureIter = pointFeatures.features();
         try {
             Expression weightExp = ff.literal(1.0); // default
             if (!StringHelper.isNullOrEmpty(weightField)) {
                 weightExp = ff.property(weightField);
             }
 
-            final int imageWidth = outputImage.getWidth();
-            final int imageHeight = outputImage.getHeight();
-
-            final int xOrigin = kernel.getXOrigin();
-            final int yOrigin = kernel.getYOrigin();
-            final int w = kernel.getWidth();
-            final int h = kernel.getHeight();
-
             while (featureIter.hasNext()) {
                 SimpleFeature feature = featureIter.next();
                 Geometry multiPoint = (Geometry) feature.getDefaultGeometry();
@@ -125,86 +165,262 @@ public class RasterKernelDensityOperation extends RasterDensityOperation {
                 // Multipoints are treated as a set of individual points.
                 Coordinate[] coordinates = multiPoint.getCoordinates();
                 for (int part = 0; part < coordinates.length; part++) {
-                    Coordinate realPos = coordinates[part];
-                    final GridCoordinates2D gridPos = trans.worldToGrid(realPos);
-
-                    // raster index
-                    int x = gridPos.x - xOrigin;
-                    int y = gridPos.y - yOrigin;
-                    int xw = w;
-                    int yh = h;
-
-                    // kernel index
-                    int startCol = 0;
-                    int startRow = 0;
-                    int endCol = w;
-                    int endRow = h;
-
-                    if (x < 0 || y < 0) {
-                        if (x < 0) {
-                            xw = x + xw;
-                            startCol = Math.abs(x);
-                            x = 0;
-                        } else if (y < 0) {
-                            yh = y + yh;
-                            startRow = Math.abs(y);
-                            y = 0;
-                        }
-                    }
+                    final GridCoordinates2D gridPos = trans.worldToGrid(coordinates[part]);
 
-                    if ((x + xw) > imageWidth || (y + yh) > imageHeight) {
-                        if ((x + xw) > imageWidth) {
-                            int dif = (x + xw) - imageWidth;
-                            xw = xw - dif;
-                            endCol = xw;
-                        } else if ((y + yh) > imageHeight) {
-                            int dif = (y + yh) - imageHeight;
-                            yh = yh - dif;
-                            endRow = yh;
-                        }
+                    // skip points whose kernel does not reach the grid
+                    final int x = gridPos.x - xOrigin;
+                    final int y = gridPos.y - yOrigin;
+                    if (x + w <= 0 || y + h <= 0 || x >= imageWidth || y >= imageHeight) {
+                        continue;
                     }
 
-                    if (x < 0 || y < 0 || xw < 1 || yh < 1) {
+                    points.add(gridPos.x, gridPos.y, weight);
+                }
+            }
+        } finally {
+            featureIter.close();
+        }
+
+        return points;
+    }
+
+    /**
+     * Estimates the cost of both methods: points x kernel cells for the direct method, and two 2D transforms of every block for the FFT method.
+     */
+    private KernelDensityMethod selectDensityMethod(int pointCount, KernelJAI kernel,
+            int imageWidth, int imageHeight) {
+        final int w = kernel.getWidth();
+        final int h = kernel.getHeight();
+
+        final int blockSize = getBlockSize(w, h, imageWidth, imageHeight);
+        final int validSize = blockSize - Math.max(w, h) + 1;
+        final double blockCount = Math.ceil(imageWidth / (double) validSize)
+                * Math.ceil(imageHeight / (double) validSize);
+
+        final double log2 = Integer.numberOfTrailingZeros(blockSize);
+        final double fftCost = FFT_COST_FACTOR * blockCount * blockSize * blockSize * log2;
+        final double directCost = (double) pointCount * w * h;
+
+        return directCost > fftCost ? KernelDensityMethod.FFT : KernelDensityMethod.Direct;
+    }
+
+    /**
+     * Returns the size of the square FFT block. Each block yields (size - kernel size + 1)^2 output cells, so it is at least twice the kernel size,
+     * preferably four times, but not larger than needed for the whole padded grid.
+     */
+    private int getBlockSize(int kernelWidth, int kernelHeight, int imageWidth, int imageHeight) {
+        final int kernelSize = Math.max(kernelWidth, kernelHeight);
+        final int minSize = FastFourierTransform.nextPowerOfTwo(2 * kernelSize);
+
+        int blockSize = FastFourierTransform.nextPowerOfTwo(4 * kernelSize);
+        if (blockSize > MAX_BLOCK_SIZE) {
+            blockSize = Math.max(MAX_BLOCK_SIZE, minSize);
+        }
+
+        final int gridSize = Math.max(imageWidth, imageHeight) + kernelSize - 1;
+        blockSize = Math.min(blockSize, FastFourierTransform.nextPowerOfTwo(gridSize));
+
+        return Math.max(minSize, blockSize);
+    }
+
+    private void directDensity(DiskMemImage outputImage, KernelJAI kernel, KernelPoints points) {
+        DiskMemImageWriter writer = new DiskMemImageWriter(outputImage);
+
+        final int imageWidth = outputImage.getWidth();
+        final int imageHeight = outputImage.getHeight();
+
+        final int xOrigin = kernel.getXOrigin();
+        final int yOrigin = kernel.getYOrigin();
+        final int w = kernel.getWidth();
+        final int h = kernel.getHeight();
+        final float[] kernelData = kernel.getKernelData();
+
+        float[] samples = new float[w * h];
+        for (int index = 0; index < points.size; index++) {
+            final double weight = points.weights[index];
+
+            // raster index of the kernel's upper left cell
+            final int x = points.cols[index] - xOrigin;
+            final int y = points.rows[index] - yOrigin;
+
+            // kernel index, clipped to the raster
+            final int startCol = Math.max(0, -x);
+            final int startRow = Math.max(0, -y);
+            final int endCol = Math.min(w, imageWidth - x);
+            final int endRow = Math.min(h, imageHeight - y);
+
+            final int xw = endCol - startCol;
+            final int yh = endRow - startRow;
+            if (xw < 1 || yh < 1) {
+                continue;
+            }
+
+            // get data
+            writer.getSamples(x + startCol, y + startRow, xw, yh, samples);
+
+            int pos = 0;
+            for (int row = startRow; row < endRow; row++) {
+                for (int col = startCol; col < endCol; col++, pos++) {
+                    double kernelValue = kernelData[row * w + col];
+                    if (kernelValue == 0) {
                         continue;
                     }
 
-                    // get data
-                    try {
-                        float[] samples = raster.getSamples(x, y, xw, yh, 0, new float[xw * yh]);
+                    double wValue = ((weight * kernelValue) / scaleArea) + samples[pos];
+
+                    samples[pos] = (float) wValue;
+                    this.maxValue = Math.max(maxValue, wValue);
+                }
+            }
+
+            // set data
+            writer.setSamples(x + startCol, y + startRow, xw, yh, samples);
+        }
+    }
+
+    /**
+     * Convolves the binned points with the kernel using overlap-save FFT blocks. The output is split into blocks of (size - kernel size + 1)
+     * cells, and every block is computed from its padded window of bins independently, in parallel if parallelism > 1.
+     */
+    private void fftDensity(final DiskMemImage outputImage, KernelJAI kernel,
+            final KernelPoints points) {
+        final int imageWidth = outputImage.getWidth();
+        final int imageHeight = outputImage.getHeight();
+
+        final int xOrigin = kernel.getXOrigin();
+        final int yOrigin = kernel.getYOrigin();
+        final int w = kernel.getWidth();
+        final int h = kernel.getHeight();
+        final float[] kernelData = kernel.getKernelData();
+
+        final int size = getBlockSize(w, h, imageWidth, imageHeight);
+        final int validSize = size - Math.max(w, h) + 1;
+        final int blocksX = (imageWidth + validSize - 1) / validSize;
+        final int blocksY = (imageHeight + validSize - 1) / validSize;
+
+        final FastFourierTransform fft = new FastFourierTransform(size);
+        final DiskMemImageWriter writer = new DiskMemImageWriter(outputImage);
+
+        // spectrum of the kernel
+        final double[] kernelRe = new double[size * size];
+        final double[] kernelIm = new double[size * size];
+        double kernelMax = 0.0;
+        for (int row = 0; row < h; row++) {
+            for (int col = 0; col < w; col++) {
+                kernelRe[row * size + col] = kernelData[row * w + col];
+                kernelMax = Math.max(kernelMax, Math.abs(kernelData[row * w + col]));
+            }
+        }
+        fft.transform2D(kernelRe, kernelIm, false);
+        final double kernelAbsMax = kernelMax;
+
+        // bucket the points by block in padded grid coordinates, where padded column 0 is the
+        // leftmost column whose kernel reaches the first output column.
+        final int padX = w - 1 - xOrigin;
+        final int padY = h - 1 - yOrigin;
+        final int bucketsX = blocksX + 1;
+        final int bucketCount = bucketsX * (blocksY + 1);
+
+        final int[] offsets = new int[bucketCount + 1];
+        for (int index = 0; index < points.size; index++) {
+            offsets[getBucket(points, index, padX, padY, validSize, bucketsX) + 1]++;
+        }
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            offsets[bucket + 1] += offsets[bucket];
+        }
 
-                        int index = 0;
-                        for (int row = startRow; row < endRow; row++) {
-                            for (int col = startCol; col < endCol; col++) {
-                                double kernelValue = kernel.getElement(col, row);
-                                if (kernelValue == 0) {
-                                    index++;
+        final int[] order = new int[points.size];
+        final int[] next = Arrays.copyOf(offsets, bucketCount);
+        for (int index = 0; index < points.size; index++) {
+            order[next[getBucket(points, index, padX, padY, validSize, bucketsX)]++] = index;
+        }
+
+        executeTileRange(blocksX * blocksY, new TileRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                double[] re = new double[size * size];
+                double[] im = new double[size * size];
+
+                for (int block = start; block < end; block++) {
+                    final int blockX = block % blocksX;
+                    final int blockY = block / blocksX;
+                    final int ox = blockX * validSize;
+                    final int oy = blockY * validSize;
+
+                    Arrays.fill(re, 0.0);
+                    Arrays.fill(im, 0.0);
+
+                    // the window of the block spans its own bucket and the next one
+                    double absSum = 0.0;
+                    for (int by = blockY; by <= blockY + 1; by++) {
+                        for (int bx = blockX; bx <= blockX + 1; bx++) {
+                            final int bucket = by * bucketsX + bx;
+                            for (int k = offsets[bucket]; k < offsets[bucket + 1]; k++) {
+                                final int index = order[k];
+                                final int lx = points.cols[index] + padX - ox;
+                                final int ly = points.rows[index] + padY - oy;
+                                if (lx >= validSize + w - 1 || ly >= validSize + h - 1) {
                                     continue;
                                 }
 
-                                double wValue = ((weight * kernelValue) / scaleArea)
-                                        + samples[index];
-
-                                samples[index] = (float) wValue;
-                                this.maxValue = Math.max(maxValue, wValue);
-                                index++;
+                                re[ly * size + lx] += points.weights[index];
+                                absSum += Math.abs(points.weights[index]);
                             }
                         }
+                    }
+
+                    if (absSum == 0) {
+                        continue;
+                    }
+
+                    fft.transform2D(re, im, false);
+                    for (int i = 0; i < re.length; i++) {
+                        final double real = re[i] * kernelRe[i] - im[i] * kernelIm[i];
+                        im[i] = re[i] * kernelIm[i] + im[i] * kernelRe[i];
+                        re[i] = real;
+                    }
+                    fft.transform2D(re, im, true);
+
+                    // values below the rounding error of the transform are zero
+                    final double tolerance = 1.0e-12 * absSum * kernelAbsMax;
+
+                    final int bw = Math.min(validSize, imageWidth - ox);
+                    final int bh = Math.min(validSize, imageHeight - oy);
+                    final float[] values = new float[bw * bh];
+
+                    double blockMax = -Double.MAX_VALUE;
+                    int pos = 0;
+                    for (int row = 0; row < bh; row++) {
+                        final int offset = (row + h - 1) * size + w - 1;
+                        for (int col = 0; col < bw; col++, pos++) {
+                            double value = re[offset + col];
+                            if (Math.abs(value) < tolerance) {
+                                value = 0.0;
+                            }
+                            value = value / scaleArea;
 
-                        // set data
-                        raster.setSamples(x, y, xw, yh, 0, samples);
-                    } catch (Exception e) {
-                        LOGGER.log(Level.FINEST, e.getMessage());
+                            values[pos] = (float) value;
+                            blockMax = Math.max(blockMax, value);
+                        }
                     }
+
+                    writer.setSamples(ox, oy, bw, bh, values);
+
+                    updateMaxValue(blockMax);
                 }
             }
-        } finally {
-            featureIter.close();
-        }
+        });
+    }
 
-        // finally, set raster data to image
-        outputImage.setData(raster);
+    private int getBucket(KernelPoints points, int index, int padX, int padY, int validSize,
+            int bucketsX) {
+        final int bx = (points.cols[index] + padX) / validSize;
+        final int by = (points.rows[index] + padY) / validSize;
+        return by * bucketsX + bx;
+    }
 
-        return createGridCoverage("KernelDensity", outputImage);
+    private synchronized void updateMaxValue(double value) {
+        this.maxValue = Math.max(maxValue, value);
     }
 
     private KernelJAI getKernel(double searchRadius) {
@@ -311,4 +527,28 @@ public class RasterKernelDensityOperation extends RasterDensityOperation {
 
         return kernel;
     }
+
+    static final class KernelPoints {
+        int size = 0;
+
+        int[] cols = new int[256];
+
+        int[] rows = new int[256];
+
+        double[] weights = new double[256];
+
+        void add(int col, int row, double weight) {
+            if (size == cols.length) {
+                final int capacity = size * 2;
+                cols = Arrays.copyOf(cols, capacity);
+                rows = Arrays.copyOf(rows, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+
+            cols[size] = col;
+            rows[size] = row;
+            weights[size] = weight;
+            size++;
+        }
+    }
 }
@@ -75,7 +75,7 @@ public class RasterLineDensityOperation extends RasterDensityOperation {
         calculateExtentAndCellSize(lineFeatures, Integer.MIN_VALUE);
 
         DiskMemImage outputImage = this.createDiskMemImage(gridExtent, RasterPixelType.FLOAT);
-        WritableRaster raster = (WritableRaster) outputImage.getData();
+        DiskMemImageWriter writer = new DiskMemImageWriter(outputImage);
 
         // step 1 : convert line to gridcoverage
         final PlanarImage sourceImage = lineToRaster(lineFeatures, weightField, searchRadius);
@@ -158,7 +158,7 @@ public class RasterLineDensityOperation extends RasterDensityOperation {
                 }
 
                 // get data
-                float[] samples = raster.getSamples(x, y, xw, yh, 0, new float[xw * yh]);
+                float[] samples = writer.getSamples(x, y, xw, yh, new float[xw * yh]);
 
                 int index = 0;
                 for (int irow = startRow; irow < endRow; irow++) {
@@ -178,7 +178,7 @@ public class RasterLineDensityOperation extends RasterDensityOperation {
                 }
 
                 // set data
-                raster.setSamples(x, y, xw, yh, 0, samples);
+                writer.setSamples(x, y, xw, yh, samples);
 
                 readIter.nextPixel();
                 col++;
@@ -187,9 +187,6 @@ public class RasterLineDensityOperation extends RasterDensityOperation {
             row++;
         }
 
-        // finally, set raster data to image
-        outputImage.setData(raster);
-
         return createGridCoverage("LineDensity", outputImage);
     }
 
@@ -17,7 +17,6 @@
 package org.geotools.process.spatialstatistics.gridcoverage;
 
 import java.awt.RenderingHints;
-import java.awt.image.WritableRaster;
 import java.util.logging.Logger;
 
 import javax.measure.Unit;
@@ -83,7 +82,7 @@ public class RasterPointDensityOperation extends RasterDensityOperation {
         calculateExtentAndCellSize(pointFeatures, Integer.MIN_VALUE);
 
         DiskMemImage outputImage = this.createDiskMemImage(gridExtent, RasterPixelType.FLOAT);
-        WritableRaster raster = (WritableRaster) outputImage.getData();
+        DiskMemImageWriter writer = new DiskMemImageWriter(outputImage);
 
         final KernelJAI kernel = getKernel(this.rnh);
 
@@ -174,7 +173,7 @@ public class RasterPointDensityOperation extends RasterDensityOperation {
                     }
 
                     // get data
-                    float[] samples = raster.getSamples(x, y, xw, yh, 0, new float[xw * yh]);
+                    float[] samples = writer.getSamples(x, y, xw, yh, new float[xw * yh]);
 
                     int index = 0;
                     for (int row = startRow; row < endRow; row++) {
@@ -194,16 +193,13 @@ public class RasterPointDensityOperation extends RasterDensityOperation {
                     }
 
                     // set data
-                    raster.setSamples(x, y, xw, yh, 0, samples);
+                    writer.setSamples(x, y, xw, yh, samples);
                 }
             }
         } finally {
             featureIter.close();
         }
 
-        // finally, set raster data to image
-        outputImage.setData(raster);
-
         return createGridCoverage("PointDensity", scaleUnit(outputImage));
     }
 
@@ -74,6 +74,8 @@ import org.geotools.metadata.i18n.Vocabulary;
 import org.geotools.metadata.i18n.VocabularyKeys;
 import org.geotools.process.ProcessException;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.ParallelExecutor;
+import org.geotools.process.spatialstatistics.core.ParallelExecutor.RangeTask;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.process.spatialstatistics.storage.FeatureInserter;
@@ -119,6 +121,9 @@ public abstract class RasterProcessingOperation {
 
     protected double maxValue = Double.MIN_VALUE;
 
+    // default number of threads used by tile based raster operations
+    private int parallelism = ParallelExecutor.getDefaultParallelism();
+
     private String outTypeName = null;
 
     private DataStore outDataStore = null;
@@ -134,6 +139,17 @@ public abstract class RasterProcessingOperation {
         return outDataStore;
     }
 
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to process the tiles of the output image. 1 = sequential.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
     public void setOuptputTypeName(String ouptputTypeName) {
         this.outTypeName = ouptputTypeName;
     }
@@ -162,6 +178,19 @@ public abstract class RasterProcessingOperation {
         return null;
     }
 
+    /**
+     * Task processing the tiles [start, end) in row-major tile order. Each tile must only write its own pixels.
+     */
+    protected interface TileRangeTask extends RangeTask {
+    }
+
+    /**
+     * Runs the task over all tiles, splitting the range in the shared pool if parallelism > 1.
+     */
+    protected void executeTileRange(int tileCount, TileRangeTask task) {
+        ParallelExecutor.execute(tileCount, parallelism, 1, task);
+    }
+
     protected void updateStatistics(double retVal) {
         if (SSUtils.compareDouble(retVal, noData)) {
             return;
@@ -184,11 +213,22 @@ public abstract class RasterProcessingOperation {
             backgroundValues[index] = initValue;
         }
 
-        // raw level
-        WritableRaster raster = (WritableRaster) writableImage.getData();
-        // ImageUtil.fillBackground(raster, raster.getBounds(), backgroundValues);
-        this.fillBackground(raster, raster.getBounds(), backgroundValues);
-        writableImage.setData(raster);
+        // raw level, tile by tile in place
+        final Rectangle bounds = writableImage.getBounds();
+        final int maxTileX = writableImage.getMinTileX() + writableImage.getNumXTiles();
+        final int maxTileY = writableImage.getMinTileY() + writableImage.getNumYTiles();
+        for (int tileY = writableImage.getMinTileY(); tileY < maxTileY; tileY++) {
+            for (int tileX = writableImage.getMinTileX(); tileX < maxTileX; tileX++) {
+                WritableRaster tile = writableImage.getWritableTile(tileX, tileY);
+                try {
+                    // ImageUtil.fillBackground(raster, raster.getBounds(), backgroundValues);
+                    Rectangle tileRect = writableImage.getTileRect(tileX, tileY);
+                    this.fillBackground(tile, tileRect.intersection(bounds), backgroundValues);
+                } finally {
+                    writableImage.releaseWritableTile(tileX, tileY);
+                }
+            }
+        }
     }
 
     private boolean isBinary(SampleModel sm) {
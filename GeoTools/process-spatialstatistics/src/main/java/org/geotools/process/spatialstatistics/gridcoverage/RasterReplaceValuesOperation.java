@@ -16,7 +16,6 @@
  */
 package org.geotools.process.spatialstatistics.gridcoverage;
 
-import java.awt.image.WritableRaster;
 import java.util.logging.Logger;
 
 import javax.media.jai.PlanarImage;
@@ -63,9 +62,8 @@ public class RasterReplaceValuesOperation extends RasterProcessingOperation {
         // create template raster
         RasterPixelType pixelType = RasterHelper.getTransferType(inputCoverage);
         DiskMemImage outputImage = this.createDiskMemImage(inputCoverage, pixelType);
-        outputImage.setData(inputCoverage.getRenderedImage().getData());
-
-        WritableRaster outputRaster = (WritableRaster) outputImage.getData();
+        DiskMemImageWriter writer = new DiskMemImageWriter(outputImage);
+        writer.copy(inputCoverage.getRenderedImage());
 
         this.noData = RasterHelper.getNoDataValue(inputCoverage);
         GridTransformer inputTrans = new GridTransformer(inputCoverage);
@@ -82,10 +80,15 @@ public class RasterReplaceValuesOperation extends RasterProcessingOperation {
         double aoiNoData = RasterHelper.getNoDataValue(aoiGc);
         GridTransformer aoiTrans = new GridTransformer(aoiGc);
 
-        // replace values
+        // replace values, writing the contiguous cells of a row with one call
         PlanarImage inputImage = (PlanarImage) aoiGc.getRenderedImage();
         RectIter readIter = RectIterFactory.create(inputImage, inputImage.getBounds());
 
+        double[] run = new double[inputImage.getWidth()];
+        int runX = 0;
+        int runY = 0;
+        int runLength = 0;
+
         int valid = 0;
         int row = 0;
         readIter.startLines();
@@ -106,7 +109,15 @@ public class RasterReplaceValuesOperation extends RasterProcessingOperation {
                 Coordinate worldPos = aoiTrans.gridToWorldCoordinate(column, row);
                 GridCoordinates2D gridPos = inputTrans.worldToGrid(worldPos.x, worldPos.y);
                 if (inputTrans.contains(gridPos.x, gridPos.y)) {
-                    outputRaster.setSample(gridPos.x, gridPos.y, 0, gridVal);
+                    boolean adjacent = runLength > 0 && gridPos.y == runY
+                            && gridPos.x == runX + runLength;
+                    if (!adjacent || runLength == run.length) {
+                        writer.setSamples(runX, runY, runLength, 1, run);
+                        runX = gridPos.x;
+                        runY = gridPos.y;
+                        runLength = 0;
+                    }
+                    run[runLength++] = gridVal;
                 }
 
                 // TODO
@@ -120,13 +131,12 @@ public class RasterReplaceValuesOperation extends RasterProcessingOperation {
             row++;
             readIter.nextLine();
         }
+        writer.setSamples(runX, runY, runLength, 1, run);
 
         if (valid == 0) {
             return inputCoverage;
         }
 
-        outputImage.setData(outputRaster);
-
         return createGridCoverage(inputCoverage.getName(), outputImage);
     }
 }
\ No newline at end of file
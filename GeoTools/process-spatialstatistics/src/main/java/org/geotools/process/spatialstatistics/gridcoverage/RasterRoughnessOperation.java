@@ -18,12 +18,7 @@ package org.geotools.process.spatialstatistics.gridcoverage;
 
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
-import org.geotools.coverage.grid.GridCoordinates2D;
 import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
 import org.jaitools.tiledimage.DiskMemImage;
@@ -46,59 +41,37 @@ public class RasterRoughnessOperation extends AbstractSurfaceOperation {
     public GridCoverage2D execute(GridCoverage2D inputGc) {
         this.initSurface(inputGc);
 
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
-        WritableRectIter writer = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
-
-        GridCoordinates2D pos = new GridCoordinates2D();
-
-        int y = bounds.y;
-        writer.startLines();
-        while (!writer.finishedLines()) {
-
-            int x = bounds.x;
-            writer.startPixels();
-            while (!writer.finishedPixels()) {
-                pos.setLocation(x, y);
+        DiskMemImage outputImage = executeSurface(inputGc, RasterPixelType.FLOAT, 1.0,
+                createKernel());
 
-                visitRoughness(writer, pos);
+        return createGridCoverage("Roughness", outputImage);
+    }
 
-                writer.nextPixel();
-                x++;
+    SurfaceKernel createKernel() {
+        return new SurfaceKernel() {
+            @Override
+            public double evaluate(double[] z) {
+                return visitRoughness(z);
             }
-
-            writer.nextLine();
-            y++;
-        }
-
-        return createGridCoverage("Roughness", outputImage);
+        };
     }
 
-    private void visitRoughness(WritableRectIter writer, GridCoordinates2D pos) {
+    private double visitRoughness(double[] z) {
         // +-------+ +-------+
         // | 0 1 2 | | a b c |
         // | 3 4 5 |>| d e f |
         // | 6 7 8 | | g h i |
         // +-------+ +-------+
-        double[][] mx = getSubMatrix(pos, 3, 3);
-        if (Double.isNaN(mx[1][1]) || SSUtils.compareDouble(srcNoData, mx[1][1])) {
-            writer.setSample(0, noData);
-            return;
-        }
-
         // Roughness is the largest difference between any two cells
-        double roughnessMin = mx[0][0];
-        double roughnessMax = mx[0][0];
-        for (int col = 0; col < 3; col++) {
-            for (int row = 0; row < 3; row++) {
-                roughnessMax = Math.max(roughnessMax, mx[col][row]);
-                roughnessMin = Math.min(roughnessMin, mx[col][row]);
-            }
+        double roughnessMin = z[0];
+        double roughnessMax = z[0];
+        for (int k = 0; k < 9; k++) {
+            roughnessMax = Math.max(roughnessMax, z[k]);
+            roughnessMin = Math.min(roughnessMin, z[k]);
         }
 
         double roughness = roughnessMax - roughnessMin;
 
-        writer.setSample(0, roughness);
-        updateStatistics(roughness);
+        return roughness;
     }
 }
\ No newline at end of file
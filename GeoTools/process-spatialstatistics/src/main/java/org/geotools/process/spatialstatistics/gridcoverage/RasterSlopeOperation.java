@@ -18,12 +18,7 @@ package org.geotools.process.spatialstatistics.gridcoverage;
 
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
-import org.geotools.coverage.grid.GridCoordinates2D;
 import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.process.spatialstatistics.enumeration.SlopeType;
 import org.geotools.util.logging.Logging;
@@ -52,36 +47,22 @@ public class RasterSlopeOperation extends AbstractSurfaceOperation {
     public GridCoverage2D execute(GridCoverage2D inputGc, SlopeType slopeType, double zFactor) {
         this.initSurface(inputGc);
 
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
-        WritableRectIter writer = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
-
-        GridCoordinates2D pos = new GridCoordinates2D();
-
-        int y = bounds.y;
-        writer.startLines();
-        while (!writer.finishedLines()) {
+        DiskMemImage outputImage = executeSurface(inputGc, RasterPixelType.FLOAT, zFactor,
+                createKernel(slopeType));
 
-            int x = bounds.x;
-            writer.startPixels();
-            while (!writer.finishedPixels()) {
-                pos.setLocation(x, y);
-
-                visitSlope(writer, pos, slopeType, zFactor);
+        return createGridCoverage("Slope", outputImage);
+    }
 
-                writer.nextPixel();
-                x++;
+    SurfaceKernel createKernel(final SlopeType slopeType) {
+        return new SurfaceKernel() {
+            @Override
+            public double evaluate(double[] z) {
+                return visitSlope(z, slopeType);
             }
-
-            writer.nextLine();
-            y++;
-        }
-
-        return createGridCoverage("Slope", outputImage);
+        };
     }
 
-    private void visitSlope(WritableRectIter writer, GridCoordinates2D pos, SlopeType slopeType,
-            double zFactor) {
+    private double visitSlope(double[] z, SlopeType slopeType) {
         // http://webhelp.esri.com/arcgisdesktop/9.3/index.cfm?TopicName=How%20Slope%20works
         // Burrough, P. A. and McDonell, R.A., 1998. Principles of Geographical Information Systems
         // (Oxford University Press, New York), p. 190.
@@ -102,21 +83,12 @@ public class RasterSlopeOperation extends AbstractSurfaceOperation {
         // | 3 4 5 |>| d e f |
         // | 6 7 8 | | g h i |
         // +-------+ +-------+
-        double[][] mx = getSubMatrix(pos, 3, 3, zFactor);
-        if (Double.isNaN(mx[1][1]) || SSUtils.compareDouble(srcNoData, mx[1][1])) {
-            writer.setSample(0, noData);
-            return;
-        }
-
-        double dZdX = ((mx[2][0] + 2 * mx[2][1] + mx[2][2]) - (mx[0][0] + 2 * mx[0][1] + mx[0][2]))
-                / (_8DX);
-        double dZdY = ((mx[0][2] + 2 * mx[1][2] + mx[2][2]) - (mx[0][0] + 2 * mx[1][0] + mx[2][0]))
-                / (_8DY);
+        double dZdX = ((z[2] + 2 * z[5] + z[8]) - (z[0] + 2 * z[3] + z[6])) / (_8DX);
+        double dZdY = ((z[6] + 2 * z[7] + z[8]) - (z[0] + 2 * z[1] + z[2])) / (_8DY);
 
         double rise_run = (dZdX * dZdX) + (dZdY * dZdY);
         if (Double.isNaN(rise_run) || Double.isInfinite(rise_run)) {
-            writer.setSample(0, noData);
-            return;
+            return noData;
         }
 
         double slope = Math.atan(Math.sqrt(rise_run));
@@ -128,11 +100,9 @@ public class RasterSlopeOperation extends AbstractSurfaceOperation {
         }
 
         if (slope < 0 || slope > 100) {
-            writer.setSample(0, noData);
-            return;
+            return noData;
         }
 
-        writer.setSample(0, slope);
-        updateStatistics(slope);
+        return slope;
     }
 }
\ No newline at end of file
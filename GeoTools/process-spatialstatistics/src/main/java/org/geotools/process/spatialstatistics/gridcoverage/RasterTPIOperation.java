@@ -18,12 +18,7 @@ package org.geotools.process.spatialstatistics.gridcoverage;
 
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
-import org.geotools.coverage.grid.GridCoordinates2D;
 import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
 import org.jaitools.tiledimage.DiskMemImage;
@@ -46,52 +41,31 @@ public class RasterTPIOperation extends AbstractSurfaceOperation {
     public GridCoverage2D execute(GridCoverage2D inputGc) {
         this.initSurface(inputGc);
 
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
-        WritableRectIter writer = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
-
-        GridCoordinates2D pos = new GridCoordinates2D();
-
-        int y = bounds.y;
-        writer.startLines();
-        while (!writer.finishedLines()) {
+        DiskMemImage outputImage = executeSurface(inputGc, RasterPixelType.FLOAT, 1.0,
+                createKernel());
 
-            int x = bounds.x;
-            writer.startPixels();
-            while (!writer.finishedPixels()) {
-                pos.setLocation(x, y);
-
-                visitTPI(writer, pos);
+        return createGridCoverage("TPI", outputImage);
+    }
 
-                writer.nextPixel();
-                x++;
+    SurfaceKernel createKernel() {
+        return new SurfaceKernel() {
+            @Override
+            public double evaluate(double[] z) {
+                return visitTPI(z);
             }
-
-            writer.nextLine();
-            y++;
-        }
-
-        return createGridCoverage("TPI", outputImage);
+        };
     }
 
-    private void visitTPI(WritableRectIter writer, GridCoordinates2D pos) {
+    private double visitTPI(double[] z) {
         // +-------+ +-------+
         // | 0 1 2 | | a b c |
         // | 3 4 5 |>| d e f |
         // | 6 7 8 | | g h i |
         // +-------+ +-------+
-        double[][] mx = getSubMatrix(pos, 3, 3);
-        if (Double.isNaN(mx[1][1]) || SSUtils.compareDouble(srcNoData, mx[1][1])) {
-            writer.setSample(0, noData);
-            return;
-        }
-
         // Topographic Position Index is the difference between
         // The central cell and the mean of the surrounding cells
-        double tpi = mx[1][1]
-                - ((mx[0][0] + mx[1][0] + mx[2][0] + mx[0][1] + mx[2][1] + mx[0][2] + mx[1][2] + mx[2][2]) / 8.0);
+        double tpi = z[4] - ((z[0] + z[1] + z[2] + z[3] + z[5] + z[6] + z[7] + z[8]) / 8.0);
 
-        writer.setSample(0, tpi);
-        updateStatistics(tpi);
+        return tpi;
     }
 }
\ No newline at end of file
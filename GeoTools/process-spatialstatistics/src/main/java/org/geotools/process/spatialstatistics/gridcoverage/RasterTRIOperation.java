@@ -18,12 +18,7 @@ package org.geotools.process.spatialstatistics.gridcoverage;
 
 import java.util.logging.Logger;
 
-import javax.media.jai.iterator.RectIterFactory;
-import javax.media.jai.iterator.WritableRectIter;
-
-import org.geotools.coverage.grid.GridCoordinates2D;
 import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
 import org.geotools.util.logging.Logging;
 import org.jaitools.tiledimage.DiskMemImage;
@@ -47,53 +42,33 @@ public class RasterTRIOperation extends AbstractSurfaceOperation {
     public GridCoverage2D execute(GridCoverage2D inputGc) {
         this.initSurface(inputGc);
 
-        DiskMemImage outputImage = this.createDiskMemImage(inputGc, RasterPixelType.FLOAT);
-        WritableRectIter writer = RectIterFactory.createWritable(outputImage,
-                outputImage.getBounds());
-
-        GridCoordinates2D pos = new GridCoordinates2D();
-
-        int y = bounds.y;
-        writer.startLines();
-        while (!writer.finishedLines()) {
+        DiskMemImage outputImage = executeSurface(inputGc, RasterPixelType.FLOAT, 1.0,
+                createKernel());
 
-            int x = bounds.x;
-            writer.startPixels();
-            while (!writer.finishedPixels()) {
-                pos.setLocation(x, y);
-
-                visitTRI(writer, pos);
+        return createGridCoverage("TRI", outputImage);
+    }
 
-                writer.nextPixel();
-                x++;
+    SurfaceKernel createKernel() {
+        return new SurfaceKernel() {
+            @Override
+            public double evaluate(double[] z) {
+                return visitTRI(z);
             }
-
-            writer.nextLine();
-            y++;
-        }
-
-        return createGridCoverage("TRI", outputImage);
+        };
     }
 
-    private void visitTRI(WritableRectIter writer, GridCoordinates2D pos) {
+    private double visitTRI(double[] z) {
         // +-------+ +-------+
         // | 0 1 2 | | a b c |
         // | 3 4 5 |>| d e f |
         // | 6 7 8 | | g h i |
         // +-------+ +-------+
-        double[][] mx = getSubMatrix(pos, 3, 3);
-        if (Double.isNaN(mx[1][1]) || SSUtils.compareDouble(srcNoData, mx[1][1])) {
-            writer.setSample(0, noData);
-            return;
-        }
-
         // Terrain Ruggedness Index is average difference in height
-        final double tri = (Math.abs(mx[0][0] - mx[1][1]) + Math.abs(mx[1][0] - mx[1][1])
-                + Math.abs(mx[2][0] - mx[1][1]) + Math.abs(mx[0][1] - mx[1][1])
-                + Math.abs(mx[2][1] - mx[1][1]) + Math.abs(mx[0][2] - mx[1][1])
-                + Math.abs(mx[1][2] - mx[1][1]) + Math.abs(mx[2][2] - mx[1][1])) / 8.0;
+        final double tri = (Math.abs(z[0] - z[4]) + Math.abs(z[1] - z[4])
+                + Math.abs(z[2] - z[4]) + Math.abs(z[3] - z[4])
+                + Math.abs(z[5] - z[4]) + Math.abs(z[6] - z[4])
+                + Math.abs(z[7] - z[4]) + Math.abs(z[8] - z[4])) / 8.0;
 
-        writer.setSample(0, tri);
-        updateStatistics(tri);
+        return tri;
     }
 }
\ No newline at end of file
@@ -0,0 +1,150 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.gridcoverage;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.process.spatialstatistics.enumeration.RasterPixelType;
+import org.geotools.process.spatialstatistics.enumeration.SlopeType;
+import org.geotools.process.spatialstatistics.enumeration.TerrainType;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Calculates multiple terrain derivatives (slope, aspect, hillshade, curvature, TPI, TRI and roughness) in a single pass over a raster surface.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class RasterTerrainOperation extends AbstractSurfaceOperation {
+    protected static final Logger LOGGER = Logging.getLogger(RasterTerrainOperation.class);
+
+    private SlopeType slopeType = SlopeType.Degree;
+
+    private double azimuth = 315.0;
+
+    private double altitude = 45.0;
+
+    private double zFactor = 1.0;
+
+    public RasterTerrainOperation() {
+
+    }
+
+    public SlopeType getSlopeType() {
+        return slopeType;
+    }
+
+    public void setSlopeType(SlopeType slopeType) {
+        this.slopeType = slopeType;
+    }
+
+    public double getAzimuth() {
+        return azimuth;
+    }
+
+    public void setAzimuth(double azimuth) {
+        this.azimuth = azimuth;
+    }
+
+    public double getAltitude() {
+        return altitude;
+    }
+
+    public void setAltitude(double altitude) {
+        this.altitude = altitude;
+    }
+
+    public double getZFactor() {
+        return zFactor;
+    }
+
+    public void setZFactor(double zFactor) {
+        this.zFactor = zFactor;
+    }
+
+    public Map<TerrainType, GridCoverage2D> execute(GridCoverage2D inputGc,
+            Collection<TerrainType> terrainTypes) {
+        Map<TerrainType, GridCoverage2D> result = new EnumMap<TerrainType, GridCoverage2D>(
+                TerrainType.class);
+        if (terrainTypes == null || terrainTypes.isEmpty()) {
+            return result;
+        }
+
+        this.initSurface(inputGc);
+
+        TerrainType[] types = EnumSet.copyOf(terrainTypes).toArray(new TerrainType[0]);
+        SurfaceOutput[] outputs = new SurfaceOutput[types.length];
+        for (int index = 0; index < types.length; index++) {
+            outputs[index] = createOutput(inputGc, types[index]);
+        }
+
+        // read the source once for all products
+        executeSurface(inputGc, outputs);
+
+        for (int index = 0; index < types.length; index++) {
+            SurfaceOutput output = outputs[index];
+            result.put(types[index], createGridCoverage(types[index].name(), output.getImage(), 1,
+                    noData, output.getMinValue(), output.getMaxValue(), gridExtent));
+        }
+
+        return result;
+    }
+
+    private SurfaceOutput createOutput(GridCoverage2D inputGc, TerrainType terrainType) {
+        switch (terrainType) {
+        case Slope:
+            RasterSlopeOperation slope = new RasterSlopeOperation();
+            slope.initSurface(inputGc);
+            return new SurfaceOutput(slope.createKernel(slopeType), RasterPixelType.FLOAT,
+                    zFactor);
+        case Aspect:
+            RasterAspectOperation aspect = new RasterAspectOperation();
+            aspect.initSurface(inputGc);
+            return new SurfaceOutput(aspect.createKernel(), RasterPixelType.FLOAT, 1.0);
+        case Hillshade:
+            RasterHillshadeOperation hillshade = new RasterHillshadeOperation();
+            hillshade.initSurface(inputGc);
+            return new SurfaceOutput(hillshade.createKernel(azimuth, altitude, zFactor),
+                    RasterPixelType.FLOAT, zFactor);
+        case Curvature:
+            RasterCurvatureOperation curvature = new RasterCurvatureOperation();
+            curvature.initSurface(inputGc);
+            return new SurfaceOutput(curvature.createKernel(zFactor), RasterPixelType.FLOAT,
+                    zFactor);
+        case TPI:
+            RasterTPIOperation tpi = new RasterTPIOperation();
+            tpi.initSurface(inputGc);
+            return new SurfaceOutput(tpi.createKernel(), RasterPixelType.FLOAT, 1.0);
+        case TRI:
+            RasterTRIOperation tri = new RasterTRIOperation();
+            tri.initSurface(inputGc);
+            return new SurfaceOutput(tri.createKernel(), RasterPixelType.FLOAT, 1.0);
+        case Roughness:
+            RasterRoughnessOperation roughness = new RasterRoughnessOperation();
+            roughness.initSurface(inputGc);
+            return new SurfaceOutput(roughness.createKernel(), RasterPixelType.FLOAT, 1.0);
+        }
+
+        throw new IllegalArgumentException("Unsupported terrain type: " + terrainType);
+    }
+}
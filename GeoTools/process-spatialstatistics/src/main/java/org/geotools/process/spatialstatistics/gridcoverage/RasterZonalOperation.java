@@ -17,36 +17,44 @@
 package org.geotools.process.spatialstatistics.gridcoverage;
 
 import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.image.Raster;
 import java.io.IOException;
-import java.util.Hashtable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Logger;
 
 import javax.media.jai.PlanarImage;
-import javax.media.jai.iterator.RectIter;
-import javax.media.jai.iterator.RectIterFactory;
 
 import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.api.feature.simple.SimpleFeatureType;
 import org.geotools.api.referencing.crs.CoordinateReferenceSystem;
 import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridEnvelope2D;
 import org.geotools.coverage.grid.GridGeometry2D;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
-import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.FrequencyTable;
+import org.geotools.process.spatialstatistics.core.QuantileSketch;
 import org.geotools.process.spatialstatistics.core.SSUtils;
-import org.geotools.process.spatialstatistics.core.StatisticsVisitor;
-import org.geotools.process.spatialstatistics.core.StatisticsVisitor.DoubleStrategy;
-import org.geotools.process.spatialstatistics.core.StatisticsVisitorResult;
 import org.geotools.process.spatialstatistics.enumeration.ResampleType;
 import org.geotools.process.spatialstatistics.enumeration.ZonalStatisticsType;
 import org.geotools.process.spatialstatistics.storage.IFeatureInserter;
 import org.geotools.referencing.CRS;
 import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Polygon;
 
 /**
- * Calculates statistics on values of a raster within the zones of another features.
+ * Calculates statistics on values of a raster within the zones of another features. <br>
+ * Every zone is scanned row by row: the cells whose centre lies inside the polygon (even-odd rule) are read directly from the tiles of the value
+ * raster, so overlapping zones each get all of their cells. All statistics types are accumulated in a single pass into primitive per-zone arrays and
+ * the zones are processed in parallel. The percentiles are approximated with a bounded memory quantile sketch per zone.
  * 
  * @author Minpa Lee, MangoSystem
  * 
@@ -57,11 +65,25 @@ public class RasterZonalOperation extends RasterProcessingOperation {
 
     static final String AREA_FIELD = "Cell_Area";
 
+    // number of zones processed by a task
+    static final int ZONE_BLOCK_SIZE = 256;
+
     private double cellArea = 0.0;
 
-    private ZonalStatisticsType statisticsType = ZonalStatisticsType.Mean; // default
+    // per zone results
+    private int[] counts;
+
+    private double[] sums;
+
+    private double[] mins;
+
+    private double[] maxs;
+
+    private double[] sumSquares; // sum of squared deviations from the mean
 
-    private String targetField = ZonalStatisticsType.Mean.name(); // default
+    private double[] majorities;
+
+    private double[] percentiles; // P10, P50, P90 of each zone
 
     public RasterZonalOperation() {
 
@@ -70,9 +92,26 @@ public class RasterZonalOperation extends RasterProcessingOperation {
     public SimpleFeatureCollection execute(SimpleFeatureCollection zoneFeatures, String targetField,
             GridCoverage2D valueCoverage, Integer bandIndex, ZonalStatisticsType statisticsType)
             throws IOException {
-        this.statisticsType = statisticsType;
-        this.targetField = targetField;
+        return execute(zoneFeatures, valueCoverage, bandIndex,
+                new ZonalStatisticsType[] { statisticsType }, new String[] { targetField });
+    }
 
+    /**
+     * Calculates several statistics in one pass. The field name of each statistics is the name of its type.
+     */
+    public SimpleFeatureCollection execute(SimpleFeatureCollection zoneFeatures,
+            GridCoverage2D valueCoverage, Integer bandIndex, ZonalStatisticsType[] statisticsTypes)
+            throws IOException {
+        String[] targetFields = new String[statisticsTypes.length];
+        for (int index = 0; index < statisticsTypes.length; index++) {
+            targetFields[index] = statisticsTypes[index].name();
+        }
+        return execute(zoneFeatures, valueCoverage, bandIndex, statisticsTypes, targetFields);
+    }
+
+    private SimpleFeatureCollection execute(SimpleFeatureCollection zoneFeatures,
+            GridCoverage2D valueCoverage, final int bandIndex,
+            ZonalStatisticsType[] statisticsTypes, String[] targetFields) throws IOException {
         // check crs
         CoordinateReferenceSystem sCRS = valueCoverage.getCoordinateReferenceSystem();
         CoordinateReferenceSystem tCRS = zoneFeatures.getSchema().getCoordinateReferenceSystem();
@@ -82,86 +121,114 @@ public class RasterZonalOperation extends RasterProcessingOperation {
             valueCoverage = op.execute(valueCoverage, tCRS, ResampleType.NEAREST);
         }
 
-        // test intersection
-        ReferencedEnvelope gridEnv = new ReferencedEnvelope(valueCoverage.getEnvelope());
-        ReferencedEnvelope featureEnv = zoneFeatures.getBounds();
-        org.locationtech.jts.geom.Envelope intEnv = featureEnv.intersection(gridEnv);
-        if (intEnv == null || intEnv.isNull()) {
-            // return empty result
-            return insertFeatures(zoneFeatures, new Hashtable<Object, StatisticsVisitor>());
-        }
-
-        // crop coverage
-        RasterCropOperation cropOp = new RasterCropOperation();
-        GridCoverage2D cropGc = cropOp.execute(valueCoverage, new ReferencedEnvelope(intEnv, tCRS));
-
-        // cell size
+        // world to grid (cell centre) transform
         GridGeometry2D gridGeometry2D = valueCoverage.getGridGeometry();
         AffineTransform gridToWorld = (AffineTransform) gridGeometry2D.getGridToCRS2D();
+        cellArea = Math.abs(gridToWorld.getDeterminant());
 
-        double cellSizeX = Math.abs(gridToWorld.getScaleX());
-        double cellSizeY = Math.abs(gridToWorld.getScaleY());
-
-        // features to raster zone
-        FeaturesToRasterOperation rsOp = new FeaturesToRasterOperation();
-        rsOp.setExtentAndCellSize(new ReferencedEnvelope(cropGc.getEnvelope2D(), tCRS), cellSizeX, cellSizeY);
-        GridCoverage2D zonalGc = rsOp.execute(zoneFeatures);
-
-        // calculate statistics
-        Hashtable<Object, StatisticsVisitor> visitorMap = new Hashtable<Object, StatisticsVisitor>();
+        final AffineTransform worldToGrid;
+        try {
+            worldToGrid = gridToWorld.createInverse();
+        } catch (NoninvertibleTransformException e) {
+            throw new IOException(e);
+        }
 
-        final double inputNoData = RasterHelper.getNoDataValue(valueCoverage);
-        final double zoneNoData = RasterHelper.getNoDataValue(zonalGc);
-        cellArea = cellSizeX * cellSizeY;
-
-        PlanarImage zoneImage = (PlanarImage) zonalGc.getRenderedImage();
-        PlanarImage inputImage = (PlanarImage) cropGc.getRenderedImage();
-
-        RectIter zoneIter = RectIterFactory.create(zoneImage, zoneImage.getBounds());
-        RectIter inputIter = RectIterFactory.create(inputImage, inputImage.getBounds());
-        zoneIter.startLines();
-        inputIter.startLines();
-        while (!zoneIter.finishedLines() && !inputIter.finishedLines()) {
-            zoneIter.startPixels();
-            inputIter.startPixels();
-            while (!zoneIter.finishedPixels() && !inputIter.finishedPixels()) {
-                final Integer key = zoneIter.getSample(0); // one band
-                final double value = inputIter.getSampleDouble(bandIndex);
-
-                if (!SSUtils.compareDouble(zoneNoData, key)
-                        && !SSUtils.compareDouble(inputNoData, value)) {
-                    StatisticsVisitor visitor = visitorMap.get(key);
-                    if (visitor == null) {
-                        visitor = new StatisticsVisitor(new DoubleStrategy());
-                        visitorMap.put(key, visitor);
-                    }
-                    visitor.visit(value);
+        // zones
+        final List<Geometry> zones = new ArrayList<Geometry>();
+        SimpleFeatureIterator featureIter = zoneFeatures.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                if (geometry == null || geometry.isEmpty()) {
+                    continue;
                 }
-
-                zoneIter.nextPixel();
-                inputIter.nextPixel();
+                zones.add(geometry);
             }
-            zoneIter.nextLine();
-            inputIter.nextLine();
+        } finally {
+            featureIter.close();
         }
 
-        cropGc.dispose(false);
-        zonalGc.dispose(false);
+        final int zoneCount = zones.size();
+        counts = new int[zoneCount];
+        sums = new double[zoneCount];
+        mins = new double[zoneCount];
+        maxs = new double[zoneCount];
+        sumSquares = new double[zoneCount];
+        majorities = new double[zoneCount];
+
+        List<ZonalStatisticsType> types = Arrays.asList(statisticsTypes);
+        final boolean majority = types.contains(ZonalStatisticsType.Majority);
+        final boolean percentile = types.contains(ZonalStatisticsType.P10)
+                || types.contains(ZonalStatisticsType.P50)
+                || types.contains(ZonalStatisticsType.P90);
+        percentiles = percentile ? new double[zoneCount * 3] : null;
+        final PlanarImage image = PlanarImage.wrapRenderedImage(valueCoverage.getRenderedImage());
+        final GridEnvelope2D gridRange = gridGeometry2D.getGridRange2D();
+        final double inputNoData = RasterHelper.getNoDataValue(valueCoverage);
+
+        // calculate statistics
+        final int blockCount = (zoneCount + ZONE_BLOCK_SIZE - 1) / ZONE_BLOCK_SIZE;
+        executeTileRange(blockCount, new TileRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                ZoneScanner scanner = new ZoneScanner(image, bandIndex, gridRange, worldToGrid,
+                        inputNoData, majority, percentile);
+                final int last = Math.min(zoneCount, end * ZONE_BLOCK_SIZE);
+                for (int zone = start * ZONE_BLOCK_SIZE; zone < last; zone++) {
+                    scanner.scan(zones.get(zone), zone);
+                }
+            }
+        });
 
         // build result
-        return insertFeatures(zoneFeatures, visitorMap);
+        return insertFeatures(zoneFeatures, statisticsTypes, targetFields);
+    }
+
+    private Object getStatistics(ZonalStatisticsType statisticsType, int zone) {
+        final int count = counts[zone];
+        if (count == 0) {
+            return statisticsType == ZonalStatisticsType.Count ? Integer.valueOf(0) : null;
+        }
+
+        switch (statisticsType) {
+        case Count:
+            return Integer.valueOf(count);
+        case Sum:
+            return sums[zone];
+        case Minimum:
+            return mins[zone];
+        case Maximum:
+            return maxs[zone];
+        case Range:
+            return maxs[zone] - mins[zone];
+        case StdDev:
+            return Math.sqrt(Math.max(0.0, sumSquares[zone] / count));
+        case Majority:
+            return majorities[zone];
+        case P10:
+            return percentiles[zone * 3];
+        case P50:
+            return percentiles[zone * 3 + 1];
+        case P90:
+            return percentiles[zone * 3 + 2];
+        case Mean:
+        default:
+            return sums[zone] / count;
+        }
     }
 
     private SimpleFeatureCollection insertFeatures(SimpleFeatureCollection zoneFeatures,
-            Hashtable<Object, StatisticsVisitor> visitorMap) throws IOException {
+            ZonalStatisticsType[] statisticsTypes, String[] targetFields) throws IOException {
 
         // prepare transactional feature store
-        IFeatureInserter featureWriter = prepareFeatureWriter(zoneFeatures);
+        IFeatureInserter featureWriter = prepareFeatureWriter(zoneFeatures, statisticsTypes,
+                targetFields);
 
         // insert features
         SimpleFeatureIterator featureIter = zoneFeatures.features();
         try {
-            int featureID = 1;
+            int zone = 0;
             while (featureIter.hasNext()) {
                 SimpleFeature feature = featureIter.next();
                 Geometry geometry = (Geometry) feature.getDefaultGeometry();
@@ -173,47 +240,15 @@ public class RasterZonalOperation extends RasterProcessingOperation {
                 SimpleFeature newFeature = featureWriter.buildFeature();
                 featureWriter.copyAttributes(feature, newFeature, true);
 
-                // Count, Sum, Mean, Minimum, Maximum, Range, StdDev, Area
-                StatisticsVisitor visitor = visitorMap.get(featureID);
-                if (visitor == null) {
-                    if (statisticsType == ZonalStatisticsType.Count) {
-                        newFeature.setAttribute(targetField, Integer.valueOf(0));
-                    } else {
-                        newFeature.setAttribute(targetField, null);
-                    }
-                    newFeature.setAttribute(AREA_FIELD, 0.0);
-                } else {
-                    StatisticsVisitorResult ret = visitor.getResult();
-                    switch (statisticsType) {
-                    case Count:
-                        newFeature.setAttribute(targetField, ret.getCount());
-                        break;
-                    case Maximum:
-                        newFeature.setAttribute(targetField, ret.getMaximum());
-                        break;
-                    case Mean:
-                        newFeature.setAttribute(targetField, ret.getMean());
-                        break;
-                    case Minimum:
-                        newFeature.setAttribute(targetField, ret.getMinimum());
-                        break;
-                    case Range:
-                        newFeature.setAttribute(targetField, ret.getRange());
-                        break;
-                    case StdDev:
-                        newFeature.setAttribute(targetField, ret.getStandardDeviation());
-                        break;
-                    case Sum:
-                        newFeature.setAttribute(targetField, ret.getSum());
-                        break;
-                    default:
-                        newFeature.setAttribute(targetField, ret.getMean());
-                        break;
-                    }
-                    newFeature.setAttribute(AREA_FIELD, ret.getCount() * cellArea);
+                // Count, Sum, Mean, Minimum, Maximum, Range, StdDev, Majority, P10, P50, P90, Area
+                for (int index = 0; index < statisticsTypes.length; index++) {
+                    newFeature.setAttribute(targetFields[index],
+                            getStatistics(statisticsTypes[index], zone));
                 }
+                newFeature.setAttribute(AREA_FIELD, counts[zone] * cellArea);
+
                 featureWriter.write(newFeature);
-                featureID++;
+                zone++;
             }
         } catch (Exception e) {
             featureWriter.rollback(e);
@@ -224,13 +259,16 @@ public class RasterZonalOperation extends RasterProcessingOperation {
         return featureWriter.getFeatureCollection();
     }
 
-    private IFeatureInserter prepareFeatureWriter(SimpleFeatureCollection zoneSfs) {
+    private IFeatureInserter prepareFeatureWriter(SimpleFeatureCollection zoneSfs,
+            ZonalStatisticsType[] statisticsTypes, String[] targetFields) {
         SimpleFeatureType featureType = zoneSfs.getSchema();
 
-        if (statisticsType == ZonalStatisticsType.Count) {
-            featureType = FeatureTypes.add(featureType, targetField, Integer.class, 10);
-        } else {
-            featureType = FeatureTypes.add(featureType, targetField, Double.class, 19);
+        for (int index = 0; index < statisticsTypes.length; index++) {
+            if (statisticsTypes[index] == ZonalStatisticsType.Count) {
+                featureType = FeatureTypes.add(featureType, targetFields[index], Integer.class, 10);
+            } else {
+                featureType = FeatureTypes.add(featureType, targetFields[index], Double.class, 19);
+            }
         }
 
         // default
@@ -239,4 +277,270 @@ public class RasterZonalOperation extends RasterProcessingOperation {
         // prepare transactional feature store
         return getTransactionFeatureStore(featureType);
     }
-}
\ No newline at end of file
+
+    /**
+     * Scanline accumulator of one worker thread. The edges of a zone are transformed to grid coordinates, sorted by their first row and kept in an
+     * active edge list while the rows are scanned.
+     */
+    final class ZoneScanner {
+        private final PlanarImage image;
+
+        private final int bandIndex;
+
+        private final int gridMinX;
+
+        private final int gridMinY;
+
+        private final int gridMaxX; // exclusive
+
+        private final int gridMaxY; // exclusive
+
+        private final AffineTransform worldToGrid;
+
+        private final double noData;
+
+        private final FrequencyTable counter;
+
+        private final QuantileSketch sketch;
+
+        private double[] edges = new double[64]; // x0, y0, x1, y1
+
+        private long[] order = new long[16];
+
+        private int[] active = new int[16];
+
+        private double[] crossings = new double[16];
+
+        private double[] samples = new double[256];
+
+        private final double[] point = new double[2];
+
+        // statistics of the current zone
+        private int count;
+
+        private double sum;
+
+        private double min;
+
+        private double max;
+
+        private double mean;
+
+        private double m2;
+
+        ZoneScanner(PlanarImage image, int bandIndex, GridEnvelope2D gridRange,
+                AffineTransform worldToGrid, double noData, boolean majority,
+                boolean percentile) {
+            this.image = image;
+            this.bandIndex = bandIndex;
+            this.gridMinX = gridRange.x;
+            this.gridMinY = gridRange.y;
+            this.gridMaxX = gridRange.x + gridRange.width;
+            this.gridMaxY = gridRange.y + gridRange.height;
+            this.worldToGrid = worldToGrid;
+            this.noData = noData;
+            this.counter = majority ? new FrequencyTable() : null;
+            this.sketch = percentile ? new QuantileSketch() : null;
+        }
+
+        void scan(Geometry zone, int index) {
+            count = 0;
+            sum = 0;
+            min = Double.MAX_VALUE;
+            max = -Double.MAX_VALUE;
+            mean = 0;
+            m2 = 0;
+            if (counter != null) {
+                counter.clear();
+            }
+            if (sketch != null) {
+                sketch.reset();
+            }
+
+            final int edgeCount = collectEdges(zone);
+            if (edgeCount > 0) {
+                scanRows(edgeCount);
+            }
+
+            counts[index] = count;
+            sums[index] = sum;
+            mins[index] = min;
+            maxs[index] = max;
+            sumSquares[index] = m2;
+            majorities[index] = counter == null || count == 0 ? Double.NaN : counter.majority();
+            if (sketch != null) {
+                percentiles[index * 3] = sketch.getQuantile(0.1);
+                percentiles[index * 3 + 1] = sketch.getQuantile(0.5);
+                percentiles[index * 3 + 2] = sketch.getQuantile(0.9);
+            }
+        }
+
+        private int collectEdges(Geometry zone) {
+            int edgeCount = 0;
+            for (int part = 0; part < zone.getNumGeometries(); part++) {
+                Geometry geometry = zone.getGeometryN(part);
+                if (!(geometry instanceof Polygon)) {
+                    continue;
+                }
+
+                Polygon polygon = (Polygon) geometry;
+                edgeCount = collectEdges(polygon.getExteriorRing(), edgeCount);
+                for (int ring = 0; ring < polygon.getNumInteriorRing(); ring++) {
+                    edgeCount = collectEdges(polygon.getInteriorRingN(ring), edgeCount);
+                }
+            }
+            return edgeCount;
+        }
+
+        private int collectEdges(LineString ring, int edgeCount) {
+            CoordinateSequence coords = ring.getCoordinateSequence();
+            final int size = coords.size();
+            if (size < 2) {
+                return edgeCount;
+            }
+
+            if (edges.length < (edgeCount + size) * 4) {
+                edges = Arrays.copyOf(edges, Math.max(edges.length * 2, (edgeCount + size) * 4));
+            }
+
+            toGrid(coords.getX(0), coords.getY(0));
+            double px = point[0];
+            double py = point[1];
+            for (int k = 1; k < size; k++) {
+                toGrid(coords.getX(k), coords.getY(k));
+                if (py != point[1]) { // horizontal edges never cross a row centre line
+                    // store the lower end point first
+                    final int offset = edgeCount * 4;
+                    final boolean upward = py < point[1];
+                    edges[offset] = upward ? px : point[0];
+                    edges[offset + 1] = upward ? py : point[1];
+                    edges[offset + 2] = upward ? point[0] : px;
+                    edges[offset + 3] = upward ? point[1] : py;
+                    edgeCount++;
+                }
+                px = point[0];
+                py = point[1];
+            }
+            return edgeCount;
+        }
+
+        private void toGrid(double x, double y) {
+            point[0] = x;
+            point[1] = y;
+            worldToGrid.transform(point, 0, point, 0, 1);
+        }
+
+        private void scanRows(final int edgeCount) {
+            if (order.length < edgeCount) {
+                order = new long[Math.max(edgeCount, order.length * 2)];
+                active = new int[order.length];
+                crossings = new double[order.length];
+            }
+
+            double minY = Double.MAX_VALUE;
+            double maxY = -Double.MAX_VALUE;
+            for (int edge = 0; edge < edgeCount; edge++) {
+                minY = Math.min(minY, edges[edge * 4 + 1]);
+                maxY = Math.max(maxY, edges[edge * 4 + 3]);
+            }
+
+            // rows whose centre line (y = row) lies within the zone
+            final int startRow = Math.max(gridMinY, (int) Math.ceil(minY));
+            final int endRow = Math.min(gridMaxY - 1, (int) Math.ceil(maxY) - 1);
+            if (startRow > endRow) {
+                return;
+            }
+
+            // sort edges by their first row: (first row - start row) << 32 | edge
+            for (int edge = 0; edge < edgeCount; edge++) {
+                final long firstRow = Math.max(startRow, (int) Math.ceil(edges[edge * 4 + 1]));
+                order[edge] = ((firstRow - startRow) << 32) | edge;
+            }
+            Arrays.sort(order, 0, edgeCount);
+
+            int next = 0;
+            int activeCount = 0;
+            for (int row = startRow; row <= endRow; row++) {
+                // add the edges starting at this row, an edge covers the rows y0 <= row < y1
+                while (next < edgeCount && (order[next] >>> 32) <= row - startRow) {
+                    active[activeCount++] = (int) order[next++];
+                }
+
+                int crossingCount = 0;
+                int kept = 0;
+                for (int k = 0; k < activeCount; k++) {
+                    final int offset = active[k] * 4;
+                    final double y1 = edges[offset + 3];
+                    if (y1 <= row) {
+                        continue; // finished
+                    }
+                    active[kept++] = active[k];
+
+                    final double x0 = edges[offset];
+                    final double y0 = edges[offset + 1];
+                    final double x1 = edges[offset + 2];
+                    crossings[crossingCount++] = x0 + (row - y0) * (x1 - x0) / (y1 - y0);
+                }
+                activeCount = kept;
+
+                if (crossingCount < 2) {
+                    continue;
+                }
+
+                Arrays.sort(crossings, 0, crossingCount);
+                for (int k = 0; k + 1 < crossingCount; k += 2) {
+                    // cells whose centre x (= column) lies in [left, right)
+                    final int startCol = Math.max(gridMinX, (int) Math.ceil(crossings[k]));
+                    final int endCol = Math.min(gridMaxX - 1,
+                            (int) Math.ceil(crossings[k + 1]) - 1);
+                    if (startCol <= endCol) {
+                        accumulate(row, startCol, endCol);
+                    }
+                }
+            }
+        }
+
+        private void accumulate(int row, int startCol, int endCol) {
+            final int tileY = image.YToTileY(row);
+            for (int tileX = image.XToTileX(startCol); tileX <= image.XToTileX(endCol); tileX++) {
+                Raster tile = image.getTile(tileX, tileY);
+                final int x0 = Math.max(startCol, tile.getMinX());
+                final int x1 = Math.min(endCol, tile.getMinX() + tile.getWidth() - 1);
+                final int width = x1 - x0 + 1;
+                if (width <= 0) {
+                    continue;
+                }
+
+                if (samples.length < width) {
+                    samples = new double[Math.max(width, samples.length * 2)];
+                }
+                tile.getSamples(x0, row, width, 1, bandIndex, samples);
+
+                for (int k = 0; k < width; k++) {
+                    final double value = samples[k];
+                    if (Double.isNaN(value) || SSUtils.compareDouble(noData, value)) {
+                        continue;
+                    }
+
+                    count++;
+                    sum += value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+
+                    // Welford's online variance
+                    final double delta = value - mean;
+                    mean += delta / count;
+                    m2 += delta * (value - mean);
+
+                    if (counter != null) {
+                        counter.add(value);
+                    }
+
+                    if (sketch != null) {
+                        sketch.add(value);
+                    }
+                }
+            }
+        }
+    }
+}
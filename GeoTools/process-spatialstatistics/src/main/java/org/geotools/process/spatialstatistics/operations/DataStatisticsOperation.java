@@ -31,6 +31,7 @@ import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.QuantileSketch;
 import org.geotools.process.spatialstatistics.core.StatisticsVisitor;
 import org.geotools.process.spatialstatistics.core.StatisticsVisitor.DoubleStrategy;
 import org.geotools.process.spatialstatistics.core.StatisticsVisitorResult;
@@ -65,7 +66,7 @@ public class DataStatisticsOperation extends GeneralOperation {
         String propertyName = "Value";
         Double noData = RasterHelper.getNoDataValue(inputCoverage);
 
-        StatisticsVisitor visitor = new StatisticsVisitor(new DoubleStrategy());
+        StatisticsVisitor visitor = new StatisticsVisitor(new DoubleStrategy(new QuantileSketch()));
         visitor.setNoData(noData);
 
         if (cropShape == null) {
@@ -91,6 +92,7 @@ public class DataStatisticsOperation extends GeneralOperation {
 
         item.setRange(ret.getRange());
         item.setRanges(ret.getMinimum() + " - " + ret.getMaximum());
+        setPercentiles(item, ret);
 
         item.setNoData(ret.getNoData());
 
@@ -136,7 +138,7 @@ public class DataStatisticsOperation extends GeneralOperation {
 
                     StatisticsVisitor visitor = map.get(caseValue);
                     if (visitor == null) {
-                        visitor = new StatisticsVisitor(featureType, propertyName);
+                        visitor = createVisitor(featureType, propertyName);
                         map.put((String) caseValue, visitor);
                     }
                     visitor.visit(feature);
@@ -177,7 +179,7 @@ public class DataStatisticsOperation extends GeneralOperation {
             }
 
             // calculate
-            StatisticsVisitor visitor = new StatisticsVisitor(featureType, propertyName);
+            StatisticsVisitor visitor = createVisitor(featureType, propertyName);
             visitor.visit(inputFeatures);
 
             // remap for WPS PPIO
@@ -205,12 +207,28 @@ public class DataStatisticsOperation extends GeneralOperation {
 
         item.setRange(ret.getRange());
         item.setRanges(ret.getMinimum() + " - " + ret.getMaximum());
+        setPercentiles(item, ret);
 
         item.setNoData(ret.getNoData());
 
         return item;
     }
 
+    private StatisticsVisitor createVisitor(SimpleFeatureType featureType, String propertyName) {
+        // numeric fields also keep a quantile sketch for the percentiles
+        return new StatisticsVisitor(featureType, propertyName, new QuantileSketch());
+    }
+
+    private void setPercentiles(DataStatisticsItem item, StatisticsVisitorResult ret) {
+        if (ret.getQuantileSketch() == null || ret.getCount() == 0) {
+            return;
+        }
+
+        item.setPercentile10(ret.getQuantile(0.1));
+        item.setMedian(ret.getMedian());
+        item.setPercentile90(ret.getQuantile(0.9));
+    }
+
     // WPS PPIO output XML for Statistics Process Result
     public static class DataStatisticsResult {
 
@@ -270,6 +288,12 @@ public class DataStatisticsOperation extends GeneralOperation {
 
             Double coefficientOfVariance;
 
+            Double percentile10;
+
+            Double median;
+
+            Double percentile90;
+
             Object noData;
 
             public DataStatisticsItem(String typeName, String propertyName) {
@@ -412,6 +436,30 @@ public class DataStatisticsOperation extends GeneralOperation {
                 this.coefficientOfVariance = coefficientOfVariance;
             }
 
+            public Double getPercentile10() {
+                return percentile10;
+            }
+
+            public void setPercentile10(Double percentile10) {
+                this.percentile10 = percentile10;
+            }
+
+            public Double getMedian() {
+                return median;
+            }
+
+            public void setMedian(Double median) {
+                this.median = median;
+            }
+
+            public Double getPercentile90() {
+                return percentile90;
+            }
+
+            public void setPercentile90(Double percentile90) {
+                this.percentile90 = percentile90;
+            }
+
             public Object getNoData() {
                 return noData;
             }
@@ -440,6 +488,11 @@ public class DataStatisticsOperation extends GeneralOperation {
                 sb.append("Variance: ").append(variance).append(separator);
                 sb.append("StandardDeviation: ").append(standardDeviation).append(separator);
                 sb.append("CoefficientOfVariance: ").append(coefficientOfVariance);
+                if (median != null) {
+                    sb.append(separator).append("Percentile10: ").append(percentile10);
+                    sb.append(separator).append("Median: ").append(median);
+                    sb.append(separator).append("Percentile90: ").append(percentile90);
+                }
                 if (noData != null) {
                     sb.append(separator).append("NoData: ").append(noData);
                 }
@@ -17,24 +17,34 @@
 package org.geotools.process.spatialstatistics.pattern;
 
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.api.filter.expression.Expression;
+import org.geotools.api.referencing.operation.MathTransform;
 import org.geotools.api.referencing.operation.TransformException;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.geometry.jts.GeometryCoordinateSequenceTransformer;
 import org.geotools.geometry.jts.JTSFactoryFinder;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.core.ParallelExecutor;
 import org.geotools.util.logging.Logging;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
 
 /**
- * Abstract Binning Visitor.
+ * Abstract Binning Visitor. <br>
+ * The count, sum, minimum and maximum of each bin are accumulated in a {@link BinAccumulator}, which switches to sparse storage for very large grids.
+ * Partial grids of worker threads are merged into the final grid.
  * 
  * @author Minpa Lee, MangoSystem
  * 
@@ -54,26 +64,67 @@ public abstract class AbstractBinningVisitor {
 
     protected int rows;
 
-    protected Double[][] gridValues;
+    protected BinAccumulator gridValues;
 
     protected Geometry binTemplate;
 
-    protected int minCol = Integer.MAX_VALUE;
+    protected double minX;
 
-    protected int minRow = Integer.MAX_VALUE;
+    protected double minY;
 
-    protected int maxCol = Integer.MIN_VALUE;
+    private int parallelism = ParallelExecutor.getDefaultParallelism();
 
-    protected int maxRow = Integer.MIN_VALUE;
+    private int chunkSize = 4096;
 
-    protected double minX;
+    public int getParallelism() {
+        return parallelism;
+    }
 
-    protected double minY;
+    /**
+     * Sets the number of threads used to reproject and bin the features. 1 = sequential.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
 
-    public abstract void visit(Coordinate coordinate, double value);
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the number of features handed to a worker thread at once.
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public void visit(Coordinate coordinate, double value) {
+        this.visit(gridValues, coordinate, value);
+    }
+
+    /**
+     * Adds the value to the bin containing the coordinate. Implementations must only write to the target accumulator, so that worker threads can
+     * use their own partial grids.
+     */
+    protected abstract void visit(BinAccumulator target, Coordinate coordinate, double value);
 
     protected void visit(Geometry point, double value) {
-        this.visit(point.getCentroid().getCoordinate(), value);
+        this.visit(gridValues, point, value);
+    }
+
+    private void visit(BinAccumulator target, Geometry point, double value) {
+        if (point instanceof Point) {
+            this.visit(target, point.getCoordinate(), value);
+        } else {
+            this.visit(target, point.getCentroid().getCoordinate(), value);
+        }
+    }
+
+    protected void accumulate(BinAccumulator target, int row, int col, double value) {
+        if (col < 0 || row < 0 || col >= columns || row >= rows) {
+            return;
+        }
+        target.add(row, col, value);
     }
 
     protected void visit(SimpleFeatureCollection features, Expression weight,
@@ -82,10 +133,13 @@ public abstract class AbstractBinningVisitor {
         try {
             while (featureIter.hasNext()) {
                 SimpleFeature featture = featureIter.next();
-                Double value = weight == null ? Double.valueOf(1.0) : weight.evaluate(featture,
-                        Double.class);
-                if (value == null) {
-                    continue;
+                double value = 1.0;
+                if (weight != null) {
+                    Double evaluated = weight.evaluate(featture, Double.class);
+                    if (evaluated == null) {
+                        continue;
+                    }
+                    value = evaluated.doubleValue();
                 }
 
                 Geometry geometry = (Geometry) featture.getDefaultGeometry();
@@ -101,7 +155,261 @@ public abstract class AbstractBinningVisitor {
         }
     }
 
-    public abstract Iterator<Bin> getBins(GeometryCoordinateSequenceTransformer transformer);
+    /**
+     * Visits the features, reprojecting them with the transform (null = same crs) to the crs of the grid. <br>
+     * If parallelism > 1, the feature stream is split into chunks of chunkSize features. Each worker thread reprojects and bins its chunks into its
+     * own partial grid, and the partial grids are merged at the end. At most 2 * parallelism chunks are held in memory.
+     */
+    public void visit(SimpleFeatureCollection features, Expression weight,
+            final MathTransform transform) {
+        if (parallelism <= 1) {
+            this.visit(features, weight, createTransformer(transform));
+            return;
+        }
+
+        final ConcurrentLinkedQueue<BinAccumulator> partials = new ConcurrentLinkedQueue<BinAccumulator>();
+        final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+        final int maxPending = parallelism * 2;
+        final Semaphore pending = new Semaphore(maxPending);
+
+        ForkJoinPool executor = ParallelExecutor.getPool(parallelism);
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            Geometry[] geometries = new Geometry[chunkSize];
+            double[] values = new double[chunkSize];
+            int size = 0;
+
+            while (featureIter.hasNext() && failure.get() == null) {
+                SimpleFeature featture = featureIter.next();
+                double value = 1.0;
+                if (weight != null) {
+                    Double evaluated = weight.evaluate(featture, Double.class);
+                    if (evaluated == null) {
+                        continue;
+                    }
+                    value = evaluated.doubleValue();
+                }
+
+                geometries[size] = (Geometry) featture.getDefaultGeometry();
+                values[size++] = value;
+
+                if (size == chunkSize) {
+                    pending.acquire();
+                    executor.execute(new ChunkTask(geometries, values, size, transform, partials,
+                            failure, pending));
+                    geometries = new Geometry[chunkSize];
+                    values = new double[chunkSize];
+                    size = 0;
+                }
+            }
+
+            if (size > 0) {
+                pending.acquire();
+                executor.execute(new ChunkTask(geometries, values, size, transform, partials,
+                        failure, pending));
+            }
+
+            // every chunk task releases its permit when done
+            pending.acquire(maxPending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Binning was interrupted", e);
+        } finally {
+            featureIter.close();
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        for (BinAccumulator partial : partials) {
+            gridValues.merge(partial);
+        }
+    }
+
+    private GeometryCoordinateSequenceTransformer createTransformer(MathTransform transform) {
+        if (transform == null) {
+            return null;
+        }
+
+        GeometryCoordinateSequenceTransformer transformer = new GeometryCoordinateSequenceTransformer();
+        transformer.setMathTransform(transform);
+        transformer.setCoordinateReferenceSystem(extent.getCoordinateReferenceSystem());
+        return transformer;
+    }
+
+    /**
+     * Reprojects and bins a chunk of features into a partial grid. A partial grid is only used by one task at a time and is returned to the queue
+     * afterwards, so there are at most parallelism partial grids.
+     */
+    private final class ChunkTask implements Runnable {
+        private final Geometry[] geometries;
+
+        private final double[] values;
+
+        private final int size;
+
+        private final MathTransform transform;
+
+        private final ConcurrentLinkedQueue<BinAccumulator> partials;
+
+        private final AtomicReference<RuntimeException> failure;
+
+        private final Semaphore pending;
+
+        ChunkTask(Geometry[] geometries, double[] values, int size, MathTransform transform,
+                ConcurrentLinkedQueue<BinAccumulator> partials,
+                AtomicReference<RuntimeException> failure, Semaphore pending) {
+            this.geometries = geometries;
+            this.values = values;
+            this.size = size;
+            this.transform = transform;
+            this.partials = partials;
+            this.failure = failure;
+            this.pending = pending;
+        }
+
+        @Override
+        public void run() {
+            try {
+                BinAccumulator target = partials.poll();
+                if (target == null) {
+                    target = gridValues.createPartial();
+                }
+
+                GeometryCoordinateSequenceTransformer transformer = createTransformer(transform);
+                try {
+                    for (int index = 0; index < size; index++) {
+                        Geometry geometry = geometries[index];
+                        if (transformer != null) {
+                            // project source geometry to targetCRS
+                            geometry = transform(transformer, geometry);
+                        }
+                        visit(target, geometry, values[index]);
+                    }
+                } finally {
+                    partials.add(target);
+                }
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                pending.release();
+            }
+        }
+    }
+
+    /**
+     * Creates the geometry of the bin at the given row and column.
+     */
+    protected abstract Geometry createBinGeometry(int row, int col);
+
+    /**
+     * Returns whether the cell at the given row and column is a bin, used when all bins of the grid are returned.
+     */
+    protected boolean isBinCell(int row, int col) {
+        return true;
+    }
+
+    /**
+     * Returns the level of the bins in the given row, 0 for single level grids.
+     */
+    protected int getLevel(int row) {
+        return 0;
+    }
+
+    public Iterator<Bin> getBins(final GeometryCoordinateSequenceTransformer transformer) {
+        if (getOnlyValidGrid()) {
+            // occupied bins only, in row major order
+            final long[] occupied = gridValues.getOccupiedKeys();
+            return new Iterator<Bin>() {
+                int featureID = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return featureID < occupied.length;
+                }
+
+                @Override
+                public Bin next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException("hasNext() returned false!");
+                    }
+
+                    final long key = occupied[featureID];
+                    return createBin(featureID++, (int) (key / columns), (int) (key % columns),
+                            transformer);
+                }
+
+                @Override
+                public void remove() {
+                    // do nothing
+                }
+            };
+        }
+
+        return new Iterator<Bin>() {
+            int featureID = 0;
+
+            int row = 0;
+
+            int col = -1;
+
+            {
+                moveNext();
+            }
+
+            private void moveNext() {
+                do {
+                    if (++col == columns) {
+                        col = 0;
+                        row++;
+                    }
+                } while (row < rows && !isBinCell(row, col));
+            }
+
+            @Override
+            public boolean hasNext() {
+                return row < rows;
+            }
+
+            @Override
+            public Bin next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("hasNext() returned false!");
+                }
+
+                Bin bin = createBin(featureID++, row, col, transformer);
+                moveNext();
+                return bin;
+            }
+
+            @Override
+            public void remove() {
+                // do nothing
+            }
+        };
+    }
+
+    private Bin createBin(int featureID, int row, int col,
+            GeometryCoordinateSequenceTransformer transformer) {
+        Geometry grid = createBinGeometry(row, col);
+        if (transformer != null) {
+            // reproject grid geometry to sourceCRS
+            grid = transform(transformer, grid);
+        }
+
+        Bin bin = null;
+        final int slot = gridValues.indexOf(row, col);
+        if (slot == -1) {
+            // NULL to zero
+            bin = new Bin(featureID, grid, Double.valueOf(0d));
+        } else {
+            bin = new Bin(featureID, grid, gridValues.getCount(slot), gridValues.getSum(slot),
+                    gridValues.getMin(slot), gridValues.getMax(slot));
+        }
+        bin.level = getLevel(row);
+        return bin;
+    }
 
     public Boolean getOnlyValidGrid() {
         return onlyValidGrid;
@@ -125,12 +433,31 @@ public abstract class AbstractBinningVisitor {
 
         public Geometry geometry = null;
 
-        public Double value = null;
+        public Double value = null; // sum
+
+        public int count = 0;
+
+        public Double min = null;
+
+        public Double max = null;
+
+        public Double mean = null;
+
+        public int level = 0;
 
         public Bin(int featureID, Geometry geometry, Double value) {
             this.featureID = featureID;
             this.geometry = geometry;
             this.value = value;
         }
+
+        public Bin(int featureID, Geometry geometry, int count, double sum, double min,
+                double max) {
+            this(featureID, geometry, Double.valueOf(sum));
+            this.count = count;
+            this.min = Double.valueOf(min);
+            this.max = Double.valueOf(max);
+            this.mean = Double.valueOf(sum / count);
+        }
     }
 }
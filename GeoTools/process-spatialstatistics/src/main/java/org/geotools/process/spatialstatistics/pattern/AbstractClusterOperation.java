@@ -30,10 +30,14 @@ import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.core.FeatureSnapshot;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.ParallelExecutor;
+import org.geotools.process.spatialstatistics.core.ParallelExecutor.RangeTask;
 import org.geotools.process.spatialstatistics.operations.GeneralOperation;
 import org.geotools.util.logging.Logging;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
 import org.locationtech.jts.index.strtree.STRtree;
 
@@ -83,6 +87,21 @@ public abstract class AbstractClusterOperation extends GeneralOperation {
 
     protected STRtree caseIndex;
 
+    // Evaluate the circles with the centroids of the features. null = only if both inputs are points
+    protected Boolean pointMode = null;
+
+    protected boolean usePointMode = false;
+
+    protected ClusterPointIndex popPoints;
+
+    protected ClusterPointIndex casePoints;
+
+    private FeatureSnapshot popSnapshot = null;
+
+    private FeatureSnapshot caseSnapshot = null;
+
+    private int parallelism = ParallelExecutor.getDefaultParallelism();
+
     protected SimpleFeatureCollection outFeatures;
 
     protected GridCoverage2D outRaster;
@@ -103,6 +122,53 @@ public abstract class AbstractClusterOperation extends GeneralOperation {
         this.threshold = threshold;
     }
 
+    public Boolean getPointMode() {
+        return pointMode;
+    }
+
+    /**
+     * Sets whether the features are represented by their centroids. A feature then belongs to a circle if the distance of its centroid to the centre
+     * is less than or equal to the radius, which avoids building and intersecting a polygon per circle. The default (null) uses point mode only if
+     * both population and case features are points.
+     */
+    public void setPointMode(Boolean pointMode) {
+        this.pointMode = pointMode;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to evaluate the circles. 1 = sequential.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Sets the columnar snapshot of the population features, ex) getPopulationSnapshot() of a previous run on the same feature collection. In
+     * point mode the centroids and population values are then taken from it instead of reading the features again.
+     */
+    public void setPopulationSnapshot(FeatureSnapshot popSnapshot) {
+        this.popSnapshot = popSnapshot;
+    }
+
+    public FeatureSnapshot getPopulationSnapshot() {
+        return popSnapshot;
+    }
+
+    /**
+     * Sets the columnar snapshot of the case features, see {@link #setPopulationSnapshot(FeatureSnapshot)}.
+     */
+    public void setCaseSnapshot(FeatureSnapshot caseSnapshot) {
+        this.caseSnapshot = caseSnapshot;
+    }
+
+    public FeatureSnapshot getCaseSnapshot() {
+        return caseSnapshot;
+    }
+
     public GridCoverage2D getRaster() {
         return outRaster;
     }
@@ -144,55 +210,120 @@ public abstract class AbstractClusterOperation extends GeneralOperation {
 
     protected void preEvaluate(SimpleFeatureCollection popFeatures, Expression popField,
             SimpleFeatureCollection caseFeatures, Expression caseField) {
-        // 1. Population
-        popIndex = new STRtree();
+        if (isPointModeRequired()) {
+            usePointMode = true;
+        } else if (pointMode == null) {
+            usePointMode = isPointType(popFeatures) && isPointType(caseFeatures);
+        } else {
+            usePointMode = pointMode.booleanValue();
+        }
 
         double sumPop = 0d;
-        SimpleFeatureIterator featureIter = popFeatures.features();
-        try {
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-
-                double value = getEvaluated(popField.evaluate(feature));
-                if (value <= 0) {
-                    continue;
-                }
+        double sumCases = 0d;
+        popIndex = new STRtree();
+        caseIndex = new STRtree();
+        popPoints = new ClusterPointIndex();
+        casePoints = new ClusterPointIndex();
+
+        if (usePointMode) {
+            // only the centroids and values are needed
+            popSnapshot = loadSnapshot(popSnapshot, popFeatures, popField);
+            caseSnapshot = loadSnapshot(caseSnapshot, caseFeatures, caseField);
+
+            sumPop = addPoints(popPoints, popSnapshot, popSnapshot.getColumn(popField));
+            sumCases = addPoints(casePoints, caseSnapshot, caseSnapshot.getColumn(caseField));
+        } else {
+            sumPop = insertFeatures(popIndex, popFeatures, popField);
+            sumCases = insertFeatures(caseIndex, caseFeatures, caseField);
+        }
 
-                sumPop += value;
+        this.density = sumPop == 0 ? 0 : sumCases / sumPop;
 
-                NearFeature item = new NearFeature(feature.getID(), geometry, value);
-                popIndex.insert(geometry.getEnvelopeInternal(), item);
+        // build the indexes before they are queried from several threads
+        if (usePointMode) {
+            popPoints.build();
+            casePoints.build();
+        } else {
+            if (popIndex.size() > 0) {
+                popIndex.build();
+            }
+            if (caseIndex.size() > 0) {
+                caseIndex.build();
             }
-        } finally {
-            featureIter.close();
         }
+    }
 
-        // 2. Cases
-        caseIndex = new STRtree();
+    private FeatureSnapshot loadSnapshot(FeatureSnapshot snapshot,
+            SimpleFeatureCollection features, Expression field) {
+        // a filtered or edited collection is another instance
+        if (snapshot != null && snapshot.isLoadedFrom(features) && snapshot.hasColumn(field)) {
+            return snapshot;
+        }
+        return FeatureSnapshot.load(features, null, field);
+    }
 
-        double sumCases = 0d;
-        featureIter = caseFeatures.features();
+    private double addPoints(ClusterPointIndex points, FeatureSnapshot snapshot, double[] values) {
+        double sum = 0d;
+        for (int i = 0; i < snapshot.size(); i++) {
+            double value = values[i];
+            if (snapshot.isEmpty(i) || Double.isInfinite(value) || !(value > 0)) {
+                continue;
+            }
+
+            sum += value;
+            points.add(snapshot.getX(i), snapshot.getY(i), value);
+        }
+        return sum;
+    }
+
+    private double insertFeatures(STRtree spatialIndex, SimpleFeatureCollection features,
+            Expression field) {
+        double sum = 0d;
+        SimpleFeatureIterator featureIter = features.features();
         try {
             while (featureIter.hasNext()) {
                 SimpleFeature feature = featureIter.next();
                 Geometry geometry = (Geometry) feature.getDefaultGeometry();
 
-                double value = getEvaluated(caseField.evaluate(feature));
+                double value = getEvaluated(field.evaluate(feature));
                 if (value <= 0) {
                     continue;
                 }
 
-                sumCases += value;
+                sum += value;
 
                 NearFeature item = new NearFeature(feature.getID(), geometry, value);
-                caseIndex.insert(geometry.getEnvelopeInternal(), item);
+                spatialIndex.insert(geometry.getEnvelopeInternal(), item);
             }
         } finally {
             featureIter.close();
         }
+        return sum;
+    }
 
-        this.density = sumPop == 0 ? 0 : sumCases / sumPop;
+    /**
+     * Returns true if the operation always works on the centroids of the features, whatever the point mode setting.
+     */
+    protected boolean isPointModeRequired() {
+        return false;
+    }
+
+    private boolean isPointType(SimpleFeatureCollection features) {
+        Class<?> binding = features.getSchema().getGeometryDescriptor().getType().getBinding();
+        return Point.class.equals(binding);
+    }
+
+    /**
+     * Task evaluating the circles [start, end). Each task must only write its own result slots.
+     */
+    protected interface CircleRangeTask extends RangeTask {
+    }
+
+    /**
+     * Runs the task over all circles, splitting the range in the shared pool if parallelism > 1.
+     */
+    protected void executeCircleRange(int count, CircleRangeTask task) {
+        ParallelExecutor.execute(count, parallelism, 1, task);
     }
 
     protected double getEvaluated(Object evaluated) {
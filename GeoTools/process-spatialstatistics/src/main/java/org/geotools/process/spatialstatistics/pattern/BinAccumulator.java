@@ -0,0 +1,303 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.pattern;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates the count, sum, minimum and maximum of the values falling into each bin of a binning grid. <br>
+ * Small grids are stored in dense primitive arrays. Grids with more than {@link #SPARSE_THRESHOLD} bins are stored in an open addressing hash table
+ * keyed by row * columns + column, so that only the occupied bins use memory.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ * 
+ */
+public class BinAccumulator {
+
+    /** the number of bins above which the sparse storage is used */
+    public static final long SPARSE_THRESHOLD = 1L << 22;
+
+    /** the number of bins above which the partial grids of worker threads use the sparse storage */
+    public static final long PARTIAL_SPARSE_THRESHOLD = 1L << 16;
+
+    private static final long EMPTY = -1L;
+
+    private final int rows;
+
+    private final int columns;
+
+    private final boolean sparse;
+
+    private long[] keys; // sparse only
+
+    private int[] counts;
+
+    private double[] sums;
+
+    private double[] mins;
+
+    private double[] maxs;
+
+    private int size = 0;
+
+    private int mask;
+
+    public BinAccumulator(int rows, int columns) {
+        this(rows, columns, (long) rows * columns > SPARSE_THRESHOLD);
+    }
+
+    public BinAccumulator(int rows, int columns, boolean sparse) {
+        this.rows = rows;
+        this.columns = columns;
+        this.sparse = sparse || (long) rows * columns > Integer.MAX_VALUE;
+
+        if (this.sparse) {
+            allocate(1024);
+        } else {
+            final int length = rows * columns;
+            counts = new int[length];
+            sums = new double[length];
+            mins = new double[length];
+            maxs = new double[length];
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * Returns the number of occupied bins.
+     */
+    public int size() {
+        return size;
+    }
+
+    public void add(int row, int col, double value) {
+        final int slot;
+        if (sparse) {
+            slot = insert((long) row * columns + col);
+        } else {
+            slot = row * columns + col;
+        }
+
+        if (counts[slot] == 0) {
+            if (!sparse) {
+                size++;
+            }
+            sums[slot] = value;
+            mins[slot] = value;
+            maxs[slot] = value;
+        } else {
+            sums[slot] += value;
+            if (value < mins[slot]) {
+                mins[slot] = value;
+            }
+            if (value > maxs[slot]) {
+                maxs[slot] = value;
+            }
+        }
+        counts[slot]++;
+    }
+
+    /**
+     * Creates an empty accumulator with the same grid and storage.
+     */
+    public BinAccumulator createEmpty() {
+        return new BinAccumulator(rows, columns, sparse);
+    }
+
+    /**
+     * Creates an empty accumulator of the same grid for a worker thread. Each worker only sees the bins of its own chunks, so the partial grid is
+     * sparse unless the grid is small, instead of copying a dense grid of up to {@link #SPARSE_THRESHOLD} bins per thread.
+     */
+    public BinAccumulator createPartial() {
+        return new BinAccumulator(rows, columns, (long) rows * columns > PARTIAL_SPARSE_THRESHOLD);
+    }
+
+    /**
+     * Adds the bins of another accumulator of the same grid.
+     */
+    public void merge(BinAccumulator other) {
+        if (other.rows != rows || other.columns != columns) {
+            throw new IllegalArgumentException("The grids of the accumulators are different");
+        }
+
+        final int length = other.counts.length;
+        for (int src = 0; src < length; src++) {
+            final int count = other.counts[src];
+            if (count == 0) {
+                continue;
+            }
+
+            final int slot;
+            if (sparse) {
+                long key = other.sparse ? other.keys[src] : src;
+                slot = insert(key);
+            } else {
+                slot = other.sparse ? (int) other.keys[src] : src;
+            }
+
+            if (counts[slot] == 0) {
+                if (!sparse) {
+                    size++;
+                }
+                sums[slot] = other.sums[src];
+                mins[slot] = other.mins[src];
+                maxs[slot] = other.maxs[src];
+            } else {
+                sums[slot] += other.sums[src];
+                mins[slot] = Math.min(mins[slot], other.mins[src]);
+                maxs[slot] = Math.max(maxs[slot], other.maxs[src]);
+            }
+            counts[slot] += count;
+        }
+    }
+
+    /**
+     * Returns the storage slot of the bin, or -1 if the bin is empty.
+     */
+    public int indexOf(int row, int col) {
+        if (!sparse) {
+            final int slot = row * columns + col;
+            return counts[slot] == 0 ? -1 : slot;
+        }
+
+        final long key = (long) row * columns + col;
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the keys (row * columns + column) of the occupied bins in row major order.
+     */
+    public long[] getOccupiedKeys() {
+        long[] occupied = new long[size];
+        int index = 0;
+        if (sparse) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != EMPTY) {
+                    occupied[index++] = keys[slot];
+                }
+            }
+            Arrays.sort(occupied);
+        } else {
+            for (int slot = 0; slot < counts.length; slot++) {
+                if (counts[slot] > 0) {
+                    occupied[index++] = slot;
+                }
+            }
+        }
+        return occupied;
+    }
+
+    public int getCount(int slot) {
+        return counts[slot];
+    }
+
+    public double getSum(int slot) {
+        return sums[slot];
+    }
+
+    public double getMin(int slot) {
+        return mins[slot];
+    }
+
+    public double getMax(int slot) {
+        return maxs[slot];
+    }
+
+    public double getMean(int slot) {
+        return sums[slot] / counts[slot];
+    }
+
+    private int insert(long key) {
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+            return insert(key);
+        }
+
+        keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        counts = new int[capacity];
+        sums = new double[capacity];
+        mins = new double[capacity];
+        maxs = new double[capacity];
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        double[] oldSums = sums;
+        double[] oldMins = mins;
+        double[] oldMaxs = maxs;
+
+        allocate(capacity);
+        for (int old = 0; old < oldKeys.length; old++) {
+            if (oldKeys[old] == EMPTY) {
+                continue;
+            }
+
+            int slot = hash(oldKeys[old]) & mask;
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[old];
+            counts[slot] = oldCounts[old];
+            sums[slot] = oldSums[old];
+            mins[slot] = oldMins[old];
+            maxs[slot] = oldMaxs[old];
+        }
+    }
+
+    private static int hash(long key) {
+        key = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+        key = (key ^ (key >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return (int) (key ^ (key >>> 33));
+    }
+}
@@ -24,6 +24,7 @@ import org.geotools.api.referencing.crs.CoordinateReferenceSystem;
 import org.geotools.api.referencing.operation.MathTransform;
 import org.geotools.api.referencing.operation.TransformException;
 import org.geotools.geometry.jts.GeometryCoordinateSequenceTransformer;
+import org.geotools.process.spatialstatistics.core.ParallelExecutor;
 import org.geotools.process.spatialstatistics.operations.GeneralOperation;
 import org.geotools.referencing.CRS;
 import org.geotools.util.logging.Logging;
@@ -42,12 +43,24 @@ public abstract class BinningOperation extends GeneralOperation {
 
     protected static final String UID = "uid";
 
-    protected static final String AGG_FIELD = "val";
+    protected static final String AGG_FIELD = "val"; // sum
+
+    protected static final String COUNT_FIELD = "count";
+
+    protected static final String MIN_FIELD = "min";
+
+    protected static final String MAX_FIELD = "max";
+
+    protected static final String MEAN_FIELD = "mean";
+
+    protected static final String LEVEL_FIELD = "level";
 
     protected static int quadrantSegments = 16;
 
     private Boolean onlyValidGrid = Boolean.TRUE;
 
+    private int parallelism = ParallelExecutor.getDefaultParallelism();
+
     public Boolean getOnlyValidGrid() {
         return onlyValidGrid;
     }
@@ -56,6 +69,17 @@ public abstract class BinningOperation extends GeneralOperation {
         this.onlyValidGrid = onlyValidGrid;
     }
 
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to reproject and bin the features. 1 = sequential.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
     protected MathTransform findMathTransform(CoordinateReferenceSystem sourceCRS,
             CoordinateReferenceSystem targetCRS, boolean lenient) {
         if (targetCRS == null || CRS.equalsIgnoreMetadata(sourceCRS, targetCRS)) {
@@ -149,8 +149,8 @@ public class CirclesToDensityRaster {
         data = kernel.getKernelData();
 
         // World to Grid
-        double x = circle.getCenter().getX();
-        double y = circle.getCenter().getY();
+        double x = circle.getX();
+        double y = circle.getY();
         GridCoordinates2D gridPos = transform.worldToGrid(x, y);
 
         int k = 0;
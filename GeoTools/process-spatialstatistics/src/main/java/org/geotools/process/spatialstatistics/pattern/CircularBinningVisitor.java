@@ -16,12 +16,9 @@
  */
 package org.geotools.process.spatialstatistics.pattern;
 
-import java.util.Iterator;
-import java.util.NoSuchElementException;
 import java.util.logging.Logger;
 
 import org.geotools.api.referencing.crs.CoordinateReferenceSystem;
-import org.geotools.geometry.jts.GeometryCoordinateSequenceTransformer;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.process.spatialstatistics.util.CoordinateTranslateFilter;
 import org.geotools.util.logging.Logging;
@@ -72,112 +69,24 @@ public class CircularBinningVisitor extends AbstractBinningVisitor {
         this.minX = finalBBox.getMinX();
         this.minY = finalBBox.getMinY();
 
-        this.gridValues = new Double[rows][columns];
+        this.gridValues = new BinAccumulator(rows, columns);
 
         Point center = gf.createPoint(new Coordinate(minX + radius, minY + radius));
         this.binTemplate = center.buffer(radius, quadrantSegments);
     }
 
     @Override
-    public void visit(Coordinate coordinate, double value) {
+    protected void visit(BinAccumulator target, Coordinate coordinate, double value) {
         // origin = lower left
         int col = (int) Math.floor((coordinate.x - minX) / diameter);
         int row = (int) Math.floor((coordinate.y - minY) / diameter);
-        if (col < 0 || row < 0 || col >= columns || row >= rows) {
-            return;
-        }
-
-        Double preVal = gridValues[row][col];
-        gridValues[row][col] = preVal == null ? value : preVal + value;
-
-        if (getOnlyValidGrid()) {
-            minCol = Math.min(col, minCol);
-            maxCol = Math.max(col, maxCol);
-            minRow = Math.min(row, minRow);
-            maxRow = Math.max(row, maxRow);
-        }
+        this.accumulate(target, row, col, value);
     }
 
     @Override
-    public Iterator<Bin> getBins(final GeometryCoordinateSequenceTransformer transformer) {
-        if (!getOnlyValidGrid()) {
-            minCol = 0;
-            maxCol = columns;
-            minRow = 0;
-            maxRow = rows;
-        }
-
-        final int rowLimit = getOnlyValidGrid() ? maxRow + 1 : maxRow;
-        final int colLimit = getOnlyValidGrid() ? maxCol + 1 : maxCol;
-
-        return new Iterator<RectangularBinningVisitor.Bin>() {
-            int featureID = 0;
-
-            int row = minRow;
-
-            int col = minCol;
-
-            double ypos = minRow * diameter;
-
-            double xpos = minCol * diameter;
-
-            private void resetIndexes() {
-                if (col == colLimit) {
-                    xpos = minCol * diameter;
-                    col = minCol;
-
-                    row++;
-                    ypos += diameter;
-                }
-            }
-
-            @Override
-            public boolean hasNext() {
-                return row < rowLimit && col < colLimit;
-            }
-
-            @Override
-            public Bin next() {
-                if (!hasNext()) {
-                    throw new NoSuchElementException("hasNext() returned false!");
-                }
-
-                // Loop through the array: rows
-                while (row < rowLimit) {
-                    // Loop through the array: columns
-                    while (col < colLimit) {
-                        Double value = gridValues[row][col];
-                        col++;
-
-                        if (value == null && getOnlyValidGrid()) {
-                            xpos += diameter;
-                            resetIndexes();
-                        } else {
-                            Geometry grid = (Geometry) binTemplate.copy();
-                            grid.apply(new CoordinateTranslateFilter(xpos, ypos));
-
-                            if (transformer != null) {
-                                // reproject grid geometry to sourceCRS
-                                grid = transform(transformer, grid);
-                            }
-
-                            xpos += diameter;
-                            resetIndexes();
-
-                            // NULL to zero
-                            value = value == null ? Double.valueOf(0d) : value;
-
-                            return new Bin(featureID++, grid, value);
-                        }
-                    }
-                }
-                return null;
-            }
-
-            @Override
-            public void remove() {
-                // do nothing
-            }
-        };
+    protected Geometry createBinGeometry(int row, int col) {
+        Geometry grid = (Geometry) binTemplate.copy();
+        grid.apply(new CoordinateTranslateFilter(col * diameter, row * diameter));
+        return grid;
     }
 }
@@ -93,85 +93,178 @@ public class ClusterBesagNewellOperation extends AbstractClusterOperation {
         // pre calculation
         this.preEvaluate(popFeatures, popField, caseFeatures, caseField);
 
+        List<ClusterCircle> circles = null;
+        if (usePointMode) {
+            circles = evaluatePoints(neighbours, fitness);
+        } else {
+            circles = evaluateFeatures(caseFeatures, caseField, neighbours, fitness);
+        }
+
+        // finally, build result
+        this.buildResult(circles, crs);
+
+        this.buildCircleDensityRaster(circles);
+
+        return outFeatures;
+    }
+
+    /**
+     * Point mode: the k nearest cases and the population within the circle are found on the centroid index, in parallel.
+     */
+    private List<ClusterCircle> evaluatePoints(final int neighbours,
+            final FitnessFunction fitness) {
+        final int caseCount = casePoints.size();
+        final ClusterCircle[] results = new ClusterCircle[caseCount];
+
+        executeCircleRange(caseCount, new CircleRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                int[] knns = new int[neighbours];
+                double[] distances = new double[neighbours];
+
+                for (int index = start; index < end; index++) {
+                    // find K nearest neighbours
+                    final int found = casePoints.nearest(index, neighbours, knns, distances);
+                    if (found == 0) {
+                        continue;
+                    }
+
+                    // construct circle that includes those neighbours
+                    double cases = 0;
+                    for (int k = 0; k < found; k++) {
+                        cases += casePoints.getValue(knns[k]);
+                    }
+                    final double radius = Math.sqrt(distances[found - 1]);
+
+                    // get population and expected value in circle
+                    final double x = casePoints.getX(index);
+                    final double y = casePoints.getY(index);
+                    final double population = popPoints.sum(x, y, radius);
+                    final double expected = population * density;
+
+                    // Poisson test
+                    if (fitness.isWorthTesting(expected, cases)) {
+                        double stats = fitness.getStat(expected, cases);
+                        if (!Double.isNaN(stats)) {
+                            ClusterCircle circle = new ClusterCircle(x, y, radius);
+                            circle.setFitness(stats);
+                            circle.setPopulation(population);
+                            circle.setCases(cases);
+                            circle.setExpected(expected);
+                            results[index] = circle;
+                        }
+                    }
+                }
+            }
+        });
+
         List<ClusterCircle> circles = new ArrayList<ClusterCircle>();
+        for (ClusterCircle circle : results) {
+            if (circle != null) {
+                circles.add(circle);
+            }
+        }
+        return circles;
+    }
+
+    /**
+     * Polygon mode: the case features are read first, then the k nearest cases and the population intersecting the circle are found on the
+     * feature indexes, in parallel.
+     */
+    private List<ClusterCircle> evaluateFeatures(SimpleFeatureCollection caseFeatures,
+            Expression caseField, final int neighbours, final FitnessFunction fitness) {
+        final List<NearFeature> starts = new ArrayList<NearFeature>();
 
         SimpleFeatureIterator featureIter = caseFeatures.features();
         try {
             while (featureIter.hasNext()) {
                 SimpleFeature feature = featureIter.next();
                 Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                Envelope envelope = geometry.getEnvelopeInternal();
 
-                double value = getEvaluated(popField.evaluate(feature));
+                double value = getEvaluated(caseField.evaluate(feature));
                 if (value <= 0) {
                     continue;
                 }
 
-                // find K nearest neighbours
-                NearFeature start = new NearFeature(feature.getID(), geometry, value);
-                Object[] knns = caseIndex.nearestNeighbour(envelope, start, new ItemDistance() {
-                    @Override
-                    public double distance(ItemBoundable item1, ItemBoundable item2) {
-                        NearFeature s1 = (NearFeature) item1.getItem();
-                        NearFeature s2 = (NearFeature) item2.getItem();
-                        if (s1.getId().equals(s2.getId())) {
-                            return Double.MAX_VALUE;
-                        }
-                        return s1.distance(s2);
-                    }
-                }, neighbours);
-
-                // construct circle that includes those neighbours
-                double radius = Double.MIN_VALUE;
-                double population = 0;
-                double expected = 0;
-                double cases = 0;
-
-                for (Object object : knns) {
-                    NearFeature nearest = (NearFeature) object;
-                    radius = Math.max(radius, start.distance(nearest));
-                    cases += nearest.getValue();
+                starts.add(new NearFeature(feature.getID(), geometry, value));
+            }
+        } finally {
+            featureIter.close();
+        }
+
+        final ClusterCircle[] results = new ClusterCircle[starts.size()];
+        final ItemDistance itemDistance = new ItemDistance() {
+            @Override
+            public double distance(ItemBoundable item1, ItemBoundable item2) {
+                NearFeature s1 = (NearFeature) item1.getItem();
+                NearFeature s2 = (NearFeature) item2.getItem();
+                if (s1.getId().equals(s2.getId())) {
+                    return Double.MAX_VALUE;
                 }
+                return s1.distance(s2);
+            }
+        };
+
+        executeCircleRange(starts.size(), new CircleRangeTask() {
+            @Override
+            public void execute(int startIndex, int endIndex) {
+                for (int index = startIndex; index < endIndex; index++) {
+                    NearFeature start = starts.get(index);
+                    Envelope envelope = start.getGeometry().getEnvelopeInternal();
+
+                    // find K nearest neighbours
+                    Object[] knns = caseIndex.nearestNeighbour(envelope, start, itemDistance,
+                            neighbours);
 
-                ClusterCircle circle = new ClusterCircle(start.getX(), start.getY(), radius);
-                Geometry circlePolygon = circle.getPolygon();
-                PreparedGeometry prepared = PreparedGeometryFactory.prepare(circlePolygon);
-
-                // get population and expected value in circle
-                for (@SuppressWarnings("unchecked")
-                Iterator<NearFeature> iter = (Iterator<NearFeature>) popIndex
-                        .query(circle.getBounds()).iterator(); iter.hasNext();) {
-                    NearFeature sample = iter.next();
-                    if (prepared.intersects(sample.getGeometry())) {
-                        population += sample.getValue();
-                        expected += sample.getValue() * density;
+                    // construct circle that includes those neighbours
+                    double radius = Double.MIN_VALUE;
+                    double population = 0;
+                    double expected = 0;
+                    double cases = 0;
+
+                    for (Object object : knns) {
+                        NearFeature nearest = (NearFeature) object;
+                        radius = Math.max(radius, start.distance(nearest));
+                        cases += nearest.getValue();
                     }
-                }
 
-                // Poisson test
-                if (fitness.isWorthTesting(expected, cases)) {
-                    double stats = fitness.getStat(expected, cases);
-                    if (!Double.isNaN(stats)) {
-                        circle.setFitness(stats);
-                        circle.setPopulation(population);
-                        circle.setCases(cases);
-                        circle.setExpected(expected);
-                        circles.add(circle);
+                    ClusterCircle circle = new ClusterCircle(start.getX(), start.getY(), radius);
+                    Geometry circlePolygon = circle.getPolygon();
+                    PreparedGeometry prepared = PreparedGeometryFactory.prepare(circlePolygon);
+
+                    // get population and expected value in circle
+                    for (@SuppressWarnings("unchecked")
+                    Iterator<NearFeature> iter = (Iterator<NearFeature>) popIndex
+                            .query(circle.getBounds()).iterator(); iter.hasNext();) {
+                        NearFeature sample = iter.next();
+                        if (prepared.intersects(sample.getGeometry())) {
+                            population += sample.getValue();
+                            expected += sample.getValue() * density;
+                        }
+                    }
+
+                    // Poisson test
+                    if (fitness.isWorthTesting(expected, cases)) {
+                        double stats = fitness.getStat(expected, cases);
+                        if (!Double.isNaN(stats)) {
+                            circle.setFitness(stats);
+                            circle.setPopulation(population);
+                            circle.setCases(cases);
+                            circle.setExpected(expected);
+                            results[index] = circle;
+                        }
                     }
                 }
+            }
+        });
 
+        List<ClusterCircle> circles = new ArrayList<ClusterCircle>();
+        for (ClusterCircle circle : results) {
+            if (circle != null) {
+                circles.add(circle);
             }
-        } finally {
-            featureIter.close();
         }
-
-        // finally, build result
-        this.buildResult(circles, crs);
-        
-        
-        this.buildCircleDensityRaster(circles);
-
-        return outFeatures;
+        return circles;
     }
 
 }
\ No newline at end of file
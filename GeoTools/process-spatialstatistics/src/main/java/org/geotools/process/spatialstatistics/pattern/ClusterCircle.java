@@ -40,6 +40,10 @@ public class ClusterCircle {
 
     static final GeometryFactory gf = new GeometryFactory();
 
+    private double x;
+
+    private double y;
+
     private Point center;
 
     private Envelope extent;
@@ -57,13 +61,16 @@ public class ClusterCircle {
     private double cases = 0.0;
 
     public ClusterCircle(double x, double y, double radius) {
-        this.center = gf.createPoint(new Coordinate(x, y));
+        this.x = x;
+        this.y = y;
         this.radius = radius;
         this.extent = new Envelope(x - radius, x + radius, y - radius, y + radius);
-        this.circle = center.buffer(radius, 24);
     }
 
     public Point getCenter() {
+        if (center == null) {
+            center = gf.createPoint(new Coordinate(x, y));
+        }
         return center;
     }
 
@@ -72,18 +79,17 @@ public class ClusterCircle {
     }
 
     public double getX() {
-        return center.getX();
+        return x;
     }
 
     public double getY() {
-        return center.getY();
+        return y;
     }
 
     public boolean contains(Point p) {
-        if (center == null) {
-            return false;
-        }
-        return center.distance(p) <= radius;
+        final double dx = p.getX() - x;
+        final double dy = p.getY() - y;
+        return dx * dx + dy * dy <= radius * radius;
     }
 
     public double getFitness() {
@@ -118,7 +124,13 @@ public class ClusterCircle {
         this.cases = cases;
     }
 
+    /**
+     * Returns the circle polygon, which is only built on first access.
+     */
     public Geometry getPolygon() {
+        if (circle == null) {
+            circle = getCenter().buffer(radius, 24);
+        }
         return circle;
     }
 
@@ -128,6 +140,6 @@ public class ClusterCircle {
 
     @Override
     public String toString() {
-        return center + " " + radius;
+        return getCenter() + " " + radius;
     }
 }
\ No newline at end of file
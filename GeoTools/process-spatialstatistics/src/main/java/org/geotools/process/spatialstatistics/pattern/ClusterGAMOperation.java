@@ -134,7 +134,7 @@ public class ClusterGAMOperation extends AbstractClusterOperation {
             radiusIncrement = minRadius / 2.0;
         }
 
-        FitnessFunction fitness = new FitnessFunction(functionType, threshold);
+        final FitnessFunction fitness = new FitnessFunction(functionType, threshold);
 
         // pre calculation
         this.preEvaluate(popFeatures, popField, caseFeatures, caseField);
@@ -151,53 +151,40 @@ public class ClusterGAMOperation extends AbstractClusterOperation {
         List<ClusterCircle> circles = new ArrayList<ClusterCircle>();
 
         for (double radius = minRadius; radius <= maxRadius; radius += radiusIncrement) {
-            double step = radius * overlapRatio;
-            for (double x = extent.getMinX(); x <= extent.getMaxX(); x += step) {
-                for (double y = extent.getMinY(); y <= extent.getMaxY(); y += step) {
-
-                    ClusterCircle circle = new ClusterCircle(x, y, radius);
-
-                    Geometry circlePolygon = circle.getPolygon();
-                    PreparedGeometry prepared = PreparedGeometryFactory.prepare(circlePolygon);
-
-                    double population = 0;
-                    double expected = 0;
-                    double cases = 0;
-
-                    // pop
-                    for (@SuppressWarnings("unchecked")
-                    Iterator<NearFeature> iter = (Iterator<NearFeature>) popIndex
-                            .query(circle.getBounds()).iterator(); iter.hasNext();) {
-                        NearFeature sample = iter.next();
-                        if (prepared.intersects(sample.getGeometry())) {
-                            population += sample.getValue();
-                            expected += sample.getValue() * density;
+            final double step = radius * overlapRatio;
+            final int columns = (int) Math.floor((maxX - minX) / step) + 1;
+            final int rows = (int) Math.floor((maxY - minY) / step) + 1;
+
+            // each column of circle centres is evaluated independently
+            final List<List<ClusterCircle>> columnCircles = new ArrayList<List<ClusterCircle>>();
+            for (int col = 0; col < columns; col++) {
+                columnCircles.add(null);
+            }
+
+            final double circleRadius = radius;
+            final double originX = minX;
+            final double originY = minY;
+            executeCircleRange(columns, new CircleRangeTask() {
+                @Override
+                public void execute(int start, int end) {
+                    for (int col = start; col < end; col++) {
+                        List<ClusterCircle> found = new ArrayList<ClusterCircle>();
+                        final double x = originX + col * step;
+                        for (int row = 0; row < rows; row++) {
+                            final double y = originY + row * step;
+                            ClusterCircle circle = evaluate(x, y, circleRadius, fitness);
+                            if (circle != null) {
+                                found.add(circle);
+                            }
                         }
+                        columnCircles.set(col, found);
                     }
+                }
+            });
 
-                    // cases
-                    for (@SuppressWarnings("unchecked")
-                    Iterator<NearFeature> iter = (Iterator<NearFeature>) caseIndex
-                            .query(circle.getBounds()).iterator(); iter.hasNext();) {
-                        NearFeature sample = iter.next();
-                        if (prepared.intersects(sample.getGeometry())) {
-                            cases += sample.getValue();
-                        }
-                    }
-
-                    // Poisson test
-                    if (fitness.isWorthTesting(expected, cases)) {
-                        double stats = fitness.getStat(expected, cases);
-                        if (!Double.isNaN(stats)) {
-                            circle.setFitness(stats);
-                            circle.setPopulation(population);
-                            circle.setExpected(expected);
-                            circle.setCases(cases);
-                            circles.add(circle);
-                        }
-                    }
-                } // y
-            } // x
+            for (List<ClusterCircle> found : columnCircles) {
+                circles.addAll(found);
+            }
         } // radius
 
         // finally, build result
@@ -207,4 +194,57 @@ public class ClusterGAMOperation extends AbstractClusterOperation {
 
         return outFeatures;
     }
-}
\ No newline at end of file
+
+    /**
+     * Evaluates the circle and returns it if it is worth reporting, null otherwise.
+     */
+    private ClusterCircle evaluate(double x, double y, double radius, FitnessFunction fitness) {
+        double population = 0;
+        double cases = 0;
+
+        ClusterCircle circle = new ClusterCircle(x, y, radius);
+        if (usePointMode) {
+            population = popPoints.sum(x, y, radius);
+            cases = casePoints.sum(x, y, radius);
+        } else {
+            Geometry circlePolygon = circle.getPolygon();
+            PreparedGeometry prepared = PreparedGeometryFactory.prepare(circlePolygon);
+
+            // pop
+            for (@SuppressWarnings("unchecked")
+            Iterator<NearFeature> iter = (Iterator<NearFeature>) popIndex
+                    .query(circle.getBounds()).iterator(); iter.hasNext();) {
+                NearFeature sample = iter.next();
+                if (prepared.intersects(sample.getGeometry())) {
+                    population += sample.getValue();
+                }
+            }
+
+            // cases
+            for (@SuppressWarnings("unchecked")
+            Iterator<NearFeature> iter = (Iterator<NearFeature>) caseIndex
+                    .query(circle.getBounds()).iterator(); iter.hasNext();) {
+                NearFeature sample = iter.next();
+                if (prepared.intersects(sample.getGeometry())) {
+                    cases += sample.getValue();
+                }
+            }
+        }
+
+        final double expected = population * density;
+
+        // Poisson test
+        if (fitness.isWorthTesting(expected, cases)) {
+            double stats = fitness.getStat(expected, cases);
+            if (!Double.isNaN(stats)) {
+                circle.setFitness(stats);
+                circle.setPopulation(population);
+                circle.setExpected(expected);
+                circle.setCases(cases);
+                return circle;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,569 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.pattern;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.filter.expression.Expression;
+import org.geotools.api.referencing.crs.CoordinateReferenceSystem;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.process.ProcessException;
+import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Spatial Cluster Detection: Kulldorff's spatial scan statistic (Poisson model, high rates). <br>
+ * The cases are aggregated to the nearest population centroid. Candidate circles are centred on every location and grow over its neighbours in
+ * order of distance until they contain maxPopulationRatio of the total population. The significance of the most likely clusters is estimated from
+ * the maximum log likelihood ratio of Monte Carlo replications, in which the cases are distributed over the locations in proportion to their
+ * population. Secondary clusters do not share locations with more likely clusters.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @reference Kulldorff M. (1997) A spatial scan statistic. Communications in Statistics: Theory and Methods, 26:1481-1496.
+ * 
+ * @source $URL$
+ * 
+ */
+public class ClusterKulldorffScanOperation extends AbstractClusterOperation {
+    protected static final Logger LOGGER = Logging.getLogger(ClusterKulldorffScanOperation.class);
+
+    private double maxPopulationRatio = 0.5;
+
+    private int replications = 999;
+
+    private long randomSeed = 12345L;
+
+    // population and cases of each location
+    private double[] pops;
+
+    private double[] cases;
+
+    private double totalPop;
+
+    private double totalCases;
+
+    // maximum number of circle locations kept in memory, larger windows are searched again when scanned
+    static final int MAX_CACHED_LOCATIONS = 1 << 22;
+
+    // number of locations of the largest circle of each centre, the centre itself included
+    private int[] windowSizes;
+
+    // locations of the circles sorted by distance from the centre, null if not cached
+    private int[] windowOffsets;
+
+    private int[] windowLocations;
+
+    public ClusterKulldorffScanOperation() {
+        this.threshold = 0.05;
+    }
+
+    public double getMaxPopulationRatio() {
+        return maxPopulationRatio;
+    }
+
+    /**
+     * Sets the maximum fraction of the total population inside a circle, 0 < ratio <= 0.5. The default is 0.5.
+     */
+    public void setMaxPopulationRatio(double maxPopulationRatio) {
+        if (maxPopulationRatio <= 0 || maxPopulationRatio > 0.5) {
+            LOGGER.log(Level.WARNING, "The maxPopulationRatio must be in (0, 0.5]. Set to 0.5.");
+            maxPopulationRatio = 0.5;
+        }
+        this.maxPopulationRatio = maxPopulationRatio;
+    }
+
+    public int getReplications() {
+        return replications;
+    }
+
+    /**
+     * Sets the number of Monte Carlo replications, ex) 99, 999, 9999. The default is 999.
+     */
+    public void setReplications(int replications) {
+        if (replications < 1) {
+            LOGGER.log(Level.WARNING, "The replications must be at least 1. Set to 999.");
+            replications = 999;
+        }
+        this.replications = replications;
+    }
+
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+
+    public void setRandomSeed(long randomSeed) {
+        this.randomSeed = randomSeed;
+    }
+
+    public SimpleFeatureCollection execute(SimpleFeatureCollection popFeatures, String popField,
+            SimpleFeatureCollection caseFeatures, String caseField) throws IOException {
+        return execute(popFeatures, ff.property(popField), caseFeatures, ff.property(caseField));
+    }
+
+    /**
+     * @param popFeatures The features containing the population at risk
+     * @param popField The feature attribute with the population at risk
+     * @param caseFeatures The features containing the incidents
+     * @param caseField The feature attribute with the incidents, the total number of cases must be a whole number
+     * @return The most likely clusters whose p-value is less than or equal to the threshold
+     * @throws IOException
+     * @throws ProcessException if the total number of cases is not a whole number
+     */
+    public SimpleFeatureCollection execute(SimpleFeatureCollection popFeatures, Expression popField,
+            SimpleFeatureCollection caseFeatures, Expression caseField) throws IOException {
+        CoordinateReferenceSystem crs = popFeatures.getSchema().getCoordinateReferenceSystem();
+        this.extent = popFeatures.getBounds();
+
+        // pre calculation
+        this.preEvaluate(popFeatures, popField, caseFeatures, caseField);
+
+        List<ClusterCircle> clusters = new ArrayList<ClusterCircle>();
+        List<double[]> statistics = new ArrayList<double[]>();
+
+        aggregateLocations();
+
+        // the replications draw whole cases, the observed statistic must use the same total
+        if (Math.abs(totalCases - Math.rint(totalCases)) > 1.0e-9 * Math.max(1.0, totalCases)
+                || totalCases > Integer.MAX_VALUE) {
+            throw new ProcessException("The total number of cases must be a whole number: "
+                    + totalCases);
+        }
+        totalCases = Math.rint(totalCases);
+
+        if (pops.length > 0 && totalCases > 0) {
+            buildWindows();
+
+            // most likely circle of each centre
+            final int n = pops.length;
+            final int[] bestSize = new int[n];
+            final double[] bestLLR = new double[n];
+            executeCircleRange(n, new CircleRangeTask() {
+                @Override
+                public void execute(int start, int end) {
+                    Window window = new Window();
+                    for (int i = start; i < end; i++) {
+                        scanCentre(i, window, cases, totalCases, bestSize, bestLLR);
+                    }
+                }
+            });
+
+            final double[] simulated = simulate();
+
+            // rank the candidates, excluding circles that overlap more likely clusters
+            List<Integer> candidates = new ArrayList<Integer>();
+            for (int i = 0; i < n; i++) {
+                if (bestLLR[i] > 0) {
+                    candidates.add(Integer.valueOf(i));
+                }
+            }
+
+            Collections.sort(candidates, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return Double.compare(bestLLR[o2.intValue()], bestLLR[o1.intValue()]);
+                }
+            });
+
+            boolean[] used = new boolean[n];
+            Window window = new Window();
+            for (Integer candidate : candidates) {
+                final int i = candidate.intValue();
+                final double pValue = getPValue(simulated, bestLLR[i]);
+                if (pValue > threshold) {
+                    break; // the p-values of the remaining candidates are larger
+                }
+
+                window.load(i);
+                if (isOverlapped(window, bestSize[i], used)) {
+                    continue;
+                }
+
+                double popIn = 0;
+                double casesIn = 0;
+                double maxDist2 = 0;
+                for (int k = 0; k < bestSize[i]; k++) {
+                    final int j = window.get(k);
+                    used[j] = true;
+                    popIn += pops[j];
+                    casesIn += cases[j];
+
+                    final double dx = popPoints.getX(j) - popPoints.getX(i);
+                    final double dy = popPoints.getY(j) - popPoints.getY(i);
+                    maxDist2 = Math.max(maxDist2, dx * dx + dy * dy);
+                }
+
+                final double expected = totalCases * popIn / totalPop;
+                final double outside = (totalCases - casesIn) / (totalCases - expected);
+                final double relativeRisk = outside == 0 ? Double.POSITIVE_INFINITY
+                        : (casesIn / expected) / outside;
+
+                ClusterCircle circle = new ClusterCircle(popPoints.getX(i), popPoints.getY(i),
+                        Math.sqrt(maxDist2));
+                circle.setFitness(bestLLR[i]);
+                circle.setPopulation(popIn);
+                circle.setExpected(expected);
+                circle.setCases(casesIn);
+
+                clusters.add(circle);
+                statistics.add(new double[] { bestSize[i], relativeRisk, pValue });
+            }
+        }
+
+        // finally, build result
+        this.buildScanResult(clusters, statistics, crs);
+
+        return outFeatures;
+    }
+
+    /**
+     * Aggregates the cases to the nearest population centroid.
+     */
+    private void aggregateLocations() {
+        final int n = popPoints.size();
+        pops = new double[n];
+        cases = new double[n];
+        totalPop = 0;
+        totalCases = 0;
+
+        for (int i = 0; i < n; i++) {
+            pops[i] = popPoints.getValue(i);
+            totalPop += pops[i];
+        }
+
+        if (n == 0) {
+            return;
+        }
+
+        int[] nearest = new int[1];
+        double[] distance = new double[1];
+        for (int c = 0; c < casePoints.size(); c++) {
+            popPoints.nearest(casePoints.getX(c), casePoints.getY(c), 1, nearest, distance);
+            cases[nearest[0]] += casePoints.getValue(c);
+            totalCases += casePoints.getValue(c);
+        }
+    }
+
+    @Override
+    protected boolean isPointModeRequired() {
+        // the scan statistic always works on the centroids of the features
+        return true;
+    }
+
+    /**
+     * Finds the number of locations of the largest circle of every centre, the nearest locations whose population does not exceed
+     * maxPopulationRatio. The sorted locations are kept in a compact array only if their total does not exceed MAX_CACHED_LOCATIONS, otherwise
+     * each circle is searched again whenever it is scanned, so the memory stays linear in the number of locations.
+     */
+    private void buildWindows() {
+        final int n = pops.length;
+        final double maxPop = maxPopulationRatio * totalPop;
+        windowSizes = new int[n];
+        windowOffsets = null;
+        windowLocations = null;
+
+        executeCircleRange(n, new CircleRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                int k = Math.min(16, n - 1);
+                int[] knns = new int[Math.max(1, k)];
+                double[] distances = new double[Math.max(1, k)];
+
+                for (int i = start; i < end; i++) {
+                    while (true) {
+                        final int found = k == 0 ? 0 : popPoints.nearest(i, k, knns, distances);
+
+                        int size = 0;
+                        double popIn = pops[i];
+                        if (popIn <= maxPop) {
+                            size = 1;
+                            while (size <= found && popIn + pops[knns[size - 1]] <= maxPop) {
+                                popIn += pops[knns[size - 1]];
+                                size++;
+                            }
+                        }
+
+                        // the circle is complete if it stopped before the last neighbour found
+                        if (size <= found || found < k || k == n - 1) {
+                            windowSizes[i] = size;
+                            break;
+                        }
+
+                        k = Math.min(k * 2, n - 1);
+                        knns = new int[k];
+                        distances = new double[k];
+                    }
+                }
+            }
+        });
+
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            total += windowSizes[i];
+        }
+
+        if (total > MAX_CACHED_LOCATIONS) {
+            LOGGER.log(Level.FINE, "The circles are searched again on every scan: " + total
+                    + " locations");
+            return;
+        }
+
+        final int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] = offsets[i] + windowSizes[i];
+        }
+
+        final int[] locations = new int[offsets[n]];
+        executeCircleRange(n, new CircleRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                Window window = new Window();
+                for (int i = start; i < end; i++) {
+                    window.load(i);
+                    for (int k = 0; k < windowSizes[i]; k++) {
+                        locations[offsets[i] + k] = window.get(k);
+                    }
+                }
+            }
+        });
+
+        windowOffsets = offsets;
+        windowLocations = locations;
+    }
+
+    /**
+     * Locations of the largest circle of a centre, sorted by distance, the centre itself first. Each thread needs its own instance.
+     */
+    final class Window {
+        int[] items;
+
+        int offset;
+
+        int[] knns = new int[16];
+
+        double[] distances = new double[16];
+
+        void load(int i) {
+            if (windowLocations != null) {
+                items = windowLocations;
+                offset = windowOffsets[i];
+                return;
+            }
+
+            final int size = windowSizes[i];
+            if (knns.length < size) {
+                knns = new int[size];
+                distances = new double[size];
+            }
+
+            // the centre first, then its neighbours
+            items = knns;
+            offset = 0;
+            if (size > 1) {
+                popPoints.nearest(i, size - 1, knns, distances);
+                System.arraycopy(knns, 0, knns, 1, size - 1);
+            }
+            knns[0] = i;
+        }
+
+        int get(int k) {
+            return items[offset + k];
+        }
+    }
+
+    /**
+     * Finds the circle of centre i with the maximum log likelihood ratio.
+     */
+    private void scanCentre(int i, Window window, double[] caseCounts, double total,
+            int[] bestSize, double[] bestLLR) {
+        window.load(i);
+
+        double popIn = 0;
+        double casesIn = 0;
+        double best = 0;
+        int size = 0;
+        for (int k = 0; k < windowSizes[i]; k++) {
+            final int j = window.get(k);
+            popIn += pops[j];
+            casesIn += caseCounts[j];
+
+            final double llr = logLikelihoodRatio(casesIn, total * popIn / totalPop, total);
+            if (llr > best) {
+                best = llr;
+                size = k + 1;
+            }
+        }
+
+        bestSize[i] = size;
+        bestLLR[i] = best;
+    }
+
+    /**
+     * Returns the sorted maximum log likelihood ratio of each Monte Carlo replication. Every replication uses its own random stream derived from the
+     * seed, so the results do not depend on the number of threads.
+     */
+    private double[] simulate() {
+        final int n = pops.length;
+        final double[] simulated = new double[replications];
+        final int simCases = (int) totalCases;
+
+        final double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += pops[i];
+            cumulative[i] = sum;
+        }
+
+        executeCircleRange(replications, new CircleRangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                double[] counts = new double[n];
+                int[] bestSize = new int[n];
+                double[] bestLLR = new double[n];
+                Window window = new Window();
+
+                for (int r = start; r < end; r++) {
+                    SplittableRandom random = new SplittableRandom(
+                            mix64(randomSeed + r * 0x9E3779B97F4A7C15L));
+
+                    // multinomial distribution of the cases over the locations
+                    Arrays.fill(counts, 0);
+                    for (int c = 0; c < simCases; c++) {
+                        final double u = random.nextDouble() * totalPop;
+                        int low = 0;
+                        int high = n - 1;
+                        while (low < high) {
+                            final int mid = (low + high) >>> 1;
+                            if (cumulative[mid] > u) {
+                                high = mid;
+                            } else {
+                                low = mid + 1;
+                            }
+                        }
+                        counts[low]++;
+                    }
+
+                    double max = 0;
+                    for (int i = 0; i < n; i++) {
+                        scanCentre(i, window, counts, simCases, bestSize, bestLLR);
+                        max = Math.max(max, bestLLR[i]);
+                    }
+                    simulated[r] = max;
+                }
+            }
+        });
+
+        Arrays.sort(simulated);
+        return simulated;
+    }
+
+    private double getPValue(double[] simulated, double llr) {
+        // number of replications with a maximum greater than or equal to llr
+        int low = 0;
+        int high = simulated.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (simulated[mid] < llr) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return (simulated.length - low + 1.0) / (simulated.length + 1.0);
+    }
+
+    private boolean isOverlapped(Window window, int size, boolean[] used) {
+        for (int k = 0; k < size; k++) {
+            if (used[window.get(k)]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static double logLikelihoodRatio(double casesIn, double expected, double total) {
+        if (casesIn <= expected || expected <= 0) {
+            return 0;
+        }
+
+        double llr = casesIn * Math.log(casesIn / expected);
+        if (total > casesIn) {
+            llr += (total - casesIn) * Math.log((total - casesIn) / (total - expected));
+        }
+        return llr;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private void buildScanResult(List<ClusterCircle> clusters, List<double[]> statistics,
+            CoordinateReferenceSystem crs) {
+        SimpleFeatureType schema = FeatureTypes.getDefaultType("scan", Polygon.class, crs);
+        schema = FeatureTypes.add(schema, "rank", Integer.class);
+        schema = FeatureTypes.add(schema, "radius", Double.class);
+        schema = FeatureTypes.add(schema, "locations", Integer.class);
+        schema = FeatureTypes.add(schema, "pop", Double.class);
+        schema = FeatureTypes.add(schema, "cases", Double.class);
+        schema = FeatureTypes.add(schema, "expected", Double.class);
+        schema = FeatureTypes.add(schema, "rr", Double.class);
+        schema = FeatureTypes.add(schema, "llr", Double.class);
+        schema = FeatureTypes.add(schema, "pvalue", Double.class);
+
+        ListFeatureCollection outputFc = new ListFeatureCollection(schema);
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+
+        for (int index = 0; index < clusters.size(); index++) {
+            ClusterCircle circle = clusters.get(index);
+            double[] stats = statistics.get(index);
+            String fid = schema.getTypeName() + "." + (index + 1);
+
+            SimpleFeature newFeature = builder.buildFeature(fid);
+            newFeature.setDefaultGeometry(circle.getPolygon());
+
+            newFeature.setAttribute("rank", Integer.valueOf(index + 1));
+            newFeature.setAttribute("radius", circle.getRadius());
+            newFeature.setAttribute("locations", Integer.valueOf((int) stats[0]));
+            newFeature.setAttribute("pop", circle.getPopulation());
+            newFeature.setAttribute("cases", circle.getCases());
+            newFeature.setAttribute("expected", circle.getExpected());
+            newFeature.setAttribute("rr", stats[1]);
+            newFeature.setAttribute("llr", circle.getFitness());
+            newFeature.setAttribute("pvalue", stats[2]);
+
+            outputFc.add(newFeature);
+        }
+
+        this.outFeatures = outputFc;
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.pattern;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid of weighted points (feature centroids) used by the point mode of the cluster operations. <br>
+ * Coordinates are stored in primitive arrays ordered by grid cell, so circle sums and nearest neighbour searches only use squared distance tests.
+ * After {@link #build()}, the index is read only and can be queried from several threads.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+final class ClusterPointIndex {
+
+    // average number of points per grid cell
+    static final int POINTS_PER_CELL = 4;
+
+    private int size = 0;
+
+    private double[] xs = new double[256];
+
+    private double[] ys = new double[256];
+
+    private double[] values = new double[256];
+
+    private double minX;
+
+    private double minY;
+
+    private double cellSize;
+
+    private int columns;
+
+    private int rows;
+
+    private int[] offsets;
+
+    public void add(double x, double y, double value) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+
+        xs[size] = x;
+        ys[size] = y;
+        values[size] = value;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getX(int index) {
+        return xs[index];
+    }
+
+    public double getY(int index) {
+        return ys[index];
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Sorts the points by grid cell. Point indexes refer to the sorted order afterwards.
+     */
+    public void build() {
+        minX = Double.MAX_VALUE;
+        minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        if (size == 0) {
+            minX = minY = 0;
+            maxX = maxY = 0;
+        }
+
+        final double width = maxX - minX;
+        final double height = maxY - minY;
+        final double area = Math.max(width * height, 0);
+        cellSize = Math.sqrt(area * POINTS_PER_CELL / Math.max(1, size));
+        if (cellSize <= 0 || Double.isNaN(cellSize)) {
+            cellSize = Math.max(Math.max(width, height), 1.0) / Math.max(1, size);
+        }
+
+        columns = Math.min((int) (width / cellSize) + 1, size + 1);
+        rows = Math.min((int) (height / cellSize) + 1, size + 1);
+        cellSize = Math.max(cellSize, Math.max(width / columns, height / rows) * 1.000001);
+
+        // counting sort by cell
+        final int cellCount = columns * rows;
+        offsets = new int[cellCount + 1];
+        int[] cells = new int[size];
+        for (int i = 0; i < size; i++) {
+            cells[i] = getRow(ys[i]) * columns + getColumn(xs[i]);
+            offsets[cells[i] + 1]++;
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            offsets[cell + 1] += offsets[cell];
+        }
+
+        int[] next = Arrays.copyOf(offsets, cellCount);
+        double[] sortedX = new double[size];
+        double[] sortedY = new double[size];
+        double[] sortedValues = new double[size];
+        for (int i = 0; i < size; i++) {
+            final int pos = next[cells[i]]++;
+            sortedX[pos] = xs[i];
+            sortedY[pos] = ys[i];
+            sortedValues[pos] = values[i];
+        }
+
+        xs = sortedX;
+        ys = sortedY;
+        values = sortedValues;
+    }
+
+    private int getColumn(double x) {
+        return clamp((int) Math.floor((x - minX) / cellSize), columns);
+    }
+
+    private int getRow(double y) {
+        return clamp((int) Math.floor((y - minY) / cellSize), rows);
+    }
+
+    private int clamp(int value, int count) {
+        return value < 0 ? 0 : (value >= count ? count - 1 : value);
+    }
+
+    /**
+     * Returns the sum of the values of the points within radius of (x, y).
+     */
+    public double sum(double x, double y, double radius) {
+        if (size == 0) {
+            return 0d;
+        }
+
+        final double r2 = radius * radius;
+        final int minCol = getColumn(x - radius);
+        final int maxCol = getColumn(x + radius);
+        final int minRow = getRow(y - radius);
+        final int maxRow = getRow(y + radius);
+
+        double sum = 0d;
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                final int cell = row * columns + col;
+                for (int i = offsets[cell]; i < offsets[cell + 1]; i++) {
+                    final double dx = xs[i] - x;
+                    final double dy = ys[i] - y;
+                    if (dx * dx + dy * dy <= r2) {
+                        sum += values[i];
+                    }
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Finds the k nearest points of the point at index, excluding itself.
+     * 
+     * @param index point index
+     * @param k number of neighbours
+     * @param neighbours receives the indexes of the neighbours, nearest first
+     * @param distances receives the squared distances of the neighbours
+     * @return number of neighbours found, at most k
+     */
+    public int nearest(int index, int k, int[] neighbours, double[] distances) {
+        return nearest(xs[index], ys[index], index, k, neighbours, distances);
+    }
+
+    /**
+     * Finds the k nearest points of (x, y).
+     * 
+     * @return number of neighbours found, at most k
+     */
+    public int nearest(double x, double y, int k, int[] neighbours, double[] distances) {
+        return nearest(x, y, -1, k, neighbours, distances);
+    }
+
+    private int nearest(double x, double y, int exclude, int k, int[] neighbours,
+            double[] distances) {
+        final int centerCol = getColumn(x);
+        final int centerRow = getRow(y);
+        final int maxRing = Math.max(columns, rows);
+
+        int found = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // all points of the next ring are at least ring * cellSize away
+            if (found == k) {
+                final double bound = ring == 0 ? 0 : (ring - 1) * cellSize;
+                if (distances[k - 1] <= bound * bound) {
+                    break;
+                }
+            }
+
+            final int minRow = centerRow - ring;
+            final int maxRow = centerRow + ring;
+            for (int row = Math.max(0, minRow); row <= Math.min(rows - 1, maxRow); row++) {
+                final boolean edge = row == minRow || row == maxRow;
+                final int step = edge ? 1 : 2 * ring;
+                for (int col = centerCol - ring; col <= centerCol + ring; col += Math.max(1,
+                        step)) {
+                    if (col < 0 || col >= columns) {
+                        continue;
+                    }
+
+                    final int cell = row * columns + col;
+                    for (int i = offsets[cell]; i < offsets[cell + 1]; i++) {
+                        if (i == exclude) {
+                            continue;
+                        }
+
+                        final double dx = xs[i] - x;
+                        final double dy = ys[i] - y;
+                        final double d2 = dx * dx + dy * dy;
+                        if (found == k && d2 >= distances[k - 1]) {
+                            continue;
+                        }
+
+                        // insertion into the sorted neighbour list
+                        int pos = found < k ? found++ : k - 1;
+                        while (pos > 0 && distances[pos - 1] > d2) {
+                            distances[pos] = distances[pos - 1];
+                            neighbours[pos] = neighbours[pos - 1];
+                            pos--;
+                        }
+                        distances[pos] = d2;
+                        neighbours[pos] = i;
+                    }
+                }
+            }
+        }
+
+        return found;
+    }
+}
@@ -48,6 +48,8 @@ public class HexagonalBinningOperation extends BinningOperation {
 
     static final String TYPE_NAME = "HexagonalBinning";
 
+    static final String SIZE_FIELD = "size";
+
     public HexagonalBinningOperation() {
 
     }
@@ -75,6 +77,27 @@ public class HexagonalBinningOperation extends BinningOperation {
             throw new NullPointerException("bbox parameter is null");
         }
 
+        HexagonalBinningVisitor visitor = new HexagonalBinningVisitor(bbox, size);
+        return execute(features, weight, bbox, visitor, null);
+    }
+
+    /**
+     * Aggregates the features into hexagonal grids of several sizes in a single pass over the features. The result contains the bins of all levels
+     * with the level index and the hexagon size of each bin.
+     */
+    public SimpleFeatureCollection execute(SimpleFeatureCollection features, Expression weight,
+            ReferencedEnvelope bbox, double[] sizes) throws IOException {
+        if (bbox == null) {
+            throw new NullPointerException("bbox parameter is null");
+        }
+
+        HexagonalPyramidBinningVisitor visitor = new HexagonalPyramidBinningVisitor(bbox, sizes);
+        return execute(features, weight, bbox, visitor, visitor);
+    }
+
+    private SimpleFeatureCollection execute(SimpleFeatureCollection features, Expression weight,
+            ReferencedEnvelope bbox, AbstractBinningVisitor visitor,
+            HexagonalPyramidBinningVisitor pyramid) throws IOException {
         // check crs
         CoordinateReferenceSystem sourceCRS = features.getSchema().getCoordinateReferenceSystem();
         CoordinateReferenceSystem targetCRS = bbox.getCoordinateReferenceSystem();
@@ -88,14 +111,22 @@ public class HexagonalBinningOperation extends BinningOperation {
         }
 
         // calculate
-        HexagonalBinningVisitor visitor = new HexagonalBinningVisitor(bbox, size);
         visitor.setOnlyValidGrid(getOnlyValidGrid());
-        visitor.visit(features, weight, transformer);
+        visitor.setParallelism(getParallelism());
+        visitor.visit(features, weight, transform);
 
         // create feature type
         SimpleFeatureType schema = FeatureTypes.getDefaultType(TYPE_NAME, Polygon.class, sourceCRS);
         schema = FeatureTypes.add(schema, UID, Integer.class, 19);
         schema = FeatureTypes.add(schema, AGG_FIELD, Double.class, 38);
+        schema = FeatureTypes.add(schema, COUNT_FIELD, Integer.class, 19);
+        schema = FeatureTypes.add(schema, MIN_FIELD, Double.class, 38);
+        schema = FeatureTypes.add(schema, MAX_FIELD, Double.class, 38);
+        schema = FeatureTypes.add(schema, MEAN_FIELD, Double.class, 38);
+        if (pyramid != null) {
+            schema = FeatureTypes.add(schema, LEVEL_FIELD, Integer.class, 19);
+            schema = FeatureTypes.add(schema, SIZE_FIELD, Double.class, 38);
+        }
 
         // write features
         IFeatureInserter featureWriter = getFeatureWriter(schema);
@@ -116,6 +147,14 @@ public class HexagonalBinningOperation extends BinningOperation {
                 SimpleFeature newFeature = featureWriter.buildFeature();
                 newFeature.setAttribute(UID, bin.featureID);
                 newFeature.setAttribute(AGG_FIELD, bin.value);
+                newFeature.setAttribute(COUNT_FIELD, bin.count);
+                newFeature.setAttribute(MIN_FIELD, bin.min);
+                newFeature.setAttribute(MAX_FIELD, bin.max);
+                newFeature.setAttribute(MEAN_FIELD, bin.mean);
+                if (pyramid != null) {
+                    newFeature.setAttribute(LEVEL_FIELD, bin.level);
+                    newFeature.setAttribute(SIZE_FIELD, pyramid.getSize(bin.level));
+                }
                 newFeature.setDefaultGeometry(grid);
 
                 featureWriter.write(newFeature);
@@ -16,11 +16,8 @@
  */
 package org.geotools.process.spatialstatistics.pattern;
 
-import java.util.Iterator;
-import java.util.NoSuchElementException;
 import java.util.logging.Logger;
 
-import org.geotools.geometry.jts.GeometryCoordinateSequenceTransformer;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.process.spatialstatistics.util.CoordinateTranslateFilter;
 import org.geotools.util.logging.Logging;
@@ -50,13 +47,18 @@ public class HexagonalBinningVisitor extends AbstractBinningVisitor {
 
     private double yOrigin;
 
-    private Coordinate center = new Coordinate();
-
     public enum HexType {
         Pointy, Flat
     }
 
     public HexagonalBinningVisitor(ReferencedEnvelope bbox, double size) {
+        this(bbox, size, true);
+    }
+
+    /**
+     * @param accumulate false if the visitor only locates the hexagons, see {@link HexagonalPyramidBinningVisitor}
+     */
+    HexagonalBinningVisitor(ReferencedEnvelope bbox, double size, boolean accumulate) {
         this.size = size;
 
         // width w = sqrt(3) * size : height h = 2 * size.
@@ -80,13 +82,25 @@ public class HexagonalBinningVisitor extends AbstractBinningVisitor {
         columns = columns * xoffset < extent.getWidth() ? columns + 1 : columns;
         rows = rows * yoffset < extent.getHeight() ? rows + 1 : rows;
 
-        this.gridValues = new Double[rows][columns];
+        if (accumulate) {
+            this.gridValues = new BinAccumulator(rows, columns);
+        }
 
         this.binTemplate = this.createHexagon(minX, minY, size);
     }
 
     @Override
-    public void visit(Coordinate coordinate, double value) {
+    protected void visit(BinAccumulator target, Coordinate coordinate, double value) {
+        final long key = locate(coordinate);
+        if (key >= 0) {
+            target.add((int) (key / columns), (int) (key % columns), value);
+        }
+    }
+
+    /**
+     * Returns the key (row * columns + column) of the hexagon containing the coordinate, or -1 if it is outside of the grid.
+     */
+    long locate(Coordinate coordinate) {
         // origin = lower left
         int row = (int) Math.floor((coordinate.y - yOrigin) / yoffset);
         boolean even = (row % 2) == 1; // even row
@@ -98,22 +112,17 @@ public class HexagonalBinningVisitor extends AbstractBinningVisitor {
             col = (int) Math.floor((coordinate.x - minX) / xoffset);
         }
 
-        if (even) {
-            center.setOrdinate(0, (minX + xoffset) + (col * xoffset));
-        } else {
-            center.setOrdinate(0, (minX + half_xoffset) + (col * xoffset));
-        }
-        center.setOrdinate(1, (minY + size) + (row * yoffset));
+        double cx = even ? (minX + xoffset) + (col * xoffset)
+                : (minX + half_xoffset) + (col * xoffset);
+        double cy = (minY + size) + (row * yoffset);
 
-        double init_distance = coordinate.distance(center);
-        if (init_distance > half_xoffset) {
-            if (coordinate.x <= center.x) {
+        // compare squared distances, no temporary coordinates
+        double init_distance = distance2(coordinate, cx, cy);
+        if (init_distance > half_xoffset * half_xoffset) {
+            if (coordinate.x <= cx) {
                 // left cell
-                Coordinate upper = createCenter(center.x - half_xoffset, center.y + yoffset);
-                Coordinate lower = createCenter(center.x - half_xoffset, center.y - yoffset);
-
-                double upper_distance = coordinate.distance(upper);
-                double lower_distance = coordinate.distance(lower);
+                double upper_distance = distance2(coordinate, cx - half_xoffset, cy + yoffset);
+                double lower_distance = distance2(coordinate, cx - half_xoffset, cy - yoffset);
                 if (upper_distance < init_distance || lower_distance < init_distance) {
                     col = even ? col : col - 1;
                     if (upper_distance > lower_distance) {
@@ -125,11 +134,8 @@ public class HexagonalBinningVisitor extends AbstractBinningVisitor {
 
             } else {
                 // right cell
-                Coordinate upper = createCenter(center.x + half_xoffset, center.y + yoffset);
-                Coordinate lower = createCenter(center.x + half_xoffset, center.y - yoffset);
-
-                double upper_distance = coordinate.distance(upper);
-                double lower_distance = coordinate.distance(lower);
+                double upper_distance = distance2(coordinate, cx + half_xoffset, cy + yoffset);
+                double lower_distance = distance2(coordinate, cx + half_xoffset, cy - yoffset);
                 if (upper_distance < init_distance || lower_distance < init_distance) {
                     col = even ? col + 1 : col;
                     if (upper_distance > lower_distance) {
@@ -142,108 +148,24 @@ public class HexagonalBinningVisitor extends AbstractBinningVisitor {
         }
 
         if (col < 0 || row < 0 || col >= columns || row >= rows) {
-            return;
-        }
-
-        Double preVal = gridValues[row][col];
-        gridValues[row][col] = preVal == null ? value : preVal + value;
-
-        if (getOnlyValidGrid()) {
-            minCol = Math.min(col, minCol);
-            maxCol = Math.max(col, maxCol);
-            minRow = Math.min(row, minRow);
-            maxRow = Math.max(row, maxRow);
+            return -1;
         }
+        return (long) row * columns + col;
     }
 
-    private Coordinate createCenter(double x, double y) {
-        return new Coordinate(x, y);
+    private double distance2(Coordinate coordinate, double x, double y) {
+        final double dx = coordinate.x - x;
+        final double dy = coordinate.y - y;
+        return dx * dx + dy * dy;
     }
 
     @Override
-    public Iterator<Bin> getBins(final GeometryCoordinateSequenceTransformer transformer) {
-        if (!getOnlyValidGrid()) {
-            minCol = 0;
-            maxCol = columns;
-            minRow = 0;
-            maxRow = rows;
-        }
-
-        final int rowLimit = getOnlyValidGrid() ? maxRow + 1 : maxRow;
-        final int colLimit = getOnlyValidGrid() ? maxCol + 1 : maxCol;
-
-        return new Iterator<RectangularBinningVisitor.Bin>() {
-            int featureID = 0;
-
-            int row = minRow;
-
-            int col = minCol;
-
-            double ypos = minRow * yoffset;
+    protected Geometry createBinGeometry(int row, int col) {
+        double xpos = (row % 2) == 1 ? (col * xoffset) + half_xoffset : col * xoffset;
 
-            double xpos = (row % 2) == 1 ? (minCol * xoffset) + half_xoffset : minCol * xoffset;
-
-            private void resetIndexes() {
-                if (col == colLimit) {
-                    row++;
-                    ypos += yoffset;
-
-                    xpos = minCol * xoffset;
-                    col = minCol;
-                    if ((row % 2) == 1) {
-                        xpos += half_xoffset;
-                    }
-                }
-            }
-
-            @Override
-            public boolean hasNext() {
-                return row < rowLimit && col < colLimit;
-            }
-
-            @Override
-            public Bin next() {
-                if (!hasNext()) {
-                    throw new NoSuchElementException("hasNext() returned false!");
-                }
-
-                // Loop through the array: rows
-                while (row < rowLimit) {
-                    // Loop through the array: columns
-                    while (col < colLimit) {
-                        Double value = gridValues[row][col];
-                        col++;
-
-                        if (value == null && getOnlyValidGrid()) {
-                            xpos += xoffset;
-                            resetIndexes();
-                        } else {
-                            Geometry grid = (Geometry) binTemplate.copy();
-                            grid.apply(new CoordinateTranslateFilter(xpos, ypos));
-
-                            if (transformer != null) {
-                                // reproject grid geometry to sourceCRS
-                                grid = transform(transformer, grid);
-                            }
-
-                            xpos += xoffset;
-                            resetIndexes();
-
-                            // NULL to zero
-                            value = value == null ? Double.valueOf(0d) : value;
-
-                            return new Bin(featureID++, grid, value);
-                        }
-                    }
-                }
-                return null;
-            }
-
-            @Override
-            public void remove() {
-                // do nothing
-            }
-        };
+        Geometry grid = (Geometry) binTemplate.copy();
+        grid.apply(new CoordinateTranslateFilter(xpos, row * yoffset));
+        return grid;
     }
 
     private Geometry createHexagon(double minX, double minY, double size) {
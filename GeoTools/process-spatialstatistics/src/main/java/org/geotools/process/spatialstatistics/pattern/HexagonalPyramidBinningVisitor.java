@@ -0,0 +1,111 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.pattern;
+
+import java.util.logging.Logger;
+
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * Multi-resolution Hexagonal Binning Visitor. <br>
+ * Aggregates the points into hexagonal grids of several sizes in a single pass. Hexagons of different sizes do not nest, so every level is
+ * accumulated separately. The levels are stacked row wise into one grid, level 0 at the bottom, so that the sparse storage, the parallel driver and
+ * the bin iterator of {@link AbstractBinningVisitor} work on all levels at once.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ * 
+ */
+public class HexagonalPyramidBinningVisitor extends AbstractBinningVisitor {
+    protected static final Logger LOGGER = Logging.getLogger(HexagonalPyramidBinningVisitor.class);
+
+    private HexagonalBinningVisitor[] levels;
+
+    private double[] sizes;
+
+    private int[] rowOffsets;
+
+    public HexagonalPyramidBinningVisitor(ReferencedEnvelope bbox, double[] sizes) {
+        if (sizes == null || sizes.length == 0) {
+            throw new IllegalArgumentException("sizes parameter is empty");
+        }
+
+        this.sizes = sizes.clone();
+        this.levels = new HexagonalBinningVisitor[sizes.length];
+        this.rowOffsets = new int[sizes.length + 1];
+
+        this.columns = 0;
+        for (int level = 0; level < sizes.length; level++) {
+            // the levels only locate the points, the bins are stored in the stacked grid
+            levels[level] = new HexagonalBinningVisitor(bbox, sizes[level], false);
+            rowOffsets[level + 1] = rowOffsets[level] + levels[level].rows;
+            columns = Math.max(columns, levels[level].columns);
+        }
+        this.rows = rowOffsets[sizes.length];
+
+        this.extent = new ReferencedEnvelope(bbox);
+        this.minX = bbox.getMinX();
+        this.minY = bbox.getMinY();
+
+        this.gridValues = new BinAccumulator(rows, columns);
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    public double getSize(int level) {
+        return sizes[level];
+    }
+
+    @Override
+    protected void visit(BinAccumulator target, Coordinate coordinate, double value) {
+        for (int level = 0; level < levels.length; level++) {
+            final HexagonalBinningVisitor visitor = levels[level];
+            final long key = visitor.locate(coordinate);
+            if (key >= 0) {
+                final int row = (int) (key / visitor.columns);
+                final int col = (int) (key % visitor.columns);
+                target.add(rowOffsets[level] + row, col, value);
+            }
+        }
+    }
+
+    @Override
+    protected Geometry createBinGeometry(int row, int col) {
+        final int level = getLevel(row);
+        return levels[level].createBinGeometry(row - rowOffsets[level], col);
+    }
+
+    @Override
+    protected boolean isBinCell(int row, int col) {
+        return col < levels[getLevel(row)].columns;
+    }
+
+    @Override
+    protected int getLevel(int row) {
+        int level = 0;
+        while (row >= rowOffsets[level + 1]) {
+            level++;
+        }
+        return level;
+    }
+}
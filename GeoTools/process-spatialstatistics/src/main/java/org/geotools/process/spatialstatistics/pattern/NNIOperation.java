@@ -21,10 +21,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
-import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.data.simple.SimpleFeatureCollection;
-import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.process.spatialstatistics.core.DistanceFactory;
+import org.geotools.process.spatialstatistics.core.FeatureSnapshot;
 import org.geotools.process.spatialstatistics.core.FormatUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
@@ -63,10 +62,24 @@ public class NNIOperation extends GeneralOperation {
 
     private String typeName = "Average Nearest Neighbor Ratio";
 
+    private FeatureSnapshot featureSnapshot = null;
+
     public void setDistanceType(DistanceMethod distanceMethod) {
         this.distanceMethod = distanceMethod;
     }
 
+    /**
+     * Sets the columnar snapshot of the input features, ex) getFeatureSnapshot() of a previous run on the same feature collection. The centroids
+     * are then taken from it instead of reading the features again.
+     */
+    public void setFeatureSnapshot(FeatureSnapshot featureSnapshot) {
+        this.featureSnapshot = featureSnapshot;
+    }
+
+    public FeatureSnapshot getFeatureSnapshot() {
+        return featureSnapshot;
+    }
+
     public double getConvexHullArea(List<SpatialEvent> srcEvents) {
         Coordinate[] coordinates = new Coordinate[srcEvents.size()];
         for (int k = 0; k < srcEvents.size(); k++) {
@@ -88,22 +101,24 @@ public class NNIOperation extends GeneralOperation {
         typeName = features.getSchema().getTypeName();
         factory.setDistanceType(distanceMethod);
 
+        // a filtered or edited collection is another instance, the FIDs tell the features apart
+        if (featureSnapshot == null || !featureSnapshot.isLoadedFrom(features)
+                || featureSnapshot.getUniqueField() != null) {
+            featureSnapshot = FeatureSnapshot.load(features);
+        }
+
         // build spatial index
         final List<SpatialEvent> events = new ArrayList<SpatialEvent>();
         final STRtree spatialIndex = new STRtree();
-        SimpleFeatureIterator featureIter = features.features();
-        try {
-            while (featureIter.hasNext()) {
-                SimpleFeature feature = featureIter.next();
-                Geometry geometry = (Geometry) feature.getDefaultGeometry();
-                Coordinate centroid = geometry.getCentroid().getCoordinate();
-
-                SpatialEvent event = new SpatialEvent(feature.getID(), centroid);
-                events.add(event);
-                spatialIndex.insert(new Envelope(centroid), event);
+        for (int i = 0; i < featureSnapshot.size(); i++) {
+            if (featureSnapshot.isEmpty(i)) {
+                continue;
             }
-        } finally {
-            featureIter.close();
+
+            Coordinate centroid = featureSnapshot.getCentroid(i);
+            SpatialEvent event = new SpatialEvent(featureSnapshot.getID(i), centroid);
+            events.add(event);
+            spatialIndex.insert(new Envelope(centroid), event);
         }
 
         // calculate area
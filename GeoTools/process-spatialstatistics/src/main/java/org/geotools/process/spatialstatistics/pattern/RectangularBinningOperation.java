@@ -117,12 +117,17 @@ public class RectangularBinningOperation extends BinningOperation {
         // calculate
         RectangularBinningVisitor visitor = new RectangularBinningVisitor(bbox, columns, rows);
         visitor.setOnlyValidGrid(getOnlyValidGrid());
-        visitor.visit(features, weight, transformer);
+        visitor.setParallelism(getParallelism());
+        visitor.visit(features, weight, transform);
 
         // create feature type
         SimpleFeatureType schema = FeatureTypes.getDefaultType(TYPE_NAME, Polygon.class, sourceCRS);
         schema = FeatureTypes.add(schema, UID, Integer.class, 19);
         schema = FeatureTypes.add(schema, AGG_FIELD, Double.class, 38);
+        schema = FeatureTypes.add(schema, COUNT_FIELD, Integer.class, 19);
+        schema = FeatureTypes.add(schema, MIN_FIELD, Double.class, 38);
+        schema = FeatureTypes.add(schema, MAX_FIELD, Double.class, 38);
+        schema = FeatureTypes.add(schema, MEAN_FIELD, Double.class, 38);
 
         // write features
         IFeatureInserter featureWriter = getFeatureWriter(schema);
@@ -143,6 +148,10 @@ public class RectangularBinningOperation extends BinningOperation {
                 SimpleFeature newFeature = featureWriter.buildFeature();
                 newFeature.setAttribute(UID, bin.featureID);
                 newFeature.setAttribute(AGG_FIELD, bin.value);
+                newFeature.setAttribute(COUNT_FIELD, bin.count);
+                newFeature.setAttribute(MIN_FIELD, bin.min);
+                newFeature.setAttribute(MAX_FIELD, bin.max);
+                newFeature.setAttribute(MEAN_FIELD, bin.mean);
                 newFeature.setDefaultGeometry(grid);
 
                 featureWriter.write(newFeature);
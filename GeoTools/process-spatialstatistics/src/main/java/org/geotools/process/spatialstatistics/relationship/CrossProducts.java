@@ -0,0 +1,139 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.relationship;
+
+import java.util.Arrays;
+
+import org.ejml.data.DMatrixRMaj;
+
+/**
+ * Accumulates the means and the centered cross-product (co-moment) matrix of a set of variables in a single pass. <br>
+ * The updates are numerically stable (Welford) and two accumulators built from separate partitions of the data can be merged (Chan et al.),
+ * so the memory does not depend on the number of observations.
+ * 
+ * @author Minpa Lee, MangoSystem
+ * 
+ * @source $URL$
+ */
+public class CrossProducts {
+
+    private final int size;
+
+    private long count = 0;
+
+    private final double[] mean;
+
+    private final double[] delta;
+
+    private final double[] comoment; // upper triangle, row major
+
+    public CrossProducts(int size) {
+        this.size = size;
+        this.mean = new double[size];
+        this.delta = new double[size];
+        this.comoment = new double[size * size];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean(int i) {
+        return mean[i];
+    }
+
+    /**
+     * Returns sum((xi - mean(xi)) * (xj - mean(xj))).
+     */
+    public double getCoMoment(int i, int j) {
+        return i <= j ? comoment[i * size + j] : comoment[j * size + i];
+    }
+
+    /**
+     * Adds an observation. The array is not kept.
+     */
+    public void add(double[] values) {
+        count++;
+        for (int i = 0; i < size; i++) {
+            delta[i] = values[i] - mean[i];
+            mean[i] += delta[i] / count;
+        }
+
+        for (int i = 0; i < size; i++) {
+            double di = values[i] - mean[i];
+            for (int j = i; j < size; j++) {
+                comoment[i * size + j] += delta[j] * di;
+            }
+        }
+    }
+
+    /**
+     * Merges the observations of another accumulator of the same size into this one.
+     */
+    public void merge(CrossProducts other) {
+        if (other.count == 0) {
+            return;
+        }
+
+        if (count == 0) {
+            count = other.count;
+            System.arraycopy(other.mean, 0, mean, 0, size);
+            System.arraycopy(other.comoment, 0, comoment, 0, comoment.length);
+            return;
+        }
+
+        double total = count + other.count;
+        double factor = (count * (double) other.count) / total;
+        for (int i = 0; i < size; i++) {
+            delta[i] = other.mean[i] - mean[i];
+        }
+
+        for (int i = 0; i < size; i++) {
+            for (int j = i; j < size; j++) {
+                int index = i * size + j;
+                comoment[index] += other.comoment[index] + (delta[i] * delta[j] * factor);
+            }
+            mean[i] += delta[i] * (other.count / total);
+        }
+        count += other.count;
+    }
+
+    public void clear() {
+        count = 0;
+        Arrays.fill(mean, 0.0);
+        Arrays.fill(comoment, 0.0);
+    }
+
+    /**
+     * Returns the symmetric co-moment matrix.
+     */
+    public DMatrixRMaj getCoMomentMatrix() {
+        DMatrixRMaj matrix = new DMatrixRMaj(size, size);
+        for (int i = 0; i < size; i++) {
+            for (int j = i; j < size; j++) {
+                double value = comoment[i * size + j];
+                matrix.set(i, j, value);
+                matrix.set(j, i, value);
+            }
+        }
+        return matrix;
+    }
+}
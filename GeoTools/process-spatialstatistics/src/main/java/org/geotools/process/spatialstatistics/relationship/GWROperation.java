@@ -0,0 +1,937 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2014, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.process.spatialstatistics.relationship;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.process.spatialstatistics.core.FeatureTypes;
+import org.geotools.process.spatialstatistics.core.ParallelExecutor;
+import org.geotools.process.spatialstatistics.core.ParallelExecutor.RangeTask;
+import org.geotools.process.spatialstatistics.core.SSUtils;
+import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
+import org.geotools.process.spatialstatistics.enumeration.KernelType;
+import org.geotools.process.spatialstatistics.operations.GeneralOperation;
+import org.geotools.process.spatialstatistics.relationship.OLSResult.Diagnostics;
+import org.geotools.process.spatialstatistics.relationship.OLSResult.Variables;
+import org.geotools.process.spatialstatistics.relationship.OLSResult.Variables.Variable;
+import org.geotools.process.spatialstatistics.relationship.OLSResult.Variance;
+import org.geotools.process.spatialstatistics.relationship.OLSResult.Variance.RegressionItem;
+import org.geotools.process.spatialstatistics.relationship.OLSResult.Variance.ResidualItem;
+import org.geotools.process.spatialstatistics.relationship.OLSResult.Variance.SumItem;
+import org.geotools.process.spatialstatistics.storage.IFeatureInserter;
+import org.geotools.util.logging.Logging;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.index.ItemVisitor;
+import org.locationtech.jts.index.strtree.ItemBoundable;
+import org.locationtech.jts.index.strtree.ItemDistance;
+import org.locationtech.jts.index.strtree.STRtree;
+
+/**
+ * Performs Geographically Weighted Regression (GWR), a local form of linear regression used to model spatially varying relationships.
+ * <br>
+ * A weighted least squares model is fitted at the centroid of every feature using only the neighbours found in a spatial index, so each local
+ * fit solves a small (k + 1) x (k + 1) system. The local fits are independent and can run in parallel. If no bandwidth is given, it is chosen by
+ * golden section search minimizing the corrected Akaike Information Criterion (AICc).
+ *
+ * @author Minpa Lee, MangoSystem
+ *
+ * @source $URL$
+ *
+ * @reference Fotheringham, A.S., Brunsdon, C., and Charlton, M. (2002) Geographically Weighted Regression: the analysis of spatially varying
+ *            relationships. Wiley.
+ */
+public class GWROperation extends GeneralOperation {
+    protected static final Logger LOGGER = Logging.getLogger(GWROperation.class);
+
+    // the gaussian kernel is truncated at 3 x bandwidth, where the weight is about 0.011
+    private static final double GAUSSIAN_CUTOFF = 3.0;
+
+    private static final double GOLDEN_RATIO = (Math.sqrt(5.0) - 1.0) / 2.0;
+
+    private KernelType kernelType = KernelType.Quartic;
+
+    private boolean adaptive = true;
+
+    private double bandwidth = 0.0;
+
+    private double selectedBandwidth = 0.0;
+
+    private int maximumNeighbors = 1000;
+
+    private int parallelism = ParallelExecutor.getDefaultParallelism();
+
+    private KernelType kernel; // kernel of the current execution
+
+    private int n, m; // # of observations, # of coefficients
+
+    private double[] x; // n x m, first column = 1
+
+    private double[] y;
+
+    private double[] cx, cy; // centroids
+
+    private STRtree spatialIndex;
+
+    private ItemDistance itemDistance;
+
+    private Map<String, String> fieldMap;
+
+    private SimpleFeatureCollection features;
+
+    private SimpleFeatureCollection residualFeatures;
+
+    private OLSResult GWR = new OLSResult();
+
+    public GWROperation() {
+
+    }
+
+    public OLSResult getGWR() {
+        return GWR;
+    }
+
+    public SimpleFeatureCollection getResidualFeatures() {
+        return residualFeatures;
+    }
+
+    public KernelType getKernelType() {
+        return kernelType;
+    }
+
+    /**
+     * Sets the kernel function. Gaussian, Quartic (bisquare), Binary, Epanechnikov, Quadratic, Triangular, Triweight, Tricube and Cosine are
+     * supported. Default is Quartic.
+     */
+    public void setKernelType(KernelType kernelType) {
+        this.kernelType = kernelType;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Adaptive kernel: the bandwidth is the number of nearest neighbours. Fixed kernel: the bandwidth is a distance.
+     */
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    public double getBandwidth() {
+        return bandwidth;
+    }
+
+    /**
+     * Sets the bandwidth, 0 = golden section search minimizing AICc.
+     */
+    public void setBandwidth(double bandwidth) {
+        this.bandwidth = bandwidth;
+    }
+
+    /**
+     * Returns the bandwidth used by the last execution, the number of neighbours if the kernel is adaptive.
+     */
+    public double getSelectedBandwidth() {
+        return selectedBandwidth;
+    }
+
+    public int getMaximumNeighbors() {
+        return maximumNeighbors;
+    }
+
+    /**
+     * Sets the upper bound of the bandwidth search expressed as a number of neighbours. Default is 1000.
+     */
+    public void setMaximumNeighbors(int maximumNeighbors) {
+        this.maximumNeighbors = maximumNeighbors;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public OLSResult execute(SimpleFeatureCollection features, String dependentVariable,
+            String independentVariables) throws IOException {
+        List<String> fields = new ArrayList<String>();
+
+        String[] input_fields = independentVariables.split(",");
+        for (String field : input_fields) {
+            fields.add(field.trim());
+        }
+
+        return execute(features, dependentVariable, fields);
+    }
+
+    public OLSResult execute(SimpleFeatureCollection features, String dependentVariable,
+            String[] independentVariables) throws IOException {
+        return execute(features, dependentVariable, Arrays.asList(independentVariables));
+    }
+
+    public OLSResult execute(SimpleFeatureCollection features, String dependentVariable,
+            List<String> independentVariables) throws IOException {
+        this.features = features;
+
+        kernel = kernelType;
+        if (!isSupported(kernel)) {
+            LOGGER.log(Level.WARNING, kernelType + " kernel is not supported, Quartic used!");
+            kernel = KernelType.Quartic;
+        }
+
+        // check fields
+        fieldMap = OLSOperation.checkPropertyName(features.getSchema(), dependentVariable,
+                independentVariables);
+        m = fieldMap.size();
+
+        // load dataset and build spatial index
+        loadSamples(features);
+        if (n < m + 2) {
+            LOGGER.warning("At least " + (m + 2) + " features are required to perform GWR!");
+            return GWR;
+        }
+
+        // bandwidth
+        if (bandwidth <= 0) {
+            selectedBandwidth = searchBandwidth();
+        } else if (adaptive) {
+            selectedBandwidth = Math.min(n, Math.max(m + 2, Math.round(bandwidth)));
+        } else {
+            selectedBandwidth = bandwidth;
+        }
+
+        // regression
+        LocalResults results = fit(selectedBandwidth, true);
+        if (results.singular > 0) {
+            LOGGER.log(Level.WARNING, results.singular
+                    + " local models could not be solved, increase the bandwidth!");
+        }
+
+        this.buildGWRResult(results);
+
+        // finally build features
+        buildFeatures(results);
+
+        return GWR;
+    }
+
+    private boolean isSupported(KernelType kernelType) {
+        return kernelType != null && kernelType != KernelType.Distance
+                && kernelType != KernelType.InverseDistance;
+    }
+
+    private void loadSamples(SimpleFeatureCollection features) {
+        String[] keys = fieldMap.keySet().toArray(new String[m]);
+        double[] values = new double[m];
+
+        int capacity = 1024;
+        x = new double[capacity * m];
+        y = new double[capacity];
+        cx = new double[capacity];
+        cy = new double[capacity];
+
+        n = 0;
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                if (geometry == null || geometry.isEmpty()) {
+                    continue;
+                }
+
+                if (n == capacity) {
+                    capacity *= 2;
+                    x = Arrays.copyOf(x, capacity * m);
+                    y = Arrays.copyOf(y, capacity);
+                    cx = Arrays.copyOf(cx, capacity);
+                    cy = Arrays.copyOf(cy, capacity);
+                }
+
+                Coordinate centroid = geometry.getCentroid().getCoordinate();
+                cx[n] = centroid.x;
+                cy[n] = centroid.y;
+
+                // independent variables first, dependent variable last
+                OLSOperation.readValues(feature, keys, values, true);
+                x[n * m] = 1.0;
+                System.arraycopy(values, 0, x, n * m + 1, m - 1);
+                y[n] = values[m - 1];
+                n++;
+            }
+        } finally {
+            featureIter.close();
+        }
+
+        spatialIndex = new STRtree();
+        for (int i = 0; i < n; i++) {
+            spatialIndex.insert(new Envelope(cx[i], cx[i], cy[i], cy[i]), Integer.valueOf(i));
+        }
+        spatialIndex.build();
+
+        itemDistance = new ItemDistance() {
+            @Override
+            public double distance(ItemBoundable item1, ItemBoundable item2) {
+                int i = ((Integer) item1.getItem()).intValue();
+                int j = ((Integer) item2.getItem()).intValue();
+                return getDistance(i, j);
+            }
+        };
+    }
+
+    private double getDistance(int i, int j) {
+        double dx = cx[i] - cx[j];
+        double dy = cy[i] - cy[j];
+        return Math.sqrt((dx * dx) + (dy * dy));
+    }
+
+    private double getKernelWeight(double u) {
+        if (kernel == KernelType.Gaussian) {
+            return u > GAUSSIAN_CUTOFF ? 0.0 : Math.exp(-0.5 * u * u);
+        } else if (u >= 1.0) {
+            return 0.0;
+        }
+
+        switch (kernel) {
+        case Binary:
+            return 1.0;
+        case Cosine:
+            return Math.cos(u * Math.PI / 2.0);
+        case Epanechnikov:
+        case Quadratic:
+            return 1.0 - (u * u);
+        case Triangular:
+            return 1.0 - u;
+        case Triweight:
+            return Math.pow(1.0 - (u * u), 3.0);
+        case Tricube:
+            return Math.pow(1.0 - (u * u * u), 3.0);
+        default:
+            return Math.pow(1.0 - (u * u), 2.0); // Quartic = bisquare
+        }
+    }
+
+    private double getAICc(double rss, double traceS) {
+        if (n - 2.0 - traceS <= 0 || rss <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double sigma = Math.sqrt(rss / n);
+        return (2.0 * n * Math.log(sigma)) + (n * Math.log(2.0 * Math.PI))
+                + (n * ((n + traceS) / (n - 2.0 - traceS)));
+    }
+
+    private double searchBandwidth() {
+        double lower, upper;
+        if (adaptive) {
+            lower = m + 2;
+            upper = Math.max(lower, Math.min(n, maximumNeighbors));
+        } else {
+            // every local model needs at least m + 2 observations
+            lower = getMaximumNeighborDistance(m + 2);
+
+            // radius containing maximumNeighbors features at the average density
+            Envelope extent = new Envelope();
+            for (int i = 0; i < n; i++) {
+                extent.expandToInclude(cx[i], cy[i]);
+            }
+            double area = extent.getArea();
+            if (area == 0) {
+                area = Math.pow(Math.max(extent.getWidth(), extent.getHeight()), 2.0);
+            }
+            upper = Math.sqrt(Math.min(n, maximumNeighbors) * area / (Math.PI * n));
+            upper = Math.max(upper, lower * 2.0);
+
+            if (kernel == KernelType.Gaussian) {
+                lower /= GAUSSIAN_CUTOFF;
+                upper /= GAUSSIAN_CUTOFF;
+            }
+        }
+
+        final double tolerance = adaptive ? 1.0 : (upper - lower) * 1.0E-4;
+        Map<Double, Double> scores = new HashMap<Double, Double>();
+
+        double a = lower;
+        double b = upper;
+        double c = toBandwidth(b - GOLDEN_RATIO * (b - a));
+        double d = toBandwidth(a + GOLDEN_RATIO * (b - a));
+        double fc = getScore(c, scores);
+        double fd = getScore(d, scores);
+
+        for (int iteration = 0; iteration < 100 && (b - a) > tolerance; iteration++) {
+            if (fc < fd) {
+                b = d;
+                d = c;
+                fd = fc;
+                c = toBandwidth(b - GOLDEN_RATIO * (b - a));
+                fc = getScore(c, scores);
+            } else {
+                a = c;
+                c = d;
+                fc = fd;
+                d = toBandwidth(a + GOLDEN_RATIO * (b - a));
+                fd = getScore(d, scores);
+            }
+        }
+
+        // the best evaluated bandwidth
+        double best = fc < fd ? c : d;
+        double bestScore = Math.min(fc, fd);
+        for (Map.Entry<Double, Double> entry : scores.entrySet()) {
+            if (entry.getValue() < bestScore) {
+                best = entry.getKey();
+                bestScore = entry.getValue();
+            }
+        }
+
+        if (Double.isInfinite(bestScore)) {
+            LOGGER.log(Level.WARNING, "No bandwidth between " + lower + " and " + upper
+                    + " gives solvable local models!");
+        }
+
+        return best;
+    }
+
+    private double toBandwidth(double value) {
+        return adaptive ? Math.round(value) : value;
+    }
+
+    private double getScore(double candidate, Map<Double, Double> scores) {
+        Double score = scores.get(candidate);
+        if (score == null) {
+            LocalResults results = fit(candidate, false);
+            score = results.singular > 0 ? Double.POSITIVE_INFINITY : getAICc(results.rss,
+                    results.traceS);
+            scores.put(candidate, score);
+            LOGGER.log(Level.FINE, "Bandwidth = " + candidate + ", AICc = " + score);
+        }
+        return score.doubleValue();
+    }
+
+    private double getMaximumNeighborDistance(final int count) {
+        final double[] maximum = new double[1];
+        ParallelExecutor.execute(n, parallelism, 64, new RangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                double local = 0.0;
+                for (int i = start; i < end; i++) {
+                    Envelope envelope = new Envelope(cx[i], cx[i], cy[i], cy[i]);
+                    Object[] items = spatialIndex.nearestNeighbour(envelope,
+                            Integer.valueOf(i), itemDistance, Math.min(n, count));
+                    for (Object item : items) {
+                        local = Math.max(local, getDistance(i, ((Integer) item).intValue()));
+                    }
+                }
+
+                synchronized (maximum) {
+                    maximum[0] = Math.max(maximum[0], local);
+                }
+            }
+        });
+        return maximum[0];
+    }
+
+    private LocalResults fit(final double bandwidth, final boolean details) {
+        final LocalResults results = new LocalResults(details);
+
+        ParallelExecutor.execute(n, parallelism, 64, new RangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                LocalModel model = new LocalModel();
+                double rss = 0.0;
+                double traceS = 0.0;
+                double traceSTS = 0.0;
+                int singular = 0;
+
+                for (int i = start; i < end; i++) {
+                    model.findNeighbors(i, bandwidth);
+                    if (!model.solve(i, details)) {
+                        singular++;
+                        results.setEmpty(i);
+                        continue;
+                    }
+
+                    double residual = y[i] - model.estimated;
+                    rss += residual * residual;
+                    traceS += model.influence;
+
+                    results.estimated[i] = model.estimated;
+                    results.influence[i] = model.influence;
+                    if (details) {
+                        traceSTS += model.traceSTS;
+                        results.localR2[i] = model.localR2;
+                        System.arraycopy(model.coefficients, 0, results.coefficients, i * m, m);
+                        System.arraycopy(model.variances, 0, results.variances, i * m, m);
+                    }
+                }
+
+                synchronized (results) {
+                    results.rss += rss;
+                    results.traceS += traceS;
+                    results.traceSTS += traceSTS;
+                    results.singular += singular;
+                }
+            }
+        });
+
+        return results;
+    }
+
+    private void buildGWRResult(LocalResults results) {
+        double sumOfY = 0.0;
+        for (int i = 0; i < n; i++) {
+            sumOfY += y[i];
+        }
+
+        double meanY = sumOfY / n;
+        double SST = 0.0;
+        for (int i = 0; i < n; i++) {
+            SST += (y[i] - meanY) * (y[i] - meanY);
+        }
+
+        double RSS = results.rss;
+        double dof = n - (2.0 * results.traceS) + results.traceSTS; // effective residual DoF
+        double sigma2 = RSS / dof;
+
+        // scale the local variances
+        if (results.variances != null) {
+            for (int index = 0; index < results.variances.length; index++) {
+                results.variances[index] = Math.sqrt(sigma2 * results.variances[index]);
+            }
+        }
+        results.sigma = Math.sqrt(sigma2);
+
+        double R2 = 1.0 - (RSS / SST);
+        double R2adjusted = 1.0 - ((RSS / dof) / (SST / (n - 1)));
+        double sigma = Math.sqrt(RSS / n);
+        double AIC = (2.0 * n * Math.log(sigma)) + (n * Math.log(2.0 * Math.PI)) + n
+                + results.traceS;
+        double AICc = getAICc(RSS, results.traceS);
+
+        // Diagnostics
+        Diagnostics diagnostics = GWR.getDiagnostics();
+        diagnostics.setR(Math.sqrt(R2));
+        diagnostics.setRSquared(R2);
+        diagnostics.setAdjustedRSquared(R2adjusted);
+        diagnostics.setStandardError(results.sigma);
+        diagnostics.setNumberOfObservations(n);
+        diagnostics.setAIC(AIC);
+        diagnostics.setAICc(AICc);
+
+        // Variation
+        int dofResidual = (int) Math.round(dof);
+
+        Variance variance = GWR.getVariance();
+        RegressionItem regress = variance.getRegression();
+        regress.setDegreesOfFreedom(n - 1 - dofResidual);
+        regress.setSumOfSquare(SST - RSS);
+
+        ResidualItem residual = variance.getResidual();
+        residual.setDegreesOfFreedom(dofResidual);
+        residual.setSumOfSquare(RSS);
+        residual.setSquareMean(sigma2);
+
+        SumItem sum = variance.getSum();
+        sum.setDegreesOfFreedom(n - 1);
+        sum.setSumOfSquare(SST);
+
+        // Variables: mean of the local coefficients and standard errors
+        Variables variables = GWR.getVariables();
+
+        Object[] fields = fieldMap.keySet().toArray();
+        for (int p = 0; p < m; p++) {
+            String name = p == 0 ? "Intercept" : fields[p].toString();
+
+            double coefficient = 0.0;
+            double stdError = 0.0;
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                if (!Double.isNaN(results.coefficients[i * m + p])) {
+                    coefficient += results.coefficients[i * m + p];
+                    stdError += results.variances[i * m + p];
+                    count++;
+                }
+            }
+
+            Variable variable = new Variable(name);
+            if (count == 0) {
+                // no local model could be solved
+                variable.setAttributes(Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+            } else {
+                coefficient /= count;
+                stdError /= count;
+
+                double tStatistic = coefficient / stdError;
+                double pValue = SSUtils.tProb(dof, Math.abs(tStatistic), StatEnum.BOTH);
+                variable.setAttributes(coefficient, stdError, tStatistic, pValue);
+            }
+            variables.getItems().add(variable);
+        }
+    }
+
+    private boolean buildFeatures(LocalResults results) throws IOException {
+        // create schema
+        String[] fields = { "Estimated", "Residual", "StdResid", "LocalR2", "Influence" };
+
+        Object[] variables = fieldMap.keySet().toArray();
+        String[] coefficientFields = new String[m];
+        String[] stdErrorFields = new String[m];
+        for (int p = 0; p < m; p++) {
+            coefficientFields[p] = p == 0 ? "Intercept" : "C" + p + "_" + variables[p];
+            stdErrorFields[p] = p == 0 ? "StdErrInt" : "StdErrC" + p;
+        }
+
+        SimpleFeatureType featureType = features.getSchema();
+        for (int index = 0; index < fields.length; index++) {
+            featureType = FeatureTypes.add(featureType, fields[index], Double.class, 19);
+        }
+        for (int p = 0; p < m; p++) {
+            featureType = FeatureTypes.add(featureType, coefficientFields[p], Double.class, 19);
+        }
+        for (int p = 0; p < m; p++) {
+            featureType = FeatureTypes.add(featureType, stdErrorFields[p], Double.class, 19);
+        }
+
+        IFeatureInserter featureWriter = getFeatureWriter(featureType);
+
+        // write features
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            int i = 0;
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                if (geometry == null || geometry.isEmpty()) {
+                    // no location, no local model: the GWR fields are left null
+                    SimpleFeature newFeature = featureWriter.buildFeature();
+                    featureWriter.copyAttributes(feature, newFeature, true);
+                    featureWriter.write(newFeature);
+                    continue;
+                }
+
+                double residual = y[i] - results.estimated[i];
+                double stdResid = residual
+                        / (results.sigma * Math.sqrt(1.0 - results.influence[i]));
+
+                // create & insert feature
+                SimpleFeature newFeature = featureWriter.buildFeature();
+                featureWriter.copyAttributes(feature, newFeature, true);
+
+                newFeature.setAttribute(fields[0], results.estimated[i]);
+                newFeature.setAttribute(fields[1], residual);
+                newFeature.setAttribute(fields[2], stdResid);
+                newFeature.setAttribute(fields[3], results.localR2[i]);
+                newFeature.setAttribute(fields[4], results.influence[i]);
+                for (int p = 0; p < m; p++) {
+                    newFeature.setAttribute(coefficientFields[p], results.coefficients[i * m + p]);
+                    newFeature.setAttribute(stdErrorFields[p], results.variances[i * m + p]);
+                }
+
+                featureWriter.write(newFeature);
+                i++;
+            }
+        } catch (IOException e) {
+            featureWriter.rollback(e);
+        } finally {
+            featureWriter.close(featureIter);
+        }
+
+        this.residualFeatures = featureWriter.getFeatureCollection();
+        return this.residualFeatures != null;
+    }
+
+    /**
+     * Results of the local models of all features. Each feature only writes its own slots.
+     */
+    final class LocalResults {
+
+        final double[] estimated = new double[n];
+
+        final double[] influence = new double[n]; // diagonal of the hat matrix
+
+        double[] localR2;
+
+        double[] coefficients; // n x m
+
+        double[] variances; // n x m, standard errors after buildGWRResult
+
+        double rss, traceS, traceSTS, sigma;
+
+        int singular;
+
+        LocalResults(boolean details) {
+            if (details) {
+                localR2 = new double[n];
+                coefficients = new double[n * m];
+                variances = new double[n * m];
+            }
+        }
+
+        void setEmpty(int i) {
+            estimated[i] = Double.NaN;
+            influence[i] = Double.NaN;
+            if (coefficients != null) {
+                localR2[i] = Double.NaN;
+                Arrays.fill(coefficients, i * m, (i + 1) * m, Double.NaN);
+                Arrays.fill(variances, i * m, (i + 1) * m, Double.NaN);
+            }
+        }
+    }
+
+    /**
+     * Working buffers of the weighted least squares model at one feature. Each thread needs its own instance.
+     */
+    final class LocalModel {
+
+        final double[] xtwx = new double[m * m]; // X'WX, lower triangle
+
+        final double[] xtw2x = new double[m * m]; // X'W^2X, lower triangle
+
+        final double[] xtwy = new double[m];
+
+        final double[] chol = new double[m * m];
+
+        final double[] coefficients = new double[m];
+
+        final double[] variances = new double[m];
+
+        final double[] z = new double[m];
+
+        final double[] unit = new double[m];
+
+        final double[] column = new double[m];
+
+        int[] indices = new int[64];
+
+        double[] weights = new double[64];
+
+        int size;
+
+        double estimated, influence, traceSTS, localR2;
+
+        void findNeighbors(final int i, double bandwidth) {
+            size = 0;
+            if (adaptive) {
+                Envelope envelope = new Envelope(cx[i], cx[i], cy[i], cy[i]);
+                Object[] items = spatialIndex.nearestNeighbour(envelope, Integer.valueOf(i),
+                        itemDistance, Math.min(n, (int) bandwidth));
+
+                double radius = 0.0;
+                boolean containsSelf = false;
+                for (Object item : items) {
+                    int j = ((Integer) item).intValue();
+                    add(j, getDistance(i, j));
+                    radius = Math.max(radius, weights[size - 1]);
+                    containsSelf |= j == i;
+                }
+                if (!containsSelf) {
+                    add(i, 0.0);
+                }
+
+                // distance -> weight
+                for (int k = 0; k < size; k++) {
+                    weights[k] = radius == 0 ? 1.0 : getKernelWeight(weights[k] / radius);
+                }
+            } else {
+                final double radius = kernel == KernelType.Gaussian ? bandwidth
+                        * GAUSSIAN_CUTOFF : bandwidth;
+
+                Envelope envelope = new Envelope(cx[i], cx[i], cy[i], cy[i]);
+                envelope.expandBy(radius);
+                spatialIndex.query(envelope, new ItemVisitor() {
+                    @Override
+                    public void visitItem(Object item) {
+                        int j = ((Integer) item).intValue();
+                        double distance = getDistance(i, j);
+                        if (distance <= radius) {
+                            add(j, distance);
+                        }
+                    }
+                });
+
+                // distance -> weight
+                for (int k = 0; k < size; k++) {
+                    weights[k] = getKernelWeight(weights[k] / bandwidth);
+                }
+            }
+        }
+
+        private void add(int j, double distance) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            indices[size] = j;
+            weights[size] = distance;
+            size++;
+        }
+
+        boolean solve(int i, boolean details) {
+            Arrays.fill(xtwx, 0.0);
+            Arrays.fill(xtwy, 0.0);
+            if (details) {
+                Arrays.fill(xtw2x, 0.0);
+            }
+
+            double selfWeight = 0.0;
+            for (int k = 0; k < size; k++) {
+                final int j = indices[k];
+                final double w = weights[k];
+                if (w == 0) {
+                    continue;
+                } else if (j == i) {
+                    selfWeight = w;
+                }
+
+                final int offset = j * m;
+                for (int r = 0; r < m; r++) {
+                    double wx = w * x[offset + r];
+                    xtwy[r] += wx * y[j];
+                    for (int c = 0; c <= r; c++) {
+                        xtwx[r * m + c] += wx * x[offset + c];
+                        if (details) {
+                            xtw2x[r * m + c] += wx * w * x[offset + c];
+                        }
+                    }
+                }
+            }
+
+            if (!decompose()) {
+                return false;
+            }
+
+            // beta = inv(X'WX) * X'Wy, z = inv(X'WX) * xi
+            final int rowOffset = i * m;
+            System.arraycopy(x, rowOffset, column, 0, m);
+            solve(xtwy, coefficients);
+            solve(column, z);
+
+            estimated = 0.0;
+            influence = 0.0;
+            for (int r = 0; r < m; r++) {
+                estimated += x[rowOffset + r] * coefficients[r];
+                influence += x[rowOffset + r] * z[r];
+            }
+            influence *= selfWeight;
+
+            if (!details) {
+                return true;
+            }
+
+            // tr(S'S) of row i, local R2
+            traceSTS = 0.0;
+            double sumW = 0.0, sumWY = 0.0, sumWY2 = 0.0, rssW = 0.0;
+            for (int k = 0; k < size; k++) {
+                final int j = indices[k];
+                final double w = weights[k];
+                if (w == 0) {
+                    continue;
+                }
+
+                double sij = 0.0;
+                double yj = 0.0;
+                for (int r = 0; r < m; r++) {
+                    sij += z[r] * x[j * m + r];
+                    yj += coefficients[r] * x[j * m + r];
+                }
+                sij *= w;
+                traceSTS += sij * sij;
+
+                sumW += w;
+                sumWY += w * y[j];
+                sumWY2 += w * y[j] * y[j];
+                rssW += w * (y[j] - yj) * (y[j] - yj);
+            }
+            double tssW = sumWY2 - (sumWY * sumWY / sumW);
+            localR2 = tssW <= 0 ? Double.NaN : 1.0 - (rssW / tssW);
+
+            // Var(beta) = sigma^2 * inv(X'WX) * X'W^2X * inv(X'WX)
+            for (int p = 0; p < m; p++) {
+                Arrays.fill(unit, 0.0);
+                unit[p] = 1.0;
+                solve(unit, column);
+
+                double value = 0.0;
+                for (int r = 0; r < m; r++) {
+                    for (int c = 0; c < m; c++) {
+                        double a = r >= c ? xtw2x[r * m + c] : xtw2x[c * m + r];
+                        value += column[r] * a * column[c];
+                    }
+                }
+                variances[p] = value;
+            }
+
+            return true;
+        }
+
+        // Cholesky decomposition of X'WX, false if the local model is singular
+        private boolean decompose() {
+            for (int r = 0; r < m; r++) {
+                for (int c = 0; c <= r; c++) {
+                    double sum = xtwx[r * m + c];
+                    for (int p = 0; p < c; p++) {
+                        sum -= chol[r * m + p] * chol[c * m + p];
+                    }
+
+                    if (r == c) {
+                        if (sum <= 1.0E-10 * Math.abs(xtwx[r * m + r])) {
+                            return false;
+                        }
+                        chol[r * m + r] = Math.sqrt(sum);
+                    } else {
+                        chol[r * m + c] = sum / chol[c * m + c];
+                    }
+                }
+            }
+            return true;
+        }
+
+        // solves L * L' * result = rhs
+        private void solve(double[] rhs, double[] result) {
+            for (int r = 0; r < m; r++) {
+                double sum = rhs[r];
+                for (int p = 0; p < r; p++) {
+                    sum -= chol[r * m + p] * result[p];
+                }
+                result[r] = sum / chol[r * m + r];
+            }
+
+            for (int r = m - 1; r >= 0; r--) {
+                double sum = result[r];
+                for (int p = r + 1; p < m; p++) {
+                    sum -= chol[p * m + r] * result[p];
+                }
+                result[r] = sum / chol[r * m + r];
+            }
+        }
+    }
+}
@@ -23,7 +23,6 @@ import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,6 +34,7 @@ import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.api.feature.simple.SimpleFeatureType;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.process.ProcessException;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
 import org.geotools.process.spatialstatistics.core.SSUtils;
 import org.geotools.process.spatialstatistics.core.SSUtils.StatEnum;
@@ -66,15 +66,9 @@ public class OLSOperation extends GeneralOperation {
 
     private int n, k, dof1, dof2;
 
-    private SimpleMatrix Y; // Dependent
-
-    private SimpleMatrix X; // Independent
-
     private SimpleMatrix ST; // Variance
 
-    private SimpleMatrix residuals; // Residual
-
-    private int rowCount = 0;
+    private double[] beta; // Intercept, Coefficients
 
     private Map<String, String> fieldMap;
 
@@ -119,6 +113,10 @@ public class OLSOperation extends GeneralOperation {
         return execute(features, dependentVariable, Arrays.asList(independentVariables));
     }
 
+    /**
+     * The observations are streamed: the first pass accumulates the (k + 1) x (k + 1) centered cross-product matrix of the variables, and the
+     * residuals are computed in a second pass over the features only if analyzeResidual is set.
+     */
     public OLSResult execute(SimpleFeatureCollection features, String dependentVariable,
             List<String> independentVariables) throws IOException {
         this.features = features;
@@ -126,54 +124,60 @@ public class OLSOperation extends GeneralOperation {
         // check fields
         fieldMap = checkPropertyName(features.getSchema(), dependentVariable, independentVariables);
 
-        // load dataset
-        Map<String, double[]> sampleMap = this.loadSamples(features, fieldMap);
-
-        // create matrix
-        int inVarCount = fieldMap.size() - 1; // duplicated fields removed
-        Y = new SimpleMatrix(rowCount, 1);
-        X = new SimpleMatrix(rowCount, inVarCount + 1);
-        X.fill(1.0); // Sets all the elements in this matrix equal to 1
-
-        int column = 0;
-        double sumOfY = 0.0d;
-        for (Entry<String, double[]> entry : sampleMap.entrySet()) {
-            double[] data = entry.getValue();
-            if (column == 0) {
-                for (int row = 0; row < rowCount; row++) {
-                    Y.set(row, column, data[row]);
-                    sumOfY += data[row];
-                }
-            } else {
-                X.setColumn(column, 0, data);
-            }
-            column++;
-        }
+        // accumulate cross-products
+        CrossProducts crossProducts = accumulate(features, fieldMap);
 
-        // clear
-        sampleMap.clear();
-
-        n = X.numRows(); // # of observations
-        k = X.numCols() - 1; // # of independent variables
-        meanY = sumOfY / n;
+        n = (int) crossProducts.getCount(); // # of observations
+        k = fieldMap.size() - 1; // # of independent variables, duplicated fields removed
+        meanY = crossProducts.getMean(k);
 
         // regression
-        return analyze();
+        return analyze(crossProducts);
     }
 
-    private OLSResult analyze() throws IOException {
-        // Step 1: Computes linear regression via Ordinary Least Squares
-        // create Z matrix
-        SimpleMatrix Z = X.concatColumns(Y);
-
-        SimpleMatrix ZtrZ = Z.transpose().mult(Z);
-        SimpleMatrix ss = Y.minus(meanY);
+    private OLSResult analyze(CrossProducts crossProducts) throws IOException {
+        // Step 1: Cholesky decomposition of the centered cross-product matrix [X y]'[X y]
+        DMatrixRMaj comoment = crossProducts.getCoMomentMatrix();
 
         dof1 = k;
         dof2 = n - k - 1;
 
-        SST = ss.transpose().mult(ss).get(0, 0);
-        SSE = Math.pow(ZtrZ.invert().get(k + 1, k + 1), -1);
+        SST = comoment.get(k, k);
+
+        CholeskyDecomposition<DMatrixRMaj> chol = null;
+        chol = DecompositionFactory_DDRM.chol(k + 1, true);
+        if (!chol.decompose(comoment)) {
+            throw new ProcessException("The cross-product matrix of the variables is not positive"
+                    + " definite: check that no explanatory variable is constant or a linear"
+                    + " combination of the others, and that there are more features than variables.");
+        }
+
+        // L = [Lxx 0; lyx' lyy] : Lxx' * b = lyx, SSE = lyy^2
+        DMatrixRMaj L = chol.getT(null);
+
+        // slopes: back substitution of Lxx' * b = lyx
+        double[] slopes = new double[k];
+        for (int i = k - 1; i >= 0; i--) {
+            double sum = L.get(k, i);
+            for (int j = i + 1; j < k; j++) {
+                sum -= L.get(j, i) * slopes[j];
+            }
+            slopes[i] = sum / L.get(i, i);
+        }
+
+        // inv(Cxx) = M' * M with M = inv(Lxx), by forward substitution of the identity columns
+        double[][] invLxx = new double[k][k];
+        for (int c = 0; c < k; c++) {
+            for (int i = c; i < k; i++) {
+                double sum = i == c ? 1.0 : 0.0;
+                for (int j = c; j < i; j++) {
+                    sum -= L.get(i, j) * invLxx[j][c];
+                }
+                invLxx[i][c] = sum / L.get(i, i);
+            }
+        }
+
+        SSE = Math.pow(L.get(k, k), 2.0);
         SSR = SST - SSE;
 
         MSR = SSR / dof1;
@@ -203,29 +207,40 @@ public class OLSOperation extends GeneralOperation {
         AIC = -2.0 * logLik + 2.0 * k2;
         AICc = -2.0 * logLik + 2.0 * k2 * (double) (n / (n - k2 - 1));
 
-        // Step 2: Cholesky Decomposition
-        CholeskyDecomposition<DMatrixRMaj> chol = null;
-        chol = DecompositionFactory_DDRM.chol(ZtrZ.numRows(), true);
-        if (!chol.decompose(ZtrZ.getMatrix().copy())) {
-            throw new RuntimeException("Cholesky failed!");
+        // Step 2: Coefficient, intercept = mean(y) - b * mean(x)
+        double[] meanX = new double[k];
+        beta = new double[k + 1];
+        beta[0] = meanY;
+        for (int i = 0; i < k; i++) {
+            meanX[i] = crossProducts.getMean(i);
+            beta[i + 1] = slopes[i];
+            beta[0] -= beta[i + 1] * meanX[i];
         }
 
-        SimpleMatrix L = SimpleMatrix.wrap(chol.getT(null));
-        SimpleMatrix invS = new SimpleMatrix(k + 2, k + 2);
-        for (int i = 0; i < k + 2; i++) {
-            invS.set(i, i, 1.0 / L.get(i, i));
-        }
-        SimpleMatrix UnitL = L.mult(invS).invert().extractMatrix(k + 1, k + 2, 0, k + 1);
+        // Var(b) = MSE * inv(Cxx), Var(intercept) = MSE * (1 / n + mean(x)' * inv(Cxx) * mean(x))
+        // diag(inv(Cxx)) = column norms of M, mean(x)' * inv(Cxx) * mean(x) = |M * mean(x)|^2
+        double[] variances = new double[k + 1];
+        double quadratic = 0.0;
+        for (int i = 0; i < k; i++) {
+            double projected = 0.0;
+            for (int j = 0; j <= i; j++) {
+                projected += invLxx[i][j] * meanX[j];
+            }
+            quadratic += projected * projected;
 
-        // Coefficient
-        SimpleMatrix beta = UnitL.transpose().scale(-1.0);
-        SimpleMatrix xxi = X.transpose().mult(X).invert().scale(MSE);
+            double diagonal = 0.0;
+            for (int r = i; r < k; r++) {
+                diagonal += invLxx[r][i] * invLxx[r][i];
+            }
+            variances[i + 1] = MSE * diagonal;
+        }
+        variances[0] = MSE * ((1.0 / n) + quadratic);
 
         // Columns = {Coefficient, StdError, t-Statistic, Probability}
-        ST = new SimpleMatrix(beta.numRows(), 4);
+        ST = new SimpleMatrix(k + 1, 4);
         for (int i = 0; i < k + 1; i++) {
-            double coefficient = beta.get(i, 0); // Coefficient
-            double stdError = Math.sqrt(xxi.get(i, i)); // StdError
+            double coefficient = beta[i]; // Coefficient
+            double stdError = Math.sqrt(variances[i]); // StdError
             double tStatistics = coefficient / stdError; // t-Statistic
             double pValue = SSUtils.tProb(dof2, Math.abs(tStatistics), StatEnum.BOTH); // Probability
 
@@ -241,38 +256,7 @@ public class OLSOperation extends GeneralOperation {
             return OLS;
         }
 
-        // Step 3: Residuals
-        // Columns = {Estimated, Residual, StdResid, StdResid2}
-        residuals = new SimpleMatrix(rowCount, 4);
-
-        double sumOfVals = 0.0d;
-        double sumOfSqrs = 0.0d;
-
-        final SimpleMatrix multXBeta = X.mult(beta);
-        for (int i = 0; i < n; i++) {
-            double residual = Y.get(i, 0) - multXBeta.get(i, 0);
-            double estimated = Y.get(i, 0) - residual;
-
-            sumOfVals += residual;
-            sumOfSqrs += residual * residual;
-
-            residuals.set(i, 0, estimated); // Estimated
-            residuals.set(i, 1, residual); // Residual
-        }
-
-        // 표준잔차 = 잔차 / 잔차의 표준편차
-        double meanRes = sumOfVals / n;
-        double stdDev = Math.sqrt((sumOfSqrs - Math.pow(sumOfVals, 2.0) / n) / (n - 1));
-        for (int i = 0; i < n; i++) {
-            double residual = residuals.get(i, 1);
-            double stdRes = (residual - meanRes) / STDERR;
-            double stdRes2 = residual / stdDev;
-
-            residuals.set(i, 2, stdRes); // StdResid = 내적 스튜던트 잔차
-            residuals.set(i, 3, stdRes2); // StdResid2 = 표준잔차
-        }
-
-        // finally build features
+        // Step 3: Residuals, computed while writing the features
         buildFeatures();
 
         return OLS;
@@ -331,25 +315,37 @@ public class OLSOperation extends GeneralOperation {
 
         IFeatureInserter featureWriter = getFeatureWriter(featureType);
 
+        // the mean of the residuals is 0 and their sum of squares is SSE
+        // 표준잔차 = 잔차 / 잔차의 표준편차
+        double stdDev = Math.sqrt(SSE / (n - 1));
+
+        String[] keys = fieldMap.keySet().toArray(new String[fieldMap.size()]);
+        double[] values = new double[keys.length];
+
         // write features
         SimpleFeatureIterator featureIter = features.features();
         try {
-            int row = 0;
             while (featureIter.hasNext()) {
                 SimpleFeature feature = featureIter.next();
+                readValues(feature, keys, values, false);
+
+                double estimated = beta[0];
+                for (int i = 0; i < k; i++) {
+                    estimated += beta[i + 1] * values[i];
+                }
+                double residual = values[k] - estimated;
 
                 // create & insert feature
                 SimpleFeature newFeature = featureWriter.buildFeature();
                 featureWriter.copyAttributes(feature, newFeature, true);
 
-                newFeature.setAttribute(fields[0], residuals.get(row, 0));
-                newFeature.setAttribute(fields[1], residuals.get(row, 1));
-                newFeature.setAttribute(fields[2], residuals.get(row, 2));
-                newFeature.setAttribute(fields[3], residuals.get(row, 3));
+                newFeature.setAttribute(fields[0], estimated); // Estimated
+                newFeature.setAttribute(fields[1], residual); // Residual
+                // StdResid = 내적 스튜던트 잔차, StdResid2 = 표준잔차
+                newFeature.setAttribute(fields[2], residual / STDERR);
+                newFeature.setAttribute(fields[3], residual / stdDev);
 
                 featureWriter.write(newFeature);
-                row++;
-
             }
         } catch (IOException e) {
             featureWriter.rollback(e);
@@ -361,39 +357,53 @@ public class OLSOperation extends GeneralOperation {
         return this.residualFeatures != null;
     }
 
-    private Map<String, double[]> loadSamples(SimpleFeatureCollection features,
+    private CrossProducts accumulate(SimpleFeatureCollection features,
             Map<String, String> fieldMap) {
-        rowCount = features.size();
-        Map<String, double[]> sampleMap = new LinkedHashMap<String, double[]>();
-        for (String key : fieldMap.keySet()) {
-            sampleMap.put(key, new double[rowCount]);
-        }
+        String[] keys = fieldMap.keySet().toArray(new String[fieldMap.size()]);
+        double[] values = new double[keys.length];
+
+        // independent variables first, dependent variable last
+        CrossProducts total = new CrossProducts(keys.length);
 
         SimpleFeatureIterator featureIter = features.features();
         try {
-            int index = 0;
             while (featureIter.hasNext()) {
                 SimpleFeature feature = featureIter.next();
-                for (String key : fieldMap.keySet()) {
-                    Double valueX = Converters.convert(feature.getAttribute(key), Double.class);
-                    if (valueX == null) {
-                        sampleMap.get(key)[index] = 0.0d;
-                        LOGGER.log(Level.WARNING, feature.getID() + "'s " + key
-                                + " value is null. Replaced null to zero!");
-                    } else {
-                        sampleMap.get(key)[index] = valueX.doubleValue();
-                    }
-                }
-                index++;
+                readValues(feature, keys, values, true);
+
+                total.add(values);
             }
         } finally {
             featureIter.close();
         }
 
-        return sampleMap;
+        return total;
+    }
+
+    /**
+     * Reads the independent variables into values[0..k-1] and the dependent variable into values[k]. Null values are replaced with zero.
+     */
+    static void readValues(SimpleFeature feature, String[] keys, double[] values, boolean warning) {
+        final int last = keys.length - 1;
+        for (int index = 0; index < keys.length; index++) {
+            int column = index == 0 ? last : index - 1;
+            Double valueX = Converters.convert(feature.getAttribute(keys[index]), Double.class);
+            if (valueX == null) {
+                values[column] = 0.0d;
+                if (warning) {
+                    LOGGER.log(Level.WARNING, feature.getID() + "'s " + keys[index]
+                            + " value is null. Replaced null to zero!");
+                }
+            } else {
+                values[column] = valueX.doubleValue();
+            }
+        }
     }
 
-    private Map<String, String> checkPropertyName(SimpleFeatureType schema,
+    /**
+     * Returns the dependent variable followed by the distinct independent variables.
+     */
+    static Map<String, String> checkPropertyName(SimpleFeatureType schema,
             String dependentVariable, List<String> independentVariables) {
         Map<String, String> fieldMap = new LinkedHashMap<String, String>();
         fieldMap.put(dependentVariable, dependentVariable);
@@ -19,6 +19,7 @@ package org.geotools.process.spatialstatistics.styler;
 import java.awt.Color;
 import java.util.logging.Logger;
 
+import org.geotools.api.filter.Filter;
 import org.geotools.api.filter.FilterFactory;
 import org.geotools.api.filter.expression.Divide;
 import org.geotools.api.filter.expression.Function;
@@ -27,6 +28,7 @@ import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.filter.function.RangedClassifier;
+import org.geotools.process.spatialstatistics.clsssifier.ClassBreaksCache;
 import org.geotools.process.spatialstatistics.clsssifier.DataClassify;
 import org.geotools.process.spatialstatistics.core.StringHelper;
 import org.geotools.util.logging.Logging;
@@ -59,6 +61,30 @@ public abstract class AbstractFeatureStyleBuilder {
 
     protected float markerSize = 7.0f;
 
+    protected ClassBreaksCache classBreaksCache = null;
+
+    protected Filter dataFilter = Filter.INCLUDE;
+
+    protected Object dataVersion = null;
+
+    public ClassBreaksCache getClassBreaksCache() {
+        return classBreaksCache;
+    }
+
+    /**
+     * Sets the cache of class breaks shared by the style requests, null = always classify.
+     * 
+     * @param classBreaksCache the cache, ex) ClassBreaksCache.getInstance()
+     * @param dataFilter the filter used to query the features
+     * @param dataVersion the version of the layer, ex) the last modified time, null = always classify
+     */
+    public void setClassBreaksCache(ClassBreaksCache classBreaksCache, Filter dataFilter,
+            Object dataVersion) {
+        this.classBreaksCache = classBreaksCache;
+        this.dataFilter = dataFilter == null ? Filter.INCLUDE : dataFilter;
+        this.dataVersion = dataVersion;
+    }
+
     public float getMarkerSize() {
         return markerSize;
     }
@@ -124,8 +150,29 @@ public abstract class AbstractFeatureStyleBuilder {
         // Function function = ff.function(functionName, ff.property(propertyName), ff.literal(numClass));
         // return (RangedClassifier) function.evaluate(inputFeatures);
 
-        DataClassify classifier = DataClassify.getDataClassifier(methodName);
-        Double[] classBreaks = classifier.classify(inputFeatures, propertyName, numClasses);
+        Object version = classBreaksCache == null ? null : dataVersion;
+        return getClassifier(inputFeatures, dataFilter, version, propertyName, methodName,
+                numClasses);
+    }
+
+    /**
+     * Returns the classifier of the features queried with the filter. If the data version is not null, the class breaks are cached in the cache of
+     * this builder or in the shared cache.
+     */
+    protected RangedClassifier getClassifier(SimpleFeatureCollection inputFeatures, Filter filter,
+            Object version, String propertyName, String methodName, int numClasses) {
+        Double[] classBreaks = null;
+        if (version == null) {
+            DataClassify classifier = DataClassify.getDataClassifier(methodName);
+            classBreaks = classifier.classify(inputFeatures, propertyName, numClasses);
+        } else {
+            ClassBreaksCache cache = classBreaksCache;
+            if (cache == null) {
+                cache = ClassBreaksCache.getInstance();
+            }
+            classBreaks = cache.getClassBreaks(inputFeatures, filter, propertyName, methodName,
+                    numClasses, version);
+        }
 
         final int size = classBreaks.length - 1;
 
@@ -179,8 +226,14 @@ public abstract class AbstractFeatureStyleBuilder {
 
     public RangedClassifier getClassifier(GridCoverage2D coverage, int bandIndex, String methodName,
             int numClasses) {
-        DataClassify classifier = DataClassify.getDataClassifier(methodName);
-        Double[] classBreaks = classifier.classify(coverage, bandIndex, numClasses);
+        Double[] classBreaks = null;
+        if (classBreaksCache == null) {
+            DataClassify classifier = DataClassify.getDataClassifier(methodName);
+            classBreaks = classifier.classify(coverage, bandIndex, numClasses);
+        } else {
+            classBreaks = classBreaksCache.getClassBreaks(coverage, bandIndex, methodName,
+                    numClasses, dataVersion);
+        }
 
         final int size = classBreaks.length - 1;
 
@@ -17,10 +17,12 @@
 package org.geotools.process.spatialstatistics.styler;
 
 import java.awt.Color;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.logging.Logger;
 
+import org.geotools.api.data.SimpleFeatureSource;
 import org.geotools.api.feature.type.GeometryDescriptor;
 import org.geotools.api.filter.Filter;
 import org.geotools.api.filter.expression.Expression;
@@ -40,6 +42,7 @@ import org.geotools.brewer.color.BrewerPalette;
 import org.geotools.brewer.color.ColorBrewer;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.filter.function.RangedClassifier;
+import org.geotools.process.spatialstatistics.clsssifier.ClassBreaksCache;
 import org.geotools.process.spatialstatistics.core.FeatureTypes;
 import org.geotools.process.spatialstatistics.core.FeatureTypes.SimpleShapeType;
 import org.geotools.styling.SLD;
@@ -182,6 +185,29 @@ public class GraduatedSymbolStyleBuilder extends AbstractFeatureStyleBuilder {
 
     public Style createStyle(SimpleFeatureCollection inputFeatures, String propertyName,
             String methodName, int numClasses, String brewerPaletteName, boolean reverse) {
+        Object version = classBreaksCache == null ? null : dataVersion;
+        return createStyle(inputFeatures, dataFilter, version, propertyName, methodName,
+                numClasses, brewerPaletteName, reverse);
+    }
+
+    /**
+     * Creates the style of the features of a feature source. The class breaks are cached with the last modified time of file based sources, ex)
+     * shapefiles, see {@link ClassBreaksCache#getDataVersion(SimpleFeatureSource)}.
+     * 
+     * @param filter the filter used to query the features, null = Filter.INCLUDE
+     */
+    public Style createStyle(SimpleFeatureSource featureSource, Filter filter,
+            String propertyName, String methodName, int numClasses, String brewerPaletteName,
+            boolean reverse) throws IOException {
+        Filter query = filter == null ? Filter.INCLUDE : filter;
+        Object version = ClassBreaksCache.getDataVersion(featureSource);
+        return createStyle(featureSource.getFeatures(query), query, version, propertyName,
+                methodName, numClasses, brewerPaletteName, reverse);
+    }
+
+    private Style createStyle(SimpleFeatureCollection inputFeatures, Filter filter,
+            Object version, String propertyName, String methodName, int numClasses,
+            String brewerPaletteName, boolean reverse) {
         GeometryDescriptor geomDesc = inputFeatures.getSchema().getGeometryDescriptor();
         String geometryPropertyName = geomDesc.getLocalName();
         SimpleShapeType shapeType = FeatureTypes.getSimpleShapeType(inputFeatures);
@@ -195,7 +221,8 @@ public class GraduatedSymbolStyleBuilder extends AbstractFeatureStyleBuilder {
         // get classifier
         RangedClassifier classifier = null;
         if (normalProperty == null || normalProperty.isEmpty()) {
-            classifier = getClassifier(inputFeatures, propertyName, methodName, numClasses);
+            classifier = getClassifier(inputFeatures, filter, version, propertyName, methodName,
+                    numClasses);
         } else {
             classifier = getClassifier(inputFeatures, propertyName, normalProperty, methodName,
                     numClasses);
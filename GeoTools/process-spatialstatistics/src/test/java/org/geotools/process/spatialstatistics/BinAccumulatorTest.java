@@ -0,0 +1,151 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.api.filter.FilterFactory;
+import org.geotools.api.referencing.operation.MathTransform;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.pattern.AbstractBinningVisitor.Bin;
+import org.geotools.process.spatialstatistics.pattern.BinAccumulator;
+import org.geotools.process.spatialstatistics.pattern.RectangularBinningVisitor;
+import org.junit.Test;
+
+public class BinAccumulatorTest extends SpatialStatisticsTestCase {
+    private final FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+
+    private static final int ROWS = 40;
+
+    private static final int COLUMNS = 30;
+
+    @Test
+    public void testMerge() throws Exception {
+        Random random = new Random(7L);
+
+        BinAccumulator expected = new BinAccumulator(ROWS, COLUMNS, false);
+        BinAccumulator[] partials = new BinAccumulator[] { expected.createEmpty(),
+                expected.createEmpty(), new BinAccumulator(ROWS, COLUMNS, true) };
+
+        for (int index = 0; index < 2000; index++) {
+            // cluster the values so that some bins stay empty
+            int row = random.nextInt(ROWS / 2);
+            int col = random.nextInt(COLUMNS);
+            double value = random.nextGaussian() * 10.0;
+
+            expected.add(row, col, value);
+            partials[index % partials.length].add(row, col, value);
+        }
+
+        // merge dense and sparse partials into both storages
+        BinAccumulator dense = new BinAccumulator(ROWS, COLUMNS, false);
+        BinAccumulator sparse = new BinAccumulator(ROWS, COLUMNS, true);
+        for (BinAccumulator partial : partials) {
+            dense.merge(partial);
+            sparse.merge(partial);
+        }
+
+        assertFalse(dense.isSparse());
+        assertTrue(sparse.isSparse());
+        assertEquals(expected.size(), dense.size());
+        assertEquals(expected.size(), sparse.size());
+        assertTrue(Arrays.equals(expected.getOccupiedKeys(), dense.getOccupiedKeys()));
+        assertTrue(Arrays.equals(expected.getOccupiedKeys(), sparse.getOccupiedKeys()));
+
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 0; col < COLUMNS; col++) {
+                int slot = expected.indexOf(row, col);
+                if (slot == -1) {
+                    assertEquals(-1, dense.indexOf(row, col));
+                    assertEquals(-1, sparse.indexOf(row, col));
+                    continue;
+                }
+
+                assertBin(expected, slot, dense, dense.indexOf(row, col));
+                assertBin(expected, slot, sparse, sparse.indexOf(row, col));
+            }
+        }
+    }
+
+    @Test
+    public void testCreatePartial() throws Exception {
+        // small grids keep the dense storage, large dense grids get sparse partials
+        BinAccumulator small = new BinAccumulator(ROWS, COLUMNS, false);
+        assertFalse(small.createPartial().isSparse());
+
+        BinAccumulator large = new BinAccumulator(1000, 1000, false);
+        BinAccumulator partial = large.createPartial();
+        assertTrue(partial.isSparse());
+        assertEquals(0, partial.size());
+
+        partial.add(999, 999, 5.0);
+        partial.add(999, 999, 7.0);
+        large.merge(partial);
+        assertEquals(1, large.size());
+        assertEquals(12.0, large.getSum(large.indexOf(999, 999)), 0d);
+    }
+
+    @Test
+    public void testMergeDifferentGrid() throws Exception {
+        BinAccumulator accumulator = new BinAccumulator(ROWS, COLUMNS);
+        try {
+            accumulator.merge(new BinAccumulator(ROWS, COLUMNS + 1));
+            fail("The grids of the accumulators are different");
+        } catch (IllegalArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testParallelVisitor() throws Exception {
+        SimpleFeatureCollection features = dataStore.getFeatureSource("point").getFeatures();
+        ReferencedEnvelope bbox = features.getBounds();
+        bbox.expandBy(1.0);
+
+        List<Bin> expected = getBins(features, bbox, 1);
+        List<Bin> actual = getBins(features, bbox, 4);
+
+        int count = 0;
+        assertEquals(expected.size(), actual.size());
+        for (int index = 0; index < expected.size(); index++) {
+            Bin source = expected.get(index);
+            Bin target = actual.get(index);
+            assertTrue(source.geometry.equalsExact(target.geometry));
+            assertEquals(source.count, target.count);
+            assertEquals(source.value.doubleValue(), target.value.doubleValue(), 1.0e-9);
+            assertEquals(source.min, target.min);
+            assertEquals(source.max, target.max);
+            count += source.count;
+        }
+        assertEquals(features.size(), count);
+    }
+
+    private List<Bin> getBins(SimpleFeatureCollection features, ReferencedEnvelope bbox,
+            int parallelism) {
+        RectangularBinningVisitor visitor = new RectangularBinningVisitor(bbox, 8, 6);
+        visitor.setParallelism(parallelism);
+        visitor.setChunkSize(3);
+        visitor.visit(features, ff.property("val"), (MathTransform) null);
+
+        List<Bin> bins = new ArrayList<Bin>();
+        Iterator<Bin> iter = visitor.getBins(null);
+        while (iter.hasNext()) {
+            bins.add(iter.next());
+        }
+        return bins;
+    }
+
+    private void assertBin(BinAccumulator expected, int slot, BinAccumulator actual,
+            int actualSlot) {
+        assertTrue(actualSlot >= 0);
+        assertEquals(expected.getCount(slot), actual.getCount(actualSlot));
+        assertEquals(expected.getSum(slot), actual.getSum(actualSlot), 1.0e-9);
+        assertEquals(expected.getMin(slot), actual.getMin(actualSlot), 0d);
+        assertEquals(expected.getMax(slot), actual.getMax(actualSlot), 0d);
+        assertEquals(expected.getMean(slot), actual.getMean(actualSlot), 1.0e-9);
+    }
+}
@@ -0,0 +1,94 @@
+package org.geotools.process.spatialstatistics;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.geotools.api.data.SimpleFeatureSource;
+import org.geotools.api.filter.Filter;
+import org.geotools.api.filter.FilterFactory;
+import org.geotools.api.style.Style;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.process.spatialstatistics.clsssifier.ClassBreaksCache;
+import org.geotools.process.spatialstatistics.styler.GraduatedColorStyleBuilder;
+import org.geotools.process.spatialstatistics.styler.GraduatedSymbolStyleBuilder;
+import org.junit.Test;
+
+public class ClassBreaksCacheTest extends SpatialStatisticsTestCase {
+    private final FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+
+    @Test
+    public void testGraduatedColor() throws Exception {
+        SimpleFeatureSource source = dataStore.getFeatureSource("hexa");
+        assertNotNull(ClassBreaksCache.getDataVersion(source));
+
+        ClassBreaksCache cache = new ClassBreaksCache(16);
+        GraduatedColorStyleBuilder builder = new GraduatedColorStyleBuilder();
+        builder.setClassBreaksCache(cache, null, null);
+
+        // the second request of the unchanged layer is served by the cache
+        Style first = builder.createStyle(source, null, "a", "NaturalBreaks", 5, "OrRd", false);
+        Style second = builder.createStyle(source, null, "a", "NaturalBreaks", 5, "OrRd", false);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+        assertEquals(getRuleCount(first), getRuleCount(second));
+
+        // a filtered subset is classified separately
+        Filter filter = ff.greater(ff.property("a"), ff.literal(10));
+        builder.createStyle(source, filter, "a", "NaturalBreaks", 5, "OrRd", false);
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+
+        // features without a data version are always classified
+        SimpleFeatureCollection features = source.getFeatures();
+        builder.createStyle(features, "a", "NaturalBreaks", 5, "OrRd", false);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testGraduatedSymbol() throws Exception {
+        SimpleFeatureSource source = dataStore.getFeatureSource("hexa");
+
+        ClassBreaksCache cache = new ClassBreaksCache(16);
+        GraduatedSymbolStyleBuilder builder = new GraduatedSymbolStyleBuilder();
+        builder.setClassBreaksCache(cache, null, null);
+
+        builder.createStyle(source, null, "b", "Quantile", 4, "OrRd", false);
+        builder.createStyle(source, null, "b", "Quantile", 4, "OrRd", false);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testModifiedLayer() throws Exception {
+        SimpleFeatureSource source = dataStore.getFeatureSource("hexa");
+        File dbfFile = new File(FileUtils.toFile(url(this, null)), "hexa.dbf");
+        final long lastModified = dbfFile.lastModified();
+
+        ClassBreaksCache cache = new ClassBreaksCache(16);
+        GraduatedColorStyleBuilder builder = new GraduatedColorStyleBuilder();
+        builder.setClassBreaksCache(cache, null, null);
+
+        Object version = ClassBreaksCache.getDataVersion(source);
+        builder.createStyle(source, null, "c", "EqualInterval", 5, "OrRd", false);
+        try {
+            // editing the attributes touches the .dbf file, which changes the data version
+            long modified = ((Long) version).longValue() + 60000L;
+            assertTrue(dbfFile.setLastModified(modified));
+            assertFalse(version.equals(ClassBreaksCache.getDataVersion(source)));
+
+            builder.createStyle(source, null, "c", "EqualInterval", 5, "OrRd", false);
+            assertEquals(2, cache.getMissCount());
+            assertEquals(0, cache.getHitCount());
+        } finally {
+            dbfFile.setLastModified(lastModified);
+        }
+    }
+
+    private int getRuleCount(Style style) {
+        assertNotNull(style);
+        return style.featureTypeStyles().get(0).rules().size();
+    }
+}
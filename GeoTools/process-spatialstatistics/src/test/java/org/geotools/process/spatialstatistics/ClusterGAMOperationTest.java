@@ -0,0 +1,174 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.process.spatialstatistics.pattern.ClusterGAMOperation;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+public class ClusterGAMOperationTest extends SpatialStatisticsTestCase {
+
+    private static final int COUNT = 300;
+
+    // the circle polygons are inscribed 96-gons, points closer to the circle than this are ambiguous
+    private static final double INSCRIBED = Math.cos(Math.PI / 96.0);
+
+    @Test
+    public void testPointModeEqualsPolygonMode() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+        double[][] points = getPoints(features);
+
+        Map<String, SimpleFeature> pointCircles = toMap(execute(features, Boolean.TRUE, 1));
+        Map<String, SimpleFeature> polygonCircles = toMap(execute(features, Boolean.FALSE, 1));
+        assertFalse(pointCircles.isEmpty());
+
+        int compared = 0;
+        for (Map.Entry<String, SimpleFeature> entry : pointCircles.entrySet()) {
+            if (isAmbiguous(entry.getValue(), points)) {
+                continue;
+            }
+            SimpleFeature polygonCircle = polygonCircles.get(entry.getKey());
+            assertNotNull(polygonCircle);
+            assertSameCircle(entry.getValue(), polygonCircle);
+            compared++;
+        }
+
+        for (Map.Entry<String, SimpleFeature> entry : polygonCircles.entrySet()) {
+            if (!isAmbiguous(entry.getValue(), points)) {
+                assertTrue(pointCircles.containsKey(entry.getKey()));
+            }
+        }
+        assertTrue(compared > 0);
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+
+        for (Boolean pointMode : new Boolean[] { Boolean.TRUE, Boolean.FALSE }) {
+            List<SimpleFeature> expected = toList(execute(features, pointMode, 1));
+            List<SimpleFeature> actual = toList(execute(features, pointMode, 4));
+
+            // the circles are reported in the same order
+            assertEquals(expected.size(), actual.size());
+            for (int index = 0; index < expected.size(); index++) {
+                assertEquals(getKey(expected.get(index)), getKey(actual.get(index)));
+                assertSameCircle(expected.get(index), actual.get(index));
+            }
+        }
+    }
+
+    private SimpleFeatureCollection execute(SimpleFeatureCollection features, Boolean pointMode,
+            int parallelism) throws Exception {
+        ClusterGAMOperation operation = new ClusterGAMOperation();
+        operation.setPointMode(pointMode);
+        operation.setParallelism(parallelism);
+        SimpleFeatureCollection result = operation.execute(features, "pop", features, "cases",
+                8.0, 20.0, 4.0);
+        assertNotNull(result);
+        return result;
+    }
+
+    private boolean isAmbiguous(SimpleFeature circle, double[][] points) {
+        Point centre = ((Geometry) circle.getDefaultGeometry()).getCentroid();
+        double radius = ((Number) circle.getAttribute("radius")).doubleValue();
+        for (double[] point : points) {
+            double distance = Math.hypot(point[0] - centre.getX(), point[1] - centre.getY());
+            if (distance > radius * INSCRIBED - 1.0e-6 && distance <= radius + 1.0e-6) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void assertSameCircle(SimpleFeature expected, SimpleFeature actual) {
+        String[] fields = { "pop", "cases", "expected", "fitness" };
+        for (String field : fields) {
+            double value = ((Number) expected.getAttribute(field)).doubleValue();
+            assertEquals(value, ((Number) actual.getAttribute(field)).doubleValue(),
+                    1.0e-9 * Math.max(1.0, Math.abs(value)));
+        }
+    }
+
+    private String getKey(SimpleFeature circle) {
+        Point centre = ((Geometry) circle.getDefaultGeometry()).getCentroid();
+        double radius = ((Number) circle.getAttribute("radius")).doubleValue();
+        return String.format(Locale.ENGLISH, "%.4f %.4f %.4f", centre.getX(), centre.getY(),
+                radius);
+    }
+
+    private Map<String, SimpleFeature> toMap(SimpleFeatureCollection circles) {
+        Map<String, SimpleFeature> map = new HashMap<String, SimpleFeature>();
+        for (SimpleFeature circle : toList(circles)) {
+            map.put(getKey(circle), circle);
+        }
+        return map;
+    }
+
+    private List<SimpleFeature> toList(SimpleFeatureCollection features) {
+        List<SimpleFeature> list = new ArrayList<SimpleFeature>();
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            while (featureIter.hasNext()) {
+                list.add(featureIter.next());
+            }
+        } finally {
+            featureIter.close();
+        }
+        return list;
+    }
+
+    private double[][] getPoints(SimpleFeatureCollection features) {
+        List<double[]> points = new ArrayList<double[]>();
+        for (SimpleFeature feature : toList(features)) {
+            Point point = (Point) feature.getDefaultGeometry();
+            points.add(new double[] { point.getX(), point.getY() });
+        }
+        return points.toArray(new double[points.size()][]);
+    }
+
+    /**
+     * Random points in a 100 x 100 square with a raised case rate in the north-east quarter.
+     */
+    private SimpleFeatureCollection createFeatures() {
+        SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+        typeBuilder.setName("points");
+        typeBuilder.add("the_geom", Point.class);
+        typeBuilder.add("pop", Double.class);
+        typeBuilder.add("cases", Double.class);
+        SimpleFeatureType schema = typeBuilder.buildFeatureType();
+
+        Random random = new Random(23L);
+        GeometryFactory gf = JTSFactoryFinder.getGeometryFactory();
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        for (int index = 0; index < COUNT; index++) {
+            double x = random.nextDouble() * 100.0;
+            double y = random.nextDouble() * 100.0;
+            double pop = 50 + random.nextInt(100);
+            double rate = x > 50 && y > 50 ? 0.2 : 0.05;
+
+            builder.add(gf.createPoint(new Coordinate(x, y)));
+            builder.add(Double.valueOf(pop));
+            builder.add(Double.valueOf(Math.round(pop * rate * (0.5 + random.nextDouble()))));
+            features.add(builder.buildFeature("points." + (index + 1)));
+        }
+        return features;
+    }
+}
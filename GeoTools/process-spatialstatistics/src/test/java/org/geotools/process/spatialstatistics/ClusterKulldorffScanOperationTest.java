@@ -0,0 +1,141 @@
+package org.geotools.process.spatialstatistics;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.process.ProcessException;
+import org.geotools.process.spatialstatistics.pattern.ClusterKulldorffScanOperation;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+public class ClusterKulldorffScanOperationTest extends SpatialStatisticsTestCase {
+
+    private static final int SIZE = 10;
+
+    @Test
+    public void testHotSpot() throws Exception {
+        // a 10 x 10 grid of equal populations, with a high rate in the 3 x 3 lower left corner
+        SimpleFeatureCollection features = createGrid(30.0, 5.0);
+
+        SimpleFeatureCollection result = createOperation(1).execute(features, "pop", features,
+                "cases");
+        assertNotNull(result);
+        assertTrue(result.size() > 0);
+
+        SimpleFeature first = getRank(result, 1);
+        assertNotNull(first);
+
+        double pop = ((Number) first.getAttribute("pop")).doubleValue();
+        double cases = ((Number) first.getAttribute("cases")).doubleValue();
+        double expected = ((Number) first.getAttribute("expected")).doubleValue();
+        assertTrue(pop <= 0.5 * SIZE * SIZE * 100.0);
+        assertTrue(cases > expected);
+        assertTrue(((Number) first.getAttribute("rr")).doubleValue() > 1.0);
+        assertTrue(((Number) first.getAttribute("llr")).doubleValue() > 0);
+        assertTrue(((Number) first.getAttribute("pvalue")).doubleValue() <= 0.05);
+
+        // the most likely cluster is centred in the corner
+        Point centre = ((Geometry) first.getDefaultGeometry()).getCentroid();
+        assertTrue(centre.getX() <= 2.5 && centre.getY() <= 2.5);
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        SimpleFeatureCollection features = createGrid(30.0, 5.0);
+
+        SimpleFeatureCollection expected = createOperation(1).execute(features, "pop",
+                features, "cases");
+        SimpleFeatureCollection actual = createOperation(4).execute(features, "pop", features,
+                "cases");
+
+        // every replication uses its own random stream
+        assertEquals(expected.size(), actual.size());
+        for (int rank = 1; rank <= expected.size(); rank++) {
+            SimpleFeature source = getRank(expected, rank);
+            SimpleFeature target = getRank(actual, rank);
+            assertEquals(source.getAttribute("locations"), target.getAttribute("locations"));
+            assertEquals(source.getAttribute("cases"), target.getAttribute("cases"));
+            assertEquals(source.getAttribute("llr"), target.getAttribute("llr"));
+            assertEquals(source.getAttribute("pvalue"), target.getAttribute("pvalue"));
+        }
+    }
+
+    @Test
+    public void testUniformRate() throws Exception {
+        SimpleFeatureCollection features = createGrid(5.0, 5.0);
+
+        SimpleFeatureCollection result = createOperation(1).execute(features, "pop", features,
+                "cases");
+        assertNotNull(result);
+        assertEquals(0, result.size());
+    }
+
+    @Test
+    public void testFractionalCases() throws Exception {
+        // the replications could not draw the same total number of cases
+        SimpleFeatureCollection features = createGrid(30.25, 5.0);
+        try {
+            createOperation(1).execute(features, "pop", features, "cases");
+            fail("A fractional total number of cases must be reported");
+        } catch (ProcessException e) {
+            assertNotNull(e.getMessage());
+        }
+
+        // fractional values with a whole total are accepted
+        features = createGrid(30.5, 5.5);
+        assertNotNull(createOperation(1).execute(features, "pop", features, "cases"));
+    }
+
+    private ClusterKulldorffScanOperation createOperation(int parallelism) {
+        ClusterKulldorffScanOperation operation = new ClusterKulldorffScanOperation();
+        operation.setReplications(99);
+        operation.setRandomSeed(12345L);
+        operation.setParallelism(parallelism);
+        return operation;
+    }
+
+    private SimpleFeatureCollection createGrid(double hotCases, double cases) {
+        SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+        typeBuilder.setName("grid");
+        typeBuilder.add("the_geom", Point.class);
+        typeBuilder.add("pop", Double.class);
+        typeBuilder.add("cases", Double.class);
+        SimpleFeatureType schema = typeBuilder.buildFeatureType();
+
+        GeometryFactory gf = JTSFactoryFinder.getGeometryFactory();
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                builder.add(gf.createPoint(new Coordinate(x, y)));
+                builder.add(Double.valueOf(100.0));
+                builder.add(Double.valueOf(x < 3 && y < 3 ? hotCases : cases));
+                features.add(builder.buildFeature("grid." + (y * SIZE + x + 1)));
+            }
+        }
+        return features;
+    }
+
+    private SimpleFeature getRank(SimpleFeatureCollection features, int rank) {
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                if (Integer.valueOf(rank).equals(feature.getAttribute("rank"))) {
+                    return feature;
+                }
+            }
+        } finally {
+            featureIter.close();
+        }
+        return null;
+    }
+}
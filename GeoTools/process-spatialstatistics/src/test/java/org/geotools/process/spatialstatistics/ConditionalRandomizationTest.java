@@ -0,0 +1,108 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.Arrays;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.process.spatialstatistics.autocorrelation.ConditionalRandomization;
+import org.geotools.process.spatialstatistics.autocorrelation.LocalMoranIStatisticOperation;
+import org.geotools.process.spatialstatistics.core.WeightRow;
+import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
+import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
+import org.junit.Test;
+
+public class ConditionalRandomizationTest extends SpatialStatisticsTestCase {
+
+    @Test
+    public void testPseudoPValue() throws Exception {
+        final int n = 50;
+        final int permutations = 999;
+
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = i;
+        }
+
+        ConditionalRandomization randomization = new ConditionalRandomization(values,
+                permutations, 42L);
+        int[] pool = randomization.createPool();
+
+        // the neighbours of feature 0 hold the largest values
+        WeightRow row = createRow(new int[] { 47, 48, 49 });
+        double observed = (47 + 48 + 49) / 3.0;
+
+        double extreme = randomization.pseudoPValue(0, row, 1.0, observed, pool);
+        assertTrue(extreme >= 1.0 / (permutations + 1));
+        assertTrue(extreme <= 0.01);
+
+        // the pool is restored after every call
+        for (int k = 0; k < n; k++) {
+            assertEquals(k, pool[k]);
+        }
+
+        // the same feature and seed always draw the same permutations
+        assertEquals(extreme, randomization.pseudoPValue(0, row, 1.0, observed, pool), 0d);
+        assertEquals(extreme, new ConditionalRandomization(values, permutations, 42L)
+                .pseudoPValue(0, row, 1.0, observed, pool), 0d);
+
+        // a lag close to the mean of the other values is not significant
+        double neutral = randomization.pseudoPValue(0, row, 1.0, 25.0, pool);
+        assertTrue(neutral > 0.1);
+        assertTrue(neutral <= (permutations / 2 + 1.0) / (permutations + 1));
+
+        // a negative scale folds to the lower tail
+        double lower = randomization.pseudoPValue(0, row, -1.0, -observed, pool);
+        assertTrue(lower <= 0.01);
+
+        // features without neighbours have no p-value
+        assertTrue(Double.isNaN(randomization.pseudoPValue(1, new WeightRow(), 1.0, 1.0, pool)));
+    }
+
+    @Test
+    public void testLocalMoranI() throws Exception {
+        SimpleFeatureCollection features = dataStore.getFeatureSource("hexa").getFeatures();
+
+        LocalMoranIStatisticOperation sequential = createOperation(1);
+        SimpleFeatureCollection result = sequential.execute(features, "a");
+        assertNotNull(result);
+        assertEquals(features.size(), result.size());
+        assertNotNull(result.getSchema().getDescriptor("LMiPseudoP"));
+
+        double[] expected = sequential.getPseudoPValue();
+        assertEquals(features.size(), expected.length);
+        for (double pValue : expected) {
+            assertTrue(Double.isNaN(pValue) || (pValue >= 1.0 / 200 && pValue <= 0.505));
+        }
+
+        // the p-values do not depend on the number of threads
+        LocalMoranIStatisticOperation parallel = createOperation(4);
+        parallel.execute(features, "a");
+        assertTrue(Arrays.equals(expected, parallel.getPseudoPValue()));
+
+        // no permutations, no pseudo p-values
+        LocalMoranIStatisticOperation analytical = createOperation(1);
+        analytical.setPermutations(0);
+        result = analytical.execute(features, "a");
+        assertNull(analytical.getPseudoPValue());
+        assertNull(result.getSchema().getDescriptor("LMiPseudoP"));
+    }
+
+    private LocalMoranIStatisticOperation createOperation(int parallelism) {
+        LocalMoranIStatisticOperation operation = new LocalMoranIStatisticOperation();
+        operation.setSpatialConceptType(SpatialConcept.ContiguityEdgesNodes);
+        operation.setStandardizationType(StandardizationMethod.Row);
+        operation.setPermutations(199);
+        operation.setRandomSeed(12345L);
+        operation.setParallelism(parallelism);
+        return operation;
+    }
+
+    private WeightRow createRow(int[] indices) {
+        WeightRow row = new WeightRow();
+        row.size = indices.length;
+        for (int k = 0; k < indices.length; k++) {
+            row.indices[k] = indices[k];
+            row.weights[k] = 1.0 / indices.length;
+        }
+        return row;
+    }
+}
@@ -0,0 +1,145 @@
+package org.geotools.process.spatialstatistics;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.io.File;
+
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TiledImage;
+
+import org.apache.commons.io.FileUtils;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.process.spatialstatistics.core.ParallelExecutor;
+import org.geotools.process.spatialstatistics.core.ParallelExecutor.RangeTask;
+import org.geotools.process.spatialstatistics.gridcoverage.DiskMemImageWriter;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterHelper;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterReplaceValuesOperation;
+import org.jaitools.tiledimage.DiskMemImage;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+public class DiskMemImageWriterTest extends SpatialStatisticsTestCase {
+
+    private static final int WIDTH = 70;
+
+    private static final int HEIGHT = 50;
+
+    private static final int TILE_SIZE = 16;
+
+    @Test
+    public void testParallelWrites() throws Exception {
+        final DiskMemImage image = createImage();
+        final DiskMemImageWriter writer = new DiskMemImageWriter(image);
+
+        // every row band crosses several tiles, neighbouring bands share tiles
+        final int x = 5;
+        final int width = WIDTH - 10;
+        ParallelExecutor.execute(HEIGHT, 4, 3, new RangeTask() {
+            @Override
+            public void execute(int start, int end) {
+                for (int row = start; row < end; row++) {
+                    double[] values = new double[width];
+                    for (int col = 0; col < width; col++) {
+                        values[col] = value(x + col, row);
+                    }
+                    writer.setSamples(x, row, width, 1, values);
+                }
+            }
+        });
+
+        float[] samples = writer.getSamples(0, 0, WIDTH, HEIGHT, null);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                float expected = col < x || col >= x + width ? 0f : (float) value(col, row);
+                assertEquals(expected, samples[row * WIDTH + col], 0f);
+            }
+        }
+
+        // cells outside of the image are ignored and left untouched
+        writer.setSamples(WIDTH - 2, HEIGHT - 2, 4, 4, new float[16]);
+        float[] corner = writer.getSamples(WIDTH - 2, HEIGHT - 2, 4, 4, new float[16]);
+        assertEquals(0f, corner[0], 0f);
+        assertEquals(0f, corner[15], 0f);
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        SampleModel sampleModel = RasterFactory.createBandedSampleModel(DataBuffer.TYPE_FLOAT,
+                TILE_SIZE * 2, TILE_SIZE, 1);
+        TiledImage source = new TiledImage(0, 0, WIDTH, HEIGHT, 0, 0, sampleModel,
+                PlanarImage.createColorModel(sampleModel));
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                source.setSample(col, row, 0, (float) value(col, row));
+            }
+        }
+
+        // the tile layouts of the source and the target differ
+        DiskMemImageWriter writer = new DiskMemImageWriter(createImage());
+        writer.copy(source);
+
+        float[] samples = writer.getSamples(0, 0, WIDTH, HEIGHT, null);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                assertEquals((float) value(col, row), samples[row * WIDTH + col], 0f);
+            }
+        }
+    }
+
+    @Test
+    public void testReplaceValues() throws Exception {
+        File file = new File(FileUtils.toFile(url(this, null)), "sfdem.tif");
+        GridCoverage2D coverage = RasterHelper.openGridCoverage(file);
+        assertNotNull(coverage);
+
+        AffineTransform gridToWorld = (AffineTransform) coverage.getGridGeometry()
+                .getGridToCRS2D();
+        double[] corners = { 20 - 0.5, 30 - 0.5, 60 - 0.5, 55 - 0.5 };
+        gridToWorld.transform(corners, 0, corners, 0, 2);
+        Geometry region = JTS.toGeometry(new Envelope(corners[0], corners[2], corners[1],
+                corners[3]));
+
+        final double replaceValue = 12345.0;
+        GridCoverage2D result = new RasterReplaceValuesOperation().execute(coverage, region,
+                replaceValue);
+
+        Raster source = coverage.getRenderedImage().getData();
+        Raster target = result.getRenderedImage().getData();
+        assertEquals(source.getWidth(), target.getWidth());
+        assertEquals(source.getHeight(), target.getHeight());
+
+        for (int row = 0; row < source.getHeight(); row++) {
+            for (int col = 0; col < source.getWidth(); col++) {
+                double original = source.getSampleDouble(col, row, 0);
+                double actual = target.getSampleDouble(col, row, 0);
+                boolean inside = col >= 21 && col < 59 && row >= 31 && row < 54;
+                boolean outside = col < 19 || col >= 61 || row < 29 || row >= 56;
+                if (inside) {
+                    assertEquals(replaceValue, actual, 0d);
+                } else if (outside) {
+                    assertEquals(original, actual, 0d);
+                } else {
+                    assertTrue(actual == original || actual == replaceValue);
+                }
+            }
+        }
+    }
+
+    private double value(int col, int row) {
+        return row * 1000.0 + col + 0.5;
+    }
+
+    private DiskMemImage createImage() {
+        SampleModel sampleModel = RasterFactory.createBandedSampleModel(DataBuffer.TYPE_FLOAT,
+                TILE_SIZE, TILE_SIZE, 1);
+        DiskMemImage image = new DiskMemImage(0, 0, WIDTH, HEIGHT, 0, 0, sampleModel,
+                PlanarImage.createColorModel(sampleModel));
+        image.setUseCommonCache(true);
+        return image;
+    }
+}
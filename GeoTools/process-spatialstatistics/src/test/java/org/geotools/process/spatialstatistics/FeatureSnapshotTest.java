@@ -0,0 +1,187 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.process.spatialstatistics.core.FeatureSnapshot;
+import org.geotools.process.spatialstatistics.pattern.ClusterGAMOperation;
+import org.geotools.process.spatialstatistics.pattern.NNIOperation;
+import org.geotools.process.spatialstatistics.pattern.NNIOperation.NearestNeighborResult;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+public class FeatureSnapshotTest extends SpatialStatisticsTestCase {
+
+    private static final int COUNT = 200;
+
+    @Test
+    public void testLoad() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+
+        // a feature without geometry and a null value
+        ListFeatureCollection withEmpty = new ListFeatureCollection(features.getSchema());
+        withEmpty.addAll(toList(features));
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(features.getSchema());
+        builder.add(null);
+        builder.add(null);
+        builder.add(Double.valueOf(1.0));
+        withEmpty.add(builder.buildFeature("points.empty"));
+
+        FeatureSnapshot snapshot = FeatureSnapshot.load(withEmpty, "pop", "cases");
+        assertTrue(snapshot.isLoadedFrom(withEmpty));
+        assertFalse(snapshot.isLoadedFrom(features));
+        assertEquals(COUNT + 1, snapshot.size());
+        assertTrue(snapshot.hasColumn("pop"));
+        assertTrue(snapshot.hasColumn("cases"));
+
+        List<SimpleFeature> list = toList(features);
+        for (int i = 0; i < COUNT; i++) {
+            SimpleFeature feature = list.get(i);
+            Point point = (Point) feature.getDefaultGeometry();
+            assertEquals(feature.getID(), snapshot.getID(i));
+            assertFalse(snapshot.isEmpty(i));
+            assertEquals(point.getX(), snapshot.getX(i), 0d);
+            assertEquals(point.getY(), snapshot.getY(i), 0d);
+            assertEquals(((Number) feature.getAttribute("pop")).doubleValue(),
+                    snapshot.getColumn("pop")[i], 0d);
+        }
+
+        assertEquals("points.empty", snapshot.getID(COUNT));
+        assertTrue(snapshot.isEmpty(COUNT));
+        assertTrue(Double.isNaN(snapshot.getColumn("pop")[COUNT]));
+        assertEquals(1.0, snapshot.getColumn("cases")[COUNT], 0d);
+        assertEquals(features.getBounds().getMinX(), snapshot.getBounds().getMinX(), 0d);
+        assertEquals(features.getBounds().getMaxY(), snapshot.getBounds().getMaxY(), 0d);
+        assertEquals(COUNT, snapshot.createCentroidIndex().size());
+    }
+
+    @Test
+    public void testClusterPointMode() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+
+        ClusterGAMOperation first = new ClusterGAMOperation();
+        first.setPointMode(Boolean.TRUE);
+        List<SimpleFeature> expected = toList(first.execute(features, "pop", features, "cases",
+                8.0, 20.0, 4.0));
+        FeatureSnapshot popSnapshot = first.getPopulationSnapshot();
+        assertNotNull(popSnapshot);
+        assertTrue(popSnapshot.isLoadedFrom(features));
+        assertFalse(expected.isEmpty());
+
+        // the snapshots of the first run are reused
+        ClusterGAMOperation second = new ClusterGAMOperation();
+        second.setPointMode(Boolean.TRUE);
+        second.setPopulationSnapshot(popSnapshot);
+        second.setCaseSnapshot(first.getCaseSnapshot());
+        List<SimpleFeature> actual = toList(second.execute(features, "pop", features, "cases",
+                8.0, 20.0, 4.0));
+        assertSame(popSnapshot, second.getPopulationSnapshot());
+        assertSame(first.getCaseSnapshot(), second.getCaseSnapshot());
+        assertSameCircles(expected, actual);
+
+        // a snapshot of another collection is loaded again
+        ListFeatureCollection copy = new ListFeatureCollection(features.getSchema());
+        copy.addAll(toList(features));
+        ClusterGAMOperation third = new ClusterGAMOperation();
+        third.setPointMode(Boolean.TRUE);
+        third.setPopulationSnapshot(popSnapshot);
+        actual = toList(third.execute(copy, "pop", copy, "cases", 8.0, 20.0, 4.0));
+        assertNotSame(popSnapshot, third.getPopulationSnapshot());
+        assertSameCircles(expected, actual);
+    }
+
+    @Test
+    public void testNearestNeighborIndex() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+        List<SimpleFeature> list = toList(features);
+
+        double distanceSum = 0.0;
+        for (SimpleFeature source : list) {
+            Point point = (Point) source.getDefaultGeometry();
+            double nearest = Double.MAX_VALUE;
+            for (SimpleFeature target : list) {
+                if (source != target) {
+                    Point other = (Point) target.getDefaultGeometry();
+                    nearest = Math.min(nearest, point.distance(other));
+                }
+            }
+            distanceSum += nearest;
+        }
+
+        NNIOperation first = new NNIOperation();
+        NearestNeighborResult expected = first.execute(features);
+        assertEquals(COUNT, expected.getObserved_Point_Count());
+        assertEquals(distanceSum / COUNT, expected.getObserved_Mean_Distance(), 1.0e-9);
+
+        NNIOperation second = new NNIOperation();
+        second.setFeatureSnapshot(first.getFeatureSnapshot());
+        NearestNeighborResult actual = second.execute(features);
+        assertSame(first.getFeatureSnapshot(), second.getFeatureSnapshot());
+        assertEquals(expected.getObserved_Mean_Distance(), actual.getObserved_Mean_Distance(), 0d);
+        assertEquals(expected.getZ_Score(), actual.getZ_Score(), 0d);
+    }
+
+    private void assertSameCircles(List<SimpleFeature> expected, List<SimpleFeature> actual) {
+        assertEquals(expected.size(), actual.size());
+        String[] fields = { "radius", "pop", "cases", "expected", "fitness" };
+        for (int index = 0; index < expected.size(); index++) {
+            for (String field : fields) {
+                assertEquals(expected.get(index).getAttribute(field),
+                        actual.get(index).getAttribute(field));
+            }
+        }
+    }
+
+    private List<SimpleFeature> toList(SimpleFeatureCollection features) {
+        List<SimpleFeature> list = new ArrayList<SimpleFeature>();
+        SimpleFeatureIterator featureIter = features.features();
+        try {
+            while (featureIter.hasNext()) {
+                list.add(featureIter.next());
+            }
+        } finally {
+            featureIter.close();
+        }
+        return list;
+    }
+
+    /**
+     * Random points in a 100 x 100 square with a raised case rate in the south-west quarter.
+     */
+    private SimpleFeatureCollection createFeatures() {
+        SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+        typeBuilder.setName("points");
+        typeBuilder.add("the_geom", Point.class);
+        typeBuilder.add("pop", Double.class);
+        typeBuilder.add("cases", Double.class);
+        SimpleFeatureType schema = typeBuilder.buildFeatureType();
+
+        Random random = new Random(41L);
+        GeometryFactory gf = JTSFactoryFinder.getGeometryFactory();
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        for (int index = 0; index < COUNT; index++) {
+            double x = random.nextDouble() * 100.0;
+            double y = random.nextDouble() * 100.0;
+            double pop = 50 + random.nextInt(100);
+            double rate = x < 50 && y < 50 ? 0.2 : 0.05;
+
+            builder.add(gf.createPoint(new Coordinate(x, y)));
+            builder.add(Double.valueOf(pop));
+            builder.add(Double.valueOf(Math.round(pop * rate * (0.5 + random.nextDouble()))));
+            features.add(builder.buildFeature("points." + (index + 1)));
+        }
+        return features;
+    }
+}
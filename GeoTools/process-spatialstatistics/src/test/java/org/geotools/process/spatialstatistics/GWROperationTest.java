@@ -0,0 +1,195 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.process.spatialstatistics.enumeration.KernelType;
+import org.geotools.process.spatialstatistics.relationship.GWROperation;
+import org.geotools.process.spatialstatistics.relationship.OLSOperation;
+import org.geotools.process.spatialstatistics.relationship.OLSResult;
+import org.geotools.process.spatialstatistics.relationship.OLSResult.Variables.Variable;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+public class GWROperationTest extends SpatialStatisticsTestCase {
+
+    private static final int COUNT = 150;
+
+    private static final String[] COEFFICIENT_FIELDS = { "Intercept", "C1_x1", "C2_x2" };
+
+    private static final String[] STDERROR_FIELDS = { "StdErrInt", "StdErrC1", "StdErrC2" };
+
+    @Test
+    public void testGlobalBandwidth() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+
+        OLSOperation ols = new OLSOperation();
+        ols.setAnalyzeResidual(false);
+        OLSResult global = ols.execute(features, "y", "x1,x2");
+        List<Variable> expected = global.getVariables().getItems();
+
+        // a binary kernel wider than the extent gives every feature the global model
+        GWROperation gwr = new GWROperation();
+        gwr.setKernelType(KernelType.Binary);
+        gwr.setAdaptive(false);
+        gwr.setBandwidth(1000.0);
+        gwr.setParallelism(1);
+        OLSResult result = gwr.execute(features, "y", "x1,x2");
+
+        List<Variable> actual = result.getVariables().getItems();
+        assertEquals(expected.size(), actual.size());
+        for (int p = 0; p < expected.size(); p++) {
+            assertEquals(expected.get(p).getVariable(), actual.get(p).getVariable());
+            assertEquals(expected.get(p).getCoefficient(), actual.get(p).getCoefficient(),
+                    1.0e-8 * Math.max(1.0, Math.abs(expected.get(p).getCoefficient())));
+            assertEquals(expected.get(p).getStdError(), actual.get(p).getStdError(),
+                    1.0e-8 * Math.max(1.0, expected.get(p).getStdError()));
+        }
+        assertEquals(global.getDiagnostics().getRSquared(), result.getDiagnostics()
+                .getRSquared(), 1.0e-8);
+
+        SimpleFeatureCollection residuals = gwr.getResidualFeatures();
+        assertNotNull(residuals);
+        assertEquals(COUNT, residuals.size());
+
+        SimpleFeatureIterator featureIter = residuals.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                for (int p = 0; p < expected.size(); p++) {
+                    double coefficient = expected.get(p).getCoefficient();
+                    double stdError = expected.get(p).getStdError();
+                    assertEquals(coefficient, getValue(feature, COEFFICIENT_FIELDS[p]),
+                            1.0e-8 * Math.max(1.0, Math.abs(coefficient)));
+                    assertEquals(stdError, getValue(feature, STDERROR_FIELDS[p]),
+                            1.0e-8 * Math.max(1.0, stdError));
+                }
+                assertEquals(global.getDiagnostics().getRSquared(), getValue(feature, "LocalR2"),
+                        1.0e-8);
+
+                double estimated = getValue(feature, "Estimated");
+                double residual = getValue(feature, "Residual");
+                assertEquals(getValue(feature, "y"), estimated + residual, 1.0e-8);
+            }
+        } finally {
+            featureIter.close();
+        }
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+
+        SimpleFeatureCollection expected = executeAdaptive(features, 1);
+        SimpleFeatureCollection actual = executeAdaptive(features, 4);
+        assertSameFeatures(expected, actual);
+    }
+
+    @Test
+    public void testProcessParallelism() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+        assertTrue(new GWRProcessFactory().getParameterInfo().containsKey(
+                GWRProcessFactory.parallelism.key));
+
+        Map<String, Object> input = new HashMap<String, Object>();
+        input.put(GWRProcessFactory.inputFeatures.key, features);
+        input.put(GWRProcessFactory.dependentVariable.key, "y");
+        input.put(GWRProcessFactory.explanatoryVariables.key, "x1,x2");
+        input.put(GWRProcessFactory.kernelType.key, KernelType.Quartic);
+        input.put(GWRProcessFactory.adaptiveKernel.key, Boolean.TRUE);
+        input.put(GWRProcessFactory.bandwidth.key, Double.valueOf(30));
+        input.put(GWRProcessFactory.parallelism.key, Integer.valueOf(4));
+
+        Map<String, Object> result = new GWRProcess(null).execute(input, null);
+        SimpleFeatureCollection actual = (SimpleFeatureCollection) result
+                .get(GWRProcessFactory.gwrFeatures.key);
+        assertNotNull(actual);
+        assertSameFeatures(executeAdaptive(features, 1), actual);
+    }
+
+    private void assertSameFeatures(SimpleFeatureCollection expected,
+            SimpleFeatureCollection actual) {
+        assertEquals(expected.size(), actual.size());
+
+        // every local model only depends on its own neighbours
+        SimpleFeatureIterator expectedIter = expected.features();
+        SimpleFeatureIterator actualIter = actual.features();
+        try {
+            while (expectedIter.hasNext()) {
+                SimpleFeature source = expectedIter.next();
+                SimpleFeature target = actualIter.next();
+                assertEquals(source.getAttribute("Estimated"), target.getAttribute("Estimated"));
+                assertEquals(source.getAttribute("Influence"), target.getAttribute("Influence"));
+                for (int p = 0; p < COEFFICIENT_FIELDS.length; p++) {
+                    assertEquals(source.getAttribute(COEFFICIENT_FIELDS[p]),
+                            target.getAttribute(COEFFICIENT_FIELDS[p]));
+                    assertEquals(source.getAttribute(STDERROR_FIELDS[p]),
+                            target.getAttribute(STDERROR_FIELDS[p]));
+                }
+            }
+        } finally {
+            expectedIter.close();
+            actualIter.close();
+        }
+    }
+
+    private SimpleFeatureCollection executeAdaptive(SimpleFeatureCollection features,
+            int parallelism) throws Exception {
+        GWROperation gwr = new GWROperation();
+        gwr.setKernelType(KernelType.Quartic);
+        gwr.setAdaptive(true);
+        gwr.setBandwidth(30);
+        gwr.setParallelism(parallelism);
+        gwr.execute(features, "y", "x1,x2");
+        assertNotNull(gwr.getResidualFeatures());
+        return gwr.getResidualFeatures();
+    }
+
+    /**
+     * Random locations in a 100 x 100 square, y = 2 + 3 * x1 - (1.0 ~ 2.0) * x2 + noise where the slope of x2 varies from west to east.
+     */
+    private SimpleFeatureCollection createFeatures() {
+        SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+        typeBuilder.setName("samples");
+        typeBuilder.add("the_geom", Point.class);
+        typeBuilder.add("x1", Double.class);
+        typeBuilder.add("x2", Double.class);
+        typeBuilder.add("y", Double.class);
+        SimpleFeatureType schema = typeBuilder.buildFeatureType();
+
+        Random random = new Random(5L);
+        GeometryFactory gf = JTSFactoryFinder.getGeometryFactory();
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        for (int index = 0; index < COUNT; index++) {
+            double px = random.nextDouble() * 100.0;
+            double py = random.nextDouble() * 100.0;
+            double x1 = random.nextDouble() * 10.0;
+            double x2 = random.nextDouble() * 10.0;
+            double y = 2.0 + 3.0 * x1 - (1.0 + px / 100.0) * x2 + random.nextGaussian();
+
+            builder.add(gf.createPoint(new Coordinate(px, py)));
+            builder.add(Double.valueOf(x1));
+            builder.add(Double.valueOf(x2));
+            builder.add(Double.valueOf(y));
+            features.add(builder.buildFeature("samples." + (index + 1)));
+        }
+        return features;
+    }
+
+    private double getValue(SimpleFeature feature, String field) {
+        return ((Number) feature.getAttribute(field)).doubleValue();
+    }
+}
@@ -0,0 +1,164 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.filter.FilterFactory;
+import org.geotools.api.filter.expression.Expression;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.ProcessException;
+import org.geotools.process.spatialstatistics.pattern.HexagonalBinningOperation;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+public class HexagonalPyramidBinningTest extends SpatialStatisticsTestCase {
+    private final FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+
+    private static final int COUNT = 500;
+
+    private static final double[] SIZES = { 4.0, 9.5, 25.0 };
+
+    @Test
+    public void testLevelsEqualSingleSize() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+        ReferencedEnvelope bbox = features.getBounds();
+        Expression weight = ff.property("val");
+
+        HexagonalBinningOperation operation = new HexagonalBinningOperation();
+        SimpleFeatureCollection pyramid = operation.execute(features, weight, bbox, SIZES);
+        assertNotNull(pyramid);
+        Map<String, SimpleFeature> pyramidBins = toMap(pyramid, true);
+
+        // every level equals a separate run with the size of the level
+        int total = 0;
+        for (int level = 0; level < SIZES.length; level++) {
+            HexagonalBinningOperation single = new HexagonalBinningOperation();
+            SimpleFeatureCollection bins = single.execute(features, weight, bbox, SIZES[level]);
+            Map<String, SimpleFeature> singleBins = toMap(bins, false);
+            assertFalse(singleBins.isEmpty());
+
+            for (Map.Entry<String, SimpleFeature> entry : singleBins.entrySet()) {
+                SimpleFeature bin = pyramidBins.get(level + " " + entry.getKey());
+                assertNotNull(bin);
+                assertEquals(SIZES[level], ((Number) bin.getAttribute("size")).doubleValue(), 0d);
+                assertSameBin(entry.getValue(), bin);
+            }
+            total += singleBins.size();
+        }
+        assertEquals(total, pyramidBins.size());
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+        ReferencedEnvelope bbox = features.getBounds();
+        Expression weight = ff.property("val");
+
+        HexagonalBinningOperation sequential = new HexagonalBinningOperation();
+        sequential.setParallelism(1);
+        Map<String, SimpleFeature> expected = toMap(
+                sequential.execute(features, weight, bbox, SIZES), true);
+
+        HexagonalBinningOperation parallel = new HexagonalBinningOperation();
+        parallel.setParallelism(4);
+        Map<String, SimpleFeature> actual = toMap(parallel.execute(features, weight, bbox, SIZES),
+                true);
+
+        assertEquals(expected.size(), actual.size());
+        for (Map.Entry<String, SimpleFeature> entry : expected.entrySet()) {
+            assertNotNull(actual.get(entry.getKey()));
+            assertSameBin(entry.getValue(), actual.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testInvalidSizes() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+
+        String[] invalidSizes = { "10, ten", "10, 0", "-5" };
+        for (String sizes : invalidSizes) {
+            Map<String, Object> input = new HashMap<String, Object>();
+            input.put(HexagonalPyramidBinningProcessFactory.features.key, features);
+            input.put(HexagonalPyramidBinningProcessFactory.sizes.key, sizes);
+            try {
+                new HexagonalPyramidBinningProcess(null).execute(input, null);
+                fail("Invalid sizes: " + sizes);
+            } catch (ProcessException e) {
+                assertNotNull(e.getMessage());
+            }
+        }
+
+        assertNotNull(HexagonalPyramidBinningProcess.process(features, null, null, "10, 20.5",
+                Boolean.TRUE, null));
+    }
+
+    private void assertSameBin(SimpleFeature expected, SimpleFeature actual) {
+        assertEquals(expected.getAttribute("count"), actual.getAttribute("count"));
+
+        String[] fields = { "val", "min", "max", "mean" };
+        for (String field : fields) {
+            double value = ((Number) expected.getAttribute(field)).doubleValue();
+            assertEquals(value, ((Number) actual.getAttribute(field)).doubleValue(),
+                    1.0e-9 * Math.max(1.0, Math.abs(value)));
+        }
+    }
+
+    private Map<String, SimpleFeature> toMap(SimpleFeatureCollection bins, boolean withLevel) {
+        Map<String, SimpleFeature> map = new HashMap<String, SimpleFeature>();
+        SimpleFeatureIterator featureIter = bins.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature bin = featureIter.next();
+                Point centroid = ((Geometry) bin.getDefaultGeometry()).getCentroid();
+                String key = String.format(Locale.ENGLISH, "%.6f %.6f", centroid.getX(),
+                        centroid.getY());
+                if (withLevel) {
+                    key = bin.getAttribute("level") + " " + key;
+                }
+                assertNull(map.put(key, bin));
+            }
+        } finally {
+            featureIter.close();
+        }
+        return map;
+    }
+
+    /**
+     * Random points in a 200 x 150 rectangle with a value.
+     */
+    private SimpleFeatureCollection createFeatures() {
+        SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+        typeBuilder.setName("points");
+        typeBuilder.add("the_geom", Point.class);
+        typeBuilder.add("val", Double.class);
+        SimpleFeatureType schema = typeBuilder.buildFeatureType();
+
+        Random random = new Random(31L);
+        GeometryFactory gf = JTSFactoryFinder.getGeometryFactory();
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        for (int index = 0; index < COUNT; index++) {
+            double x = 1000.0 + random.nextDouble() * 200.0;
+            double y = 2000.0 + random.nextDouble() * 150.0;
+
+            builder.add(gf.createPoint(new Coordinate(x, y)));
+            builder.add(Double.valueOf(random.nextInt(100) + random.nextDouble()));
+            features.add(builder.buildFeature("points." + (index + 1)));
+        }
+        return features;
+    }
+}
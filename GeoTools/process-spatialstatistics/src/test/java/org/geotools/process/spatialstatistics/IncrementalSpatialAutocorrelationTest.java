@@ -0,0 +1,120 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.process.spatialstatistics.autocorrelation.GlobalMoranIStatisticOperation;
+import org.geotools.process.spatialstatistics.autocorrelation.GlobalMoranIStatisticOperation.MoransI;
+import org.geotools.process.spatialstatistics.autocorrelation.IncrementalSpatialAutocorrelationOperation;
+import org.geotools.process.spatialstatistics.autocorrelation.IncrementalSpatialAutocorrelationOperation.IncrementalMoransI;
+import org.geotools.process.spatialstatistics.autocorrelation.IncrementalSpatialAutocorrelationOperation.MoransIBand;
+import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
+import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+public class IncrementalSpatialAutocorrelationTest extends SpatialStatisticsTestCase {
+
+    private static final int COUNT = 200;
+
+    @Test
+    public void testBandsEqualGlobalMoransI() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+
+        for (StandardizationMethod standardization : StandardizationMethod.values()) {
+            IncrementalSpatialAutocorrelationOperation operation =
+                    new IncrementalSpatialAutocorrelationOperation();
+            operation.setStandardizationType(standardization);
+            operation.setBeginningDistance(8.0);
+            operation.setDistanceIncrement(3.5);
+            operation.setNumberOfBands(6);
+            IncrementalMoransI result = operation.execute(features, "val");
+
+            List<MoransIBand> bands = result.getBands();
+            assertEquals(6, bands.size());
+            for (int index = 0; index < bands.size(); index++) {
+                MoransIBand band = bands.get(index);
+                assertEquals(8.0 + index * 3.5, band.getDistance(), 1.0e-12);
+                assertSameBand(features, standardization, band);
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultBands() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+
+        // the first band and the increment are derived from the nearest neighbour distances
+        IncrementalSpatialAutocorrelationOperation sequential =
+                new IncrementalSpatialAutocorrelationOperation();
+        sequential.setNumberOfBands(4);
+        sequential.setParallelism(1);
+        List<MoransIBand> expected = sequential.execute(features, "val").getBands();
+
+        IncrementalSpatialAutocorrelationOperation parallel =
+                new IncrementalSpatialAutocorrelationOperation();
+        parallel.setNumberOfBands(4);
+        parallel.setParallelism(4);
+        List<MoransIBand> actual = parallel.execute(features, "val").getBands();
+
+        assertEquals(4, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int index = 0; index < expected.size(); index++) {
+            MoransIBand band = expected.get(index);
+            assertEquals(band.getDistance(), actual.get(index).getDistance(), 0d);
+            assertEquals(band.getZScore(), actual.get(index).getZScore(),
+                    1.0e-9 * Math.max(1.0, Math.abs(band.getZScore())));
+            assertSameBand(features, StandardizationMethod.None, band);
+        }
+    }
+
+    private void assertSameBand(SimpleFeatureCollection features,
+            StandardizationMethod standardization, MoransIBand band) {
+        GlobalMoranIStatisticOperation operation = new GlobalMoranIStatisticOperation();
+        operation.setSpatialConceptType(SpatialConcept.FixedDistance);
+        operation.setStandardizationType(standardization);
+        operation.setDistanceBand(band.getDistance());
+        MoransI expected = operation.execute(features, "val");
+
+        String message = standardization + " " + band.getDistance();
+        assertEquals(message, expected.getObservedIndex(), band.getObservedIndex(), 1.0e-9);
+        assertEquals(message, expected.getExpectedIndex(), band.getExpectedIndex(), 1.0e-12);
+        assertEquals(message, expected.getZVariance(), band.getVariance(),
+                1.0e-9 * Math.abs(expected.getZVariance()));
+        assertEquals(message, expected.getZScore(), band.getZScore(),
+                1.0e-8 * Math.max(1.0, Math.abs(expected.getZScore())));
+    }
+
+    /**
+     * Random points in a 100 x 100 square with a value trending to the north-east.
+     */
+    private SimpleFeatureCollection createFeatures() {
+        SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+        typeBuilder.setName("samples");
+        typeBuilder.add("the_geom", Point.class);
+        typeBuilder.add("val", Double.class);
+        SimpleFeatureType schema = typeBuilder.buildFeatureType();
+
+        Random random = new Random(19L);
+        GeometryFactory gf = JTSFactoryFinder.getGeometryFactory();
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        for (int index = 0; index < COUNT; index++) {
+            double x = random.nextDouble() * 100.0;
+            double y = random.nextDouble() * 100.0;
+
+            builder.add(gf.createPoint(new Coordinate(x, y)));
+            builder.add(Double.valueOf((x + y) / 20.0 + random.nextGaussian() * 2.0));
+            features.add(builder.buildFeature("samples." + (index + 1)));
+        }
+        return features;
+    }
+}
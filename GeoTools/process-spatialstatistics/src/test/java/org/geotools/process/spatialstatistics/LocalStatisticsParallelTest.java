@@ -0,0 +1,186 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.process.spatialstatistics.autocorrelation.AbstractStatisticsOperation;
+import org.geotools.process.spatialstatistics.autocorrelation.LocalGStatisticOperation;
+import org.geotools.process.spatialstatistics.autocorrelation.LocalGearysCOperation;
+import org.geotools.process.spatialstatistics.autocorrelation.LocalLeesLOperation;
+import org.geotools.process.spatialstatistics.autocorrelation.LocalLeesSOperation;
+import org.geotools.process.spatialstatistics.autocorrelation.LocalMoranIStatisticOperation;
+import org.geotools.process.spatialstatistics.autocorrelation.LocalRogersonROperation;
+import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
+import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+public class LocalStatisticsParallelTest extends SpatialStatisticsTestCase {
+
+    // enough features to split the per-feature pass into several ranges
+    private static final int COUNT = 600;
+
+    @Test
+    public void testLocalMoranI() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+
+        LocalMoranIStatisticOperation sequential = new LocalMoranIStatisticOperation();
+        configure(sequential, SpatialConcept.FixedDistance, 1);
+        LocalMoranIStatisticOperation parallel = new LocalMoranIStatisticOperation();
+        configure(parallel, SpatialConcept.FixedDistance, 4);
+
+        assertSameFeatures(sequential.execute(features, "x"), parallel.execute(features, "x"));
+    }
+
+    @Test
+    public void testLocalGStatistic() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+
+        LocalGStatisticOperation sequential = new LocalGStatisticOperation();
+        configure(sequential, SpatialConcept.InverseDistance, 1);
+        LocalGStatisticOperation parallel = new LocalGStatisticOperation();
+        configure(parallel, SpatialConcept.InverseDistance, 4);
+
+        assertSameFeatures(sequential.execute(features, "x"), parallel.execute(features, "x"));
+    }
+
+    @Test
+    public void testLocalGearysC() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+
+        LocalGearysCOperation sequential = new LocalGearysCOperation();
+        configure(sequential, SpatialConcept.FixedDistance, 1);
+        LocalGearysCOperation parallel = new LocalGearysCOperation();
+        configure(parallel, SpatialConcept.FixedDistance, 4);
+
+        assertSameFeatures(sequential.execute(features, "x"), parallel.execute(features, "x"));
+    }
+
+    @Test
+    public void testLocalLees() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+
+        LocalLeesSOperation sequentialS = new LocalLeesSOperation();
+        configure(sequentialS, SpatialConcept.FixedDistance, 1);
+        LocalLeesSOperation parallelS = new LocalLeesSOperation();
+        configure(parallelS, SpatialConcept.FixedDistance, 4);
+
+        assertSameFeatures(sequentialS.execute(features, "x"), parallelS.execute(features, "x"));
+
+        LocalLeesLOperation sequentialL = new LocalLeesLOperation();
+        configure(sequentialL, SpatialConcept.FixedDistance, 1);
+        LocalLeesLOperation parallelL = new LocalLeesLOperation();
+        configure(parallelL, SpatialConcept.FixedDistance, 4);
+
+        assertSameFeatures(sequentialL.execute(features, "x", "y"),
+                parallelL.execute(features, "x", "y"));
+    }
+
+    @Test
+    public void testLocalRogersonR() throws Exception {
+        SimpleFeatureCollection features = createFeatures();
+
+        LocalRogersonROperation sequential = new LocalRogersonROperation();
+        configure(sequential, SpatialConcept.InverseDistance, 1);
+        LocalRogersonROperation parallel = new LocalRogersonROperation();
+        configure(parallel, SpatialConcept.InverseDistance, 4);
+
+        assertSameFeatures(sequential.execute(features, "x", "pop"),
+                parallel.execute(features, "x", "pop"));
+    }
+
+    private void configure(AbstractStatisticsOperation operation, SpatialConcept spatialConcept,
+            int parallelism) {
+        operation.setSpatialConceptType(spatialConcept);
+        operation.setStandardizationType(StandardizationMethod.Row);
+        operation.setDistanceBand(15.0);
+        operation.setParallelism(parallelism);
+    }
+
+    private void assertSameFeatures(SimpleFeatureCollection expected,
+            SimpleFeatureCollection actual) {
+        assertNotNull(expected);
+        assertNotNull(actual);
+        assertEquals(COUNT, expected.size());
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.getSchema(), actual.getSchema());
+
+        SimpleFeatureIterator expectedIter = expected.features();
+        SimpleFeatureIterator actualIter = actual.features();
+        try {
+            while (expectedIter.hasNext()) {
+                SimpleFeature source = expectedIter.next();
+                SimpleFeature target = actualIter.next();
+
+                List<Object> sourceValues = source.getAttributes();
+                List<Object> targetValues = target.getAttributes();
+                assertEquals(sourceValues.size(), targetValues.size());
+                for (int index = 0; index < sourceValues.size(); index++) {
+                    assertSameValue(sourceValues.get(index), targetValues.get(index));
+                }
+            }
+        } finally {
+            expectedIter.close();
+            actualIter.close();
+        }
+    }
+
+    private void assertSameValue(Object expected, Object actual) {
+        if (expected instanceof Geometry) {
+            assertTrue(((Geometry) expected).equalsExact((Geometry) actual));
+        } else if (expected instanceof Double) {
+            // global sums may be merged in another order, the local values must not change
+            double source = ((Double) expected).doubleValue();
+            double target = ((Number) actual).doubleValue();
+            if (Double.isNaN(source)) {
+                assertTrue(Double.isNaN(target));
+            } else {
+                assertEquals(source, target, 1.0e-10 * Math.max(1.0, Math.abs(source)));
+            }
+        } else {
+            assertEquals(expected, actual);
+        }
+    }
+
+    /**
+     * Random points in a 100 x 100 square with a value x, a second value y and a population greater than x.
+     */
+    private SimpleFeatureCollection createFeatures() {
+        SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+        typeBuilder.setName("samples");
+        typeBuilder.add("the_geom", Point.class);
+        typeBuilder.add("x", Double.class);
+        typeBuilder.add("y", Double.class);
+        typeBuilder.add("pop", Double.class);
+        SimpleFeatureType schema = typeBuilder.buildFeatureType();
+
+        Random random = new Random(17L);
+        GeometryFactory gf = JTSFactoryFinder.getGeometryFactory();
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        for (int index = 0; index < COUNT; index++) {
+            double px = random.nextDouble() * 100.0;
+            double py = random.nextDouble() * 100.0;
+            double x = 1.0 + random.nextInt(50) + px / 10.0;
+            double y = random.nextDouble() * 20.0 + py / 5.0;
+
+            builder.add(gf.createPoint(new Coordinate(px, py)));
+            builder.add(Double.valueOf(x));
+            builder.add(Double.valueOf(y));
+            builder.add(Double.valueOf(x + 100.0 + random.nextInt(500)));
+            features.add(builder.buildFeature("samples." + (index + 1)));
+        }
+        return features;
+    }
+}
@@ -0,0 +1,183 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.process.spatialstatistics.clsssifier.NaturalBreaksClassify;
+import org.geotools.process.spatialstatistics.clsssifier.NaturalBreaksClassify.ValuePair;
+import org.junit.Test;
+
+public class NaturalBreaksClassifyTest extends SpatialStatisticsTestCase {
+
+    @Test
+    public void testClusters() throws Exception {
+        double[] values = { 1, 2, 3, 10, 11, 12, 20, 21, 22 };
+        int[] frequencies = new int[values.length];
+        Arrays.fill(frequencies, 1);
+
+        Double[] breaks = new NaturalBreaksClassify().classify(values, frequencies, 3);
+        assertEquals(4, breaks.length);
+        assertEquals(1.0, breaks[0], 0d);
+        assertEquals(3.0, breaks[1], 0d);
+        assertEquals(12.0, breaks[2], 0d);
+        assertEquals(22.0, breaks[3], 0d);
+    }
+
+    @Test
+    public void testOptimal() throws Exception {
+        final int numOfClass = 4;
+        Random random = new Random(3L);
+
+        for (int trial = 0; trial < 20; trial++) {
+            // distinct sorted values with frequencies
+            double[] values = new double[14];
+            int[] frequencies = new int[values.length];
+            double value = 0;
+            for (int index = 0; index < values.length; index++) {
+                value += 0.1 + random.nextDouble() * 10.0;
+                values[index] = value;
+                frequencies[index] = 1 + random.nextInt(5);
+            }
+
+            Double[] breaks = new NaturalBreaksClassify().classify(values, frequencies,
+                    numOfClass);
+            assertEquals(numOfClass + 1, breaks.length);
+            assertEquals(values[0], breaks[0], 0d);
+            assertEquals(values[values.length - 1], breaks[numOfClass], 0d);
+
+            // the breaks minimize the within class sum of squares
+            double expected = minimumSumOfSquares(values, frequencies, numOfClass);
+            double actual = sumOfSquares(values, frequencies, breaks);
+            assertEquals(expected, actual, 1.0e-9 * expected);
+
+            // the order of the values does not matter
+            double[] shuffledValues = values.clone();
+            int[] shuffledFrequencies = frequencies.clone();
+            for (int index = values.length - 1; index > 0; index--) {
+                int swap = random.nextInt(index + 1);
+                double tempValue = shuffledValues[index];
+                shuffledValues[index] = shuffledValues[swap];
+                shuffledValues[swap] = tempValue;
+                int tempFrequency = shuffledFrequencies[index];
+                shuffledFrequencies[index] = shuffledFrequencies[swap];
+                shuffledFrequencies[swap] = tempFrequency;
+            }
+
+            Double[] shuffled = new NaturalBreaksClassify().classify(shuffledValues,
+                    shuffledFrequencies, numOfClass);
+            assertTrue(Arrays.equals(breaks, shuffled));
+        }
+    }
+
+    @Test
+    public void testLargeOffset() throws Exception {
+        final int numOfClass = 5;
+        Random random = new Random(5L);
+
+        // closely spaced values in a few groups
+        double[] values = new double[300];
+        int[] frequencies = new int[values.length];
+        double value = 0;
+        for (int index = 0; index < values.length; index++) {
+            value += 0.01 + random.nextDouble() * 0.02 + (index % 60 == 0 ? 0.5 : 0.0);
+            values[index] = value;
+            frequencies[index] = 1 + random.nextInt(9);
+        }
+
+        double[] shifted = new double[values.length];
+        for (int index = 0; index < values.length; index++) {
+            shifted[index] = values[index] + 1.0e9;
+        }
+
+        // the same values are chosen as breaks after adding a large offset
+        Double[] breaks = new NaturalBreaksClassify().classify(values, frequencies, numOfClass);
+        Double[] shiftedBreaks = new NaturalBreaksClassify().classify(shifted, frequencies,
+                numOfClass);
+        assertEquals(breaks.length, shiftedBreaks.length);
+        for (int cls = 0; cls < breaks.length; cls++) {
+            assertEquals(indexOf(values, breaks[cls]), indexOf(shifted, shiftedBreaks[cls]));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testValuePairs() throws Exception {
+        double[] values = { 5, 1, 2, 3, 10, 11, 12, 20, 21, 22 };
+        int[] frequencies = { 1, 2, 1, 3, 1, 1, 4, 1, 2, 1 };
+
+        List<ValuePair> valuePairs = new ArrayList<ValuePair>();
+        for (int index = 0; index < values.length; index++) {
+            valuePairs.add(new ValuePair(values[index], frequencies[index]));
+        }
+
+        NaturalBreaksClassify classify = new NaturalBreaksClassify();
+        assertTrue(classify.calculateJenksBreaks(valuePairs, 0.0, 3));
+        Double[] expected = new NaturalBreaksClassify().classify(values, frequencies, 3);
+        assertTrue(Arrays.equals(expected, classify.getClassBreaks()));
+    }
+
+    private int indexOf(double[] values, double value) {
+        for (int index = 0; index < values.length; index++) {
+            if (values[index] == value) {
+                return index;
+            }
+        }
+        fail("Not a value: " + value);
+        return -1;
+    }
+
+    /**
+     * Searches all splits of the sorted values into numOfClass consecutive classes.
+     */
+    private double minimumSumOfSquares(double[] values, int[] frequencies, int numOfClass) {
+        return search(values, frequencies, 0, numOfClass);
+    }
+
+    private double search(double[] values, int[] frequencies, int start, int numOfClass) {
+        if (numOfClass == 1) {
+            return classSumOfSquares(values, frequencies, start, values.length);
+        }
+
+        double minimum = Double.POSITIVE_INFINITY;
+        for (int end = start + 1; end <= values.length - numOfClass + 1; end++) {
+            double cost = classSumOfSquares(values, frequencies, start, end)
+                    + search(values, frequencies, end, numOfClass - 1);
+            minimum = Math.min(minimum, cost);
+        }
+        return minimum;
+    }
+
+    private double sumOfSquares(double[] values, int[] frequencies, Double[] breaks) {
+        double total = 0;
+        int start = 0;
+        for (int cls = 1; cls < breaks.length; cls++) {
+            int end = start;
+            while (end < values.length && values[end] <= breaks[cls]) {
+                end++;
+            }
+            assertTrue(end > start);
+            total += classSumOfSquares(values, frequencies, start, end);
+            start = end;
+        }
+        assertEquals(values.length, start);
+        return total;
+    }
+
+    private double classSumOfSquares(double[] values, int[] frequencies, int start, int end) {
+        double weight = 0;
+        double sum = 0;
+        for (int index = start; index < end; index++) {
+            weight += frequencies[index];
+            sum += frequencies[index] * values[index];
+        }
+
+        double mean = sum / weight;
+        double sumOfSquares = 0;
+        for (int index = start; index < end; index++) {
+            sumOfSquares += frequencies[index] * (values[index] - mean) * (values[index] - mean);
+        }
+        return sumOfSquares;
+    }
+}
@@ -0,0 +1,184 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.process.ProcessException;
+import org.geotools.process.spatialstatistics.relationship.OLSOperation;
+import org.geotools.process.spatialstatistics.relationship.OLSResult;
+import org.geotools.process.spatialstatistics.relationship.OLSResult.Variables.Variable;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+public class OLSOperationTest extends SpatialStatisticsTestCase {
+
+    private static final int COUNT = 40;
+
+    @Test
+    public void testNormalEquations() throws Exception {
+        double[][] samples = createSamples(COUNT, false);
+
+        OLSOperation operation = new OLSOperation();
+        operation.setAnalyzeResidual(false);
+        OLSResult result = operation.execute(createFeatures(samples), "y", "x1,x2");
+
+        // solve (X'X) b = X'y with the intercept column and invert X'X
+        final int m = 3;
+        double[][] xtx = new double[m][m];
+        double[] xty = new double[m];
+        for (double[] sample : samples) {
+            double[] row = { 1.0, sample[0], sample[1] };
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < m; j++) {
+                    xtx[i][j] += row[i] * row[j];
+                }
+                xty[i] += row[i] * sample[2];
+            }
+        }
+
+        double[][] inverse = invert(xtx);
+        double[] beta = new double[m];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < m; j++) {
+                beta[i] += inverse[i][j] * xty[j];
+            }
+        }
+
+        double meanY = 0;
+        for (double[] sample : samples) {
+            meanY += sample[2] / COUNT;
+        }
+
+        double sse = 0;
+        double sst = 0;
+        for (double[] sample : samples) {
+            double residual = sample[2] - (beta[0] + beta[1] * sample[0] + beta[2] * sample[1]);
+            sse += residual * residual;
+            sst += (sample[2] - meanY) * (sample[2] - meanY);
+        }
+        double mse = sse / (COUNT - m);
+
+        List<Variable> variables = result.getVariables().getItems();
+        assertEquals(m, variables.size());
+        assertEquals("Intercept", variables.get(0).getVariable());
+        assertEquals("x1", variables.get(1).getVariable());
+        assertEquals("x2", variables.get(2).getVariable());
+
+        for (int i = 0; i < m; i++) {
+            Variable variable = variables.get(i);
+            assertEquals(beta[i], variable.getCoefficient(), 1.0e-9 * Math.max(1.0,
+                    Math.abs(beta[i])));
+            double stdError = Math.sqrt(mse * inverse[i][i]);
+            assertEquals(stdError, variable.getStdError(), 1.0e-9 * Math.max(1.0, stdError));
+        }
+
+        assertEquals(1.0 - sse / sst, result.getDiagnostics().getRSquared(), 1.0e-9);
+        assertEquals(Integer.valueOf(COUNT), result.getDiagnostics().getNumberOfObservations());
+    }
+
+    @Test
+    public void testConstantVariable() throws Exception {
+        double[][] samples = createSamples(COUNT, true);
+
+        OLSOperation operation = new OLSOperation();
+        operation.setAnalyzeResidual(false);
+        try {
+            operation.execute(createFeatures(samples), "y", "x1,x2");
+            fail("A constant explanatory variable must be reported");
+        } catch (ProcessException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    /**
+     * Returns x1, x2, y of each sample, y = 2 + 3 * x1 - 1.5 * x2 + noise.
+     */
+    private double[][] createSamples(int count, boolean constant) {
+        Random random = new Random(11L);
+        double[][] samples = new double[count][];
+        for (int index = 0; index < count; index++) {
+            double x1 = random.nextDouble() * 100.0;
+            double x2 = constant ? 5.0 : random.nextDouble() * 50.0;
+            double y = 2.0 + 3.0 * x1 - 1.5 * x2 + random.nextGaussian() * 5.0;
+            samples[index] = new double[] { x1, x2, y };
+        }
+        return samples;
+    }
+
+    private SimpleFeatureCollection createFeatures(double[][] samples) {
+        SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+        typeBuilder.setName("samples");
+        typeBuilder.add("the_geom", Point.class);
+        typeBuilder.add("x1", Double.class);
+        typeBuilder.add("x2", Double.class);
+        typeBuilder.add("y", Double.class);
+        SimpleFeatureType schema = typeBuilder.buildFeatureType();
+
+        GeometryFactory gf = JTSFactoryFinder.getGeometryFactory();
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        for (int index = 0; index < samples.length; index++) {
+            builder.add(gf.createPoint(new Coordinate(index % 8, index / 8)));
+            builder.add(Double.valueOf(samples[index][0]));
+            builder.add(Double.valueOf(samples[index][1]));
+            builder.add(Double.valueOf(samples[index][2]));
+            features.add(builder.buildFeature("samples." + (index + 1)));
+        }
+        return features;
+    }
+
+    /**
+     * Gauss-Jordan elimination with partial pivoting.
+     */
+    private double[][] invert(double[][] matrix) {
+        final int size = matrix.length;
+        double[][] a = new double[size][];
+        double[][] inverse = new double[size][size];
+        for (int i = 0; i < size; i++) {
+            a[i] = matrix[i].clone();
+            inverse[i][i] = 1.0;
+        }
+
+        for (int col = 0; col < size; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < size; row++) {
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col])) {
+                    pivot = row;
+                }
+            }
+
+            double[] swap = a[col];
+            a[col] = a[pivot];
+            a[pivot] = swap;
+            swap = inverse[col];
+            inverse[col] = inverse[pivot];
+            inverse[pivot] = swap;
+
+            double diagonal = a[col][col];
+            for (int j = 0; j < size; j++) {
+                a[col][j] /= diagonal;
+                inverse[col][j] /= diagonal;
+            }
+
+            for (int row = 0; row < size; row++) {
+                if (row == col) {
+                    continue;
+                }
+                double factor = a[row][col];
+                for (int j = 0; j < size; j++) {
+                    a[row][j] -= factor * a[col][j];
+                    inverse[row][j] -= factor * inverse[col][j];
+                }
+            }
+        }
+        return inverse;
+    }
+}
@@ -0,0 +1,107 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.Random;
+
+import org.geotools.process.spatialstatistics.core.QuantileSketch;
+import org.junit.Test;
+
+public class QuantileSketchTest extends SpatialStatisticsTestCase {
+
+    private static final int COUNT = 100000;
+
+    // about 2.5 times the expected rank error of 1.7 / k
+    private static final double RANK_ERROR = 0.02;
+
+    @Test
+    public void testRankError() throws Exception {
+        double[] values = createValues(COUNT, 1L);
+
+        QuantileSketch sketch = new QuantileSketch();
+        for (double value : values) {
+            sketch.add(value);
+        }
+
+        assertEquals(QuantileSketch.DEFAULT_K, sketch.getK());
+        assertEquals(COUNT, sketch.getCount());
+        assertEquals(0.0, sketch.getMinimum(), 0d);
+        assertEquals(COUNT - 1.0, sketch.getMaximum(), 0d);
+        assertEquals(0.0, sketch.getQuantile(0.0), 0d);
+        assertEquals(COUNT - 1.0, sketch.getQuantile(1.0), 0d);
+
+        // the memory does not grow with the number of values
+        assertTrue(sketch.getRetainedCount() < 4 * sketch.getK());
+
+        assertRankError(sketch);
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        double[] values = createValues(COUNT, 2L);
+
+        // two partial sketches, ex) two threads or tiles
+        QuantileSketch first = new QuantileSketch();
+        QuantileSketch second = first.createEmpty();
+        for (int index = 0; index < values.length; index++) {
+            if (index < values.length / 3) {
+                first.add(values[index]);
+            } else {
+                second.add(values[index]);
+            }
+        }
+
+        QuantileSketch merged = new QuantileSketch();
+        merged.merge(first);
+        merged.merge(second);
+
+        assertEquals(COUNT, merged.getCount());
+        assertEquals(0.0, merged.getMinimum(), 0d);
+        assertEquals(COUNT - 1.0, merged.getMaximum(), 0d);
+        assertTrue(merged.getRetainedCount() < 4 * merged.getK());
+
+        assertRankError(merged);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        QuantileSketch sketch = new QuantileSketch();
+        assertTrue(sketch.isEmpty());
+        assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+
+        // small streams are exact
+        sketch.add(3.0);
+        sketch.add(1.0);
+        sketch.add(2.0);
+        assertEquals(2.0, sketch.getQuantile(0.5), 0d);
+
+        sketch.reset();
+        assertTrue(sketch.isEmpty());
+        assertEquals(0, sketch.getCount());
+    }
+
+    private void assertRankError(QuantileSketch sketch) {
+        // the values are 0 ~ COUNT - 1, so the rank of a value is value + 1
+        for (int percent = 1; percent < 100; percent++) {
+            double fraction = percent / 100.0;
+            double quantile = sketch.getQuantile(fraction);
+            double rank = (quantile + 1.0) / COUNT;
+            assertEquals(fraction, rank, RANK_ERROR);
+        }
+    }
+
+    private double[] createValues(int count, long seed) {
+        double[] values = new double[count];
+        for (int index = 0; index < count; index++) {
+            values[index] = index;
+        }
+
+        // shuffle
+        Random random = new Random(seed);
+        for (int index = count - 1; index > 0; index--) {
+            int swap = random.nextInt(index + 1);
+            double value = values[index];
+            values[index] = values[swap];
+            values[swap] = value;
+        }
+        return values;
+    }
+}
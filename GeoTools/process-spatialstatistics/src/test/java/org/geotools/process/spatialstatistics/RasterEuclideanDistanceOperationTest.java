@@ -0,0 +1,111 @@
+package org.geotools.process.spatialstatistics;
+
+import java.awt.image.Raster;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.process.spatialstatistics.core.SSUtils;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterEuclideanDistanceOperation;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterHelper;
+import org.junit.Test;
+
+public class RasterEuclideanDistanceOperationTest extends SpatialStatisticsTestCase {
+
+    @Test
+    public void testExactDistance() throws Exception {
+        SimpleFeatureCollection features = dataStore.getFeatureSource("point").getFeatures();
+
+        GridCoverage2D coverage = execute(features, 0, 256, 1);
+        Raster raster = coverage.getRenderedImage().getData();
+        final double cellSize = RasterHelper.getCellSize(coverage);
+        final double noData = RasterHelper.getNoDataValue(coverage);
+
+        // the source cells are the cells at distance 0
+        List<int[]> sources = new ArrayList<int[]>();
+        for (int y = 0; y < raster.getHeight(); y++) {
+            for (int x = 0; x < raster.getWidth(); x++) {
+                if (getValue(raster, x, y) == 0) {
+                    sources.add(new int[] { x, y });
+                }
+            }
+        }
+        assertTrue(sources.size() > 0);
+        assertTrue(sources.size() <= features.size());
+
+        // compare with the distance to the nearest source cell
+        for (int y = 0; y < raster.getHeight(); y++) {
+            for (int x = 0; x < raster.getWidth(); x++) {
+                double value = getValue(raster, x, y);
+                assertFalse(SSUtils.compareDouble(value, noData));
+
+                double expected = Double.MAX_VALUE;
+                for (int[] source : sources) {
+                    double dx = x - source[0];
+                    double dy = y - source[1];
+                    expected = Math.min(expected, Math.sqrt(dx * dx + dy * dy) * cellSize);
+                }
+                assertEquals(expected, value, 1.0e-6 * Math.max(1.0, expected));
+            }
+        }
+    }
+
+    @Test
+    public void testBands() throws Exception {
+        SimpleFeatureCollection features = dataStore.getFeatureSource("point").getFeatures();
+
+        Raster expected = execute(features, 0, 256, 1).getRenderedImage().getData();
+
+        // the result does not depend on the height of the bands or the number of threads
+        Raster bands = execute(features, 0, 7, 1).getRenderedImage().getData();
+        Raster parallel = execute(features, 0, 7, 4).getRenderedImage().getData();
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(getValue(expected, x, y), getValue(bands, x, y), 0d);
+                assertEquals(getValue(expected, x, y), getValue(parallel, x, y), 0d);
+            }
+        }
+    }
+
+    @Test
+    public void testMaximumDistance() throws Exception {
+        SimpleFeatureCollection features = dataStore.getFeatureSource("point").getFeatures();
+        final double maximumDistance = 2.0;
+
+        Raster unlimited = execute(features, 0, 256, 1).getRenderedImage().getData();
+        GridCoverage2D coverage = execute(features, maximumDistance, 7, 1);
+        Raster limited = coverage.getRenderedImage().getData();
+        final double noData = RasterHelper.getNoDataValue(coverage);
+
+        int noDataCount = 0;
+        for (int y = 0; y < unlimited.getHeight(); y++) {
+            for (int x = 0; x < unlimited.getWidth(); x++) {
+                double distance = getValue(unlimited, x, y);
+                double value = getValue(limited, x, y);
+                if (distance > maximumDistance) {
+                    assertTrue(SSUtils.compareDouble(value, noData));
+                    noDataCount++;
+                } else {
+                    assertEquals(distance, value, 0d);
+                }
+            }
+        }
+        assertTrue(noDataCount > 0);
+    }
+
+    private GridCoverage2D execute(SimpleFeatureCollection features, double maximumDistance,
+            int bandHeight, int parallelism) {
+        RasterEuclideanDistanceOperation process = new RasterEuclideanDistanceOperation();
+        process.setBandHeight(bandHeight);
+        process.setParallelism(parallelism);
+
+        GridCoverage2D coverage = process.execute(features, maximumDistance);
+        assertNotNull(coverage);
+        return coverage;
+    }
+
+    private double getValue(Raster raster, int x, int y) {
+        return raster.getSampleDouble(raster.getMinX() + x, raster.getMinY() + y, 0);
+    }
+}
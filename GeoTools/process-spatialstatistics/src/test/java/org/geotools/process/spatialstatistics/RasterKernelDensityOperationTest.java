@@ -0,0 +1,62 @@
+package org.geotools.process.spatialstatistics;
+
+import java.awt.image.Raster;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.process.spatialstatistics.enumeration.KernelDensityMethod;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterKernelDensityOperation;
+import org.junit.Test;
+
+public class RasterKernelDensityOperationTest extends SpatialStatisticsTestCase {
+
+    private static final double CELL_SIZE = 0.1;
+
+    private static final double SEARCH_RADIUS = 2.0;
+
+    @Test
+    public void testFFTEqualsDirect() throws Exception {
+        SimpleFeatureCollection features = dataStore.getFeatureSource("point").getFeatures();
+
+        Raster direct = execute(features, KernelDensityMethod.Direct, 1);
+        Raster fft = execute(features, KernelDensityMethod.FFT, 1);
+        Raster parallel = execute(features, KernelDensityMethod.FFT, 4);
+
+        assertEquals(direct.getWidth(), fft.getWidth());
+        assertEquals(direct.getHeight(), fft.getHeight());
+
+        double maxValue = 0.0;
+        for (int y = 0; y < direct.getHeight(); y++) {
+            for (int x = 0; x < direct.getWidth(); x++) {
+                maxValue = Math.max(maxValue, Math.abs(getValue(direct, x, y)));
+            }
+        }
+        assertTrue(maxValue > 0);
+
+        final double tolerance = 1.0e-5 * maxValue;
+        for (int y = 0; y < direct.getHeight(); y++) {
+            for (int x = 0; x < direct.getWidth(); x++) {
+                double expected = getValue(direct, x, y);
+                assertEquals(expected, getValue(fft, x, y), tolerance);
+                assertEquals(expected, getValue(parallel, x, y), tolerance);
+            }
+        }
+    }
+
+    private Raster execute(SimpleFeatureCollection features, KernelDensityMethod method,
+            int parallelism) {
+        // the operation keeps its area scale, so every run needs its own instance
+        RasterKernelDensityOperation process = new RasterKernelDensityOperation();
+        process.setExtentAndCellSize(features.getBounds(), CELL_SIZE, CELL_SIZE);
+        process.setDensityMethod(method);
+        process.setParallelism(parallelism);
+
+        GridCoverage2D coverage = process.execute(features, "val", SEARCH_RADIUS);
+        assertNotNull(coverage);
+        return coverage.getRenderedImage().getData();
+    }
+
+    private double getValue(Raster raster, int x, int y) {
+        return raster.getSampleDouble(raster.getMinX() + x, raster.getMinY() + y, 0);
+    }
+}
@@ -0,0 +1,153 @@
+package org.geotools.process.spatialstatistics;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TiledImage;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.enumeration.SlopeType;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterHelper;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterSlopeOperation;
+import org.geotools.referencing.crs.DefaultEngineeringCRS;
+import org.junit.Test;
+
+public class RasterSlopeOperationTest extends SpatialStatisticsTestCase {
+
+    private static final int WIDTH = 50;
+
+    private static final int HEIGHT = 37;
+
+    // small tiles so that many 3 x 3 windows cross a tile boundary
+    private static final int TILE_SIZE = 16;
+
+    private static final double CELL_SIZE = 10.0;
+
+    private static final float NODATA = -9999f;
+
+    @Test
+    public void testPerPixelKernel() throws Exception {
+        float[][] elevations = createElevations();
+        GridCoverage2D surface = createSurface(elevations);
+
+        RasterSlopeOperation operation = new RasterSlopeOperation();
+        operation.setParallelism(1);
+        GridCoverage2D result = operation.execute(surface, SlopeType.Degree);
+
+        Raster raster = result.getRenderedImage().getData();
+        final double noData = RasterHelper.getNoDataValue(result);
+        assertEquals(WIDTH, raster.getWidth());
+        assertEquals(HEIGHT, raster.getHeight());
+
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                double actual = raster.getSampleDouble(col, row, 0);
+                if (elevations[row][col] == NODATA) {
+                    assertEquals(noData, actual, 0d);
+                } else {
+                    double expected = slope(elevations, col, row);
+                    assertEquals(expected, actual, 1.0e-4);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelTiles() throws Exception {
+        GridCoverage2D surface = createSurface(createElevations());
+
+        RasterSlopeOperation sequential = new RasterSlopeOperation();
+        sequential.setParallelism(1);
+        Raster expected = sequential.execute(surface, SlopeType.Percentrise).getRenderedImage()
+                .getData();
+
+        RasterSlopeOperation parallel = new RasterSlopeOperation();
+        parallel.setParallelism(4);
+        Raster actual = parallel.execute(surface, SlopeType.Percentrise).getRenderedImage()
+                .getData();
+
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                assertEquals(expected.getSampleDouble(col, row, 0),
+                        actual.getSampleDouble(col, row, 0), 0d);
+            }
+        }
+    }
+
+    /**
+     * Slope in degrees of one cell, NoData and outside neighbours take the value of the center cell.
+     */
+    private double slope(float[][] elevations, int col, int row) {
+        double center = elevations[row][col];
+        double[] z = new double[9];
+        for (int dy = -1, n = 0; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++, n++) {
+                int x = col + dx;
+                int y = row + dy;
+                if (x < 0 || y < 0 || x >= WIDTH || y >= HEIGHT || elevations[y][x] == NODATA) {
+                    z[n] = center;
+                } else {
+                    z[n] = elevations[y][x];
+                }
+            }
+        }
+
+        double dZdX = ((z[2] + 2 * z[5] + z[8]) - (z[0] + 2 * z[3] + z[6])) / (8 * CELL_SIZE);
+        double dZdY = ((z[6] + 2 * z[7] + z[8]) - (z[0] + 2 * z[1] + z[2])) / (8 * CELL_SIZE);
+        return Math.toDegrees(Math.atan(Math.sqrt(dZdX * dZdX + dZdY * dZdY)));
+    }
+
+    /**
+     * Rolling surface with a NoData block crossing a tile boundary and NoData cells on the image edges.
+     */
+    private float[][] createElevations() {
+        float[][] elevations = new float[HEIGHT][WIDTH];
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                elevations[row][col] = (float) (100.0 + 3.0 * col + 2.0 * row + 10.0
+                        * Math.sin(col / 5.0) * Math.cos(row / 7.0));
+            }
+        }
+
+        for (int row = 12; row < 20; row++) {
+            for (int col = 13; col < 19; col++) {
+                elevations[row][col] = NODATA;
+            }
+        }
+        elevations[0][0] = NODATA;
+        elevations[0][WIDTH / 2] = NODATA;
+        elevations[HEIGHT - 1][WIDTH - 1] = NODATA;
+        elevations[HEIGHT / 2][0] = NODATA;
+        elevations[TILE_SIZE][TILE_SIZE] = NODATA;
+        return elevations;
+    }
+
+    private GridCoverage2D createSurface(float[][] elevations) {
+        SampleModel sampleModel = RasterFactory.createBandedSampleModel(DataBuffer.TYPE_FLOAT,
+                TILE_SIZE, TILE_SIZE, 1);
+        TiledImage image = new TiledImage(0, 0, WIDTH, HEIGHT, 0, 0, sampleModel,
+                PlanarImage.createColorModel(sampleModel));
+
+        double minValue = Double.MAX_VALUE;
+        double maxValue = -Double.MAX_VALUE;
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                float value = elevations[row][col];
+                image.setSample(col, row, 0, value);
+                if (value != NODATA) {
+                    minValue = Math.min(minValue, value);
+                    maxValue = Math.max(maxValue, value);
+                }
+            }
+        }
+
+        ReferencedEnvelope extent = new ReferencedEnvelope(0, WIDTH * CELL_SIZE, 0, HEIGHT
+                * CELL_SIZE, DefaultEngineeringCRS.GENERIC_2D);
+        return RasterHelper.createGridCoverage("surface", image, 1, NODATA, minValue, maxValue,
+                extent);
+    }
+}
@@ -0,0 +1,177 @@
+package org.geotools.process.spatialstatistics;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TiledImage;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.core.HistogramGridCoverage;
+import org.geotools.process.spatialstatistics.core.StatisticsVisitor;
+import org.geotools.process.spatialstatistics.core.StatisticsVisitor.DoubleStrategy;
+import org.geotools.process.spatialstatistics.core.StatisticsVisitorResult;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterHelper;
+import org.geotools.referencing.crs.DefaultEngineeringCRS;
+import org.junit.Test;
+
+public class RasterStatisticsTest extends SpatialStatisticsTestCase {
+
+    private static final int WIDTH = 70;
+
+    private static final int HEIGHT = 45;
+
+    // small tiles so that the scan is split into many tile ranges
+    private static final int TILE_SIZE = 16;
+
+    private static final float NODATA = -9999f;
+
+    @Test
+    public void testStatisticsVisitor() throws Exception {
+        float[][] values = createValues();
+        GridCoverage2D coverage = createCoverage(values);
+
+        // the boxed path of a single value at a time
+        DoubleStrategy boxed = new DoubleStrategy();
+        boxed.setNoData(Double.valueOf(NODATA));
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                boxed.add(Double.valueOf(values[row][col]));
+            }
+        }
+        StatisticsVisitorResult expected = boxed.getResult();
+        assertTrue(expected.getCount() > 0);
+        assertTrue(expected.getCount() < WIDTH * HEIGHT);
+
+        for (int parallelism : new int[] { 1, 4 }) {
+            StatisticsVisitor visitor = new StatisticsVisitor(new DoubleStrategy());
+            visitor.setNoData(Double.valueOf(NODATA));
+            visitor.setParallelism(parallelism);
+            visitor.visit(coverage, 0);
+
+            StatisticsVisitorResult actual = visitor.getResult();
+            assertEquals(expected.getCount(), actual.getCount());
+            assertEquals(expected.getMinimum(), actual.getMinimum(), 0d);
+            assertEquals(expected.getMaximum(), actual.getMaximum(), 0d);
+            assertEquals(expected.getSum(), actual.getSum(), 1.0e-9 * Math.abs(expected.getSum()));
+            assertEquals(expected.getMean(), actual.getMean(), 1.0e-9);
+            assertEquals(expected.getStandardDeviation(), actual.getStandardDeviation(), 1.0e-6);
+        }
+    }
+
+    @Test
+    public void testExactHistogram() throws Exception {
+        float[][] values = createValues();
+        GridCoverage2D coverage = createCoverage(values);
+
+        Map<Double, Integer> expected = new TreeMap<Double, Integer>();
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                float value = values[row][col];
+                if (value == NODATA || Float.isNaN(value)) {
+                    continue;
+                }
+                Integer frequency = expected.get(Double.valueOf(value));
+                expected.put(Double.valueOf(value), frequency == null ? 1 : frequency + 1);
+            }
+        }
+
+        for (int parallelism : new int[] { 1, 4 }) {
+            HistogramGridCoverage histogram = new HistogramGridCoverage();
+            histogram.setParallelism(parallelism);
+            assertTrue(histogram.calculateHistogram(coverage, 0, NODATA));
+
+            double[] arrayValues = histogram.getArrayValues();
+            int[] frequencies = histogram.getArrayFrequencies();
+            assertEquals(expected.size(), arrayValues.length);
+
+            int index = 0;
+            for (Map.Entry<Double, Integer> entry : expected.entrySet()) {
+                assertEquals(entry.getKey().doubleValue(), arrayValues[index], 0d);
+                assertEquals(entry.getValue().intValue(), frequencies[index]);
+                index++;
+            }
+        }
+    }
+
+    @Test
+    public void testBinnedHistogram() throws Exception {
+        GridCoverage2D coverage = createCoverage(createValues());
+
+        HistogramGridCoverage exact = new HistogramGridCoverage();
+        assertTrue(exact.calculateHistogram(coverage, 0, NODATA));
+        final int count = exact.getCount();
+        final int distinct = exact.getArrayValues().length;
+
+        // a requested bin count
+        HistogramGridCoverage binned = new HistogramGridCoverage();
+        binned.setBinCount(10);
+        binned.setParallelism(4);
+        assertTrue(binned.calculateHistogram(coverage, 0, NODATA));
+        assertTrue(binned.getArrayValues().length <= 10);
+        assertEquals(count, sum(binned.getArrayFrequencies()));
+
+        // too many distinct values fall back to fixed width bins
+        HistogramGridCoverage limited = new HistogramGridCoverage();
+        limited.setMaxDistinctValues(distinct / 2);
+        assertTrue(limited.calculateHistogram(coverage, 0, NODATA));
+        assertEquals(count, sum(limited.getArrayFrequencies()));
+        assertEquals(count, limited.getCount());
+
+        // the limit is not reached, the values stay exact
+        HistogramGridCoverage unlimited = new HistogramGridCoverage();
+        unlimited.setMaxDistinctValues(distinct);
+        assertTrue(unlimited.calculateHistogram(coverage, 0, NODATA));
+        assertEquals(distinct, unlimited.getArrayValues().length);
+    }
+
+    private int sum(int[] frequencies) {
+        int sum = 0;
+        for (int frequency : frequencies) {
+            sum += frequency;
+        }
+        return sum;
+    }
+
+    /**
+     * Values with repeated classes, NoData cells and NaN cells.
+     */
+    private float[][] createValues() {
+        float[][] values = new float[HEIGHT][WIDTH];
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                values[row][col] = (float) ((col * 7 + row * 13) % 53) * 0.5f + 100f;
+            }
+        }
+
+        for (int row = 10; row < 20; row++) {
+            for (int col = 30; col < 40; col++) {
+                values[row][col] = NODATA;
+            }
+        }
+        values[0][0] = Float.NaN;
+        values[HEIGHT - 1][WIDTH - 1] = Float.NaN;
+        values[TILE_SIZE][TILE_SIZE] = NODATA;
+        return values;
+    }
+
+    private GridCoverage2D createCoverage(float[][] values) {
+        SampleModel sampleModel = RasterFactory.createBandedSampleModel(DataBuffer.TYPE_FLOAT,
+                TILE_SIZE, TILE_SIZE, 1);
+        TiledImage image = new TiledImage(0, 0, WIDTH, HEIGHT, 0, 0, sampleModel,
+                PlanarImage.createColorModel(sampleModel));
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                image.setSample(col, row, 0, values[row][col]);
+            }
+        }
+
+        ReferencedEnvelope extent = new ReferencedEnvelope(0, WIDTH, 0, HEIGHT,
+                DefaultEngineeringCRS.GENERIC_2D);
+        return RasterHelper.createGridCoverage("values", image, 1, NODATA, 100.0, 126.0, extent);
+    }
+}
@@ -0,0 +1,143 @@
+package org.geotools.process.spatialstatistics;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.util.EnumSet;
+import java.util.Map;
+
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TiledImage;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.process.spatialstatistics.enumeration.SlopeType;
+import org.geotools.process.spatialstatistics.enumeration.TerrainType;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterAspectOperation;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterCurvatureOperation;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterHelper;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterHillshadeOperation;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterRoughnessOperation;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterSlopeOperation;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterTPIOperation;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterTRIOperation;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterTerrainOperation;
+import org.geotools.referencing.crs.DefaultEngineeringCRS;
+import org.junit.Test;
+
+public class RasterTerrainOperationTest extends SpatialStatisticsTestCase {
+
+    private static final int WIDTH = 45;
+
+    private static final int HEIGHT = 40;
+
+    private static final int TILE_SIZE = 16;
+
+    private static final double CELL_SIZE = 5.0;
+
+    private static final float NODATA = -9999f;
+
+    private static final double Z_FACTOR = 2.0;
+
+    @Test
+    public void testFusedProducts() throws Exception {
+        GridCoverage2D surface = createSurface();
+
+        RasterTerrainOperation operation = new RasterTerrainOperation();
+        operation.setSlopeType(SlopeType.Degree);
+        operation.setAzimuth(300.0);
+        operation.setAltitude(40.0);
+        operation.setZFactor(Z_FACTOR);
+        operation.setParallelism(4);
+        Map<TerrainType, GridCoverage2D> result = operation.execute(surface,
+                EnumSet.allOf(TerrainType.class));
+        assertEquals(TerrainType.values().length, result.size());
+
+        // every fused product equals the output of its own operation
+        assertSameImage(new RasterSlopeOperation().execute(surface, SlopeType.Degree, Z_FACTOR),
+                result.get(TerrainType.Slope));
+        assertSameImage(new RasterAspectOperation().execute(surface),
+                result.get(TerrainType.Aspect));
+        assertSameImage(new RasterHillshadeOperation().execute(surface, 300.0, 40.0, Z_FACTOR),
+                result.get(TerrainType.Hillshade));
+        assertSameImage(new RasterCurvatureOperation().execute(surface, Z_FACTOR),
+                result.get(TerrainType.Curvature));
+        assertSameImage(new RasterTPIOperation().execute(surface), result.get(TerrainType.TPI));
+        assertSameImage(new RasterTRIOperation().execute(surface), result.get(TerrainType.TRI));
+        assertSameImage(new RasterRoughnessOperation().execute(surface),
+                result.get(TerrainType.Roughness));
+    }
+
+    @Test
+    public void testSubset() throws Exception {
+        GridCoverage2D surface = createSurface();
+
+        RasterTerrainOperation operation = new RasterTerrainOperation();
+        Map<TerrainType, GridCoverage2D> result = operation.execute(surface,
+                EnumSet.of(TerrainType.TPI, TerrainType.Slope));
+        assertEquals(2, result.size());
+        assertFalse(result.containsKey(TerrainType.Aspect));
+
+        assertSameImage(new RasterSlopeOperation().execute(surface, SlopeType.Degree),
+                result.get(TerrainType.Slope));
+        assertSameImage(new RasterTPIOperation().execute(surface), result.get(TerrainType.TPI));
+
+        assertTrue(operation.execute(surface, EnumSet.noneOf(TerrainType.class)).isEmpty());
+    }
+
+    private void assertSameImage(GridCoverage2D expected, GridCoverage2D actual) {
+        assertNotNull(actual);
+        Raster source = expected.getRenderedImage().getData();
+        Raster target = actual.getRenderedImage().getData();
+        assertEquals(source.getWidth(), target.getWidth());
+        assertEquals(source.getHeight(), target.getHeight());
+
+        final double sourceNoData = RasterHelper.getNoDataValue(expected);
+        final double targetNoData = RasterHelper.getNoDataValue(actual);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                double value = source.getSampleDouble(col, row, 0);
+                if (value == sourceNoData) {
+                    assertEquals(targetNoData, target.getSampleDouble(col, row, 0), 0d);
+                } else {
+                    assertEquals(value, target.getSampleDouble(col, row, 0), 0d);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tiled surface with NoData cells inside, on tile boundaries and on the image edges.
+     */
+    private GridCoverage2D createSurface() {
+        SampleModel sampleModel = RasterFactory.createBandedSampleModel(DataBuffer.TYPE_FLOAT,
+                TILE_SIZE, TILE_SIZE, 1);
+        TiledImage image = new TiledImage(0, 0, WIDTH, HEIGHT, 0, 0, sampleModel,
+                PlanarImage.createColorModel(sampleModel));
+
+        double minValue = Double.MAX_VALUE;
+        double maxValue = -Double.MAX_VALUE;
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                float value = (float) (50.0 + 0.5 * col * col / WIDTH + 4.0 * Math.cos(row / 4.0)
+                        + 6.0 * Math.sin((col + row) / 9.0));
+                boolean isNoData = (col == 0 && row % 5 == 0) || row == HEIGHT - 1 && col > 30
+                        || (col >= TILE_SIZE - 1 && col <= TILE_SIZE && row >= 20 && row < 26)
+                        || (col == 2 * TILE_SIZE && row == TILE_SIZE);
+                if (isNoData) {
+                    value = NODATA;
+                } else {
+                    minValue = Math.min(minValue, value);
+                    maxValue = Math.max(maxValue, value);
+                }
+                image.setSample(col, row, 0, value);
+            }
+        }
+
+        ReferencedEnvelope extent = new ReferencedEnvelope(0, WIDTH * CELL_SIZE, 0, HEIGHT
+                * CELL_SIZE, DefaultEngineeringCRS.GENERIC_2D);
+        return RasterHelper.createGridCoverage("surface", image, 1, NODATA, minValue, maxValue,
+                extent);
+    }
+}
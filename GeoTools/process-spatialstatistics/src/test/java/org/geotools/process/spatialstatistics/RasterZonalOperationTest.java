@@ -0,0 +1,164 @@
+package org.geotools.process.spatialstatistics;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.Raster;
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.coverage.grid.io.GridCoverage2DReader;
+import org.geotools.coverage.grid.io.GridFormatFinder;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.process.spatialstatistics.core.SSUtils;
+import org.geotools.process.spatialstatistics.enumeration.ZonalStatisticsType;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterHelper;
+import org.geotools.process.spatialstatistics.gridcoverage.RasterZonalOperation;
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Polygon;
+
+public class RasterZonalOperationTest extends SpatialStatisticsTestCase {
+
+    // overlapping zones: start column, start row, end column, end row (exclusive)
+    private static final int[][] ZONES = { { 10, 20, 40, 60 }, { 30, 50, 70, 90 } };
+
+    private static final ZonalStatisticsType[] TYPES = { ZonalStatisticsType.Count,
+            ZonalStatisticsType.Sum, ZonalStatisticsType.Mean, ZonalStatisticsType.Minimum,
+            ZonalStatisticsType.Maximum, ZonalStatisticsType.Range, ZonalStatisticsType.StdDev,
+            ZonalStatisticsType.Majority, ZonalStatisticsType.P50 };
+
+    @Test
+    public void testStatistics() throws Exception {
+        File file = new File(FileUtils.toFile(url(this, null)), "sfdem.tif");
+
+        AbstractGridFormat format = GridFormatFinder.findFormat(file);
+        GridCoverage2DReader reader = format.getReader(file);
+        GridCoverage2D coverage = reader.read(null);
+        assertNotNull(coverage);
+
+        SimpleFeatureCollection zones = createZones(coverage);
+
+        RasterZonalOperation process = new RasterZonalOperation();
+        SimpleFeatureCollection result = process.execute(zones, coverage, Integer.valueOf(0),
+                TYPES);
+        assertNotNull(result);
+        assertEquals(ZONES.length, result.size());
+
+        Raster raster = coverage.getRenderedImage().getData();
+        final double noData = RasterHelper.getNoDataValue(coverage);
+
+        SimpleFeatureIterator featureIter = result.features();
+        try {
+            while (featureIter.hasNext()) {
+                SimpleFeature feature = featureIter.next();
+                int[] zone = ZONES[((Number) feature.getAttribute("zone")).intValue()];
+
+                // brute force over the cells of the zone
+                double[] values = new double[(zone[2] - zone[0]) * (zone[3] - zone[1])];
+                int count = 0;
+                double sum = 0;
+                Map<Double, Integer> frequencies = new HashMap<Double, Integer>();
+                for (int row = zone[1]; row < zone[3]; row++) {
+                    for (int col = zone[0]; col < zone[2]; col++) {
+                        double value = raster.getSampleDouble(col, row, 0);
+                        if (Double.isNaN(value) || SSUtils.compareDouble(noData, value)) {
+                            continue;
+                        }
+                        values[count++] = value;
+                        sum += value;
+
+                        Integer frequency = frequencies.get(Double.valueOf(value));
+                        frequencies.put(Double.valueOf(value),
+                                Integer.valueOf(frequency == null ? 1 : frequency + 1));
+                    }
+                }
+                assertTrue(count > 0);
+
+                values = Arrays.copyOf(values, count);
+                Arrays.sort(values);
+                double mean = sum / count;
+
+                double sumSquares = 0;
+                for (double value : values) {
+                    sumSquares += (value - mean) * (value - mean);
+                }
+
+                double majority = Double.NaN;
+                int maxFrequency = 0;
+                for (Map.Entry<Double, Integer> entry : frequencies.entrySet()) {
+                    int frequency = entry.getValue().intValue();
+                    double value = entry.getKey().doubleValue();
+                    if (frequency > maxFrequency || (frequency == maxFrequency && value < majority)) {
+                        majority = value;
+                        maxFrequency = frequency;
+                    }
+                }
+
+                final double tolerance = 1.0e-9 * Math.max(1.0, Math.abs(sum));
+                assertEquals(Integer.valueOf(count), feature.getAttribute("Count"));
+                assertEquals(sum, getValue(feature, "Sum"), tolerance);
+                assertEquals(mean, getValue(feature, "Mean"), 1.0e-9 * Math.abs(mean) + 1.0e-9);
+                assertEquals(values[0], getValue(feature, "Minimum"), 0d);
+                assertEquals(values[count - 1], getValue(feature, "Maximum"), 0d);
+                assertEquals(values[count - 1] - values[0], getValue(feature, "Range"), 0d);
+                assertEquals(Math.sqrt(sumSquares / count), getValue(feature, "StdDev"), 1.0e-6);
+                assertEquals(majority, getValue(feature, "Majority"), 0d);
+
+                // the median comes from the quantile sketch, its rank error is bounded
+                double median = getValue(feature, "P50");
+                int rank = 0;
+                while (rank < count && values[rank] < median) {
+                    rank++;
+                }
+                assertTrue(Math.abs((double) rank / count - 0.5) <= 0.05);
+
+                double cellArea = ((Number) feature.getAttribute("Cell_Area")).doubleValue();
+                assertTrue(cellArea > 0);
+            }
+        } finally {
+            featureIter.close();
+        }
+    }
+
+    private SimpleFeatureCollection createZones(GridCoverage2D coverage) {
+        SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+        typeBuilder.setName("zones");
+        typeBuilder.setCRS(coverage.getCoordinateReferenceSystem());
+        typeBuilder.add("the_geom", Polygon.class);
+        typeBuilder.add("zone", Integer.class);
+        SimpleFeatureType schema = typeBuilder.buildFeatureType();
+
+        // the grid to world transform maps the cell centres, the zones follow the cell edges
+        AffineTransform gridToWorld = (AffineTransform) coverage.getGridGeometry()
+                .getGridToCRS2D();
+
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        for (int index = 0; index < ZONES.length; index++) {
+            int[] zone = ZONES[index];
+            double[] corners = { zone[0] - 0.5, zone[1] - 0.5, zone[2] - 0.5, zone[3] - 0.5 };
+            gridToWorld.transform(corners, 0, corners, 0, 2);
+
+            Envelope envelope = new Envelope(corners[0], corners[2], corners[1], corners[3]);
+            builder.add(JTS.toGeometry(envelope));
+            builder.add(Integer.valueOf(index));
+            features.add(builder.buildFeature("zones." + (index + 1)));
+        }
+        return features;
+    }
+
+    private double getValue(SimpleFeature feature, String field) {
+        return ((Number) feature.getAttribute(field)).doubleValue();
+    }
+}
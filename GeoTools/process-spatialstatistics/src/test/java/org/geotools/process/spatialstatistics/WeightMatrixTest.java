@@ -0,0 +1,131 @@
+package org.geotools.process.spatialstatistics;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.geotools.api.data.SimpleFeatureSource;
+import org.geotools.api.filter.FilterFactory;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.process.spatialstatistics.core.AbstractWeightMatrix.SpatialWeightMatrixType;
+import org.geotools.process.spatialstatistics.core.WeightMatrix;
+import org.geotools.process.spatialstatistics.core.WeightMatrixBuilder;
+import org.geotools.process.spatialstatistics.core.WeightRow;
+import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
+import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
+import org.junit.Test;
+
+public class WeightMatrixTest extends SpatialStatisticsTestCase {
+    private final FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        WeightMatrix matrix = new WeightMatrix(SpatialWeightMatrixType.Distance, true);
+        matrix.setupVariables("sample", "uid");
+        matrix.setProperty("spatialConcept", SpatialConcept.FixedDistance.name());
+        matrix.visit("a", "b", 1.5);
+        matrix.visit("a", Integer.valueOf(7), 2.5);
+        matrix.visit("b", "a", 1.5);
+        matrix.visit(Integer.valueOf(7), Long.valueOf(9L), 0.25);
+
+        File file = File.createTempFile("weights", ".swm");
+        file.delete();
+        try {
+            matrix.save(file);
+
+            WeightMatrix loaded = new WeightMatrix(SpatialWeightMatrixType.Contiguity, true);
+            assertTrue(loaded.load(file, null));
+
+            assertEquals("sample", loaded.getTypeName());
+            assertEquals("uid", loaded.getUniqueField());
+            assertEquals(SpatialWeightMatrixType.Distance, loaded.getSpatialWeightMatrixType());
+            assertEquals(SpatialConcept.FixedDistance.name(),
+                    loaded.getProperty("spatialConcept"));
+            assertEquals(matrix.getOrdinalCount(), loaded.getOrdinalCount());
+
+            for (int ordinal = 0; ordinal < matrix.getOrdinalCount(); ordinal++) {
+                Object id = matrix.getID(ordinal);
+                int loadedOrdinal = loaded.getOrdinal(id);
+                assertTrue(loadedOrdinal >= 0);
+                assertEquals(matrix.getNeighborCount(ordinal),
+                        loaded.getNeighborCount(loadedOrdinal));
+
+                for (int k = 0; k < matrix.getNeighborCount(ordinal); k++) {
+                    Object neighbor = matrix.getID(matrix.getNeighbor(ordinal, k));
+                    assertEquals(neighbor, loaded.getID(loaded.getNeighbor(loadedOrdinal, k)));
+                    assertEquals(matrix.getDistance(ordinal, k),
+                            loaded.getDistance(loadedOrdinal, k), 0d);
+                }
+            }
+
+            assertTrue(loaded.isNeighbor("a", Integer.valueOf(7)));
+            assertTrue(loaded.isNeighbor(Integer.valueOf(7), Long.valueOf(9L)));
+            assertFalse(loaded.isNeighbor(Long.valueOf(9L), Integer.valueOf(7)));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testReuseSavedWeights() throws Exception {
+        SimpleFeatureSource source = dataStore.getFeatureSource("hexa");
+        SimpleFeatureCollection features = source.getFeatures();
+
+        File file = File.createTempFile("hexa", ".swm");
+        file.delete();
+        try {
+            // the first build saves the weights, the second one loads them
+            WeightMatrixBuilder built = createBuilder(file);
+            built.buildWeightMatrix(features, "a");
+            assertFalse(built.isLoadedFromFile());
+            assertTrue(file.exists());
+
+            WeightMatrixBuilder loaded = createBuilder(file);
+            loaded.buildWeightMatrix(features, "a");
+            assertTrue(loaded.isLoadedFromFile());
+
+            final int featureCount = built.getEvents().size();
+            assertEquals(features.size(), featureCount);
+            assertEquals(featureCount, loaded.getEvents().size());
+
+            WeightRow expected = new WeightRow();
+            WeightRow actual = new WeightRow();
+            for (int i = 0; i < featureCount; i++) {
+                built.getRow(i, expected);
+                loaded.getRow(i, actual);
+
+                assertTrue(expected.size > 0);
+                assertEquals(expected.size, actual.size);
+                assertTrue(Arrays.equals(Arrays.copyOf(expected.indices, expected.size),
+                        Arrays.copyOf(actual.indices, actual.size)));
+                assertTrue(Arrays.equals(Arrays.copyOf(expected.weights, expected.size),
+                        Arrays.copyOf(actual.weights, actual.size)));
+            }
+
+            // weights saved for other features are rebuilt
+            SimpleFeatureCollection subset = source.getFeatures(ff.less(ff.property("id"),
+                    ff.literal(10)));
+            WeightMatrixBuilder rebuilt = createBuilder(file);
+            rebuilt.buildWeightMatrix(subset, "a");
+            assertFalse(rebuilt.isLoadedFromFile());
+            assertEquals(subset.size(), rebuilt.getEvents().size());
+
+            WeightRow row = new WeightRow();
+            for (int i = 0; i < rebuilt.getEvents().size(); i++) {
+                rebuilt.getRow(i, row);
+                for (int k = 0; k < row.size; k++) {
+                    assertTrue(row.indices[k] < subset.size());
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private WeightMatrixBuilder createBuilder(File file) {
+        WeightMatrixBuilder builder = new WeightMatrixBuilder(SpatialConcept.ContiguityEdgesNodes,
+                StandardizationMethod.Row);
+        builder.setSpatialWeightsFile(file);
+        return builder;
+    }
+}
@@ -0,0 +1,150 @@
+package org.geotools.process.spatialstatistics;
+
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.process.spatialstatistics.autocorrelation.GlobalMoranIStatisticOperation;
+import org.geotools.process.spatialstatistics.autocorrelation.GlobalMoranIStatisticOperation.MoransI;
+import org.geotools.process.spatialstatistics.core.SpatialEvent;
+import org.geotools.process.spatialstatistics.core.WeightMatrixBuilder;
+import org.geotools.process.spatialstatistics.enumeration.DistanceMethod;
+import org.geotools.process.spatialstatistics.enumeration.SpatialConcept;
+import org.geotools.process.spatialstatistics.enumeration.StandardizationMethod;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+public class WeightMomentsTest extends SpatialStatisticsTestCase {
+
+    private static final int COUNT = 150;
+
+    @Test
+    public void testKNearestNeighbors() throws Exception {
+        // asymmetric sparse weights, wij != wji
+        assertSameMoransI(SpatialConcept.KNearestNeighbors, StandardizationMethod.None, 0.0);
+        assertSameMoransI(SpatialConcept.KNearestNeighbors, StandardizationMethod.Row, 0.0);
+    }
+
+    @Test
+    public void testFixedDistance() throws Exception {
+        assertSameMoransI(SpatialConcept.FixedDistance, StandardizationMethod.None, 12.0);
+        assertSameMoransI(SpatialConcept.FixedDistance, StandardizationMethod.Row, 12.0);
+    }
+
+    @Test
+    public void testInverseDistance() throws Exception {
+        // dense weights, the transposed row standardized weights are derived from the row sums
+        assertSameMoransI(SpatialConcept.InverseDistance, StandardizationMethod.None, 0.0);
+        assertSameMoransI(SpatialConcept.InverseDistance, StandardizationMethod.Row, 0.0);
+    }
+
+    /**
+     * Compares Moran's I of the operation with the dense formulas over every pair of features.
+     */
+    private void assertSameMoransI(SpatialConcept spatialConcept,
+            StandardizationMethod standardization, double distanceBand) {
+        SimpleFeatureCollection features = createFeatures();
+
+        GlobalMoranIStatisticOperation operation = new GlobalMoranIStatisticOperation();
+        operation.setSpatialConceptType(spatialConcept);
+        operation.setStandardizationType(standardization);
+        operation.setDistanceBand(distanceBand);
+        operation.setParallelism(3);
+        MoransI actual = operation.execute(features, "val");
+
+        WeightMatrixBuilder builder = new WeightMatrixBuilder(spatialConcept, standardization);
+        builder.setDistanceMethod(DistanceMethod.Euclidean);
+        builder.setDistanceBandWidth(distanceBand);
+        builder.setSelfNeighbors(false);
+        builder.buildWeightMatrix(features, "val");
+
+        List<SpatialEvent> events = builder.getEvents();
+        final int n = events.size();
+        double[][] w = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j) {
+                    double wij = builder.getWeight(events.get(i), events.get(j));
+                    w[i][j] = builder.standardizeWeight(events.get(i), wij);
+                }
+            }
+        }
+
+        double mean = 0.0;
+        for (SpatialEvent event : events) {
+            mean += event.xVal;
+        }
+        mean /= n;
+
+        double s0 = 0.0;
+        double s1 = 0.0;
+        double s2 = 0.0;
+        double zijWSum = 0.0;
+        double ziSum2 = 0.0;
+        double ziSum4 = 0.0;
+        for (int i = 0; i < n; i++) {
+            double zi = events.get(i).xVal - mean;
+            ziSum2 += zi * zi;
+            ziSum4 += zi * zi * zi * zi;
+
+            double rowSum = 0.0;
+            double columnSum = 0.0;
+            for (int j = 0; j < n; j++) {
+                double zj = events.get(j).xVal - mean;
+                s0 += w[i][j];
+                s1 += 0.5 * (w[i][j] + w[j][i]) * (w[i][j] + w[j][i]);
+                zijWSum += w[i][j] * zi * zj;
+                rowSum += w[i][j];
+                columnSum += w[j][i];
+            }
+            s2 += (rowSum + columnSum) * (rowSum + columnSum);
+        }
+
+        // Cliff and Ord, randomization assumption
+        double m2 = ziSum2 / n;
+        double b2 = (ziSum4 / n) / (m2 * m2);
+        double observed = zijWSum / (m2 * s0);
+        double expected = -1.0 / (n - 1.0);
+        double a = n * ((n * n - 3.0 * n + 3.0) * s1 - n * s2 + 3.0 * s0 * s0);
+        double b = b2 * ((n * n - n) * s1 - 2.0 * n * s2 + 6.0 * s0 * s0);
+        double c = (n - 1.0) * (n - 2.0) * (n - 3.0) * s0 * s0;
+        double variance = (a - b) / c - expected * expected;
+
+        String message = spatialConcept + " " + standardization;
+        assertEquals(message, observed, actual.getObservedIndex(), 1.0e-9);
+        assertEquals(message, expected, actual.getExpectedIndex(), 1.0e-12);
+        assertEquals(message, variance, actual.getZVariance(), 1.0e-9 * Math.abs(variance));
+    }
+
+    /**
+     * Random points in a 100 x 100 square with a value trending to the east.
+     */
+    private SimpleFeatureCollection createFeatures() {
+        SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+        typeBuilder.setName("samples");
+        typeBuilder.add("the_geom", Point.class);
+        typeBuilder.add("val", Double.class);
+        SimpleFeatureType schema = typeBuilder.buildFeatureType();
+
+        Random random = new Random(11L);
+        GeometryFactory gf = JTSFactoryFinder.getGeometryFactory();
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+        for (int index = 0; index < COUNT; index++) {
+            double x = random.nextDouble() * 100.0;
+            double y = random.nextDouble() * 100.0;
+
+            builder.add(gf.createPoint(new Coordinate(x, y)));
+            builder.add(Double.valueOf(x / 10.0 + random.nextGaussian() * 3.0));
+            features.add(builder.buildFeature("samples." + (index + 1)));
+        }
+        return features;
+    }
+}